@@ -11,19 +11,20 @@ import static org.jhotdraw.draw.AttributeKeys.*;
 import static org.jhotdraw.draw.AttributeKeys.CANVAS_HEIGHT;
 
 import java.awt.*;
-
-
 import java.awt.font.FontRenderContext;
 import java.awt.geom.Rectangle2D;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.Supplier;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import javax.swing.event.EventListenerList;
 import javax.swing.event.UndoableEditEvent;
 import javax.swing.event.UndoableEditListener;
@@ -36,10 +37,18 @@ import org.jhotdraw.draw.figure.Attributes;
 import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.io.InputFormat;
 import org.jhotdraw.draw.io.OutputFormat;
+import org.jhotdraw.geom.BoundsTree;
+import org.jhotdraw.geom.DirtyRegion;
 
 /**
  * This abstract class can be extended to implement a {@link Drawing}.
  *
+ * <p>The bulk operations {@code addAll}, {@code removeAll}, {@code replaceChildren}, {@code
+ * basicAddAll} and {@code basicRemoveAll} do not call {@code basicAdd} and {@code basicRemoveChild}
+ * for each figure. They replace the children in a single pass with {@link #basicReplaceChildren}.
+ * Subclasses which index the children must override {@code basicReplaceChildren} as well as {@code
+ * basicAdd} and {@code basicRemoveChild}.
+ *
  * @author Werner Randelshofer
  * @version $Id$
  */
@@ -51,12 +60,30 @@ public abstract class AbstractDrawing implements Drawing {
   protected transient Rectangle2D.Double cachedBounds;
 
   protected transient Rectangle2D.Double cachedDrawingArea;
+
+  /**
+   * Maintains the union of the drawing areas of the children, so that a change of a single child
+   * does not require to iterate over all children. Is created lazily.
+   */
+  private transient BoundsTree<Figure> childDrawingAreas;
+
   protected int changingDepth = 0;
   protected ArrayList<Figure> children = new ArrayList<>();
   protected EventHandler eventHandler = new EventHandler();
   protected EventListenerList listenerList = new EventListenerList();
   private Attributes attributes = new Attributes(this::fireDrawingAttributeChanged);
   private transient FontRenderContext fontRenderContext;
+  private boolean isCoalescingEvents;
+  /**
+   * The invalidated areas which have not been delivered yet, while events are coalesced. Access is
+   * synchronized on the region, because figures may change on a worker thread.
+   */
+  private transient DirtyRegion pendingArea = new DirtyRegion();
+
+  private transient boolean isFlushPending;
+  /** Coalesces the updates of the connections. Is created lazily. */
+  private transient ConnectionUpdateScheduler connectionUpdateScheduler;
+
   private LinkedList<InputFormat> inputFormats = new LinkedList<>();
   private LinkedList<OutputFormat> outputFormats = new LinkedList<>();
   /** Creates a new instance. */
@@ -64,7 +91,6 @@ public abstract class AbstractDrawing implements Drawing {
     eventHandler = createEventHandler();
   }
 
-
   @Override
   public void drawCanvas(Graphics2D g) {
     if (attr().get(CANVAS_WIDTH) != null && attr().get(CANVAS_HEIGHT) != null) {
@@ -73,10 +99,10 @@ public abstract class AbstractDrawing implements Drawing {
       Double fillOpacity = attr().get(CANVAS_FILL_OPACITY);
       if (canvasColor != null && fillOpacity > 0) {
         canvasColor =
-                new Color((canvasColor.getRGB() & 0xffffff) | ((int) (fillOpacity * 255) << 24), true);
+            new Color((canvasColor.getRGB() & 0xffffff) | ((int) (fillOpacity * 255) << 24), true);
         // Fill the canvas
         Rectangle2D.Double r =
-                new Rectangle2D.Double(0, 0, attr().get(CANVAS_WIDTH), attr().get(CANVAS_HEIGHT));
+            new Rectangle2D.Double(0, 0, attr().get(CANVAS_WIDTH), attr().get(CANVAS_HEIGHT));
         g.setColor(canvasColor);
         g.fill(r);
       }
@@ -102,6 +128,11 @@ public abstract class AbstractDrawing implements Drawing {
     addAll(getChildCount(), figures);
   }
 
+  @Override
+  public void addAll(int index, Collection<? extends Figure> figures) {
+    replaceChildren(insertChildren(index, figures));
+  }
+
   @Override
   public void addDrawingListener(DrawingListener listener) {
     listenerList.add(DrawingListener.class, listener);
@@ -115,7 +146,6 @@ public abstract class AbstractDrawing implements Drawing {
     inputFormats.add(format);
   }
 
-
   @Override
   public void addOutputFormat(OutputFormat format) {
     outputFormats.add(format);
@@ -134,6 +164,9 @@ public abstract class AbstractDrawing implements Drawing {
   public void basicAdd(int index, Figure figure) {
     children.add(index, figure);
     figure.addFigureListener(eventHandler);
+    if (childDrawingAreas != null) {
+      childDrawingAreas.add(figure, figure.getDrawingArea(1.0));
+    }
   }
 
   @Override
@@ -143,16 +176,14 @@ public abstract class AbstractDrawing implements Drawing {
 
   @Override
   public void basicAddAll(int index, Collection<? extends Figure> figures) {
-    for (Figure f : figures) {
-      basicAdd(index++, f);
-    }
+    ArrayList<Figure> added = new ArrayList<>(figures);
+    basicReplaceChildren(insertChildren(index, added), Collections.emptyList(), added);
   }
 
   @Override
   public void basicRemoveAll(Collection<? extends Figure> figures) {
-    for (Figure f : new ArrayList<>(getChildren())) {
-      basicRemove(f);
-    }
+    ArrayList<Figure> removed = new ArrayList<>();
+    basicReplaceChildren(retainChildren(figures, removed), removed, Collections.emptyList());
   }
 
   @Override
@@ -186,6 +217,10 @@ public abstract class AbstractDrawing implements Drawing {
     }
     that.attributes = Attributes.from(attributes, that::fireDrawingAttributeChanged);
     that.listenerList = new EventListenerList();
+    that.childDrawingAreas = null;
+    that.pendingArea = new DirtyRegion();
+    that.isFlushPending = false;
+    that.connectionUpdateScheduler = null;
 
     that.inputFormats =
         (this.inputFormats == null) ? null : (LinkedList<InputFormat>) this.inputFormats.clone();
@@ -225,17 +260,21 @@ public abstract class AbstractDrawing implements Drawing {
 
   @Override
   public Rectangle2D.Double getDrawingArea(double factor) {
+    if (factor != 1.0) {
+      Rectangle2D.Double area = null;
+      for (Figure f : children) {
+        if (area == null) {
+          area = f.getDrawingArea(factor);
+        } else {
+          area.add(f.getDrawingArea(factor));
+        }
+      }
+      return (area == null) ? new Rectangle2D.Double() : area;
+    }
     if (cachedDrawingArea == null) {
-      if (getChildCount() == 0) {
+      cachedDrawingArea = getChildDrawingAreas().getUnion();
+      if (cachedDrawingArea == null) {
         cachedDrawingArea = new Rectangle2D.Double();
-      } else {
-        for (Figure f : children) {
-          if (cachedDrawingArea == null) {
-            cachedDrawingArea = f.getDrawingArea(factor);
-          } else {
-            cachedDrawingArea.add(f.getDrawingArea(factor));
-          }
-        }
       }
     }
     return new Rectangle2D.Double(
@@ -296,18 +335,128 @@ public abstract class AbstractDrawing implements Drawing {
 
   @Override
   public void removeAll(Collection<? extends Figure> figures) {
-    willChange();
-    for (Figure f : new ArrayList<Figure>(figures)) {
-      remove(f);
-    }
-    changed();
+    replaceChildren(retainChildren(figures, new ArrayList<>()));
   }
 
   @Override
   public void removeAllChildren() {
-    for (Figure f : new ArrayList<>(getChildren())) {
-      basicRemove(f);
+    basicReplaceChildren(new ArrayList<>(), new ArrayList<>(children), Collections.emptyList());
+  }
+
+  @Override
+  public void replaceChildren(List<? extends Figure> figures) {
+    ArrayList<Figure> newChildren = new ArrayList<>(figures);
+    Set<Figure> oldSet = Collections.newSetFromMap(new IdentityHashMap<>(children.size()));
+    oldSet.addAll(children);
+    Set<Figure> newSet = Collections.newSetFromMap(new IdentityHashMap<>(newChildren.size()));
+    ArrayList<Figure> added = new ArrayList<>();
+    int addedIndex = -1;
+    for (int i = 0, n = newChildren.size(); i < n; i++) {
+      Figure f = newChildren.get(i);
+      if (!newSet.add(f)) {
+        throw new IllegalArgumentException("figure is in the list more than once: " + f);
+      }
+      if (!oldSet.contains(f)) {
+        if (addedIndex == -1) {
+          addedIndex = i;
+        }
+        added.add(f);
+      }
     }
+    ArrayList<Figure> removed = new ArrayList<>();
+    int removedIndex = -1;
+    for (int i = 0, n = children.size(); i < n; i++) {
+      Figure f = children.get(i);
+      if (!newSet.contains(f)) {
+        if (removedIndex == -1) {
+          removedIndex = i;
+        }
+        removed.add(f);
+      }
+    }
+    if (removed.isEmpty() && added.isEmpty() && newChildren.equals(children)) {
+      return;
+    }
+    basicReplaceChildren(newChildren, removed, added);
+    for (Figure f : removed) {
+      f.removeNotify(this);
+    }
+    for (Figure f : added) {
+      f.addNotify(this);
+    }
+    if (!removed.isEmpty()) {
+      fireFiguresRemoved(removed, removedIndex);
+    }
+    if (!added.isEmpty()) {
+      fireFiguresAdded(added, addedIndex);
+    }
+    if (removed.isEmpty() && added.isEmpty()) {
+      // Only the order of the children has changed
+      fireDrawingChanged(getDrawingArea());
+    }
+  }
+
+  /**
+   * Replaces the children in a single pass, without notifying the figures and the drawing
+   * listeners. Subclasses which index the children override this method to update the index in one
+   * pass, instead of overriding {@code basicAdd} and {@code basicRemoveChild} only.
+   *
+   * @param newChildren the new children
+   * @param removed the old children which are not in the new children
+   * @param added the new children which are not in the old children
+   */
+  protected void basicReplaceChildren(
+      List<Figure> newChildren, List<Figure> removed, List<Figure> added) {
+    for (Figure f : removed) {
+      f.removeFigureListener(eventHandler);
+    }
+    for (Figure f : added) {
+      f.addFigureListener(eventHandler);
+    }
+    children.clear();
+    children.addAll(newChildren);
+    if (childDrawingAreas != null) {
+      if (removed.size() + added.size() > children.size()) {
+        // Rebuild the tree lazily, this is cheaper than updating most of its leaves
+        childDrawingAreas = null;
+      } else {
+        for (Figure f : removed) {
+          childDrawingAreas.remove(f);
+        }
+        for (Figure f : added) {
+          childDrawingAreas.add(f, f.getDrawingArea(1.0));
+        }
+      }
+    }
+    invalidate();
+  }
+
+  /** Returns the children with the specified figures inserted at the specified index. */
+  private ArrayList<Figure> insertChildren(int index, Collection<? extends Figure> figures) {
+    ArrayList<Figure> newChildren = new ArrayList<>(children.size() + figures.size());
+    newChildren.addAll(children.subList(0, index));
+    newChildren.addAll(figures);
+    newChildren.addAll(children.subList(index, children.size()));
+    return newChildren;
+  }
+
+  /**
+   * Returns the children without the specified figures, and adds the children which are left out to
+   * {@code removed}.
+   */
+  private ArrayList<Figure> retainChildren(
+      Collection<? extends Figure> figures, List<Figure> removed) {
+    Set<Figure> removeSet = Collections.newSetFromMap(new IdentityHashMap<>(figures.size()));
+    removeSet.addAll(figures);
+    ArrayList<Figure> newChildren = new ArrayList<>(children.size());
+    for (Figure f : children) {
+      if (removeSet.contains(f)) {
+        removed.add(f);
+      } else {
+        newChildren.add(f);
+      }
+    }
+    return newChildren;
   }
 
   @Override
@@ -347,10 +496,42 @@ public abstract class AbstractDrawing implements Drawing {
   protected Figure basicRemoveChild(int index) {
     Figure figure = children.remove(index);
     figure.removeFigureListener(eventHandler);
+    if (childDrawingAreas != null) {
+      childDrawingAreas.remove(figure);
+    }
     invalidate();
     return figure;
   }
 
+  /**
+   * Returns the union tree of the drawing areas of the children at scale factor 1.0. Builds the
+   * tree, if it has not been built yet.
+   */
+  private BoundsTree<Figure> getChildDrawingAreas() {
+    if (childDrawingAreas == null) {
+      childDrawingAreas = new BoundsTree<>();
+      for (Figure f : children) {
+        childDrawingAreas.add(f, f.getDrawingArea(1.0));
+      }
+    }
+    return childDrawingAreas;
+  }
+
+  /**
+   * Updates the drawing area of a child in the union tree.
+   *
+   * @return the previous drawing area of the child, or null if the child was not in the tree
+   */
+  private Rectangle2D.Double updateChildDrawingArea(Figure child) {
+    BoundsTree<Figure> areas = getChildDrawingAreas();
+    Rectangle2D.Double oldArea = areas.get(child);
+    if (oldArea != null) {
+      areas.update(child, child.getDrawingArea(1.0));
+      invalidate();
+    }
+    return oldArea;
+  }
+
   protected EventHandler createEventHandler() {
     return new EventHandler();
   }
@@ -362,7 +543,69 @@ public abstract class AbstractDrawing implements Drawing {
         () -> new DrawingEvent(this, attribute, oldValue, newValue));
   }
 
+  @Override
+  public void setCoalescingEvents(boolean newValue) {
+    isCoalescingEvents = newValue;
+    if (!newValue) {
+      flushDrawingEvents();
+    }
+  }
+
+  @Override
+  public boolean isCoalescingEvents() {
+    return isCoalescingEvents;
+  }
+
+  @Override
+  public void flushDrawingEvents() {
+    List<Rectangle2D.Double> areas;
+    synchronized (pendingArea) {
+      isFlushPending = false;
+      if (pendingArea.isEmpty()) {
+        return;
+      }
+      areas = pendingArea.getRectangles();
+      pendingArea.clear();
+    }
+    for (Rectangle2D.Double area : areas) {
+      fireDrawingEvent(
+          (listener, event) -> listener.drawingChanged(event), () -> new DrawingEvent(this, area));
+    }
+  }
+
+  @Override
+  public ConnectionUpdateScheduler getConnectionUpdateScheduler() {
+    if (connectionUpdateScheduler == null) {
+      connectionUpdateScheduler = new ConnectionUpdateScheduler();
+    }
+    return connectionUpdateScheduler;
+  }
+
+  /**
+   * Informs the connection update scheduler, if it has been created, that a figure has changed in
+   * the specified area, so that it can invalidate the routes of the connections near it.
+   */
+  private void fireObstacleChanged(Figure figure, Rectangle2D.Double area) {
+    if (connectionUpdateScheduler != null) {
+      connectionUpdateScheduler.figureChanged(figure, area);
+    }
+  }
+
   protected void fireDrawingChanged(Rectangle2D.Double changedArea) {
+    if (isCoalescingEvents && changedArea != null) {
+      if (listenerList.getListenerCount() == 0) {
+        return;
+      }
+      synchronized (pendingArea) {
+        pendingArea.add(changedArea);
+        if (isFlushPending) {
+          return;
+        }
+        isFlushPending = true;
+      }
+      SwingUtilities.invokeLater(this::flushDrawingEvents);
+      return;
+    }
     fireDrawingEvent(
         (listener, event) -> listener.drawingChanged(event),
         () -> new DrawingEvent(this, changedArea));
@@ -384,17 +627,52 @@ public abstract class AbstractDrawing implements Drawing {
   }
 
   protected void fireFigureAdded(Figure figure, int index) {
+    fireObstacleChanged(figure, figure.getDrawingArea());
     fireDrawingEvent(
         (listener, event) -> listener.figureAdded(event),
         () -> new DrawingEvent(this, index, figure));
   }
 
   protected void fireFigureRemoved(Figure figure, int index) {
+    fireObstacleChanged(figure, figure.getDrawingArea());
     fireDrawingEvent(
         (listener, event) -> listener.figureRemoved(event),
         () -> new DrawingEvent(this, index, figure));
   }
 
+  /** Fires a single batched event for figures which have been added at once. */
+  protected void fireFiguresAdded(List<Figure> figures, int index) {
+    for (Figure figure : figures) {
+      fireObstacleChanged(figure, figure.getDrawingArea());
+    }
+    fireDrawingEvent(
+        (listener, event) -> listener.figureAdded(event),
+        () -> new DrawingEvent(this, index, figures, unionOfDrawingAreas(figures)));
+  }
+
+  /** Fires a single batched event for figures which have been removed at once. */
+  protected void fireFiguresRemoved(List<Figure> figures, int index) {
+    for (Figure figure : figures) {
+      fireObstacleChanged(figure, figure.getDrawingArea());
+    }
+    fireDrawingEvent(
+        (listener, event) -> listener.figureRemoved(event),
+        () -> new DrawingEvent(this, index, figures, unionOfDrawingAreas(figures)));
+  }
+
+  /** Returns the union of the drawing areas of the specified figures. */
+  private static Rectangle2D.Double unionOfDrawingAreas(List<Figure> figures) {
+    Rectangle2D.Double area = null;
+    for (Figure f : figures) {
+      if (area == null) {
+        area = f.getDrawingArea();
+      } else {
+        area.add(f.getDrawingArea());
+      }
+    }
+    return area;
+  }
+
   protected int getChangingDepth() {
     return changingDepth;
   }
@@ -410,15 +688,6 @@ public abstract class AbstractDrawing implements Drawing {
 
   protected void validate() {}
 
-  private final void addAll(int index, Collection<? extends Figure> figures) {
-    for (Figure f : figures) {
-      basicAdd(index++, f);
-      f.addNotify(this);
-      fireFigureAdded(f, index);
-    }
-    invalidate();
-  }
-
   protected class EventHandler extends FigureListenerAdapter
       implements UndoableEditListener, Serializable {
 
@@ -431,15 +700,28 @@ public abstract class AbstractDrawing implements Drawing {
 
     @Override
     public void figureChanged(FigureEvent e) {
+      // We update the drawing area of the child even while the drawing is
+      // changing, so that it is up to date when changed() is called.
+      Rectangle2D.Double oldArea = updateChildDrawingArea(e.getFigure());
+      if (connectionUpdateScheduler != null) {
+        Rectangle2D.Double area = e.getFigure().getDrawingArea(1.0);
+        if (oldArea != null) {
+          area.add(oldArea);
+        }
+        fireObstacleChanged(e.getFigure(), area);
+      }
       if (!isChanging()) {
-        Rectangle2D.Double invalidatedArea = getDrawingArea();
-        invalidatedArea.add(e.getInvalidatedArea());
-        // We call invalidate/validate here, because we must layout
-        // the figure again.
-        invalidate();
+        // We call validate here, because we must layout the figure again.
         validate();
         // Forward the figureChanged event to listeners on AbstractCompositeFigure.
-        invalidatedArea.add(getDrawingArea());
+        // Only the old and the new area of the child need to be repainted.
+        Rectangle2D.Double invalidatedArea = e.getFigure().getDrawingArea(1.0);
+        if (oldArea != null) {
+          invalidatedArea.add(oldArea);
+        }
+        if (e.getInvalidatedArea() != null) {
+          invalidatedArea.add(e.getInvalidatedArea());
+        }
         fireDrawingChanged(invalidatedArea);
       }
     }
@@ -456,6 +738,7 @@ public abstract class AbstractDrawing implements Drawing {
 
     @Override
     public void attributeChanged(FigureEvent e) {
+      updateChildDrawingArea(e.getFigure());
       invalidate();
     }
 
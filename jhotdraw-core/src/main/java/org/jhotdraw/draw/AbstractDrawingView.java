@@ -211,12 +211,10 @@ public abstract class AbstractDrawingView implements DrawingView, EditableCompon
 
     @Override
     public void figureAdded(DrawingEvent evt) {
-      if (drawing.getChildCount() == 1 && getEmptyDrawingMessage() != null) {
+      if (drawing.getChildCount() == evt.getFigures().size() && getEmptyDrawingMessage() != null) {
         repaint();
       } else {
-        repaintDrawingArea(
-            evt.getFigure()
-                .getDrawingArea(AttributeKeys.getScaleFactor(getDrawingToViewTransform())));
+        repaintFigures(evt);
       }
     }
 
@@ -225,11 +223,22 @@ public abstract class AbstractDrawingView implements DrawingView, EditableCompon
       if (drawing.getChildCount() == 0 && getEmptyDrawingMessage() != null) {
         repaint();
       } else {
+        repaintFigures(evt);
+      }
+      for (Figure f : evt.getFigures()) {
+        removeFromSelection(f);
+      }
+    }
+
+    /** Repaints the figures of an added or removed event. */
+    private void repaintFigures(DrawingEvent evt) {
+      if (evt.getFigures().size() == 1) {
         repaintDrawingArea(
             evt.getFigure()
                 .getDrawingArea(AttributeKeys.getScaleFactor(getDrawingToViewTransform())));
+      } else {
+        repaintDrawingArea(evt.getInvalidatedArea());
       }
-      removeFromSelection(evt.getFigure());
     }
 
     @Override
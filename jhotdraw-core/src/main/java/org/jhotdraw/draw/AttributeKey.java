@@ -7,7 +7,10 @@
  */
 package org.jhotdraw.draw;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.Map;
 import javax.swing.undo.AbstractUndoableEdit;
 import javax.swing.undo.UndoableEdit;
@@ -49,6 +52,13 @@ public class AttributeKey<T> implements Serializable {
    * values at runtime.
    */
   private Class<T> clazz;
+  /**
+   * A dense number, which identifies the key string. Keys with the same key string have the same
+   * ordinal.
+   */
+  private transient int ordinal;
+  /** Maps key strings to ordinals. */
+  private static final HashMap<String, Integer> ORDINALS = new HashMap<>();
 
   /**
    * Creates a new instance with the specified attribute key, type token class, default value null,
@@ -94,6 +104,7 @@ public class AttributeKey<T> implements Serializable {
     this.clazz = clazz;
     this.defaultValue = defaultValue;
     this.isNullValueAllowed = isNullValueAllowed;
+    this.ordinal = ordinalOf(key);
     this.labels =
         (labels == null) ? ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels") : labels;
   }
@@ -107,6 +118,39 @@ public class AttributeKey<T> implements Serializable {
     return key;
   }
 
+  /**
+   * Returns the ordinal of the key. Ordinals are assigned in the order in which the key strings are
+   * registered, starting at 0. Keys which are equal have the same ordinal.
+   *
+   * @return the ordinal.
+   */
+  public int getOrdinal() {
+    return ordinal;
+  }
+
+  /** Returns the number of registered key strings. All ordinals are smaller than this number. */
+  public static int getOrdinalCount() {
+    synchronized (ORDINALS) {
+      return ORDINALS.size();
+    }
+  }
+
+  private static int ordinalOf(String key) {
+    synchronized (ORDINALS) {
+      Integer ordinal = ORDINALS.get(key);
+      if (ordinal == null) {
+        ordinal = ORDINALS.size();
+        ORDINALS.put(key, ordinal);
+      }
+      return ordinal;
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    ordinal = ordinalOf(key);
+  }
+
   /**
    * Returns a localized human friendly presentation of the key.
    *
@@ -156,7 +200,8 @@ public class AttributeKey<T> implements Serializable {
    */
   @SuppressWarnings("unchecked")
   public T get(Map<AttributeKey<?>, Object> a) {
-    return a.containsKey(this) ? (T) a.get(this) : defaultValue;
+    Object value = a.get(this);
+    return (value != null || a.containsKey(this)) ? (T) value : defaultValue;
   }
 
   /**
@@ -14,7 +14,6 @@ import org.jhotdraw.draw.decoration.LineDecoration;
 import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.liner.Liner;
 import org.jhotdraw.geom.Dimension2DDouble;
-import org.jhotdraw.geom.DoubleStroke;
 import org.jhotdraw.geom.Insets2D;
 import org.jhotdraw.util.ResourceBundleUtil;
 
@@ -415,57 +414,23 @@ public class AttributeKeys {
     }
   }
 
+  /**
+   * Returns the stroke of a figure. Figures with the same stroke attributes share the same stroke
+   * instance at the same scale factor.
+   */
   public static Stroke getStroke(Figure f, double factor) {
     double strokeWidth = f.attr().get(STROKE_WIDTH) * getGlobalValueFactor(f, factor);
-    float miterLimit = (float) getStrokeTotalMiterLimit(f, factor);
-    double dashFactor = f.attr().get(IS_STROKE_DASH_FACTOR) ? strokeWidth : 1d;
-    double dashPhase = f.attr().get(STROKE_DASH_PHASE);
-    double[] ddashes = f.attr().get(STROKE_DASHES);
-    float[] dashes = null;
-    boolean isAllZeroes = true;
-    if (ddashes != null) {
-      dashes = new float[ddashes.length];
-      double dashSize = 0f;
-      for (int i = 0; i < dashes.length; i++) {
-        dashes[i] = Math.max(0f, (float) (ddashes[i] * dashFactor));
-        dashSize += dashes[i];
-        if (isAllZeroes && dashes[i] != 0) {
-          isAllZeroes = false;
-        }
-      }
-      if (dashes.length % 2 == 1) {
-        dashSize *= 2;
-      }
-      if (dashPhase < 0) {
-        dashPhase = dashSize + dashPhase % dashSize;
-      }
-    }
-    if (isAllZeroes) {
-      // don't draw dashes, if all values are 0.
-      dashes = null;
-    }
-    switch (f.attr().get(STROKE_TYPE)) {
-      case BASIC:
-      default:
-        return new BasicStroke(
-            (float) strokeWidth,
-            f.attr().get(STROKE_CAP),
-            f.attr().get(STROKE_JOIN),
-            Math.max(1, miterLimit),
-            dashes,
-            Math.max(0, (float) (dashPhase * dashFactor)));
-        // not reached
-      case DOUBLE:
-        return new DoubleStroke(
-            (float) (f.attr().get(STROKE_INNER_WIDTH_FACTOR) * strokeWidth),
-            (float) strokeWidth,
-            f.attr().get(STROKE_CAP),
-            f.attr().get(STROKE_JOIN),
-            Math.max(1, miterLimit),
-            dashes,
-            Math.max(0, (float) (dashPhase * dashFactor)));
-        // not reached
-    }
+    return StrokeCache.get(
+        false,
+        f.attr().get(STROKE_TYPE),
+        strokeWidth,
+        f.attr().get(STROKE_INNER_WIDTH_FACTOR),
+        f.attr().get(STROKE_CAP),
+        f.attr().get(STROKE_JOIN),
+        (float) getStrokeTotalMiterLimit(f, factor),
+        f.attr().get(STROKE_DASHES),
+        f.attr().get(STROKE_DASH_PHASE),
+        f.attr().get(IS_STROKE_DASH_FACTOR) ? strokeWidth : 1d);
   }
 
   /**
@@ -477,30 +442,17 @@ public class AttributeKeys {
    */
   public static Stroke getHitStroke(Figure f, double factor) {
     double strokeWidth = Math.max(1, f.attr().get(STROKE_WIDTH) * getGlobalValueFactor(f, factor));
-    float miterLimit = (float) getStrokeTotalMiterLimit(f, factor);
-    double dashFactor = f.attr().get(IS_STROKE_DASH_FACTOR) ? strokeWidth : 1d;
-    switch (f.attr().get(STROKE_TYPE)) {
-      case BASIC:
-      default:
-        return new BasicStroke(
-            (float) strokeWidth,
-            f.attr().get(STROKE_CAP),
-            f.attr().get(STROKE_JOIN),
-            miterLimit,
-            null,
-            Math.max(0, (float) (f.attr().get(STROKE_DASH_PHASE) * dashFactor)));
-        // not reached
-      case DOUBLE:
-        return new DoubleStroke(
-            (float) (f.attr().get(STROKE_INNER_WIDTH_FACTOR) * strokeWidth),
-            (float) strokeWidth,
-            f.attr().get(STROKE_CAP),
-            f.attr().get(STROKE_JOIN),
-            miterLimit,
-            null,
-            Math.max(0, (float) (f.attr().get(STROKE_DASH_PHASE).floatValue() * dashFactor)));
-        // not reached
-    }
+    return StrokeCache.get(
+        true,
+        f.attr().get(STROKE_TYPE),
+        strokeWidth,
+        f.attr().get(STROKE_INNER_WIDTH_FACTOR),
+        f.attr().get(STROKE_CAP),
+        f.attr().get(STROKE_JOIN),
+        (float) getStrokeTotalMiterLimit(f, factor),
+        null,
+        f.attr().get(STROKE_DASH_PHASE),
+        f.attr().get(IS_STROKE_DASH_FACTOR) ? strokeWidth : 1d);
   }
 
   public static Font getFont(Figure f) {
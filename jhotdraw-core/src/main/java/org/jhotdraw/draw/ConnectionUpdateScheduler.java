@@ -0,0 +1,191 @@
+/*
+ * @(#)ConnectionUpdateScheduler.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw;
+
+import java.awt.geom.Rectangle2D;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import javax.swing.SwingUtilities;
+import org.jhotdraw.draw.figure.ConnectionFigure;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.geom.RTree;
+
+/**
+ * Coalesces the updates of the connection figures of a drawing, whose start or end figure has
+ * changed. Each drawing has its own scheduler, see {@link Drawing#getConnectionUpdateScheduler}.
+ *
+ * <p>By default, a connection is updated as soon as one of its figures changes. Inside of a batch,
+ * which is started with {@link #beginBatch} and ended with {@link #endBatch}, the connections are
+ * only marked as dirty, and each dirty connection is updated once when the outermost batch ends. If
+ * the scheduler is deferred, dirty connections are updated once per event, by a task on the event
+ * dispatch thread. The drag and handle trackers defer the updates while the mouse is dragged.
+ *
+ * <p>Code which needs the current geometry of the connections, such as hit tests, calls {@link
+ * #flush} to update the dirty connections synchronously. A connection which is removed from the
+ * drawing is removed from the dirty connections.
+ *
+ * <p>The scheduler also tracks the areas on which the cached routes of the connections depend, see
+ * {@link #watchArea}. The drawing reports the old and the new area of each figure which changes, is
+ * added or is removed, and only the routes whose area intersects it are invalidated.
+ *
+ * <p>This class is not thread safe. It must be used from the event dispatch thread, or from a
+ * single thread which does not show a user interface.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public final class ConnectionUpdateScheduler {
+
+  private final LinkedHashSet<ConnectionFigure> dirty = new LinkedHashSet<>();
+  private int batchDepth;
+  private boolean isDeferred;
+  private boolean isFlushPending;
+  private boolean isFlushing;
+  /** The watched areas of the connections. Is created lazily. */
+  private RTree<ConnectionFigure> watchedAreas;
+  /** The invalidators of the watched areas. */
+  private HashMap<ConnectionFigure, Runnable> invalidators;
+
+  /** Creates a new instance. */
+  public ConnectionUpdateScheduler() {}
+
+  /**
+   * Schedules the update of a connection.
+   *
+   * @return true if the update has been scheduled, false if the caller must update the connection
+   *     immediately.
+   */
+  public boolean schedule(ConnectionFigure connection) {
+    if (batchDepth == 0 && !isDeferred && !isFlushing) {
+      return false;
+    }
+    dirty.add(connection);
+    if (batchDepth == 0 && !isFlushing && !isFlushPending) {
+      isFlushPending = true;
+      SwingUtilities.invokeLater(
+          () -> {
+            isFlushPending = false;
+            flush();
+          });
+    }
+    return true;
+  }
+
+  /**
+   * Removes a connection from the dirty connections and stops watching its area, for example when
+   * it has been removed from the drawing.
+   */
+  public void cancel(ConnectionFigure connection) {
+    dirty.remove(connection);
+    unwatchArea(connection);
+  }
+
+  /**
+   * Watches an area on behalf of a connection. The invalidator is called once, when a figure which
+   * is not a connection changes inside of the area. A connection watches at most one area, this
+   * replaces the area which the connection has watched before.
+   *
+   * @param connection The connection.
+   * @param area The area, for example the area in which a liner has searched for obstacles.
+   * @param invalidator Invalidates the cached route of the connection.
+   */
+  public void watchArea(
+      ConnectionFigure connection, Rectangle2D.Double area, Runnable invalidator) {
+    if (watchedAreas == null) {
+      watchedAreas = new RTree<>();
+      invalidators = new HashMap<>();
+    }
+    watchedAreas.update(connection, area);
+    invalidators.put(connection, invalidator);
+  }
+
+  /** Stops watching the area of a connection. */
+  public void unwatchArea(ConnectionFigure connection) {
+    if (invalidators != null && invalidators.remove(connection) != null) {
+      watchedAreas.remove(connection);
+    }
+  }
+
+  /**
+   * Invalidates the watched areas which intersect the area of a figure, which has changed, has been
+   * added or has been removed. Changes of connections are ignored.
+   *
+   * @param figure The figure.
+   * @param area The old and the new area of the figure.
+   */
+  public void figureChanged(Figure figure, Rectangle2D.Double area) {
+    if (watchedAreas == null || invalidators.isEmpty() || figure instanceof ConnectionFigure) {
+      return;
+    }
+    for (ConnectionFigure connection : watchedAreas.findIntersects(area)) {
+      watchedAreas.remove(connection);
+      invalidators.remove(connection).run();
+    }
+  }
+
+  /** Starts a batch. Batches can be nested. */
+  public void beginBatch() {
+    batchDepth++;
+  }
+
+  /** Ends a batch. The dirty connections are updated when the outermost batch ends. */
+  public void endBatch() {
+    if (batchDepth == 0) {
+      throw new IllegalStateException("endBatch was called without a prior call to beginBatch.");
+    }
+    if (--batchDepth == 0) {
+      flush();
+    }
+  }
+
+  public boolean isBatching() {
+    return batchDepth != 0;
+  }
+
+  /** Returns true if dirty connections are updated once per event instead of immediately. */
+  public boolean isDeferred() {
+    return isDeferred;
+  }
+
+  /** Sets whether dirty connections are updated once per event instead of immediately. */
+  public void setDeferred(boolean newValue) {
+    isDeferred = newValue;
+    if (!newValue) {
+      flush();
+    }
+  }
+
+  /** Returns the number of dirty connections. */
+  public int getPendingCount() {
+    return dirty.size();
+  }
+
+  /**
+   * Updates all dirty connections. Connections which become dirty while the connections are
+   * updated, are updated as well.
+   */
+  public void flush() {
+    if (isFlushing) {
+      return;
+    }
+    isFlushing = true;
+    try {
+      while (!dirty.isEmpty()) {
+        Iterator<ConnectionFigure> i = dirty.iterator();
+        ConnectionFigure connection = i.next();
+        i.remove();
+        connection.willChange();
+        connection.updateConnection();
+        connection.changed();
+      }
+    } finally {
+      isFlushing = false;
+    }
+  }
+}
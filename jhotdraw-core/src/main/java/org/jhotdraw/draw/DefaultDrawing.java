@@ -9,7 +9,6 @@ package org.jhotdraw.draw;
 
 import static org.jhotdraw.draw.AttributeKeys.*;
 
-import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.geom.Point2D;
@@ -51,6 +50,13 @@ public class DefaultDrawing extends AbstractDrawing {
     invalidateSortOrder();
   }
 
+  @Override
+  protected void basicReplaceChildren(
+      List<Figure> newChildren, List<Figure> removed, List<Figure> added) {
+    super.basicReplaceChildren(newChildren, removed, added);
+    invalidateSortOrder();
+  }
+
   @Override
   public void draw(Graphics2D g) {
     synchronized (getLock()) {
@@ -73,13 +79,13 @@ public class DefaultDrawing extends AbstractDrawing {
     if (clipBounds != null) {
       for (Figure f : children) {
         if (f.isVisible() && f.getDrawingArea(scale).intersects(clipBounds)) {
-          f.draw(g);
+          LevelOfDetailPolicy.draw(g, f);
         }
       }
     } else {
       for (Figure f : children) {
         if (f.isVisible()) {
-          f.draw(g);
+          LevelOfDetailPolicy.draw(g, f);
         }
       }
     }
@@ -203,6 +209,26 @@ public class DefaultDrawing extends AbstractDrawing {
     return intersection;
   }
 
+  @Override
+  public List<Figure> findFiguresToDraw(Rectangle2D area, double factor) {
+    synchronized (getLock()) {
+      ensureSorted();
+    }
+    List<Figure> found = new ArrayList<>();
+    for (Figure f : getChildren()) {
+      if (f.isVisible()) {
+        Rectangle2D.Double drawingArea;
+        synchronized (f) {
+          drawingArea = f.getDrawingArea(factor);
+        }
+        if (drawingArea.intersects(area)) {
+          found.add(f);
+        }
+      }
+    }
+    return found;
+  }
+
   @Override
   public List<Figure> findFiguresWithin(Rectangle2D.Double bounds) {
     List<Figure> contained = new LinkedList<>();
@@ -235,15 +261,11 @@ public class DefaultDrawing extends AbstractDrawing {
     return new ReversedList<>(getChildren());
   }
 
-
-
   @Override
   public int indexOf(Figure figure) {
     return children.indexOf(figure);
   }
 
-
-
   /** Invalidates the sort order. */
   private void invalidateSortOrder() {
     needsSorting = true;
@@ -29,6 +29,7 @@ import org.jhotdraw.draw.event.FigureSelectionEvent;
 import org.jhotdraw.draw.event.FigureSelectionListener;
 import org.jhotdraw.draw.event.HandleEvent;
 import org.jhotdraw.draw.event.HandleListener;
+import org.jhotdraw.draw.event.ReplaceChildrenEdit;
 import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.handle.Handle;
 import org.jhotdraw.draw.io.DefaultDrawingViewTransferHandler;
@@ -95,6 +96,25 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
    */
   private Rectangle dirtyArea = new Rectangle(0, 0, -1, -1);
 
+  public static final String DRAWING_TILE_CACHE_MEMORY_BUDGET_PROPERTY =
+      "drawingTileCacheMemoryBudget";
+  /**
+   * Holds rendered tiles of the drawing at one or more scale factors. This is null if the tile
+   * cache is disabled.
+   */
+  private transient TileCache tileCache;
+  /**
+   * Dirty areas with at least this number of pixels are drawn with the parallel renderer into the
+   * drawing buffer.
+   */
+  protected static final int PARALLEL_DRAWING_THRESHOLD = 512 * 512;
+
+  private final ParallelTileRenderer parallelRenderer = new ParallelTileRenderer();
+
+  public static final String LEVEL_OF_DETAIL_POLICY_PROPERTY = "levelOfDetailPolicy";
+  /** The level of detail policy used for drawing on the screen. This is null if disabled. */
+  private LevelOfDetailPolicy levelOfDetailPolicy;
+
   private boolean paintEnabled = true;
   private static final boolean IS_WINDOWS;
 
@@ -190,12 +210,10 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
 
     @Override
     public void figureAdded(DrawingEvent evt) {
-      if (drawing.getChildCount() == 1 && getEmptyDrawingMessage() != null) {
+      if (drawing.getChildCount() == evt.getFigures().size() && getEmptyDrawingMessage() != null) {
         repaint();
       } else {
-        repaintDrawingArea(
-            evt.getFigure()
-                .getDrawingArea(AttributeKeys.getScaleFactor(getDrawingToViewTransform())));
+        repaintFigures(evt);
       }
       invalidateDimension();
     }
@@ -205,12 +223,25 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
       if (drawing.getChildCount() == 0 && getEmptyDrawingMessage() != null) {
         repaint();
       } else {
+        repaintFigures(evt);
+      }
+      if (evt.getFigures().size() == 1) {
+        removeFromSelection(evt.getFigure());
+      } else {
+        removeFromSelection(evt.getFigures());
+      }
+      invalidateDimension();
+    }
+
+    /** Repaints the figures of an added or removed event. */
+    private void repaintFigures(DrawingEvent evt) {
+      if (evt.getFigures().size() == 1) {
         repaintDrawingArea(
             evt.getFigure()
                 .getDrawingArea(AttributeKeys.getScaleFactor(getDrawingToViewTransform())));
+      } else {
+        repaintDrawingArea(evt.getInvalidatedArea());
       }
-      removeFromSelection(evt.getFigure());
-      invalidateDimension();
     }
 
     @Override
@@ -346,13 +377,16 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
    */
   @Override
   public void paintComponent(Graphics gr) {
+    flushConnectionUpdates();
     Graphics2D g = (Graphics2D) gr;
     setViewRenderingHints(g);
     drawBackground(g);
     drawCanvas(g);
     drawConstrainer(g);
     if (isDrawingDoubleBuffered()) {
-      if (IS_WINDOWS) {
+      if (tileCache != null) {
+        drawDrawingTiled(g);
+      } else if (IS_WINDOWS) {
         drawDrawingNonvolatileBuffered(g);
       } else {
         drawDrawingVolatileBuffered(g);
@@ -364,6 +398,93 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
     drawTool(g);
   }
 
+  /**
+   * Draws the drawing using the tiles of the tile cache. Tiles which are not in the cache are
+   * rendered and put into the cache.
+   */
+  protected void drawDrawingTiled(Graphics2D g) {
+    if (drawing == null) {
+      return;
+    }
+    if (drawing.getChildCount() == 0 && emptyDrawingLabel != null) {
+      drawDrawing(g);
+      return;
+    }
+    Rectangle clip = g.getClipBounds();
+    if (clip == null) {
+      clip = getVisibleRect();
+    }
+    if (clip.isEmpty()) {
+      return;
+    }
+    int ts = TileCache.TILE_SIZE;
+    int x0 = Math.floorDiv(clip.x + translation.x, ts);
+    int y0 = Math.floorDiv(clip.y + translation.y, ts);
+    int x1 = Math.floorDiv(clip.x + clip.width - 1 + translation.x, ts);
+    int y1 = Math.floorDiv(clip.y + clip.height - 1 + translation.y, ts);
+    try {
+      for (int ty = y0; ty <= y1; ty++) {
+        for (int tx = x0; tx <= x1; tx++) {
+          BufferedImage tile = tileCache.get(scaleFactor, tx, ty);
+          if (tile == null) {
+            tile = createTile(tx, ty);
+            tileCache.put(scaleFactor, tx, ty, tile);
+          }
+          g.drawImage(tile, tx * ts - translation.x, ty * ts - translation.y, null);
+        }
+      }
+    } catch (OutOfMemoryError e) {
+      tileCache.clear();
+      drawDrawing(g);
+    }
+  }
+
+  /** Renders the specified tile of the drawing at the current scale factor. */
+  private BufferedImage createTile(int tx, int ty) {
+    int ts = TileCache.TILE_SIZE;
+    GraphicsConfiguration gc = getGraphicsConfiguration();
+    BufferedImage tile =
+        (gc == null)
+            ? new BufferedImage(ts, ts, BufferedImage.TYPE_INT_ARGB_PRE)
+            : gc.createCompatibleImage(ts, ts, Transparency.TRANSLUCENT);
+    Graphics2D gTile = tile.createGraphics();
+    setViewRenderingHints(gTile);
+    gTile.clipRect(0, 0, ts, ts);
+    gTile.translate(translation.x - tx * ts, translation.y - ty * ts);
+    drawDrawing(gTile);
+    gTile.dispose();
+    return tile;
+  }
+
+  /**
+   * Returns true if the specified area of the drawing is large enough to be drawn with {@link
+   * #drawDrawingParallel}.
+   */
+  protected boolean isDrawingParallel(Rectangle area) {
+    return drawing != null
+        && drawing.getChildCount() > 0
+        && (long) area.width * area.height >= PARALLEL_DRAWING_THRESHOLD;
+  }
+
+  /**
+   * Draws the figures of the drawing into an image, using multiple threads.
+   *
+   * @param image The image.
+   * @param imageLocation The location of the image in view coordinates.
+   * @param area The area which is drawn, in view coordinates.
+   */
+  protected void drawDrawingParallel(BufferedImage image, Point imageLocation, Rectangle area) {
+    AffineTransform tx = new AffineTransform();
+    tx.translate(-imageLocation.x - translation.x, -imageLocation.y - translation.y);
+    tx.scale(scaleFactor, scaleFactor);
+    Rectangle imageArea = new Rectangle(area);
+    imageArea.translate(-imageLocation.x, -imageLocation.y);
+    Graphics2D g = image.createGraphics();
+    drawing.setFontRenderContext(g.getFontRenderContext());
+    g.dispose();
+    parallelRenderer.render(image, imageArea, drawing, tx, this::setViewRenderingHints);
+  }
+
   /** Draws the drawing double buffered using a volatile image. */
   protected void drawDrawingVolatileBuffered(Graphics2D g) {
     Rectangle vr = getVisibleRect();
@@ -472,7 +593,16 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
         gBuf.clearRect(dirtyArea.x, dirtyArea.y, dirtyArea.width, dirtyArea.height);
         gBuf.setComposite(AlphaComposite.SrcOver);
         // Repaint the dirty area
-        drawDrawing(gBuf);
+        Rectangle area = dirtyArea.intersection(bufferedArea);
+        if (isDrawingParallel(area)) {
+          BufferedImage image =
+              new BufferedImage(area.width, area.height, BufferedImage.TYPE_INT_ARGB_PRE);
+          drawDrawingParallel(image, area.getLocation(), area);
+          gBuf.drawImage(image, area.x, area.y, null);
+          image.flush();
+        } else {
+          drawDrawing(gBuf);
+        }
         gBuf.dispose();
       }
       if (!drawingBufferV.contentsLost()) {
@@ -588,7 +718,12 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
       gBuf.clearRect(dirtyArea.x, dirtyArea.y, dirtyArea.width, dirtyArea.height);
       gBuf.setComposite(AlphaComposite.SrcOver);
       // Repaint the dirty area
-      drawDrawing(gBuf);
+      Rectangle area = dirtyArea.intersection(bufferedArea);
+      if (isDrawingParallel(area)) {
+        drawDrawingParallel(drawingBufferNV, bufferedArea.getLocation(), area);
+      } else {
+        drawDrawing(gBuf);
+      }
       gBuf.dispose();
     }
     g.drawImage(drawingBufferNV, bufferedArea.x, bufferedArea.y, null);
@@ -630,6 +765,9 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
     g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
     g.setRenderingHint(
         RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+    if (levelOfDetailPolicy != null) {
+      g.setRenderingHint(LevelOfDetailPolicy.KEY_LEVEL_OF_DETAIL_POLICY, levelOfDetailPolicy);
+    }
   }
 
   /**
@@ -731,6 +869,9 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
       this.drawing.addDrawingListener(eventHandler);
     }
     dirtyArea.add(bufferedArea);
+    if (tileCache != null) {
+      tileCache.clear();
+    }
     firePropertyChange(DRAWING_PROPERTY, oldValue, newValue);
     // Revalidate without flickering
     revalidate();
@@ -761,6 +902,9 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
     Rectangle vr = drawingToView(r);
     vr.grow(2, 2);
     dirtyArea.add(vr);
+    if (tileCache != null) {
+      tileCache.invalidate(r, 2);
+    }
     repaint(vr);
   }
 
@@ -781,6 +925,9 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
       drawingBufferV.flush();
       drawingBufferV = null;
     }
+    if (tileCache != null) {
+      tileCache.clear();
+    }
   }
 
   /** Adds a figure to the current selection. */
@@ -857,6 +1004,23 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
     }
   }
 
+  /** Removes figures from the selection, and fires a single selection event. */
+  private void removeFromSelection(Collection<Figure> figures) {
+    Set<Figure> oldSelection = new HashSet<>(selectedFigures);
+    boolean changed = false;
+    for (Figure figure : figures) {
+      if (selectedFigures.remove(figure)) {
+        figure.removeFigureListener(handleInvalidator);
+        changed = true;
+      }
+    }
+    if (changed) {
+      invalidateHandles();
+      fireSelectionChanged(oldSelection, new HashSet<>(selectedFigures));
+      repaint();
+    }
+  }
+
   /**
    * If a figure isn't selected it is added to the selection. Otherwise it is removed from the
    * selection.
@@ -1003,6 +1167,14 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
     }
   }
 
+  /** Updates the dirty connections of the drawing, before the view paints or hit tests them. */
+  private void flushConnectionUpdates() {
+    Drawing d = getDrawing();
+    if (d != null && d.getConnectionUpdateScheduler() != null) {
+      d.getConnectionUpdateScheduler().flush();
+    }
+  }
+
   /**
    * Finds a handle at a given coordinates.
    *
@@ -1010,6 +1182,7 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
    */
   @Override
   public Handle findHandle(Point p) {
+    flushConnectionUpdates();
     validateHandles();
     for (Handle handle : new ReversedList<>(getSecondaryHandles())) {
       if (handle.contains(p)) {
@@ -1052,16 +1225,19 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
    */
   @Override
   public Figure findFigure(Point p) {
+    flushConnectionUpdates();
     return getDrawing().findFigure(viewToDrawing(p), getScaleFactor());
   }
 
   @Override
   public Collection<Figure> findFigures(Rectangle r) {
+    flushConnectionUpdates();
     return getDrawing().findFigures(viewToDrawing(r));
   }
 
   @Override
   public Collection<Figure> findFiguresWithin(Rectangle r) {
+    flushConnectionUpdates();
     return getDrawing().findFiguresWithin(viewToDrawing(r));
   }
 
@@ -1325,44 +1501,22 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
         return;
       }
     }
-    // Get z-indices of deleted figures
-    final int[] deletedFigureIndices = new int[deletedFigures.size()];
-    for (int i = 0; i < deletedFigureIndices.length; i++) {
-      deletedFigureIndices[i] = drawing.indexOf(deletedFigures.get(i));
-    }
     clearSelection();
-    getDrawing().removeAll(deletedFigures);
-    getDrawing()
-        .fireUndoableEditHappened(
-            new AbstractUndoableEdit() {
-              private static final long serialVersionUID = 1L;
-
-              @Override
-              public String getPresentationName() {
-                ResourceBundleUtil labels =
-                    ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels");
-                return labels.getString("edit.delete.text");
-              }
-
-              @Override
-              public void undo() throws CannotUndoException {
-                super.undo();
-                clearSelection();
-                Drawing d = getDrawing();
-                for (int i = 0; i < deletedFigureIndices.length; i++) {
-                  d.add(deletedFigureIndices[i], deletedFigures.get(i));
-                }
-                addToSelection(deletedFigures);
-              }
-
-              @Override
-              public void redo() throws CannotRedoException {
-                super.redo();
-                for (int i = 0; i < deletedFigureIndices.length; i++) {
-                  drawing.remove(deletedFigures.get(i));
-                }
-              }
-            });
+    ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels");
+    ReplaceChildrenEdit edit =
+        new ReplaceChildrenEdit(
+            drawing, labels.getString("edit.delete.text"), deletedFigures, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          public void undo() throws CannotUndoException {
+            clearSelection();
+            super.undo();
+            addToSelection(deletedFigures);
+          }
+        };
+    drawing.removeAll(deletedFigures);
+    drawing.fireUndoableEditHappened(edit);
   }
 
   @Override
@@ -1378,36 +1532,16 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
       d.transform(tx);
       duplicates.add(d);
       originalToDuplicateMap.put(f, d);
-      drawing.add(d);
     }
     for (Figure f : duplicates) {
       f.remap(originalToDuplicateMap, false);
     }
+    drawing.addAll(duplicates);
     addToSelection(duplicates);
-    getDrawing()
-        .fireUndoableEditHappened(
-            new AbstractUndoableEdit() {
-              private static final long serialVersionUID = 1L;
-
-              @Override
-              public String getPresentationName() {
-                ResourceBundleUtil labels =
-                    ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels");
-                return labels.getString("edit.duplicate.text");
-              }
-
-              @Override
-              public void undo() throws CannotUndoException {
-                super.undo();
-                getDrawing().removeAll(duplicates);
-              }
-
-              @Override
-              public void redo() throws CannotRedoException {
-                super.redo();
-                getDrawing().addAll(duplicates);
-              }
-            });
+    ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels");
+    drawing.fireUndoableEditHappened(
+        new ReplaceChildrenEdit(
+            drawing, labels.getString("edit.duplicate.text"), duplicates, false));
   }
 
   @Override
@@ -1497,6 +1631,63 @@ public class DefaultDrawingView extends JComponent implements DrawingView, Edita
     return isDrawingDoubleBuffered;
   }
 
+  /**
+   * Sets the level of detail policy, which is used for drawing figures which are very small on the
+   * screen. Printing always uses full detail.
+   *
+   * <p>The default value is null, which draws all figures with full detail.
+   *
+   * <p>This is a bound property.
+   */
+  public void setLevelOfDetailPolicy(LevelOfDetailPolicy newValue) {
+    LevelOfDetailPolicy oldValue = levelOfDetailPolicy;
+    levelOfDetailPolicy = newValue;
+    dirtyArea.setBounds(bufferedArea);
+    if (tileCache != null) {
+      tileCache.clear();
+    }
+    firePropertyChange(LEVEL_OF_DETAIL_POLICY_PROPERTY, oldValue, newValue);
+    repaint();
+  }
+
+  public LevelOfDetailPolicy getLevelOfDetailPolicy() {
+    return levelOfDetailPolicy;
+  }
+
+  /**
+   * Sets the number of bytes, which may be used for caching rendered tiles of the drawing.
+   *
+   * <p>If the value is greater than 0, and the drawing is double buffered, the drawing is rendered
+   * in tiles of {@link TileCache#TILE_SIZE} pixels. The tiles are cached for all scale factors, so
+   * that scrolling and zooming back to a previous scale factor only needs to copy tiles onto the
+   * screen. When the drawing changes, only the tiles which intersect the changed area are rendered
+   * again. When the memory budget is exhausted, the least recently used tiles are discarded.
+   *
+   * <p>The default value is 0, which disables the tile cache.
+   *
+   * <p>This is a bound property.
+   */
+  public void setDrawingTileCacheMemoryBudget(long newValue) {
+    long oldValue = getDrawingTileCacheMemoryBudget();
+    if (newValue <= 0) {
+      if (tileCache != null) {
+        tileCache.clear();
+        tileCache = null;
+      }
+    } else if (tileCache == null) {
+      tileCache = new TileCache(newValue);
+    } else {
+      tileCache.setMemoryBudget(newValue);
+    }
+    firePropertyChange(DRAWING_TILE_CACHE_MEMORY_BUDGET_PROPERTY, oldValue, newValue);
+    repaint();
+  }
+
+  /** Returns the number of bytes, which may be used for caching rendered tiles of the drawing. */
+  public long getDrawingTileCacheMemoryBudget() {
+    return (tileCache == null) ? 0 : tileCache.getMemoryBudget();
+  }
+
   /**
    * Returns a paint for drawing the background of the drawing area.
    *
@@ -173,11 +173,29 @@ public interface Drawing {
    * Adds a collection of figures to the drawing. The drawing sends an {@code addNotify} message to
    * each figure after it has been added.
    *
+   * <p>The figures are added at once, and the drawing listeners receive a single batched {@code
+   * figureAdded} event.
+   *
    * @see Figure#addNotify
    * @param figures to be added to the drawing
    */
   void addAll(Collection<? extends Figure> figures);
 
+  /**
+   * Adds a collection of figures to the drawing at the specified index.
+   *
+   * <p>The default implementation adds the figures one by one.
+   *
+   * @see #addAll(Collection)
+   * @param index the index of the first added figure
+   * @param figures to be added to the drawing
+   */
+  default void addAll(int index, Collection<? extends Figure> figures) {
+    for (Figure f : figures) {
+      add(index++, f);
+    }
+  }
+
   /**
    * Removes a figure from the drawing. The drawing sends a {@code removeNotify} message to the
    * figure before it is removed.
@@ -189,13 +207,66 @@ public interface Drawing {
 
   /**
    * Removes the specified figures from the drawing. The drawing sends a {@code removeNotify}
-   * message to each figure before it is removed.
+   * message to each figure after it has been removed.
+   *
+   * <p>The figures are removed at once, and the drawing listeners receive a single batched {@code
+   * figureRemoved} event.
    *
    * @see Figure#removeNotify
    * @param figures A collection of figures which are part of the drawing and should be removed
    */
   void removeAll(Collection<? extends Figure> figures);
 
+  /**
+   * Replaces the children of the drawing by the specified figures, in the specified order.
+   *
+   * <p>Children which are not in the list are removed, figures which are not children yet are
+   * added, and the children which are kept only change their order. The drawing sends {@code
+   * removeNotify} and {@code addNotify} messages to the removed and added figures. The drawing
+   * listeners receive a single batched {@code figureRemoved} event, and a single batched {@code
+   * figureAdded} event.
+   *
+   * <p>The children can be restored with this method, for example to undo a bulk change, see {@link
+   * org.jhotdraw.draw.event.ReplaceChildrenEdit}.
+   *
+   * <p>The default implementation removes and adds the figures one by one, and reinserts the kept
+   * children with the basic add and remove methods.
+   *
+   * @param figures the new children of the drawing
+   * @throws IllegalArgumentException if the list contains a figure more than once
+   */
+  default void replaceChildren(List<? extends Figure> figures) {
+    Set<Figure> newSet = Collections.newSetFromMap(new IdentityHashMap<>(figures.size()));
+    for (Figure f : figures) {
+      if (!newSet.add(f)) {
+        throw new IllegalArgumentException("figure is in the list more than once: " + f);
+      }
+    }
+    Set<Figure> kept = Collections.newSetFromMap(new IdentityHashMap<>(figures.size()));
+    ArrayList<Figure> removed = new ArrayList<>();
+    for (Figure f : getChildren()) {
+      if (newSet.contains(f)) {
+        kept.add(f);
+      } else {
+        removed.add(f);
+      }
+    }
+    willChange();
+    for (Figure f : removed) {
+      remove(f);
+    }
+    basicRemoveAll(kept);
+    for (int i = 0, n = figures.size(); i < n; i++) {
+      Figure f = figures.get(i);
+      if (kept.contains(f)) {
+        basicAdd(i, f);
+      } else {
+        add(i, f);
+      }
+    }
+    changed();
+  }
+
   /**
    * Removes all children from the composite figure.
    *
@@ -290,6 +361,33 @@ public interface Drawing {
   /** Returns a list of the figures in Z-Order from front to back. */
   List<Figure> getFiguresFrontToBack();
 
+  /**
+   * Returns the visible figures which need to be drawn into the specified area. These are the
+   * figures whose drawing area intersects the area. The figures are returned in Z-order from back
+   * to front.
+   *
+   * <p>This method is called concurrently by the worker threads of a {@link ParallelTileRenderer}.
+   * The drawing must not be changed meanwhile.
+   *
+   * @param area The area in drawing coordinates.
+   * @param factor The scale factor which is used for computing the drawing areas of the figures.
+   */
+  default List<Figure> findFiguresToDraw(Rectangle2D area, double factor) {
+    List<Figure> found = new ArrayList<>();
+    for (Figure f : getChildren()) {
+      if (f.isVisible()) {
+        Rectangle2D.Double drawingArea;
+        synchronized (f) {
+          drawingArea = f.getDrawingArea(factor);
+        }
+        if (drawingArea.intersects(area)) {
+          found.add(f);
+        }
+      }
+    }
+    return found;
+  }
+
   /**
    * Finds the innermost figure at the specified location.
    *
@@ -345,6 +443,40 @@ public interface Drawing {
   /** Removes a listener from this composite figure. */
   public void removeDrawingListener(DrawingListener listener);
 
+  /**
+   * Sets whether {@code drawingChanged} events are coalesced.
+   *
+   * <p>If true, the invalidated areas are accumulated as a small list of disjoint rectangles, and
+   * are delivered to the drawing listeners once per event on the event dispatch thread, with one
+   * event per rectangle. Events about added and removed figures and about attributes of the drawing
+   * are still delivered immediately. Switching coalescing off delivers the pending areas.
+   *
+   * <p>The default implementation ignores the request, and delivers every event immediately.
+   */
+  default void setCoalescingEvents(boolean newValue) {}
+
+  /**
+   * Returns true if {@code drawingChanged} events are coalesced. The default implementation returns
+   * false.
+   */
+  default boolean isCoalescingEvents() {
+    return false;
+  }
+
+  /**
+   * Delivers the pending invalidated areas to the drawing listeners. Code which needs synchronous
+   * delivery while events are coalesced calls this method. The default implementation does nothing.
+   */
+  default void flushDrawingEvents() {}
+
+  /**
+   * Returns the scheduler, which coalesces the updates of the connection figures of this drawing.
+   * Returns null, if connections are always updated immediately.
+   */
+  default ConnectionUpdateScheduler getConnectionUpdateScheduler() {
+    return null;
+  }
+
   //  /** Adds a listener for FigureEvent's. */
   //  public void addFigureListener(FigureListener l);
   //
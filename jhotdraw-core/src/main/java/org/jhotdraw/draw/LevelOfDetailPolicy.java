@@ -0,0 +1,177 @@
+/*
+ * @(#)LevelOfDetailPolicy.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw;
+
+import static org.jhotdraw.draw.AttributeKeys.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import org.jhotdraw.draw.figure.CompositeFigure;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.figure.TextHolderFigure;
+import org.jhotdraw.geom.Insets2D;
+
+/**
+ * A LevelOfDetailPolicy decides how figures are drawn, which are very small on the screen.
+ *
+ * <p>A figure whose drawing area is smaller than the minimal figure size is drawn as a filled
+ * rectangle in its fill, stroke or text color. The text of a {@link TextHolderFigure} whose font is
+ * smaller than the minimal text size is drawn as greeked lines.
+ *
+ * <p>A drawing view enables the policy by setting it as the value of the {@link
+ * #KEY_LEVEL_OF_DETAIL_POLICY} rendering hint. Drawings and composite figures draw their children
+ * with {@link #draw(Graphics2D, Figure)}, which applies the policy of the graphics if there is one.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public class LevelOfDetailPolicy {
+
+  /** Rendering hint key for the level of detail policy. */
+  public static final RenderingHints.Key KEY_LEVEL_OF_DETAIL_POLICY =
+      new RenderingHints.Key(0) {
+        @Override
+        public boolean isCompatibleValue(Object val) {
+          return val instanceof LevelOfDetailPolicy;
+        }
+
+        @Override
+        public String toString() {
+          return "Level of detail policy";
+        }
+      };
+
+  /** Minimal width or height of a figure in device pixels. */
+  private final double minimumFigureSize;
+  /** Minimal font size in device pixels. */
+  private final double minimumTextSize;
+
+  /**
+   * Creates a policy which reduces figures smaller than 3 pixels and text smaller than 5 pixels.
+   */
+  public LevelOfDetailPolicy() {
+    this(3, 5);
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param minimumFigureSize Figures which are smaller than this number of device pixels in both
+   *     directions are drawn as a filled rectangle.
+   * @param minimumTextSize Text with a font size below this number of device pixels is greeked.
+   */
+  public LevelOfDetailPolicy(double minimumFigureSize, double minimumTextSize) {
+    this.minimumFigureSize = minimumFigureSize;
+    this.minimumTextSize = minimumTextSize;
+  }
+
+  public double getMinimumFigureSize() {
+    return minimumFigureSize;
+  }
+
+  public double getMinimumTextSize() {
+    return minimumTextSize;
+  }
+
+  /** Returns the policy of the specified graphics, or null if it does not have one. */
+  public static LevelOfDetailPolicy get(Graphics2D g) {
+    return (LevelOfDetailPolicy) g.getRenderingHint(KEY_LEVEL_OF_DETAIL_POLICY);
+  }
+
+  /** Draws a figure, applying the level of detail policy of the graphics if there is one. */
+  public static void draw(Graphics2D g, Figure f) {
+    LevelOfDetailPolicy policy = get(g);
+    if (policy == null || !policy.drawReduced(g, f)) {
+      f.draw(g);
+    }
+  }
+
+  /**
+   * Draws a figure with reduced detail if it is too small on the device.
+   *
+   * @return true if the figure has been drawn, false if the figure must be drawn normally.
+   */
+  public boolean drawReduced(Graphics2D g, Figure f) {
+    double factor = AttributeKeys.getScaleFactorFromGraphics(g);
+    double scale = 1.0 / factor;
+    Rectangle2D.Double area = f.getDrawingArea(factor);
+    if (area.width * scale < minimumFigureSize && area.height * scale < minimumFigureSize) {
+      Color color = getReducedColor(f);
+      if (color == null) {
+        return false;
+      }
+      g.setColor(color);
+      g.fill(area);
+      return true;
+    }
+    if (f instanceof TextHolderFigure && !(f instanceof CompositeFigure)) {
+      TextHolderFigure tf = (TextHolderFigure) f;
+      if (tf.getFontSize() * scale < minimumTextSize) {
+        drawGreeked(g, tf);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the color used for drawing a figure as a filled rectangle, or null. */
+  protected Color getReducedColor(Figure f) {
+    Color color = f.attr().get(FILL_COLOR);
+    if (color == null) {
+      color = f.attr().get(STROKE_COLOR);
+    }
+    if (color == null) {
+      color = f.attr().get(TEXT_COLOR);
+    }
+    return color;
+  }
+
+  /**
+   * Draws the fill and the text of a text holder figure, with each line of text replaced by a
+   * filled bar.
+   */
+  protected void drawGreeked(Graphics2D g, TextHolderFigure f) {
+    Rectangle2D.Double bounds = f.getBounds();
+    if (f.getFillColor() != null) {
+      g.setColor(f.getFillColor());
+      g.fill(bounds);
+    }
+    String text = f.getText();
+    Color textColor = f.getTextColor();
+    if (text == null || text.isEmpty() || textColor == null) {
+      return;
+    }
+    Insets2D.Double insets = f.getInsets();
+    double x = bounds.x + insets.left;
+    double y = bounds.y + insets.top;
+    double width = Math.max(0, bounds.width - insets.left - insets.right);
+    double bottom = bounds.y + bounds.height - insets.bottom;
+    double fontSize = f.getFontSize();
+    double charWidth = fontSize * 0.5;
+    int charsPerLine = Math.max(1, (int) (width / charWidth));
+    g.setColor(textColor);
+    Rectangle2D.Double bar = new Rectangle2D.Double();
+    for (String paragraph : text.split("\n", -1)) {
+      int length = paragraph.length();
+      do {
+        if (y + fontSize > bottom && y > bounds.y + insets.top) {
+          return;
+        }
+        int chars = Math.min(length, charsPerLine);
+        if (chars > 0) {
+          bar.setRect(x, y + fontSize * 0.3, Math.min(width, chars * charWidth), fontSize * 0.5);
+          g.fill(bar);
+        }
+        length -= chars;
+        y += fontSize * 1.2;
+      } while (length > 0);
+    }
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * @(#)ParallelTileRenderer.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.geom.RTree;
+
+/**
+ * Renders figures into a {@code BufferedImage} using multiple threads.
+ *
+ * <p>The target area is split into square tiles, and each tile only draws the figures which
+ * intersect it. When a drawing is rendered, the tiles find their figures with {@link
+ * Drawing#findFiguresToDraw}, so that the drawing can use its own spatial index. When a list of
+ * figures is rendered, the figures are put into a spatial index first. The tiles are rendered in
+ * parallel by a {@code ForkJoinPool} directly into sub-images of the target image, which share its
+ * raster.
+ *
+ * <p>Figures are not thread safe: drawing a figure may update its cached layouts and shapes. A
+ * figure which intersects several tiles is therefore drawn while holding its monitor, so that no
+ * two tiles draw the same figure at the same time. Tiles which draw different figures still run in
+ * parallel. A composite figure draws its children while holding its own monitor, so the monitors
+ * are always acquired from the parent to the child.
+ *
+ * <p>The figures must not be changed while they are rendered. Areas which consist of a single tile
+ * are rendered on the calling thread.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public class ParallelTileRenderer {
+
+  /** The default width and height of a tile in pixels. */
+  public static final int DEFAULT_TILE_SIZE = 256;
+
+  private final ForkJoinPool pool;
+  private final int tileSize;
+
+  /** Creates a new instance which uses the common pool and the default tile size. */
+  public ParallelTileRenderer() {
+    this(ForkJoinPool.commonPool(), DEFAULT_TILE_SIZE);
+  }
+
+  public ParallelTileRenderer(ForkJoinPool pool, int tileSize) {
+    if (tileSize <= 0) {
+      throw new IllegalArgumentException("tileSize=" + tileSize);
+    }
+    this.pool = pool;
+    this.tileSize = tileSize;
+  }
+
+  public int getTileSize() {
+    return tileSize;
+  }
+
+  /**
+   * Renders the figures of a drawing into an area of an image.
+   *
+   * @param image The target image.
+   * @param area The area of the image which is rendered, in image coordinates.
+   * @param drawing The drawing.
+   * @param transform The transform from drawing coordinates into image coordinates.
+   * @param graphicsSetup Prepares the graphics of each tile, for example by setting rendering
+   *     hints. This is called from the worker threads. If it sets a {@link LevelOfDetailPolicy},
+   *     the figures are drawn with that policy.
+   */
+  public void render(
+      BufferedImage image,
+      Rectangle area,
+      Drawing drawing,
+      AffineTransform transform,
+      Consumer<Graphics2D> graphicsSetup) {
+    if (drawing.getChildCount() == 0) {
+      return;
+    }
+    double factor = AttributeKeys.getScaleFactor(transform);
+    render(
+        image,
+        area,
+        tileArea -> drawing.findFiguresToDraw(tileArea, factor),
+        transform,
+        graphicsSetup);
+  }
+
+  /**
+   * Renders figures into an area of an image.
+   *
+   * @param image The target image.
+   * @param area The area of the image which is rendered, in image coordinates.
+   * @param figures The figures in the order in which they are drawn.
+   * @param transform The transform from drawing coordinates into image coordinates.
+   * @param graphicsSetup Prepares the graphics of each tile, for example by setting rendering
+   *     hints. This is called from the worker threads. If it sets a {@link LevelOfDetailPolicy},
+   *     the figures are drawn with that policy.
+   */
+  public void render(
+      BufferedImage image,
+      Rectangle area,
+      List<? extends Figure> figures,
+      AffineTransform transform,
+      Consumer<Graphics2D> graphicsSetup) {
+    if (figures.isEmpty()) {
+      return;
+    }
+    double factor = AttributeKeys.getScaleFactor(transform);
+    Rectangle2D.Double[] areas = new Rectangle2D.Double[figures.size()];
+    List<Integer> indices = new ArrayList<>(figures.size());
+    for (int i = 0; i < areas.length; i++) {
+      Figure f = figures.get(i);
+      if (f.isVisible()) {
+        areas[i] = f.getDrawingArea(factor);
+        indices.add(i);
+      }
+    }
+    RTree<Integer> index = new RTree<>();
+    index.addAll(indices, i -> areas[i]);
+    render(
+        image,
+        area,
+        tileArea -> {
+          List<Integer> visible = new ArrayList<>();
+          index.findIntersects(tileArea, visible::add);
+          Collections.sort(visible);
+          List<Figure> found = new ArrayList<>(visible.size());
+          for (Integer i : visible) {
+            found.add(figures.get(i));
+          }
+          return found;
+        },
+        transform,
+        graphicsSetup);
+  }
+
+  /**
+   * Renders the tiles of an area.
+   *
+   * @param finder Returns the figures which are drawn into a tile, in the order in which they are
+   *     drawn. This is called from the worker threads.
+   */
+  private void render(
+      BufferedImage image,
+      Rectangle area,
+      Function<Rectangle2D, List<Figure>> finder,
+      AffineTransform transform,
+      Consumer<Graphics2D> graphicsSetup) {
+    Rectangle clipped = area.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+    if (clipped.isEmpty()) {
+      return;
+    }
+    AffineTransform inverse;
+    try {
+      inverse = transform.createInverse();
+    } catch (NoninvertibleTransformException e) {
+      return;
+    }
+    Job job = new Job();
+    job.image = image;
+    job.area = clipped;
+    job.columns = (clipped.width + tileSize - 1) / tileSize;
+    job.finder = finder;
+    job.transform = transform;
+    job.inverse = inverse;
+    job.graphicsSetup = graphicsSetup;
+    int tiles = job.columns * ((clipped.height + tileSize - 1) / tileSize);
+    TileTask task = new TileTask(job, 0, tiles);
+    if (tiles == 1) {
+      task.compute();
+    } else {
+      pool.invoke(task);
+    }
+  }
+
+  /** Holds the state which is shared by all tiles of a render call. */
+  private static class Job {
+
+    private BufferedImage image;
+    private Rectangle area;
+    private int columns;
+    private Function<Rectangle2D, List<Figure>> finder;
+    private AffineTransform transform;
+    private AffineTransform inverse;
+    private Consumer<Graphics2D> graphicsSetup;
+  }
+
+  /** Renders the tiles with the numbers from {@code from} (inclusive) to {@code to} (exclusive). */
+  private class TileTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+    private final transient Job job;
+    private final int from;
+    private final int to;
+
+    TileTask(Job job, int from, int to) {
+      this.job = job;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > 1) {
+        int mid = (from + to) >>> 1;
+        invokeAll(new TileTask(job, from, mid), new TileTask(job, mid, to));
+      } else {
+        renderTile(from);
+      }
+    }
+
+    private void renderTile(int tile) {
+      Rectangle area = job.area;
+      int x = area.x + (tile % job.columns) * tileSize;
+      int y = area.y + (tile / job.columns) * tileSize;
+      int w = Math.min(tileSize, area.x + area.width - x);
+      int h = Math.min(tileSize, area.y + area.height - y);
+      // Grow the tile by one pixel, to include figures which touch it with antialiased edges
+      Rectangle2D tileArea =
+          job.inverse
+              .createTransformedShape(new Rectangle(x - 1, y - 1, w + 2, h + 2))
+              .getBounds2D();
+      List<Figure> visible = job.finder.apply(tileArea);
+      if (visible.isEmpty()) {
+        return;
+      }
+      Graphics2D g = job.image.getSubimage(x, y, w, h).createGraphics();
+      try {
+        job.graphicsSetup.accept(g);
+        g.clipRect(0, 0, w, h);
+        g.translate(-x, -y);
+        g.transform(job.transform);
+        for (Figure f : visible) {
+          synchronized (f) {
+            LevelOfDetailPolicy.draw(g, f);
+          }
+        }
+      } finally {
+        g.dispose();
+      }
+    }
+  }
+}
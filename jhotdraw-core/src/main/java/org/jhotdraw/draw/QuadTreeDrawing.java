@@ -11,17 +11,28 @@ import static org.jhotdraw.draw.AttributeKeys.*;
 
 import java.awt.*;
 import java.awt.geom.*;
+import java.io.Serializable;
 import java.util.*;
 import java.util.List;
 import org.jhotdraw.draw.event.FigureEvent;
 import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.geom.Geom;
-import org.jhotdraw.geom.QuadTree;
+import org.jhotdraw.geom.RTree;
+import org.jhotdraw.geom.SpatialIndex;
 import org.jhotdraw.util.*;
 
 /**
- * An implementation of {@link Drawing} which uses a {@link org.jhotdraw.geom.QuadTree} to provide a
- * good responsiveness for drawings which contain many figures.
+ * An implementation of {@link Drawing} which uses a {@link SpatialIndex} to provide a good
+ * responsiveness for drawings which contain many figures.
+ *
+ * <p>By default, the figures are indexed with an {@link RTree}. Subclasses can override {@link
+ * #createSpatialIndex} to use a different index, for example a {@link org.jhotdraw.geom.QuadTree}.
+ *
+ * <p>Each child has a persistent z-order key, which consists of its layer and a fractional rank.
+ * The ranks are ascending in the order of the {@code children} list, they are maintained by {@link
+ * #basicAdd}, {@link #bringToFront} and {@link #sendToBack}. The z-order of the children is
+ * ascending by layer, and then by rank. Thus the results of a spatial query can be sorted in
+ * z-order without looking at the other children.
  *
  * @author Werner Randelshofer
  * @version $Id$
@@ -29,8 +40,20 @@ import org.jhotdraw.util.*;
 public class QuadTreeDrawing extends AbstractDrawing {
 
   private static final long serialVersionUID = 1L;
-  private QuadTree<Figure> quadTree = new QuadTree<>();
-  private boolean needsSorting = false;
+  /** The spatial index of the children. Is created lazily by {@link #getSpatialIndex}. */
+  private SpatialIndex<Figure> spatialIndex;
+  /** The z-order keys of the children. */
+  private HashMap<Figure, ZKey> zKeys = new HashMap<>();
+  /**
+   * The bounds of the children, transformed by their {@code TRANSFORM} attribute. Is used by {@link
+   * #findFiguresWithin}.
+   */
+  private HashMap<Figure, Rectangle2D.Double> transformedBounds = new HashMap<>();
+  /**
+   * The children in z-order from back to front. This is the {@code children} list itself, unless
+   * the children are on different layers. Is null if it needs to be recomputed.
+   */
+  private transient List<Figure> sortedChildren;
 
   @Override
   public int indexOf(Figure figure) {
@@ -40,40 +63,127 @@ public class QuadTreeDrawing extends AbstractDrawing {
   @Override
   public void basicAdd(int index, Figure figure) {
     super.basicAdd(index, figure);
-    quadTree.add(figure, figure.getDrawingArea());
-    needsSorting = true;
+    getSpatialIndex().add(figure, figure.getDrawingArea());
+    zKeys.put(figure, new ZKey(figure.getLayer(), rankForIndex(index)));
+    transformedBounds.put(figure, getTransformedBounds(figure));
+    sortedChildren = null;
   }
 
   @Override
   public Figure basicRemoveChild(int index) {
     Figure figure = getChild(index);
-    quadTree.remove(figure);
-    needsSorting = true;
+    getSpatialIndex().remove(figure);
+    zKeys.remove(figure);
+    transformedBounds.remove(figure);
+    sortedChildren = null;
     super.basicRemoveChild(index);
     return figure;
   }
 
+  @Override
+  protected void basicReplaceChildren(
+      List<Figure> newChildren, List<Figure> removed, List<Figure> added) {
+    super.basicReplaceChildren(newChildren, removed, added);
+    if (removed.size() > children.size()) {
+      // Most children have been removed, build the index again
+      getSpatialIndex().clear();
+      getSpatialIndex().addAll(children, Figure::getDrawingArea);
+    } else {
+      for (Figure f : removed) {
+        getSpatialIndex().remove(f);
+      }
+      // The spatial index packs the added figures in one pass, if they outnumber the indexed ones
+      getSpatialIndex().addAll(added, Figure::getDrawingArea);
+    }
+    for (Figure f : removed) {
+      zKeys.remove(f);
+      transformedBounds.remove(f);
+    }
+    for (Figure f : added) {
+      transformedBounds.put(f, getTransformedBounds(f));
+    }
+    // Renumber the ranks in one pass
+    for (int i = 0, n = children.size(); i < n; i++) {
+      Figure f = children.get(i);
+      ZKey key = zKeys.get(f);
+      if (key == null) {
+        zKeys.put(f, new ZKey(f.getLayer(), i));
+      } else {
+        key.rank = i;
+      }
+    }
+    sortedChildren = null;
+  }
+
+  /**
+   * Returns a rank for the child at the specified index, which lies between the ranks of its
+   * neighbours in the {@code children} list. Renumbers all children, if the gap between the
+   * neighbours can not be split anymore.
+   */
+  private double rankForIndex(int index) {
+    ZKey before = (index > 0) ? zKeys.get(children.get(index - 1)) : null;
+    ZKey after = (index < children.size() - 1) ? zKeys.get(children.get(index + 1)) : null;
+    if (before == null && after == null) {
+      return 0;
+    } else if (before == null) {
+      return after.rank - 1;
+    } else if (after == null) {
+      return before.rank + 1;
+    }
+    double rank = (before.rank + after.rank) / 2;
+    if (rank <= before.rank || rank >= after.rank) {
+      for (int i = 0, n = children.size(); i < n; i++) {
+        ZKey key = zKeys.get(children.get(i));
+        if (key != null) {
+          key.rank = i;
+        }
+      }
+      rank = index;
+    }
+    return rank;
+  }
+
+  /** Compares two figures by their z-order. Figures which are not children are sorted last. */
+  private int compareZOrder(Figure a, Figure b) {
+    ZKey ka = zKeys.get(a);
+    ZKey kb = zKeys.get(b);
+    if (ka == null || kb == null) {
+      return (ka == null ? 1 : 0) - (kb == null ? 1 : 0);
+    }
+    return ka.compareTo(kb);
+  }
+
   @Override
   public void draw(Graphics2D g) {
     Rectangle2D clipBounds = g.getClipBounds();
     if (clipBounds != null) {
-      draw(g, sort(quadTree.findIntersects(clipBounds)));
+      draw(g, sort(getSpatialIndex().findIntersects(clipBounds)));
     } else {
-      draw(g, children);
+      draw(g, getSortedChildren());
     }
   }
 
-  /** Implementation note: Sorting can not be done for orphaned children. */
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Implementation note: Like {@link #draw(Graphics2D)}, this method uses the drawing areas of
+   * the spatial index, which are computed with a scale factor of 1.
+   */
+  @Override
+  public List<Figure> findFiguresToDraw(Rectangle2D area, double factor) {
+    List<Figure> found = sort(getSpatialIndex().findIntersects(area));
+    found.removeIf(f -> !f.isVisible());
+    return found;
+  }
+
+  /**
+   * Implementation note: Sorting can not be done for orphaned children, they are added at the end
+   * of the list.
+   */
   @Override
   public List<Figure> sort(Collection<? extends Figure> c) {
-    // ensureSorted();
     ArrayList<Figure> sorted = new ArrayList<>(c);
-    Collections.sort(sorted, Comparator.comparing(Figure::getLayer));
-    //    for (Figure f : children) {
-    //      if (c.contains(f)) {
-    //        sorted.add(f);
-    //      }
-    //    }
+    sorted.sort(this::compareZOrder);
     return sorted;
   }
 
@@ -81,7 +191,7 @@ public class QuadTreeDrawing extends AbstractDrawing {
     // double factor = AttributeKeys.getScaleFactorFromGraphics(g);
     for (Figure f : c) {
       if (f.isVisible()) {
-        f.draw(g);
+        LevelOfDetailPolicy.draw(g, f);
         //        if (isDebugMode()) {
         //          Graphics2D g2 = (Graphics2D) g.create();
         //          try {
@@ -98,7 +208,7 @@ public class QuadTreeDrawing extends AbstractDrawing {
   }
 
   public java.util.List<Figure> getChildren(Rectangle2D.Double bounds) {
-    return new LinkedList<>(quadTree.findInside(bounds));
+    return new LinkedList<>(getSpatialIndex().findInside(bounds));
   }
 
   @Override
@@ -108,9 +218,9 @@ public class QuadTreeDrawing extends AbstractDrawing {
 
   @Override
   public Figure findFigureInside(Point2D.Double p) {
-    Collection<Figure> c = quadTree.findContains(p);
+    Collection<Figure> c = getSpatialIndex().findContains(p);
     for (Figure f : getFiguresFrontToBack(c)) {
-      if (c.contains(f) && f.contains(p)) {
+      if (f.contains(p)) {
         return f.findFigureInside(p);
       }
     }
@@ -120,19 +230,34 @@ public class QuadTreeDrawing extends AbstractDrawing {
   /** Returns an iterator to iterate in Z-order front to back over the children. */
   @Override
   public List<Figure> getFiguresFrontToBack() {
-    ensureSorted();
-    return new ReversedList<>(children);
+    return new ReversedList<>(getSortedChildren());
   }
 
   protected List<Figure> getFiguresFrontToBack(Collection<Figure> smallCollection) {
     List<Figure> list = new ArrayList<>(smallCollection);
-    Collections.sort(list, Comparator.comparing(Figure::getLayer).reversed());
+    list.sort((a, b) -> compareZOrder(b, a));
     return list;
   }
 
+  /** Returns the children in z-order from back to front. */
+  private List<Figure> getSortedChildren() {
+    if (sortedChildren == null) {
+      boolean singleLayer = true;
+      for (int i = 1, n = children.size(); i < n && singleLayer; i++) {
+        singleLayer = zKeys.get(children.get(i)).layer == zKeys.get(children.get(0)).layer;
+      }
+      if (singleLayer) {
+        sortedChildren = children;
+      } else {
+        sortedChildren = sort(children);
+      }
+    }
+    return sortedChildren;
+  }
+
   @Override
   public Figure findFigure(Point2D.Double p) {
-    Collection<Figure> c = quadTree.findContains(p);
+    Collection<Figure> c = getSpatialIndex().findContains(p);
     switch (c.size()) {
       case 0:
         return null;
@@ -151,7 +276,7 @@ public class QuadTreeDrawing extends AbstractDrawing {
 
   @Override
   public Figure findFigureExcept(Point2D.Double p, Figure ignore) {
-    Collection<Figure> c = quadTree.findContains(p);
+    Collection<Figure> c = getSpatialIndex().findContains(p);
     switch (c.size()) {
       case 0:
         return null;
@@ -170,7 +295,7 @@ public class QuadTreeDrawing extends AbstractDrawing {
 
   @Override
   public Figure findFigureExcept(Point2D.Double p, Collection<? extends Figure> ignore) {
-    Collection<Figure> c = quadTree.findContains(p);
+    Collection<Figure> c = getSpatialIndex().findContains(p);
     switch (c.size()) {
       case 0:
         return null;
@@ -189,14 +314,22 @@ public class QuadTreeDrawing extends AbstractDrawing {
 
   @Override
   public Figure findFigureBehind(Point2D.Double p, Figure figure) {
-    boolean isBehind = false;
-    for (Figure f : getFiguresFrontToBack()) {
-      if (isBehind) {
-        if (f.isVisible() && f.contains(p)) {
-          return f;
-        }
-      } else {
-        isBehind = figure == f;
+    ZKey behind = zKeys.get(figure);
+    if (behind == null) {
+      return null;
+    }
+    List<Figure> c = new ArrayList<>();
+    getSpatialIndex()
+        .findContains(
+            p,
+            f -> {
+              if (zKeys.get(f).compareTo(behind) < 0) {
+                c.add(f);
+              }
+            });
+    for (Figure f : getFiguresFrontToBack(c)) {
+      if (f.isVisible() && f.contains(p)) {
+        return f;
       }
     }
     return null;
@@ -204,16 +337,29 @@ public class QuadTreeDrawing extends AbstractDrawing {
 
   @Override
   public Figure findFigureBehind(Point2D.Double p, Collection<? extends Figure> children) {
-    int inFrontOf = children.size();
-    for (Figure f : getFiguresFrontToBack()) {
-      if (inFrontOf == 0) {
-        if (f.isVisible() && f.contains(p)) {
-          return f;
-        }
-      } else {
-        if (children.contains(f)) {
-          inFrontOf--;
-        }
+    ZKey backmost = null;
+    for (Figure f : children) {
+      ZKey key = zKeys.get(f);
+      if (key == null) {
+        return null;
+      }
+      if (backmost == null || key.compareTo(backmost) < 0) {
+        backmost = key;
+      }
+    }
+    ZKey behind = backmost;
+    List<Figure> c = new ArrayList<>();
+    getSpatialIndex()
+        .findContains(
+            p,
+            f -> {
+              if (behind == null || zKeys.get(f).compareTo(behind) < 0) {
+                c.add(f);
+              }
+            });
+    for (Figure f : getFiguresFrontToBack(c)) {
+      if (f.isVisible() && f.contains(p)) {
+        return f;
       }
     }
     return null;
@@ -221,7 +367,7 @@ public class QuadTreeDrawing extends AbstractDrawing {
 
   @Override
   public java.util.List<Figure> findFigures(Rectangle2D.Double r) {
-    LinkedList<Figure> c = new LinkedList<>(quadTree.findIntersects(r));
+    LinkedList<Figure> c = new LinkedList<>(getSpatialIndex().findIntersects(r));
     switch (c.size()) {
       case 0:
         // fall through
@@ -232,30 +378,46 @@ public class QuadTreeDrawing extends AbstractDrawing {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Implementation note: The drawing area of a figure contains its bounds. Therefore only the
+   * figures whose drawing area intersects the specified bounds need to be checked against their
+   * precomputed transformed bounds.
+   */
   @Override
   public java.util.List<Figure> findFiguresWithin(Rectangle2D.Double bounds) {
-    LinkedList<Figure> contained = new LinkedList<>();
-    for (Figure f : children) {
-      Rectangle2D.Double r = f.getBounds();
-      if (f.attr().get(TRANSFORM) != null) {
-        Rectangle2D rt = f.attr().get(TRANSFORM).createTransformedShape(r).getBounds2D();
-        r =
-            (rt instanceof Rectangle2D.Double)
-                ? (Rectangle2D.Double) rt
-                : new Rectangle2D.Double(rt.getX(), rt.getY(), rt.getWidth(), rt.getHeight());
-      }
-      if (f.isVisible() && Geom.contains(bounds, r)) {
-        contained.add(f);
-      }
+    List<Figure> contained = new ArrayList<>();
+    getSpatialIndex()
+        .findIntersects(
+            bounds,
+            f -> {
+              if (f.isVisible() && Geom.contains(bounds, transformedBounds.get(f))) {
+                contained.add(f);
+              }
+            });
+    return sort(contained);
+  }
+
+  /** Returns the bounds of a figure, transformed by its {@code TRANSFORM} attribute. */
+  private static Rectangle2D.Double getTransformedBounds(Figure f) {
+    Rectangle2D.Double r = f.getBounds();
+    if (f.attr().get(TRANSFORM) != null) {
+      Rectangle2D rt = f.attr().get(TRANSFORM).createTransformedShape(r).getBounds2D();
+      r =
+          (rt instanceof Rectangle2D.Double)
+              ? (Rectangle2D.Double) rt
+              : new Rectangle2D.Double(rt.getX(), rt.getY(), rt.getWidth(), rt.getHeight());
     }
-    return contained;
+    return r;
   }
 
   @Override
   public void bringToFront(Figure figure) {
     if (children.remove(figure)) {
       children.add(figure);
-      needsSorting = true;
+      zKeys.get(figure).rank = rankForIndex(children.size() - 1);
+      sortedChildren = null;
       fireDrawingChanged(figure.getDrawingArea());
     }
   }
@@ -264,7 +426,8 @@ public class QuadTreeDrawing extends AbstractDrawing {
   public void sendToBack(Figure figure) {
     if (children.remove(figure)) {
       children.add(0, figure);
-      needsSorting = true;
+      zKeys.get(figure).rank = rankForIndex(0);
+      sortedChildren = null;
       fireDrawingChanged(figure.getDrawingArea());
     }
   }
@@ -274,24 +437,39 @@ public class QuadTreeDrawing extends AbstractDrawing {
   //    return children.contains(f);
   //  }
 
-  /** Ensures that the children are sorted in z-order sequence. */
-  private void ensureSorted() {
-    if (needsSorting) {
-      Collections.sort(children, Comparator.comparing(Figure::getLayer));
-      needsSorting = false;
-    }
-  }
-
   @Override
   public QuadTreeDrawing clone() {
     QuadTreeDrawing that = (QuadTreeDrawing) super.clone();
-    that.quadTree = new QuadTree<>();
-    for (Figure f : getChildren()) {
-      quadTree.add(f, f.getDrawingArea());
+    that.spatialIndex = null;
+    that.getSpatialIndex().addAll(that.getChildren(), Figure::getDrawingArea);
+    that.zKeys = new HashMap<>();
+    for (Map.Entry<Figure, ZKey> entry : zKeys.entrySet()) {
+      that.zKeys.put(entry.getKey(), new ZKey(entry.getValue().layer, entry.getValue().rank));
+    }
+    that.transformedBounds = new HashMap<>();
+    for (Figure f : that.getChildren()) {
+      that.transformedBounds.put(f, getTransformedBounds(f));
     }
+    that.sortedChildren = null;
     return that;
   }
 
+  /** Creates the spatial index which is used to find the children of this drawing. */
+  protected SpatialIndex<Figure> createSpatialIndex() {
+    return new RTree<>();
+  }
+
+  /**
+   * Returns the spatial index. The index is created on first use, so that an override of {@link
+   * #createSpatialIndex} is not called before the subclass has been initialized.
+   */
+  private SpatialIndex<Figure> getSpatialIndex() {
+    if (spatialIndex == null) {
+      spatialIndex = createSpatialIndex();
+    }
+    return spatialIndex;
+  }
+
   @Override
   protected EventHandler createEventHandler() {
     return new QuadTreeEventHandler();
@@ -312,15 +490,25 @@ public class QuadTreeDrawing extends AbstractDrawing {
 
   @Override
   public Figure findFigureBehind(Point2D.Double p, double scaleDenominator, Figure behindFigure) {
+    ZKey behind = zKeys.get(behindFigure);
+    if (behind == null) {
+      return null;
+    }
     double tolerance = 10 / 2 / scaleDenominator;
     Rectangle2D.Double rect =
         new Rectangle2D.Double(p.x - tolerance, p.y - tolerance, 2 * tolerance, 2 * tolerance);
-    boolean check = false;
-    for (Figure figure : findFigures(rect)) {
-      if (check && figure.isVisible() && figure.contains(p, scaleDenominator)) {
+    List<Figure> c = new ArrayList<>();
+    getSpatialIndex()
+        .findIntersects(
+            rect,
+            f -> {
+              if (zKeys.get(f).compareTo(behind) < 0) {
+                c.add(f);
+              }
+            });
+    for (Figure figure : getFiguresFrontToBack(c)) {
+      if (figure.isVisible() && figure.contains(p, scaleDenominator)) {
         return figure;
-      } else if (figure == behindFigure) {
-        check = true;
       }
     }
     return null;
@@ -333,14 +521,42 @@ public class QuadTreeDrawing extends AbstractDrawing {
 
     @Override
     public void figureChanged(FigureEvent e) {
-      if (!isChanging()) {
-        quadTree.remove(e.getFigure());
-        quadTree.add(e.getFigure(), e.getFigure().getDrawingArea());
-        needsSorting = true;
-        invalidate();
-        fireDrawingChanged(e.getInvalidatedArea());
+      Figure figure = e.getFigure();
+      getSpatialIndex().update(figure, figure.getDrawingArea());
+      transformedBounds.put(figure, getTransformedBounds(figure));
+      ZKey key = zKeys.get(figure);
+      if (key != null && key.layer != figure.getLayer()) {
+        key.layer = figure.getLayer();
+        sortedChildren = null;
+      }
+      super.figureChanged(e);
+    }
+
+    @Override
+    public void attributeChanged(FigureEvent e) {
+      if (e.getAttribute() == TRANSFORM && transformedBounds.containsKey(e.getFigure())) {
+        transformedBounds.put(e.getFigure(), getTransformedBounds(e.getFigure()));
       }
+      super.attributeChanged(e);
     }
   }
 
+  /** The z-order key of a child. */
+  private static final class ZKey implements Comparable<ZKey>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private int layer;
+    private double rank;
+
+    ZKey(int layer, double rank) {
+      this.layer = layer;
+      this.rank = rank;
+    }
+
+    @Override
+    public int compareTo(ZKey that) {
+      int c = Integer.compare(this.layer, that.layer);
+      return (c != 0) ? c : Double.compare(this.rank, that.rank);
+    }
+  }
 }
@@ -0,0 +1,254 @@
+/*
+ * @(#)StrokeCache.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw;
+
+import java.awt.BasicStroke;
+import java.awt.Stroke;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jhotdraw.draw.AttributeKeys.StrokeType;
+import org.jhotdraw.geom.DoubleStroke;
+
+/**
+ * Shares immutable strokes between figures, which have the same stroke attributes at the same scale
+ * factor.
+ *
+ * <p>The strokes are keyed by the values from which they are created, so a figure whose stroke
+ * attributes change simply looks up a different stroke. The cache is cleared when it exceeds {@link
+ * #MAX_SIZE} entries.
+ *
+ * <p>This class is thread safe.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+final class StrokeCache {
+
+  /** Maximal number of cached strokes. */
+  static final int MAX_SIZE = 1024;
+
+  private static final ConcurrentHashMap<Key, Stroke> CACHE = new ConcurrentHashMap<>();
+
+  private StrokeCache() {}
+
+  /**
+   * Returns a stroke for the specified stroke parameters.
+   *
+   * @param hit True for a hit stroke, which ignores the dashes.
+   * @param type The stroke type.
+   * @param width The stroke width, including the scale factor.
+   * @param innerWidthFactor The inner width factor of a double stroke.
+   * @param cap The stroke cap.
+   * @param join The stroke join.
+   * @param miterLimit The miter limit.
+   * @param dashes The stroke dashes or null. The array is not changed.
+   * @param dashPhase The dash phase.
+   * @param dashFactor The factor by which the dashes and the dash phase are multiplied.
+   */
+  static Stroke get(
+      boolean hit,
+      StrokeType type,
+      double width,
+      double innerWidthFactor,
+      int cap,
+      int join,
+      float miterLimit,
+      double[] dashes,
+      double dashPhase,
+      double dashFactor) {
+    Key key =
+        new Key(
+            hit,
+            type,
+            width,
+            innerWidthFactor,
+            cap,
+            join,
+            miterLimit,
+            hit ? null : dashes,
+            dashPhase,
+            dashFactor);
+    Stroke stroke = CACHE.get(key);
+    if (stroke == null) {
+      stroke = hit ? createHitStroke(key) : createStroke(key);
+      if (CACHE.size() >= MAX_SIZE) {
+        CACHE.clear();
+      }
+      if (key.dashes != null) {
+        key.dashes = key.dashes.clone();
+      }
+      Stroke existing = CACHE.putIfAbsent(key, stroke);
+      if (existing != null) {
+        stroke = existing;
+      }
+    }
+    return stroke;
+  }
+
+  /** Removes all strokes from the cache. */
+  static void clear() {
+    CACHE.clear();
+  }
+
+  static int size() {
+    return CACHE.size();
+  }
+
+  private static Stroke createStroke(Key k) {
+    double strokeWidth = k.width;
+    double dashFactor = k.dashFactor;
+    double dashPhase = k.dashPhase;
+    double[] ddashes = k.dashes;
+    float[] dashes = null;
+    boolean isAllZeroes = true;
+    if (ddashes != null) {
+      dashes = new float[ddashes.length];
+      double dashSize = 0f;
+      for (int i = 0; i < dashes.length; i++) {
+        dashes[i] = Math.max(0f, (float) (ddashes[i] * dashFactor));
+        dashSize += dashes[i];
+        if (isAllZeroes && dashes[i] != 0) {
+          isAllZeroes = false;
+        }
+      }
+      if (dashes.length % 2 == 1) {
+        dashSize *= 2;
+      }
+      if (dashPhase < 0) {
+        dashPhase = dashSize + dashPhase % dashSize;
+      }
+    }
+    if (isAllZeroes) {
+      // don't draw dashes, if all values are 0.
+      dashes = null;
+    }
+    switch (k.type) {
+      case BASIC:
+      default:
+        return new BasicStroke(
+            (float) strokeWidth,
+            k.cap,
+            k.join,
+            Math.max(1, k.miterLimit),
+            dashes,
+            Math.max(0, (float) (dashPhase * dashFactor)));
+        // not reached
+      case DOUBLE:
+        return new DoubleStroke(
+            (float) (k.innerWidthFactor * strokeWidth),
+            (float) strokeWidth,
+            k.cap,
+            k.join,
+            Math.max(1, k.miterLimit),
+            dashes,
+            Math.max(0, (float) (dashPhase * dashFactor)));
+        // not reached
+    }
+  }
+
+  private static Stroke createHitStroke(Key k) {
+    switch (k.type) {
+      case BASIC:
+      default:
+        return new BasicStroke(
+            (float) k.width,
+            k.cap,
+            k.join,
+            k.miterLimit,
+            null,
+            Math.max(0, (float) (k.dashPhase * k.dashFactor)));
+        // not reached
+      case DOUBLE:
+        return new DoubleStroke(
+            (float) (k.innerWidthFactor * k.width),
+            (float) k.width,
+            k.cap,
+            k.join,
+            k.miterLimit,
+            null,
+            Math.max(0, (float) ((float) k.dashPhase * k.dashFactor)));
+        // not reached
+    }
+  }
+
+  private static final class Key {
+
+    private final boolean hit;
+    private final StrokeType type;
+    private final double width;
+    private final double innerWidthFactor;
+    private final int cap;
+    private final int join;
+    private final float miterLimit;
+    private double[] dashes;
+    private final double dashPhase;
+    private final double dashFactor;
+    private final int hashCode;
+
+    Key(
+        boolean hit,
+        StrokeType type,
+        double width,
+        double innerWidthFactor,
+        int cap,
+        int join,
+        float miterLimit,
+        double[] dashes,
+        double dashPhase,
+        double dashFactor) {
+      this.hit = hit;
+      this.type = type;
+      this.width = width;
+      this.innerWidthFactor = innerWidthFactor;
+      this.cap = cap;
+      this.join = join;
+      this.miterLimit = miterLimit;
+      this.dashes = dashes;
+      this.dashPhase = dashPhase;
+      this.dashFactor = dashFactor;
+      int h = Boolean.hashCode(hit);
+      h = 31 * h + type.hashCode();
+      h = 31 * h + Double.hashCode(width);
+      h = 31 * h + Double.hashCode(innerWidthFactor);
+      h = 31 * h + cap;
+      h = 31 * h + join;
+      h = 31 * h + Float.hashCode(miterLimit);
+      h = 31 * h + Arrays.hashCode(dashes);
+      h = 31 * h + Double.hashCode(dashPhase);
+      h = 31 * h + Double.hashCode(dashFactor);
+      this.hashCode = h;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) obj;
+      return this.hashCode == that.hashCode
+          && this.hit == that.hit
+          && this.type == that.type
+          && Double.compare(this.width, that.width) == 0
+          && Double.compare(this.innerWidthFactor, that.innerWidthFactor) == 0
+          && this.cap == that.cap
+          && this.join == that.join
+          && Float.compare(this.miterLimit, that.miterLimit) == 0
+          && Arrays.equals(this.dashes, that.dashes)
+          && Double.compare(this.dashPhase, that.dashPhase) == 0
+          && Double.compare(this.dashFactor, that.dashFactor) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/*
+ * @(#)TextLayoutCache.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextAttribute;
+import java.awt.font.TextLayout;
+import java.awt.geom.Rectangle2D;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Shares shaped text between figures, which draw the same single line of text with the same font.
+ *
+ * <p>The text layouts are keyed by the text, the font, the underline style and the font render
+ * context. The cache holds at most {@link #getMaximumSize} entries, and discards the least recently
+ * used entry when it is full. The hit and miss counts can be used to choose the maximal size.
+ *
+ * <p>The cached layouts are shared and must not be changed. This class is thread safe.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public final class TextLayoutCache {
+
+  /** The default maximal number of cached text layouts. */
+  public static final int DEFAULT_MAXIMUM_SIZE = 2048;
+
+  private static final Object LOCK = new Object();
+  private static int maximumSize = DEFAULT_MAXIMUM_SIZE;
+  private static long hitCount;
+  private static long missCount;
+  private static final LinkedHashMap<Key, Entry> CACHE =
+      new LinkedHashMap<Key, Entry>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+          return size() > maximumSize;
+        }
+      };
+
+  private TextLayoutCache() {}
+
+  /**
+   * Returns the shaped text for the specified text and font.
+   *
+   * @param text The text. Empty text is shaped as a single space, because a text layout can not be
+   *     created for empty text.
+   * @param font The font.
+   * @param underline The value of the {@link TextAttribute#UNDERLINE} attribute, or null if the
+   *     text is not underlined.
+   * @param frc The font render context.
+   */
+  public static Entry get(String text, Font font, Integer underline, FontRenderContext frc) {
+    if (text == null || text.isEmpty()) {
+      text = " ";
+    }
+    Key key = new Key(text, font, underline, frc);
+    synchronized (LOCK) {
+      Entry entry = CACHE.get(key);
+      if (entry != null) {
+        hitCount++;
+        return entry;
+      }
+      missCount++;
+    }
+    // Shape the text outside of the lock, two threads may shape the same text concurrently
+    HashMap<TextAttribute, Object> textAttributes = new HashMap<>();
+    textAttributes.put(TextAttribute.FONT, font);
+    if (underline != null) {
+      textAttributes.put(TextAttribute.UNDERLINE, underline);
+    }
+    Entry entry = new Entry(new TextLayout(text, textAttributes, frc));
+    synchronized (LOCK) {
+      Entry existing = CACHE.putIfAbsent(key, entry);
+      return existing == null ? entry : existing;
+    }
+  }
+
+  /** Returns the maximal number of cached text layouts. */
+  public static int getMaximumSize() {
+    synchronized (LOCK) {
+      return maximumSize;
+    }
+  }
+
+  /** Sets the maximal number of cached text layouts. Surplus entries are discarded. */
+  public static void setMaximumSize(int newValue) {
+    if (newValue < 0) {
+      throw new IllegalArgumentException("maximumSize=" + newValue);
+    }
+    synchronized (LOCK) {
+      maximumSize = newValue;
+      while (CACHE.size() > maximumSize) {
+        CACHE.remove(CACHE.keySet().iterator().next());
+      }
+    }
+  }
+
+  /** Returns the number of cached text layouts. */
+  public static int size() {
+    synchronized (LOCK) {
+      return CACHE.size();
+    }
+  }
+
+  /** Returns the number of lookups, which have found a cached text layout. */
+  public static long getHitCount() {
+    synchronized (LOCK) {
+      return hitCount;
+    }
+  }
+
+  /** Returns the number of lookups, which had to shape the text. */
+  public static long getMissCount() {
+    synchronized (LOCK) {
+      return missCount;
+    }
+  }
+
+  /** Removes all text layouts from the cache and resets the hit and miss counts. */
+  public static void clear() {
+    synchronized (LOCK) {
+      CACHE.clear();
+      hitCount = 0;
+      missCount = 0;
+    }
+  }
+
+  /** Holds a text layout and its metrics. */
+  public static final class Entry {
+
+    private final TextLayout layout;
+    private final float advance;
+    private final float ascent;
+    private final float descent;
+    private final Rectangle2D bounds;
+    private volatile Shape outline;
+
+    private Entry(TextLayout layout) {
+      this.layout = layout;
+      this.advance = layout.getAdvance();
+      this.ascent = layout.getAscent();
+      this.descent = layout.getDescent();
+      this.bounds = layout.getBounds();
+    }
+
+    /** Returns the shared text layout. The layout must not be changed. */
+    public TextLayout getLayout() {
+      return layout;
+    }
+
+    public float getAdvance() {
+      return advance;
+    }
+
+    public float getAscent() {
+      return ascent;
+    }
+
+    public float getDescent() {
+      return descent;
+    }
+
+    /** Returns the bounds of the text relative to the origin of the baseline. */
+    public Rectangle2D getBounds() {
+      return (Rectangle2D) bounds.clone();
+    }
+
+    /**
+     * Returns the outline of the text relative to the origin of the baseline. The outline is shared
+     * and must not be changed.
+     */
+    public Shape getOutline() {
+      Shape s = outline;
+      if (s == null) {
+        outline = s = layout.getOutline(null);
+      }
+      return s;
+    }
+  }
+
+  private static final class Key {
+
+    private final String text;
+    private final Font font;
+    private final Integer underline;
+    private final FontRenderContext frc;
+    private final int hashCode;
+
+    Key(String text, Font font, Integer underline, FontRenderContext frc) {
+      this.text = text;
+      this.font = font;
+      this.underline = underline;
+      this.frc = frc;
+      int h = text.hashCode();
+      h = 31 * h + Objects.hashCode(font);
+      h = 31 * h + Objects.hashCode(underline);
+      h = 31 * h + frc.hashCode();
+      this.hashCode = h;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) obj;
+      return this.hashCode == that.hashCode
+          && this.text.equals(that.text)
+          && Objects.equals(this.font, that.font)
+          && Objects.equals(this.underline, that.underline)
+          && this.frc.equals(that.frc);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * @(#)TileCache.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw;
+
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A TileCache holds rendered tiles of a drawing.
+ *
+ * <p>A tile is a square of {@link #TILE_SIZE} pixels in scaled drawing coordinates. That is, tile
+ * {@code (x, y)} at scale factor {@code s} covers the drawing area from {@code x * TILE_SIZE / s}
+ * to {@code (x + 1) * TILE_SIZE / s}. Tiles do not depend on the translation of the view, so they
+ * can be reused when the view is scrolled, and tiles of several scale factors can be cached at the
+ * same time.
+ *
+ * <p>The cache evicts the least recently used tiles, when the memory used by the tiles exceeds the
+ * memory budget.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public class TileCache {
+
+  /** The width and height of a tile in pixels. */
+  public static final int TILE_SIZE = 256;
+
+  private final LinkedHashMap<TileKey, BufferedImage> tiles = new LinkedHashMap<>(64, 0.75f, true);
+  /** Number of cached tiles per scale factor. */
+  private final HashMap<Double, Integer> tileCounts = new HashMap<>();
+
+  private long memoryBudget;
+  private long memoryUsage;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param memoryBudget the maximal number of bytes used by the tiles
+   */
+  public TileCache(long memoryBudget) {
+    this.memoryBudget = memoryBudget;
+  }
+
+  public long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /** Sets the maximal number of bytes used by the tiles. Evicts tiles if necessary. */
+  public void setMemoryBudget(long newValue) {
+    memoryBudget = newValue;
+    evict();
+  }
+
+  /** Returns the number of bytes used by the tiles. */
+  public long getMemoryUsage() {
+    return memoryUsage;
+  }
+
+  /** Returns the cached tile, or null if the tile is not in the cache. */
+  public BufferedImage get(double scaleFactor, int tileX, int tileY) {
+    return tiles.get(new TileKey(scaleFactor, tileX, tileY));
+  }
+
+  /** Puts a tile into the cache. */
+  public void put(double scaleFactor, int tileX, int tileY, BufferedImage tile) {
+    BufferedImage old = tiles.put(new TileKey(scaleFactor, tileX, tileY), tile);
+    if (old != null) {
+      memoryUsage -= sizeOf(old);
+    } else {
+      tileCounts.merge(scaleFactor, 1, Integer::sum);
+    }
+    memoryUsage += sizeOf(tile);
+    evict();
+  }
+
+  /**
+   * Removes all tiles, at all scale factors, which intersect the specified drawing area.
+   *
+   * @param drawingArea an area in drawing coordinates
+   * @param grow number of pixels by which the area is grown at each scale factor
+   */
+  public void invalidate(Rectangle2D.Double drawingArea, int grow) {
+    for (Double scaleKey : tileCounts.keySet().toArray(new Double[0])) {
+      double scale = scaleKey;
+      int count = tileCounts.get(scaleKey);
+      int x0 = Math.floorDiv((int) Math.floor(drawingArea.x * scale) - grow, TILE_SIZE);
+      int y0 = Math.floorDiv((int) Math.floor(drawingArea.y * scale) - grow, TILE_SIZE);
+      int x1 =
+          Math.floorDiv(
+              (int) Math.ceil((drawingArea.x + drawingArea.width) * scale) + grow, TILE_SIZE);
+      int y1 =
+          Math.floorDiv(
+              (int) Math.ceil((drawingArea.y + drawingArea.height) * scale) + grow, TILE_SIZE);
+      if ((long) (x1 - x0 + 1) * (y1 - y0 + 1) > count) {
+        // The area covers more tiles than we have at this scale: scan the cache.
+        for (Iterator<Map.Entry<TileKey, BufferedImage>> i = tiles.entrySet().iterator();
+            i.hasNext(); ) {
+          Map.Entry<TileKey, BufferedImage> tile = i.next();
+          TileKey key = tile.getKey();
+          if (key.scaleFactor == scale
+              && key.x >= x0
+              && key.x <= x1
+              && key.y >= y0
+              && key.y <= y1) {
+            i.remove();
+            removed(key, tile.getValue());
+          }
+        }
+      } else {
+        for (int y = y0; y <= y1; y++) {
+          for (int x = x0; x <= x1; x++) {
+            TileKey key = new TileKey(scale, x, y);
+            BufferedImage tile = tiles.remove(key);
+            if (tile != null) {
+              removed(key, tile);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /** Removes all tiles. */
+  public void clear() {
+    for (BufferedImage tile : tiles.values()) {
+      tile.flush();
+    }
+    tiles.clear();
+    tileCounts.clear();
+    memoryUsage = 0;
+  }
+
+  private void evict() {
+    for (Iterator<Map.Entry<TileKey, BufferedImage>> i = tiles.entrySet().iterator();
+        memoryUsage > memoryBudget && i.hasNext(); ) {
+      Map.Entry<TileKey, BufferedImage> eldest = i.next();
+      i.remove();
+      removed(eldest.getKey(), eldest.getValue());
+    }
+  }
+
+  private void removed(TileKey key, BufferedImage tile) {
+    memoryUsage -= sizeOf(tile);
+    tileCounts.computeIfPresent(key.scaleFactor, (k, v) -> (v == 1) ? null : v - 1);
+    tile.flush();
+  }
+
+  private static long sizeOf(BufferedImage tile) {
+    return (long) tile.getWidth() * tile.getHeight() * 4;
+  }
+
+  private static final class TileKey {
+
+    private final double scaleFactor;
+    private final int x;
+    private final int y;
+
+    TileKey(double scaleFactor, int x, int y) {
+      this.scaleFactor = scaleFactor;
+      this.x = x;
+      this.y = y;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof TileKey)) {
+        return false;
+      }
+      TileKey that = (TileKey) obj;
+      return this.x == that.x && this.y == that.y && this.scaleFactor == that.scaleFactor;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(scaleFactor, x, y);
+    }
+  }
+}
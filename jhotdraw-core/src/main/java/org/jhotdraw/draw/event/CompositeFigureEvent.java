@@ -30,6 +30,7 @@ public class CompositeFigureEvent extends EventObject {
   private static final long serialVersionUID = 1L;
   private Rectangle2D.Double invalidatedArea;
   private Figure child;
+  private List<Figure> children;
   private int index;
 
   /**
@@ -47,16 +48,43 @@ public class CompositeFigureEvent extends EventObject {
     this.index = 0;
   }
 
+  /**
+   * Constructs a batched event for children which have been added to or removed from the composite
+   * figure at once.
+   *
+   * @param source The composite figure.
+   * @param children The added or removed children.
+   * @param invalidatedArea The union of the drawing areas of the children.
+   */
+  public CompositeFigureEvent(
+      CompositeFigure source, List<Figure> children, Rectangle2D.Double invalidatedArea) {
+    super(source);
+    this.child = children.isEmpty() ? null : children.get(0);
+    this.children = children;
+    this.invalidatedArea = invalidatedArea;
+  }
+
   /** Gets the changed drawing. */
   public CompositeFigure getCompositeFigure() {
     return (CompositeFigure) getSource();
   }
 
-  /** Gets the changed child figure. */
+  /** Gets the changed child figure. For a batched event, this is the first child. */
   public Figure getChildFigure() {
     return child;
   }
 
+  /**
+   * Gets the changed child figures. Returns a list with a single child, unless this is a batched
+   * event.
+   */
+  public List<Figure> getChildFigures() {
+    if (children == null) {
+      children = (child == null) ? Collections.emptyList() : Collections.singletonList(child);
+    }
+    return children;
+  }
+
   /** Gets the bounds of the invalidated area on the drawing. */
   public Rectangle2D.Double getInvalidatedArea() {
     return invalidatedArea;
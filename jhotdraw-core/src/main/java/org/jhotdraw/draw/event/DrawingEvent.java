@@ -35,6 +35,7 @@ public class DrawingEvent extends EventObject {
   private Object oldValue;
   private Object newValue;
   private Figure figure;
+  private List<Figure> figures;
   private int figureIndex;
 
   /**
@@ -53,6 +54,23 @@ public class DrawingEvent extends EventObject {
     this.figureIndex = figureIndex;
   }
 
+  /**
+   * Constructs a batched event for figures which have been added to or removed from the drawing at
+   * once.
+   *
+   * @param figureIndex The index of the first figure.
+   * @param figures The added or removed figures.
+   * @param invalidatedArea The union of the drawing areas of the figures.
+   */
+  public DrawingEvent(
+      Drawing source, int figureIndex, List<Figure> figures, Rectangle2D.Double invalidatedArea) {
+    super(source);
+    this.figure = figures.isEmpty() ? null : figures.get(0);
+    this.figures = figures;
+    this.figureIndex = figureIndex;
+    this.invalidatedArea = invalidatedArea;
+  }
+
   /** Constructs an event for the given source Figure. */
   public DrawingEvent(Drawing source, AttributeKey<?> attribute, Object oldValue, Object newValue) {
     super(source);
@@ -66,10 +84,22 @@ public class DrawingEvent extends EventObject {
     return (Drawing) getSource();
   }
 
+  /** Gets the added or removed figure. For a batched event, this is the first figure. */
   public Figure getFigure() {
     return figure;
   }
 
+  /**
+   * Gets the added or removed figures. Returns a list with a single figure, unless this is a
+   * batched event.
+   */
+  public List<Figure> getFigures() {
+    if (figures == null) {
+      figures = (figure == null) ? Collections.emptyList() : Collections.singletonList(figure);
+    }
+    return figures;
+  }
+
   public int getFigureIndex() {
     return figureIndex;
   }
@@ -0,0 +1,121 @@
+/*
+ * @(#)ReplaceChildrenEdit.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.figure.Figure;
+
+/**
+ * An undoable edit for a bulk change of the children of a drawing, such as adding or removing many
+ * figures at once.
+ *
+ * <p>The edit holds only the added or removed figures and their indices in the drawing. Undo and
+ * redo apply them with {@link Drawing#addAll(int, Collection)} and {@link Drawing#removeAll}, so
+ * that the figures are restored at their z-order positions, and the drawing listeners receive
+ * batched events. Figures at consecutive indices are inserted with a single call.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public class ReplaceChildrenEdit extends AbstractUndoableEdit {
+
+  private static final long serialVersionUID = 1L;
+  private Drawing drawing;
+  private String presentationName;
+  /** The added or removed figures, in z-order. */
+  private ArrayList<Figure> figures;
+  /** The indices of the figures in the drawing, while they are children of the drawing. */
+  private int[] indices;
+
+  private boolean isRemoval;
+
+  /**
+   * Creates a new instance. The figures must be children of the drawing when the edit is created,
+   * figures which are not are ignored. That is, an edit for added figures is created after they
+   * have been added, and an edit for removed figures is created before they are removed.
+   *
+   * @param drawing the drawing
+   * @param presentationName the presentation name of the edit
+   * @param figures the added or removed figures
+   * @param isRemoval true if the figures are removed, false if they are added
+   */
+  public ReplaceChildrenEdit(
+      Drawing drawing,
+      String presentationName,
+      Collection<? extends Figure> figures,
+      boolean isRemoval) {
+    this.drawing = drawing;
+    this.presentationName = presentationName;
+    this.isRemoval = isRemoval;
+    Set<Figure> figureSet = Collections.newSetFromMap(new IdentityHashMap<>(figures.size()));
+    figureSet.addAll(figures);
+    this.figures = new ArrayList<>(figureSet.size());
+    this.indices = new int[figureSet.size()];
+    int i = 0;
+    for (Figure f : drawing.getChildren()) {
+      if (figureSet.contains(f)) {
+        indices[this.figures.size()] = i;
+        this.figures.add(f);
+      }
+      i++;
+    }
+    if (this.figures.size() != indices.length) {
+      // Figures which are not children of the drawing are not affected by the change
+      indices = Arrays.copyOf(indices, this.figures.size());
+    }
+  }
+
+  @Override
+  public String getPresentationName() {
+    return presentationName;
+  }
+
+  @Override
+  public void undo() throws CannotUndoException {
+    super.undo();
+    if (isRemoval) {
+      reinsert();
+    } else {
+      drawing.removeAll(figures);
+    }
+  }
+
+  @Override
+  public void redo() throws CannotRedoException {
+    super.redo();
+    if (isRemoval) {
+      drawing.removeAll(figures);
+    } else {
+      reinsert();
+    }
+  }
+
+  /**
+   * Inserts the figures at their indices. The runs of consecutive indices are inserted from front
+   * to back, so that each index is valid when its run is inserted.
+   */
+  private void reinsert() {
+    for (int start = 0, n = figures.size(); start < n; ) {
+      int end = start + 1;
+      while (end < n && indices[end] == indices[end - 1] + 1) {
+        end++;
+      }
+      drawing.addAll(indices[start], figures.subList(start, end));
+      start = end;
+    }
+  }
+}
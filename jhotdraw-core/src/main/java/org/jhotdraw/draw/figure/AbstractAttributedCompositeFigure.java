@@ -19,6 +19,7 @@ import javax.swing.event.*;
 import org.jhotdraw.draw.AttributeKey;
 import org.jhotdraw.draw.AttributeKeys;
 import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.LevelOfDetailPolicy;
 import org.jhotdraw.draw.event.CompositeFigureEvent;
 import org.jhotdraw.draw.event.CompositeFigureListener;
 import org.jhotdraw.draw.event.FigureEvent;
@@ -147,13 +148,20 @@ public abstract class AbstractAttributedCompositeFigure extends AbstractAttribut
     addAll(getChildCount(), figures);
   }
 
+  /**
+   * Adds the figures at the specified index. The listeners receive a single batched {@code
+   * figureAdded} event.
+   */
   public final void addAll(int index, Collection<? extends Figure> figures) {
-    for (Figure f : figures) {
+    ArrayList<Figure> added = new ArrayList<>(figures);
+    for (Figure f : added) {
       basicAdd(index++, f);
       if (getDrawing() != null) {
         f.addNotify(getDrawing());
       }
-      fireFigureAdded(f, index);
+    }
+    if (!added.isEmpty()) {
+      fireFiguresAdded(added);
     }
     invalidate();
   }
@@ -211,14 +219,21 @@ public abstract class AbstractAttributedCompositeFigure extends AbstractAttribut
   }
 
   /**
-   * Removes all specified children.
+   * Removes all specified children. The listeners receive a single batched {@code figureRemoved}
+   * event.
    *
    * @see #add
    */
   public void removeAll(Collection<? extends Figure> figures) {
     willChange();
-    for (Figure f : new ArrayList<Figure>(figures)) {
-      remove(f);
+    java.util.List<Figure> removed = basicRemoveChildren(figures);
+    if (getDrawing() != null) {
+      for (Figure f : removed) {
+        f.removeNotify(getDrawing());
+      }
+    }
+    if (!removed.isEmpty()) {
+      fireFiguresRemoved(removed);
     }
     changed();
   }
@@ -251,9 +266,24 @@ public abstract class AbstractAttributedCompositeFigure extends AbstractAttribut
    * @see #add
    */
   public void basicRemoveAll(Collection<? extends Figure> figures) {
-    for (Figure f : figures) {
-      basicRemove(f);
+    basicRemoveChildren(figures);
+  }
+
+  /**
+   * Removes the specified children in a single pass over the children, from back to front, so that
+   * no index lookup is needed. Returns the removed children in their z-order.
+   */
+  private java.util.List<Figure> basicRemoveChildren(Collection<? extends Figure> figures) {
+    Set<Figure> removeSet = Collections.newSetFromMap(new IdentityHashMap<>(figures.size()));
+    removeSet.addAll(figures);
+    ArrayList<Figure> removed = new ArrayList<>(removeSet.size());
+    for (int i = children.size() - 1; i >= 0 && removed.size() < removeSet.size(); i--) {
+      if (removeSet.contains(children.get(i))) {
+        removed.add(basicRemoveChild(i));
+      }
     }
+    Collections.reverse(removed);
+    return removed;
   }
 
   /**
@@ -453,13 +483,13 @@ public abstract class AbstractAttributedCompositeFigure extends AbstractAttribut
     if (clipBounds != null) {
       for (Figure child : getChildren()) {
         if (child.isVisible() && child.getDrawingArea().intersects(clipBounds)) {
-          child.draw(g);
+          LevelOfDetailPolicy.draw(g, child);
         }
       }
     } else {
       for (Figure child : getChildren()) {
         if (child.isVisible()) {
-          child.draw(g);
+          LevelOfDetailPolicy.draw(g, child);
         }
       }
     }
@@ -638,6 +668,29 @@ public abstract class AbstractAttributedCompositeFigure extends AbstractAttribut
         () -> new CompositeFigureEvent(this, f, f.getDrawingArea(), zIndex));
   }
 
+  /** Fires a single batched event for children which have been added at once. */
+  protected void fireFiguresAdded(java.util.List<Figure> figures) {
+    fireCompositeFigureEvent(
+        (listener, event) -> listener.figureAdded(event),
+        () -> new CompositeFigureEvent(this, figures, unionOfDrawingAreas(figures)));
+  }
+
+  /** Fires a single batched event for children which have been removed at once. */
+  protected void fireFiguresRemoved(java.util.List<Figure> figures) {
+    fireCompositeFigureEvent(
+        (listener, event) -> listener.figureRemoved(event),
+        () -> new CompositeFigureEvent(this, figures, unionOfDrawingAreas(figures)));
+  }
+
+  /** Returns the union of the drawing areas of the specified figures. */
+  private static Rectangle2D.Double unionOfDrawingAreas(java.util.List<Figure> figures) {
+    Rectangle2D.Double area = figures.get(0).getDrawingArea();
+    for (int i = 1, n = figures.size(); i < n; i++) {
+      area.add(figures.get(i).getDrawingArea());
+    }
+    return area;
+  }
+
   /** Notify all listenerList that have registered interest for notification on this event type. */
   protected void fireFigureRemoved(Figure f, int zIndex) {
     fireCompositeFigureEvent(
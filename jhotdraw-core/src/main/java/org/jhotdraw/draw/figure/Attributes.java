@@ -20,24 +20,54 @@ package org.jhotdraw.draw.figure;
 
 import static java.util.stream.Collectors.toList;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
 import java.util.function.Supplier;
 import org.jhotdraw.draw.AttributeKey;
 import org.jhotdraw.draw.AttributeKeys;
 
-/** implementation of Attribute storage and processing. */
+/**
+ * implementation of Attribute storage and processing.
+ *
+ * <p>The attributes are stored in a sparse slot table indexed by {@link AttributeKey#getOrdinal}: a
+ * bitmask tells which ordinals are present, and the keys and values of the present ordinals are
+ * packed in ordinal order into two small arrays. The slot of an ordinal is the number of present
+ * ordinals below it.
+ *
+ * <p>The arrays can be shared with other instances through an immutable {@code Style}. This happens
+ * when an instance is copied with {@link #from}, or interned with {@link #intern}. A shared style
+ * is copied when an attribute is changed (copy on write).
+ */
 public final class Attributes {
 
-  private HashMap<AttributeKey<?>, Object> attributes = new HashMap<>();
+  private static final long[] NO_BITS = new long[0];
+  private static final Object[] NO_VALUES = new Object[0];
+  private static final AttributeKey<?>[] NO_KEYS = new AttributeKey<?>[0];
+
+  /** Bit i is set if the attribute with ordinal i is present. */
+  private long[] present = NO_BITS;
+  /** The keys of the present attributes in ordinal order. */
+  private AttributeKey<?>[] keys = NO_KEYS;
+  /** The values of the present attributes in ordinal order. */
+  private Object[] values = NO_VALUES;
+  /** The number of present attributes. */
+  private int size;
   /**
    * Forbidden attributes can't be put by the put() operation. They can only be changed by put().
+   * Bit i is set if the attribute with ordinal i is forbidden.
    */
-  private HashSet<AttributeKey<?>> forbiddenAttributes;
+  private long[] forbiddenAttributes;
+  /** The style whose arrays this instance shares, or null if the arrays are not shared. */
+  private Style style;
+  /** Interned styles. */
+  private static final WeakHashMap<Style, WeakReference<Style>> STYLES = new WeakHashMap<>();
 
   private AttributeListener listener;
 
@@ -57,13 +87,19 @@ public final class Attributes {
   }
 
   public void setAttributeEnabled(AttributeKey<?> key, boolean b) {
-    if (forbiddenAttributes == null) {
-      forbiddenAttributes = new HashSet<>();
-    }
+    int ordinal = key.getOrdinal();
+    int word = ordinal >>> 6;
     if (b) {
-      forbiddenAttributes.remove(key);
+      if (forbiddenAttributes != null && word < forbiddenAttributes.length) {
+        forbiddenAttributes[word] &= ~(1L << ordinal);
+      }
     } else {
-      forbiddenAttributes.add(key);
+      if (forbiddenAttributes == null) {
+        forbiddenAttributes = new long[word + 1];
+      } else if (word >= forbiddenAttributes.length) {
+        forbiddenAttributes = Arrays.copyOf(forbiddenAttributes, word + 1);
+      }
+      forbiddenAttributes[word] |= 1L << ordinal;
     }
   }
 
@@ -74,7 +110,7 @@ public final class Attributes {
    * @return
    */
   public boolean isAttributeEnabled(AttributeKey<?> key) {
-    return forbiddenAttributes == null || !forbiddenAttributes.contains(key);
+    return !isSet(forbiddenAttributes, key.getOrdinal());
   }
 
   /** Set attributes from map. */
@@ -89,7 +125,11 @@ public final class Attributes {
    * returned.
    */
   public Map<AttributeKey<?>, Object> getAttributes() {
-    return (Map<AttributeKey<?>, Object>) new HashMap<>(attributes);
+    HashMap<AttributeKey<?>, Object> map = new HashMap<>(Math.max(16, size * 4 / 3 + 1));
+    for (int i = 0; i < size; i++) {
+      map.put(keys[i], values[i]);
+    }
+    return map;
   }
 
   /**
@@ -121,7 +161,7 @@ public final class Attributes {
         idx++;
       }
     } else {
-      attributes.clear();
+      clear();
       HashMap<AttributeKey<?>, Object> restoreDataHashMap =
           (HashMap<AttributeKey<?>, Object>) restoreData;
       setAttributes(restoreDataHashMap);
@@ -144,9 +184,23 @@ public final class Attributes {
    *
    * @see AttributeKey#set
    */
+  @SuppressWarnings("unchecked")
   public <T> void set(AttributeKey<T> key, T newValue) {
-    if (forbiddenAttributes == null || !forbiddenAttributes.contains(key)) {
-      T oldValue = key.put(attributes, newValue);
+    int ordinal = key.getOrdinal();
+    if (!isSet(forbiddenAttributes, ordinal)) {
+      if (newValue == null && !key.isNullValueAllowed()) {
+        throw new NullPointerException("Null value not allowed for AttributeKey " + key.getKey());
+      }
+      T oldValue;
+      if (isSet(present, ordinal)) {
+        unshare();
+        int slot = slotOf(ordinal);
+        oldValue = (T) values[slot];
+        values[slot] = newValue;
+      } else {
+        oldValue = null;
+        insert(ordinal, key, newValue);
+      }
       fireAttributeChanged(key, oldValue, newValue);
     }
 
@@ -160,8 +214,10 @@ public final class Attributes {
    * @return Returns the attribute value. If the Figure does not have an attribute with the
    *     specified key, returns key.getDefaultValue().
    */
+  @SuppressWarnings("unchecked")
   public <T> T get(AttributeKey<T> key) {
-    return key.get(attributes);
+    int ordinal = key.getOrdinal();
+    return isSet(present, ordinal) ? (T) values[slotOf(ordinal)] : key.getDefaultValue();
   }
 
   public static AttributeKey<?> getAttributeKey(String name) {
@@ -171,7 +227,7 @@ public final class Attributes {
   public <T> void removeAttribute(AttributeKey<T> key) {
     if (hasAttribute(key)) {
       T oldValue = get(key);
-      attributes.remove(key);
+      remove(key.getOrdinal());
       fireAttributeChanged(key, oldValue, key.getDefaultValue());
     }
   }
@@ -183,7 +239,146 @@ public final class Attributes {
    * @return
    */
   public boolean hasAttribute(AttributeKey<?> key) {
-    return attributes.containsKey(key);
+    return isSet(present, key.getOrdinal());
+  }
+
+  /** Copies the arrays if they are shared. */
+  private void unshare() {
+    if (style != null) {
+      style = null;
+      present = present.clone();
+      int capacity = Math.max(4, size);
+      keys = Arrays.copyOf(keys, capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+  }
+
+  /** Shares the arrays of this instance through a style. */
+  private Style share() {
+    if (style == null) {
+      style = new Style(present, keys, values, size);
+    }
+    return style;
+  }
+
+  private void adopt(Style newValue) {
+    style = newValue;
+    present = newValue.present;
+    keys = newValue.keys;
+    values = newValue.values;
+    size = newValue.size;
+  }
+
+  /**
+   * Shares the attributes with all other interned instances, which have equal attributes. This
+   * saves memory when many figures have the same style, for example after reading a drawing.
+   *
+   * <p>Changing an attribute after interning is safe, it copies the attributes of this instance.
+   * Attributes with mutable values, such as gradients, dash arrays and transforms, are not
+   * interned, because figures change these values in place.
+   */
+  public void intern() {
+    if (size == 0 || style != null && style.interned || hasMutableValues()) {
+      return;
+    }
+    Style candidate = share();
+    synchronized (STYLES) {
+      WeakReference<Style> ref = STYLES.get(candidate);
+      Style canonical = (ref == null) ? null : ref.get();
+      if (canonical == null) {
+        candidate.interned = true;
+        STYLES.put(candidate, new WeakReference<>(candidate));
+        canonical = candidate;
+      }
+      adopt(canonical);
+    }
+  }
+
+  /** Returns true if a value is an array or can be cloned, and therefore may be mutable. */
+  private boolean hasMutableValues() {
+    for (int i = 0; i < size; i++) {
+      Object value = values[i];
+      if (value instanceof Cloneable || value != null && value.getClass().isArray()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Interns the attributes of the specified figures and of their descendants. */
+  public static void intern(Iterable<? extends Figure> figures) {
+    for (Figure f : figures) {
+      f.attr().intern();
+      if (f instanceof CompositeFigure) {
+        intern(((CompositeFigure) f).getChildren());
+      }
+    }
+  }
+
+  /** Returns true if this instance shares its attributes with the specified instance. */
+  boolean isSharedWith(Attributes that) {
+    return style != null && style == that.style;
+  }
+
+  private static boolean isSet(long[] bits, int ordinal) {
+    int word = ordinal >>> 6;
+    return bits != null && word < bits.length && (bits[word] & (1L << ordinal)) != 0;
+  }
+
+  /** Returns the slot of an ordinal, that is the number of present ordinals below it. */
+  private int slotOf(int ordinal) {
+    int word = ordinal >>> 6;
+    int slot = Long.bitCount(present[word] & ((1L << ordinal) - 1));
+    for (int i = 0; i < word; i++) {
+      slot += Long.bitCount(present[i]);
+    }
+    return slot;
+  }
+
+  private void insert(int ordinal, AttributeKey<?> key, Object value) {
+    unshare();
+    int word = ordinal >>> 6;
+    if (word >= present.length) {
+      present = Arrays.copyOf(present, word + 1);
+    }
+    int slot = slotOf(ordinal);
+    if (size == values.length) {
+      int capacity = Math.max(4, size * 2);
+      values = Arrays.copyOf(values, capacity);
+      keys = Arrays.copyOf(keys, capacity);
+    }
+    System.arraycopy(values, slot, values, slot + 1, size - slot);
+    System.arraycopy(keys, slot, keys, slot + 1, size - slot);
+    values[slot] = value;
+    keys[slot] = key;
+    present[word] |= 1L << ordinal;
+    size++;
+  }
+
+  private void remove(int ordinal) {
+    unshare();
+    int slot = slotOf(ordinal);
+    size--;
+    System.arraycopy(values, slot + 1, values, slot, size - slot);
+    System.arraycopy(keys, slot + 1, keys, slot, size - slot);
+    values[size] = null;
+    keys[size] = null;
+    present[ordinal >>> 6] &= ~(1L << ordinal);
+  }
+
+  private void clear() {
+    if (style != null) {
+      style = null;
+      present = NO_BITS;
+      keys = NO_KEYS;
+      values = NO_VALUES;
+      size = 0;
+      return;
+    }
+    Arrays.fill(present, 0L);
+    Arrays.fill(values, 0, size, null);
+    Arrays.fill(keys, 0, size, null);
+    size = 0;
   }
 
   private <T> void fireAttributeChanged(AttributeKey<T> attribute, T oldValue, T newValue) {
@@ -208,13 +403,84 @@ public final class Attributes {
   public static Attributes from(
       Attributes source, AttributeListener listener, Supplier<List<Attributes>> dependent) {
     Attributes attr = new Attributes(listener, dependent);
-    attr.attributes.putAll(source.attributes);
+    if (source.size > 0) {
+      attr.adopt(source.share());
+    }
     if (source.forbiddenAttributes != null) {
-      attr.forbiddenAttributes = new HashSet<>(source.forbiddenAttributes);
+      attr.forbiddenAttributes = source.forbiddenAttributes.clone();
     }
     return attr;
   }
 
+  /**
+   * An immutable snapshot of the arrays of an Attributes instance, which is shared by several
+   * instances.
+   */
+  private static final class Style {
+
+    private final long[] present;
+    private final AttributeKey<?>[] keys;
+    private final Object[] values;
+    private final int size;
+    /** Whether this style is in the table of interned styles. */
+    private boolean interned;
+
+    private int hashCode;
+
+    Style(long[] present, AttributeKey<?>[] keys, Object[] values, int size) {
+      this.present = present;
+      this.keys = keys;
+      this.values = values;
+      this.size = size;
+    }
+
+    @Override
+    public int hashCode() {
+      if (hashCode == 0) {
+        int h = 0;
+        for (int i = 0; i < present.length; i++) {
+          // trailing zero words must not change the hash code
+          if (present[i] != 0L) {
+            h = 31 * h + i + Long.hashCode(present[i]);
+          }
+        }
+        for (int i = 0; i < size; i++) {
+          h = 31 * h + Arrays.deepHashCode(new Object[] {values[i]});
+        }
+        hashCode = h;
+      }
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Style)) {
+        return false;
+      }
+      Style that = (Style) obj;
+      if (this.size != that.size || this.hashCode() != that.hashCode()) {
+        return false;
+      }
+      int n = Math.max(this.present.length, that.present.length);
+      for (int i = 0; i < n; i++) {
+        long a = (i < this.present.length) ? this.present[i] : 0L;
+        long b = (i < that.present.length) ? that.present[i] : 0L;
+        if (a != b) {
+          return false;
+        }
+      }
+      for (int i = 0; i < size; i++) {
+        if (!Objects.deepEquals(this.values[i], that.values[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
   public static Supplier<List<Attributes>> attrSupplier(Supplier<List<Figure>> dependent) {
     return () -> dependent.get().stream().map(f -> f.attr()).collect(toList());
   }
@@ -175,13 +175,10 @@ public class BezierFigure extends AbstractAttributedFigure {
       if (path.contains(p)) {
         return true;
       }
+      // The point is outside of the path. It hits the figure, if it is inside of the path grown
+      // by the hit growth, that is, if it is near the outline.
       double grow = AttributeKeys.getPerpendicularHitGrowth(this, scaleDenominator) * 2d;
-      GrowStroke gs =
-          new GrowStroke(
-              grow,
-              AttributeKeys.getStrokeTotalWidth(this, scaleDenominator)
-                  * attr().get(STROKE_MITER_LIMIT));
-      if (gs.createStrokedShape(path).contains(p)) {
+      if (grow > 0 && path.outlineDistance(p, 0.1) <= grow) {
         return true;
       } else {
         if (isClosed()) {
@@ -281,6 +278,28 @@ public class BezierFigure extends AbstractAttributedFigure {
     return path.getPointOnPath(relative, flatness);
   }
 
+  /**
+   * Returns true if the outline of the bezier path contains the specified point. This uses the
+   * segment index of the path, which is kept until the path changes.
+   *
+   * @param p The point to be tested.
+   * @param tolerance The tolerance for the test.
+   */
+  public boolean outlineContains(Point2D.Double p, double tolerance) {
+    return path.outlineContains(p, tolerance);
+  }
+
+  /**
+   * Returns the distance from the specified point to the outline of the bezier path, using the
+   * segment index of the path as well.
+   *
+   * @param p The point.
+   * @param flatness The flatness used to approximate the outline.
+   */
+  public double outlineDistance(Point2D.Double p, double flatness) {
+    return path.outlineDistance(p, flatness);
+  }
+
   public boolean isClosed() {
     return attr().get(PATH_CLOSED);
   }
@@ -12,6 +12,7 @@ import java.awt.geom.*;
 import java.io.*;
 import java.util.*;
 import javax.swing.undo.*;
+import org.jhotdraw.draw.ConnectionUpdateScheduler;
 import org.jhotdraw.draw.Drawing;
 import org.jhotdraw.draw.DrawingView;
 import org.jhotdraw.draw.connector.Connector;
@@ -72,13 +73,22 @@ public class LineConnectionFigure extends LineFigure implements ConnectionFigure
     @Override
     public void figureChanged(FigureEvent e) {
       if (!owner.isChanging()) {
-        if (e.getSource() == owner.getStartFigure() || e.getSource() == owner.getEndFigure()) {
+        if ((e.getSource() == owner.getStartFigure() || e.getSource() == owner.getEndFigure())
+            && !scheduleUpdate()) {
           owner.willChange();
           owner.updateConnection();
           owner.changed();
         }
       }
     }
+
+    /** Schedules the update of the connection with the scheduler of its drawing. */
+    private boolean scheduleUpdate() {
+      Drawing drawing = owner.getDrawing();
+      ConnectionUpdateScheduler scheduler =
+          drawing == null ? null : drawing.getConnectionUpdateScheduler();
+      return scheduler != null && scheduler.schedule(owner);
+    }
   }
   ;
 
@@ -286,6 +296,9 @@ public class LineConnectionFigure extends LineFigure implements ConnectionFigure
     if (getStartConnector() != null && getEndConnector() != null) {
       handleDisconnect(getStartConnector(), getEndConnector());
     }
+    if (drawing != null && drawing.getConnectionUpdateScheduler() != null) {
+      drawing.getConnectionUpdateScheduler().cancel(this);
+    }
     // Note: we do not set the connectors to null here, because we
     // need them when we are added back to a drawing again. For example,
     // when an undo is performed, after the LineConnection has been
@@ -476,6 +489,15 @@ public class LineConnectionFigure extends LineFigure implements ConnectionFigure
     return path;
   }
 
+  /**
+   * Returns the drawing of the connection. Liners use the drawing to find the figures near the
+   * connection.
+   */
+  @Override
+  public Drawing getDrawing() {
+    return super.getDrawing();
+  }
+
   @Override
   public Liner getLiner() {
     return liner;
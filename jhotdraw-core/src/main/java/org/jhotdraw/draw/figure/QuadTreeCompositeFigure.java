@@ -13,22 +13,29 @@ import java.awt.*;
 import java.awt.geom.*;
 import java.util.*;
 import javax.swing.event.*;
+import org.jhotdraw.draw.LevelOfDetailPolicy;
 import org.jhotdraw.draw.event.FigureEvent;
 import org.jhotdraw.draw.event.FigureListenerAdapter;
 import org.jhotdraw.geom.Dimension2DDouble;
-import org.jhotdraw.geom.QuadTree;
+import org.jhotdraw.geom.RTree;
+import org.jhotdraw.geom.SpatialIndex;
 import org.jhotdraw.util.*;
 
 /**
  * QuadTreeCompositeFigure.
  *
+ * <p>Uses a {@link SpatialIndex} to find its children. By default, the children are indexed with an
+ * {@link RTree}. Subclasses can override {@link #createSpatialIndex} to use a different index.
+ *
  * @author Werner Randelshofer
  * @version $Id$
  */
 public abstract class QuadTreeCompositeFigure extends AbstractAttributedCompositeFigure {
 
   private static final long serialVersionUID = 1L;
-  private QuadTree<Figure> quadTree = new QuadTree<>();
+  /** The spatial index of the children. Is created lazily by {@link #getSpatialIndex}. */
+  private SpatialIndex<Figure> spatialIndex;
+
   private boolean needsSorting = false;
   private FigureHandler figureHandler;
   private Dimension2DDouble canvasSize;
@@ -42,6 +49,22 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
     return new FigureHandler();
   }
 
+  /** Creates the spatial index which is used to find the children of this figure. */
+  protected SpatialIndex<Figure> createSpatialIndex() {
+    return new RTree<>();
+  }
+
+  /**
+   * Returns the spatial index. The index is created on first use, so that an override of {@link
+   * #createSpatialIndex} is not called before the subclass has been initialized.
+   */
+  private SpatialIndex<Figure> getSpatialIndex() {
+    if (spatialIndex == null) {
+      spatialIndex = createSpatialIndex();
+    }
+    return spatialIndex;
+  }
+
   @Override
   public int indexOf(Figure figure) {
     return children.indexOf(figure);
@@ -50,7 +73,7 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
   @Override
   public void basicAdd(int index, Figure figure) {
     children.add(index, figure);
-    quadTree.add(figure, figure.getDrawingArea());
+    getSpatialIndex().add(figure, figure.getDrawingArea());
     figure.addFigureListener(figureHandler);
     needsSorting = true;
   }
@@ -59,7 +82,7 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
   public Figure basicRemoveChild(int index) {
     Figure figure = children.get(index);
     children.remove(index);
-    quadTree.remove(figure);
+    getSpatialIndex().remove(figure);
     figure.removeFigureListener(figureHandler);
     needsSorting = true;
     return figure;
@@ -69,7 +92,7 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
   public void draw(Graphics2D g) {
     Rectangle2D clipBounds = g.getClipBounds();
     if (clipBounds != null) {
-      Collection<Figure> c = quadTree.findIntersects(clipBounds);
+      Collection<Figure> c = getSpatialIndex().findIntersects(clipBounds);
       Collection<Figure> toDraw = sort(c);
       draw(g, toDraw);
     } else {
@@ -80,9 +103,10 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
   /** Implementation note: Sorting can not be done for orphaned children. */
   public java.util.List<Figure> sort(Collection<Figure> c) {
     ensureSorted();
+    Set<Figure> unsorted = new HashSet<>(c);
     ArrayList<Figure> sorted = new ArrayList<>(c.size());
     for (Figure f : children) {
-      if (c.contains(f)) {
+      if (unsorted.contains(f)) {
         sorted.add(f);
       }
     }
@@ -91,12 +115,12 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
 
   public void draw(Graphics2D g, Collection<Figure> c) {
     for (Figure f : c) {
-      f.draw(g);
+      LevelOfDetailPolicy.draw(g, f);
     }
   }
 
   public java.util.List<Figure> getFigures(Rectangle2D.Double bounds) {
-    return new LinkedList<>(quadTree.findInside(bounds));
+    return new LinkedList<>(getSpatialIndex().findInside(bounds));
   }
 
   @Override
@@ -106,7 +130,7 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
 
   @Override
   public Figure findFigureInside(Point2D.Double p) {
-    Collection<Figure> c = quadTree.findContains(p);
+    Set<Figure> c = new HashSet<>(getSpatialIndex().findContains(p));
     for (Figure f : getFiguresFrontToBack()) {
       if (c.contains(f) && f.contains(p)) {
         return f.findFigureInside(p);
@@ -122,7 +146,7 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
   }
 
   public Figure findFigure(Point2D.Double p) {
-    Collection<Figure> c = quadTree.findContains(p);
+    Collection<Figure> c = getSpatialIndex().findContains(p);
     switch (c.size()) {
       case 0:
         return null;
@@ -131,8 +155,9 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
         return (f.contains(p)) ? f : null;
 
       default:
+        Set<Figure> candidates = new HashSet<>(c);
         for (Figure f2 : getFiguresFrontToBack()) {
-          if (c.contains(f2) && f2.contains(p)) {
+          if (candidates.contains(f2) && f2.contains(p)) {
             return f2;
           }
         }
@@ -141,7 +166,7 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
   }
 
   public Figure findFigureExcept(Point2D.Double p, Figure ignore) {
-    Collection<Figure> c = quadTree.findContains(p);
+    Collection<Figure> c = getSpatialIndex().findContains(p);
     switch (c.size()) {
       case 0:
         return null;
@@ -159,7 +184,7 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
   }
 
   public Figure findFigureExcept(Point2D.Double p, Collection<Figure> ignore) {
-    Collection<Figure> c = quadTree.findContains(p);
+    Collection<Figure> c = getSpatialIndex().findContains(p);
     switch (c.size()) {
       case 0:
         return null;
@@ -207,7 +232,7 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
   }
 
   public java.util.List<Figure> findFigures(Rectangle2D.Double r) {
-    LinkedList<Figure> c = new LinkedList<>(quadTree.findIntersects(r));
+    LinkedList<Figure> c = new LinkedList<>(getSpatialIndex().findIntersects(r));
     switch (c.size()) {
       case 0:
         // fall through
@@ -291,8 +316,7 @@ public abstract class QuadTreeCompositeFigure extends AbstractAttributedComposit
 
     @Override
     public void figureChanged(FigureEvent e) {
-      quadTree.remove(e.getFigure());
-      quadTree.add(e.getFigure(), e.getFigure().getDrawingArea());
+      getSpatialIndex().update(e.getFigure(), e.getFigure().getDrawingArea());
       needsSorting = true;
       if (!isChanging()) {
         fireAreaInvalidated(e.getInvalidatedArea());
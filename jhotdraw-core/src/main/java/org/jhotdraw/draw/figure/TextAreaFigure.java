@@ -61,6 +61,11 @@ public class TextAreaFigure extends AbstractAttributedDecoratedFigure implements
           1f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_BEVEL, 0f, new float[] {4f, 4f}, 0f);
   /** This is a cached value to improve the performance of method isTextOverflow(); */
   private Boolean isTextOverflow;
+  /**
+   * Caches the line layouts of the text, so that the text does not need to be laid out again each
+   * time it is drawn or measured.
+   */
+  private transient LayoutCache cachedLayouts;
 
   /** Creates a new instance. */
   public TextAreaFigure() {
@@ -77,8 +82,6 @@ public class TextAreaFigure extends AbstractAttributedDecoratedFigure implements
   @Override
   protected void drawText(Graphics2D g) {
     if (getText() != null || isEditable()) {
-      Font font = getFont();
-      boolean isUnderlined = attr().get(FONT_UNDERLINE);
       Insets2D.Double insets = getInsets();
       Rectangle2D.Double textRect =
           new Rectangle2D.Double(
@@ -88,75 +91,91 @@ public class TextAreaFigure extends AbstractAttributedDecoratedFigure implements
               bounds.height - insets.top - insets.bottom);
       float leftMargin = (float) textRect.x;
       float rightMargin = (float) Math.max(leftMargin + 1, textRect.x + textRect.width + 1);
-      float verticalPos = (float) textRect.y;
-      float maxVerticalPos = (float) (textRect.y + textRect.height);
-      if (leftMargin < rightMargin) {
-        // float tabWidth = (float) (getTabSize() * g.getFontMetrics(font).charWidth('m'));
-        float tabWidth =
-            (float) (getTabSize() * font.getStringBounds("m", getFontRenderContext()).getWidth());
-        float[] tabStops = new float[(int) (textRect.width / tabWidth)];
-        for (int i = 0; i < tabStops.length; i++) {
-          tabStops[i] = (float) (textRect.x + (int) (tabWidth * (i + 1)));
+      if (leftMargin < rightMargin && getText() != null) {
+        LayoutCache cache = getLayoutCache();
+        AttributeKeys.Alignment alignment = attr().get(TEXT_ALIGNMENT);
+        if (!textRect.equals(cache.textRect) || alignment != cache.alignment) {
+          layoutText(cache, textRect, alignment);
         }
-        if (getText() != null) {
-          Shape savedClipArea = g.getClip();
-          g.clip(textRect);
-          String[] paragraphs = getText().split("\n"); // Strings.split(getText(), '\n');
-          for (int i = 0; i < paragraphs.length; i++) {
-            if (paragraphs[i].length() == 0) {
-              paragraphs[i] = " ";
-            }
-            AttributedString as = new AttributedString(paragraphs[i]);
-            as.addAttribute(TextAttribute.FONT, font);
-            if (isUnderlined) {
-              as.addAttribute(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_LOW_ONE_PIXEL);
-            }
-            int tabCount = paragraphs[i].split("\t").length - 1;
-            Rectangle2D.Double paragraphBounds =
-                drawParagraph(
-                    g,
-                    as.getIterator(),
-                    verticalPos,
-                    maxVerticalPos,
-                    leftMargin,
-                    rightMargin,
-                    tabStops,
-                    tabCount);
-            verticalPos = (float) (paragraphBounds.y + paragraphBounds.height);
-            if (verticalPos > maxVerticalPos) {
-              break;
-            }
-          }
-          g.setClip(savedClipArea);
+        Shape savedClipArea = g.getClip();
+        g.clip(textRect);
+        for (int i = 0, n = cache.layouts.size(); i < n; i++) {
+          cache.layouts.get(i).draw(g, cache.positions[i * 2], cache.positions[i * 2 + 1]);
         }
+        g.setClip(savedClipArea);
+      }
+    }
+  }
+
+  /** Lays out the lines of the text in the specified text rectangle, and stores them in a cache. */
+  private void layoutText(
+      LayoutCache cache, Rectangle2D.Double textRect, AttributeKeys.Alignment alignment) {
+    cache.textRect = (Rectangle2D.Double) textRect.clone();
+    cache.alignment = alignment;
+    cache.layouts.clear();
+    float leftMargin = (float) textRect.x;
+    float rightMargin = (float) Math.max(leftMargin + 1, textRect.x + textRect.width + 1);
+    float verticalPos = (float) textRect.y;
+    float maxVerticalPos = (float) (textRect.y + textRect.height);
+    // float tabWidth = (float) (getTabSize() * g.getFontMetrics(font).charWidth('m'));
+    float tabWidth = (float) (getTabSize() * cache.font.getStringBounds("m", cache.frc).getWidth());
+    float[] tabStops = new float[(int) (textRect.width / tabWidth)];
+    for (int i = 0; i < tabStops.length; i++) {
+      tabStops[i] = (float) (textRect.x + (int) (tabWidth * (i + 1)));
+    }
+    String[] paragraphs = cache.text.split("\n"); // Strings.split(getText(), '\n');
+    for (int i = 0; i < paragraphs.length; i++) {
+      Rectangle2D.Double paragraphBounds =
+          layoutParagraph(
+              cache,
+              true,
+              paragraphs[i],
+              verticalPos,
+              maxVerticalPos,
+              leftMargin,
+              rightMargin,
+              tabStops);
+      verticalPos = (float) (paragraphBounds.y + paragraphBounds.height);
+      if (verticalPos > maxVerticalPos) {
+        break;
       }
     }
   }
 
   /**
-   * Draws or measures a paragraph of text at the specified y location and the bounds of the
+   * Lays out a paragraph of text at the specified y location and returns the bounds of the
    * paragraph.
    *
-   * @param g Graphics object. This parameter is null, if we want to measure the size of the
-   *     paragraph.
-   * @param styledText the text of the paragraph.
+   * @param cache the layout cache.
+   * @param isDrawing True if the lines are drawn. The lines are added to the cache and aligned.
+   *     False if we only want to measure the size of the paragraph.
+   * @param paragraph the text of the paragraph.
    * @param verticalPos the top bound of the paragraph
    * @param maxVerticalPos the bottom bound of the paragraph
    * @param leftMargin the left bound of the paragraph
    * @param rightMargin the right bound of the paragraph
    * @param tabStops an array with tab stops
-   * @param tabCount the number of entries in tabStops which contain actual values
    * @return Returns the actual bounds of the paragraph.
    */
-  private Rectangle2D.Double drawParagraph(
-      Graphics2D g,
-      AttributedCharacterIterator styledText,
+  private Rectangle2D.Double layoutParagraph(
+      LayoutCache cache,
+      boolean isDrawing,
+      String paragraph,
       float verticalPos,
       float maxVerticalPos,
       float leftMargin,
       float rightMargin,
-      float[] tabStops,
-      int tabCount) {
+      float[] tabStops) {
+    if (paragraph.length() == 0) {
+      paragraph = " ";
+    }
+    AttributedString as = new AttributedString(paragraph);
+    as.addAttribute(TextAttribute.FONT, cache.font);
+    if (cache.isUnderlined) {
+      as.addAttribute(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_LOW_ONE_PIXEL);
+    }
+    AttributedCharacterIterator styledText = as.getIterator();
+    int tabCount = paragraph.split("\t").length - 1;
     // This method is based on the code sample given
     // in the class comment of java.awt.font.LineBreakMeasurer,
     // assume styledText is an AttributedCharacterIterator, and the number
@@ -175,31 +194,34 @@ public class TextAreaFigure extends AbstractAttributedDecoratedFigure implements
     // Now tabLocations has an entry for every tab's offset in
     // the text.  For convenience, the last entry is tabLocations
     // is the offset of the last character in the text.
-    LineBreakMeasurer measurer = new LineBreakMeasurer(styledText, getFontRenderContext());
+    LineBreakMeasurer measurer = new LineBreakMeasurer(styledText, cache.frc);
     int currentTab = 0;
+    ArrayList<TextLayout> layouts = new ArrayList<>();
+    float[] penPositions = new float[4];
     while (measurer.getPosition() < styledText.getEndIndex() && verticalPos <= maxVerticalPos) {
-      // Lay out and draw each line.  All segments on a line
-      // must be computed before any drawing can occur, since
+      // Lay out each line.  All segments on a line
+      // must be computed before they can be positioned, since
       // we must know the largest ascent on the line.
       // TextLayouts are computed and stored in a List;
       // their horizontal positions are stored in a parallel
-      // List.
-      // lineContainsText is true after first segment is drawn
+      // array.
+      // lineContainsText is true after first segment is laid out
       boolean lineContainsText = false;
       boolean lineComplete = false;
       float maxAscent = 0, maxDescent = 0;
       float horizontalPos = leftMargin;
-      LinkedList<TextLayout> layouts = new LinkedList<>();
-      LinkedList<Float> penPositions = new LinkedList<>();
-      int first = layouts.size();
+      layouts.clear();
       while (!lineComplete && verticalPos <= maxVerticalPos) {
         float wrappingWidth = rightMargin - horizontalPos;
         TextLayout layout = null;
         layout = measurer.nextLayout(wrappingWidth, tabLocations[currentTab] + 1, lineContainsText);
         // layout can be null if lineContainsText is true
         if (layout != null) {
+          if (layouts.size() == penPositions.length) {
+            penPositions = Arrays.copyOf(penPositions, penPositions.length * 2);
+          }
+          penPositions[layouts.size()] = horizontalPos;
           layouts.add(layout);
-          penPositions.add(horizontalPos);
           horizontalPos += layout.getAdvance();
           maxAscent = Math.max(maxAscent, layout.getAscent());
           maxDescent = Math.max(maxDescent, layout.getDescent() + layout.getLeading());
@@ -224,16 +246,15 @@ public class TextAreaFigure extends AbstractAttributedDecoratedFigure implements
       }
       // If there is only one layout element on the line, and we are
       // drawing, then honor alignment
-      if (first == layouts.size() - 1 && g != null) {
-        switch (attr().get(TEXT_ALIGNMENT)) {
+      if (layouts.size() == 1 && isDrawing) {
+        switch (cache.alignment) {
           case TRAILING:
-            penPositions.set(first, rightMargin - layouts.get(first).getVisibleAdvance() - 1);
+            penPositions[0] = rightMargin - layouts.get(0).getVisibleAdvance() - 1;
             break;
           case CENTER:
-            penPositions.set(
-                first,
-                (rightMargin - 1 - leftMargin - layouts.get(first).getVisibleAdvance()) / 2
-                    + leftMargin);
+            penPositions[0] =
+                (rightMargin - 1 - leftMargin - layouts.get(0).getVisibleAdvance()) / 2
+                    + leftMargin;
             break;
           case BLOCK:
             // not supported
@@ -244,14 +265,12 @@ public class TextAreaFigure extends AbstractAttributedDecoratedFigure implements
         }
       }
       verticalPos += maxAscent;
-      Iterator<TextLayout> layoutEnum = layouts.iterator();
-      Iterator<Float> positionEnum = penPositions.iterator();
-      // now iterate through layouts and draw them
-      while (layoutEnum.hasNext()) {
-        TextLayout nextLayout = layoutEnum.next();
-        float nextPosition = positionEnum.next();
-        if (g != null) {
-          nextLayout.draw(g, nextPosition, verticalPos);
+      // now iterate through the layouts and position them
+      for (int k = 0, n = layouts.size(); k < n; k++) {
+        TextLayout nextLayout = layouts.get(k);
+        float nextPosition = penPositions[k];
+        if (isDrawing) {
+          cache.add(nextLayout, nextPosition, verticalPos);
         }
         Rectangle2D layoutBounds = nextLayout.getBounds();
         paragraphBounds.add(
@@ -416,6 +435,7 @@ public class TextAreaFigure extends AbstractAttributedDecoratedFigure implements
   public TextAreaFigure clone() {
     TextAreaFigure that = (TextAreaFigure) super.clone();
     that.bounds = (Rectangle2D.Double) this.bounds.clone();
+    that.cachedLayouts = null;
     return that;
   }
 
@@ -434,6 +454,7 @@ public class TextAreaFigure extends AbstractAttributedDecoratedFigure implements
   public void invalidate() {
     super.invalidate();
     isTextOverflow = null;
+    cachedLayouts = null;
   }
 
   @Override
@@ -458,48 +479,110 @@ public class TextAreaFigure extends AbstractAttributedDecoratedFigure implements
    * @return width and height needed to lay out the text.
    */
   public Dimension2DDouble getPreferredTextSize(double maxWidth) {
-    Rectangle2D.Double textRect = new Rectangle2D.Double();
-    if (getText() != null) {
-      Font font = getFont();
-      boolean isUnderlined = attr().get(FONT_UNDERLINE);
+    if (getText() == null) {
+      return new Dimension2DDouble(0, 0);
+    }
+    LayoutCache cache = getLayoutCache();
+    Dimension2DDouble size = cache.preferredSizes.get(maxWidth);
+    if (size == null) {
+      Rectangle2D.Double textRect = new Rectangle2D.Double();
       float leftMargin = 0;
       float rightMargin = (float) maxWidth - 1;
       float verticalPos = 0;
       float maxVerticalPos = Float.MAX_VALUE;
       if (leftMargin < rightMargin) {
         float tabWidth =
-            (float) (getTabSize() * font.getStringBounds("m", getFontRenderContext()).getWidth());
+            (float) (getTabSize() * cache.font.getStringBounds("m", cache.frc).getWidth());
         float[] tabStops = new float[(int) (textRect.width / tabWidth)];
         for (int i = 0; i < tabStops.length; i++) {
           tabStops[i] = (float) (textRect.x + (int) (tabWidth * (i + 1)));
         }
-        String[] paragraphs = getText().split("\n"); // Strings.split(getText(), '\n');
+        String[] paragraphs = cache.text.split("\n"); // Strings.split(getText(), '\n');
         for (int i = 0; i < paragraphs.length; i++) {
-          if (paragraphs[i].length() == 0) {
-            paragraphs[i] = " ";
-          }
-          AttributedString as = new AttributedString(paragraphs[i]);
-          as.addAttribute(TextAttribute.FONT, font);
-          if (isUnderlined) {
-            as.addAttribute(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_LOW_ONE_PIXEL);
-          }
-          int tabCount = paragraphs[i].split("\t").length - 1;
           Rectangle2D.Double paragraphBounds =
-              drawParagraph(
-                  null,
-                  as.getIterator(),
+              layoutParagraph(
+                  cache,
+                  false,
+                  paragraphs[i],
                   verticalPos,
                   maxVerticalPos,
                   leftMargin,
                   rightMargin,
-                  tabStops,
-                  tabCount);
+                  tabStops);
           verticalPos = (float) (paragraphBounds.y + paragraphBounds.height);
           textRect.add(paragraphBounds);
         }
       }
+      size =
+          new Dimension2DDouble(
+              -Math.min(textRect.x, 0) + textRect.width,
+              -Math.min(textRect.y, 0) + textRect.height);
+      if (cache.preferredSizes.size() >= LayoutCache.MAX_PREFERRED_SIZES) {
+        cache.preferredSizes.clear();
+      }
+      cache.preferredSizes.put(maxWidth, size);
+    }
+    return new Dimension2DDouble(size.width, size.height);
+  }
+
+  /**
+   * Returns the layout cache for the current text and font. The cache is replaced, when the text or
+   * the font has been changed without invalidating the figure.
+   */
+  private LayoutCache getLayoutCache() {
+    String text = getText();
+    Font font = getFont();
+    boolean isUnderlined = attr().get(FONT_UNDERLINE);
+    FontRenderContext frc = getFontRenderContext();
+    LayoutCache cache = cachedLayouts;
+    if (cache == null
+        || !cache.text.equals(text)
+        || !cache.font.equals(font)
+        || cache.isUnderlined != isUnderlined
+        || !cache.frc.equals(frc)) {
+      cachedLayouts = cache = new LayoutCache(text, font, isUnderlined, frc);
+    }
+    return cache;
+  }
+
+  /**
+   * Holds the laid out lines of the text for drawing, and the preferred text sizes for the maximal
+   * widths which have been measured.
+   */
+  private static final class LayoutCache {
+
+    /** Maximal number of cached preferred sizes. */
+    private static final int MAX_PREFERRED_SIZES = 8;
+
+    private final String text;
+    private final Font font;
+    private final boolean isUnderlined;
+    private final FontRenderContext frc;
+    /** The text rectangle in which the lines have been laid out, or null. */
+    private Rectangle2D.Double textRect;
+
+    private AttributeKeys.Alignment alignment;
+    private final ArrayList<TextLayout> layouts = new ArrayList<>();
+    /** The pen positions of the layouts, as x, y. */
+    private float[] positions = new float[16];
+
+    private final HashMap<Double, Dimension2DDouble> preferredSizes = new HashMap<>();
+
+    LayoutCache(String text, Font font, boolean isUnderlined, FontRenderContext frc) {
+      this.text = text;
+      this.font = font;
+      this.isUnderlined = isUnderlined;
+      this.frc = frc;
+    }
+
+    void add(TextLayout layout, float x, float y) {
+      int n = layouts.size() * 2;
+      if (n + 2 > positions.length) {
+        positions = Arrays.copyOf(positions, positions.length * 2);
+      }
+      positions[n] = x;
+      positions[n + 1] = y;
+      layouts.add(layout);
     }
-    return new Dimension2DDouble(
-        -Math.min(textRect.x, 0) + textRect.width, -Math.min(textRect.y, 0) + textRect.height);
   }
 }
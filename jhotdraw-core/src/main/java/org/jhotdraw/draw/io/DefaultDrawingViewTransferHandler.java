@@ -33,12 +33,9 @@ import javax.swing.undo.*;
 import org.jhotdraw.datatransfer.CompositeTransferable;
 import org.jhotdraw.draw.Drawing;
 import org.jhotdraw.draw.DrawingView;
-import org.jhotdraw.draw.event.DrawingEvent;
-import org.jhotdraw.draw.event.DrawingListener;
-import org.jhotdraw.draw.event.DrawingListenerAdapter;
+import org.jhotdraw.draw.event.ReplaceChildrenEdit;
 import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.util.ResourceBundleUtil;
-import org.jhotdraw.util.ReversedList;
 
 /**
  * Default TransferHandler for DrawingView objects.
@@ -100,7 +97,7 @@ public class DefaultDrawingViewTransferHandler extends TransferHandler {
             for (InputFormat format : drawing.getInputFormats()) {
               for (DataFlavor flavor : transferFlavors) {
                 if (format.isDataFlavorSupported(flavor)) {
-                  LinkedList<Figure> existingFigures = new LinkedList<>(drawing.getChildren());
+                  HashSet<Figure> existingFigures = new HashSet<>(drawing.getChildren());
                   try {
                     format.read(t, drawing, false);
                     final LinkedList<Figure> importedFigures =
@@ -148,7 +145,7 @@ public class DefaultDrawingViewTransferHandler extends TransferHandler {
             for (DataFlavor flavor : transferFlavors) {
               for (InputFormat format : drawing.getInputFormats()) {
                 if (format.isDataFlavorSupported(flavor)) {
-                  LinkedList<Figure> existingFigures = new LinkedList<>(drawing.getChildren());
+                  HashSet<Figure> existingFigures = new HashSet<>(drawing.getChildren());
                   try {
                     format.read(t, drawing, false);
                     final LinkedList<Figure> importedFigures =
@@ -197,7 +194,7 @@ public class DefaultDrawingViewTransferHandler extends TransferHandler {
             final java.util.List<File> files =
                 (java.util.List<File>) t.getTransferData(DataFlavor.javaFileListFlavor);
             retValue = true;
-            final LinkedList<Figure> existingFigures = new LinkedList<>(drawing.getChildren());
+            final HashSet<Figure> existingFigures = new HashSet<>(drawing.getChildren());
             view.getEditor().setEnabled(false);
             new SwingWorker<LinkedList<Figure>, Figure>() {
               @Override
@@ -366,7 +363,6 @@ public class DefaultDrawingViewTransferHandler extends TransferHandler {
       final DrawingView view = (DrawingView) source;
       final Drawing drawing = view.getDrawing();
       if (action == MOVE) {
-        final LinkedList<DrawingEvent> deletionEvents = new LinkedList<>();
         final LinkedList<Figure> selectedFigures =
             (exportedFigures == null) ? new LinkedList<>() : new LinkedList<>(exportedFigures);
         // Abort, if not all of the selected figures may be removed from the
@@ -378,49 +374,21 @@ public class DefaultDrawingViewTransferHandler extends TransferHandler {
           }
         }
         // view.clearSelection();
-        DrawingListener removeListener =
-            new DrawingListenerAdapter() {
-              @Override
-              public void figureAdded(DrawingEvent e) {}
-
-              @Override
-              public void figureRemoved(DrawingEvent evt) {
-                deletionEvents.addFirst(evt);
-              }
-            };
-        drawing.addDrawingListener(removeListener);
-        drawing.removeAll(selectedFigures);
-        drawing.removeDrawingListener(removeListener);
-        drawing.removeAll(selectedFigures);
-        drawing.fireUndoableEditHappened(
-            new AbstractUndoableEdit() {
+        ResourceBundleUtil labels = ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels");
+        ReplaceChildrenEdit edit =
+            new ReplaceChildrenEdit(
+                drawing, labels.getString("edit.delete.text"), selectedFigures, true) {
               private static final long serialVersionUID = 1L;
 
-              @Override
-              public String getPresentationName() {
-                ResourceBundleUtil labels =
-                    ResourceBundleUtil.getBundle("org.jhotdraw.draw.Labels");
-                return labels.getString("edit.delete.text");
-              }
-
               @Override
               public void undo() throws CannotUndoException {
-                super.undo();
                 view.clearSelection();
-                for (DrawingEvent evt : deletionEvents) {
-                  drawing.add(evt.getFigureIndex(), evt.getFigure());
-                }
+                super.undo();
                 view.addToSelection(selectedFigures);
               }
-
-              @Override
-              public void redo() throws CannotRedoException {
-                super.redo();
-                for (DrawingEvent evt : new ReversedList<>(deletionEvents)) {
-                  drawing.remove(evt.getFigure());
-                }
-              }
-            });
+            };
+        drawing.removeAll(selectedFigures);
+        drawing.fireUndoableEditHappened(edit);
       }
     } else {
       super.exportDone(source, data, action);
@@ -0,0 +1,800 @@
+/*
+ * @(#)OrthogonalLiner.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.draw.liner;
+
+import java.awt.geom.*;
+import java.util.*;
+import org.jhotdraw.draw.ConnectionUpdateScheduler;
+import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.connector.Connector;
+import org.jhotdraw.draw.figure.ConnectionFigure;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.figure.LineConnectionFigure;
+import org.jhotdraw.draw.handle.Handle;
+import org.jhotdraw.geom.BezierPath;
+import org.jhotdraw.geom.Geom;
+import org.jhotdraw.geom.RTree;
+
+/**
+ * A {@link Liner} that routes a connection with orthogonal lines around the figures of the drawing.
+ *
+ * <p>The connection leaves its start figure and enters its end figure perpendicular to the side of
+ * the figure on which the connector point lies. The figures near the connection are found with
+ * {@link Drawing#findFigures}. Their bounds, grown by a margin, are the obstacles of the route.
+ *
+ * <p>The route is searched with A* on a sparse orthogonal visibility graph. Its segments are cast
+ * from the corners of the obstacles and from the end points of the route, and its nodes are the
+ * intersections of the segments. The graph is built lazily while the search expands. The cost of a
+ * route is its length plus a penalty for each bend.
+ *
+ * <p>The liner caches the route of its connection. The route is only searched again, when the end
+ * points of the connection have changed, or when a figure has changed inside of the area in which
+ * the route has been searched. The liner watches this area with the {@link
+ * ConnectionUpdateScheduler} of the drawing. If the drawing has no scheduler, the route is searched
+ * on each layout.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public class OrthogonalLiner implements Liner {
+
+  /** Directions of a route segment. */
+  private static final int RIGHT = 0, LEFT = 1, DOWN = 2, UP = 3;
+  /** Maximal number of route searches, when a route leaves the search area. */
+  private static final int MAX_AREA_ITERATIONS = 3;
+
+  private double margin;
+  private double bendPenalty;
+  /** The end points and the escape directions of the cached route. */
+  private transient double[] cachedKey;
+  /** The cached route, as x, y pairs. */
+  private transient double[] cachedRoute;
+
+  /** Creates a new instance with a margin of 10 around the figures. */
+  public OrthogonalLiner() {
+    this(10);
+  }
+
+  public OrthogonalLiner(double margin) {
+    this(margin, margin * 2);
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param margin The minimal distance between the route and the figures it avoids.
+   * @param bendPenalty The cost of a bend, measured as a length.
+   */
+  public OrthogonalLiner(double margin, double bendPenalty) {
+    this.margin = margin;
+    this.bendPenalty = bendPenalty;
+  }
+
+  public double getMargin() {
+    return margin;
+  }
+
+  /** Sets the minimal distance between the route and the figures it avoids. */
+  public void setMargin(double newValue) {
+    margin = newValue;
+    invalidateRoute();
+  }
+
+  public double getBendPenalty() {
+    return bendPenalty;
+  }
+
+  /** Sets the cost of a bend, measured as a length. */
+  public void setBendPenalty(double newValue) {
+    bendPenalty = newValue;
+    invalidateRoute();
+  }
+
+  @Override
+  public Collection<Handle> createHandles(BezierPath path) {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public void lineout(ConnectionFigure figure) {
+    LineConnectionFigure lcf = (LineConnectionFigure) figure;
+    BezierPath path = lcf.getBezierPath();
+    Connector start = figure.getStartConnector();
+    Connector end = figure.getEndConnector();
+    if (start == null || end == null || path == null) {
+      return;
+    }
+    Point2D.Double sp = start.findStart(figure);
+    Point2D.Double ep = end.findEnd(figure);
+    Rectangle2D.Double sb = start.getBounds();
+    Rectangle2D.Double eb = end.getBounds();
+    int sdir = getEscapeDirection(sb, sp, eb);
+    int edir = getEscapeDirection(eb, ep, sb);
+    Point2D.Double sx = getEscapePoint(sb, sp, sdir);
+    Point2D.Double ex = getEscapePoint(eb, ep, edir);
+    double[] key = {sp.x, sp.y, ep.x, ep.y, sdir, edir};
+    Drawing drawing = lcf.getDrawing();
+    ConnectionUpdateScheduler scheduler =
+        drawing == null ? null : drawing.getConnectionUpdateScheduler();
+    double[] route;
+    if (cachedRoute != null && scheduler != null && Arrays.equals(key, cachedKey)) {
+      route = cachedRoute;
+    } else {
+      Rectangle2D.Double area = new Rectangle2D.Double(sx.x, sx.y, 0, 0);
+      area.add(ex);
+      Geom.grow(area, margin * 2, margin * 2);
+      double[] obstacles = findObstacles(lcf, sb, eb, sx, ex, area);
+      for (int iteration = 1; ; iteration++) {
+        route = findRoute(sx, sdir, ex, edir, obstacles);
+        if (route == null) {
+          route = createElbow(sx, sdir, ex);
+        }
+        // Search again if the route leaves the search area, because it may pass through
+        // figures outside of the area
+        Rectangle2D.Double routeBounds = getBounds(route);
+        if (area.contains(routeBounds) || iteration == MAX_AREA_ITERATIONS) {
+          break;
+        }
+        area.add(routeBounds);
+        Geom.grow(area, margin, margin);
+        obstacles = findObstacles(lcf, sb, eb, sx, ex, area);
+      }
+      cachedKey = key;
+      cachedRoute = route;
+      if (scheduler != null) {
+        scheduler.watchArea(lcf, area, this::invalidateRoute);
+      }
+    }
+    path.clear();
+    addPoint(path, sp.x, sp.y);
+    for (int i = 0; i < route.length; i += 2) {
+      addPoint(path, route[i], route[i + 1]);
+    }
+    addPoint(path, ep.x, ep.y);
+    if (path.size() == 1) {
+      path.add(new BezierPath.Node(ep.x, ep.y));
+    }
+    // Ensure all path nodes are straight
+    for (BezierPath.Node node : path) {
+      node.setMask(BezierPath.C0_MASK);
+    }
+    path.invalidatePath();
+  }
+
+  /**
+   * Adds a point to the path. Points which are equal to the last point are skipped, and the last
+   * point is replaced if it lies on a straight line between its predecessor and the new point.
+   */
+  private static void addPoint(BezierPath path, double x, double y) {
+    int n = path.size();
+    if (n > 0) {
+      BezierPath.Node last = path.get(n - 1);
+      if (isEqual(last.x[0], x) && isEqual(last.y[0], y)) {
+        return;
+      }
+      if (n > 1) {
+        BezierPath.Node prev = path.get(n - 2);
+        if ((isEqual(prev.x[0], last.x[0]) && isEqual(last.x[0], x))
+            || (isEqual(prev.y[0], last.y[0]) && isEqual(last.y[0], y))) {
+          path.remove(n - 1);
+        }
+      }
+    }
+    path.add(new BezierPath.Node(x, y));
+  }
+
+  /** Returns true if two coordinates differ only by rounding errors. */
+  private static boolean isEqual(double a, double b) {
+    return Math.abs(a - b) < 1e-6;
+  }
+
+  /** Returns the direction in which the route leaves a figure at the specified point. */
+  private static int getEscapeDirection(
+      Rectangle2D.Double b, Point2D.Double p, Rectangle2D.Double other) {
+    double inset = Math.min(5, Math.min(b.width, b.height) / 2);
+    double dx = Math.max(0, Math.max(b.x + inset - p.x, p.x - (b.x + b.width - inset)));
+    double dy = Math.max(0, Math.max(b.y + inset - p.y, p.y - (b.y + b.height - inset)));
+    if (dx >= dy && dx > 0) {
+      return p.x < b.getCenterX() ? LEFT : RIGHT;
+    }
+    if (dy > 0) {
+      return p.y < b.getCenterY() ? UP : DOWN;
+    }
+    int outcode = Geom.outcode(b, other);
+    if ((outcode & Geom.OUT_LEFT) != 0) {
+      return LEFT;
+    } else if ((outcode & Geom.OUT_TOP) != 0) {
+      return UP;
+    } else if ((outcode & Geom.OUT_BOTTOM) != 0) {
+      return DOWN;
+    }
+    return RIGHT;
+  }
+
+  /**
+   * Returns the point where the route leaves the margin around a figure. The point lies on the
+   * border of the obstacle of the figure.
+   */
+  private Point2D.Double getEscapePoint(Rectangle2D.Double b, Point2D.Double p, int dir) {
+    switch (dir) {
+      case RIGHT:
+        return new Point2D.Double(b.x + b.width + margin, p.y);
+      case LEFT:
+        return new Point2D.Double(b.x - margin, p.y);
+      case DOWN:
+        return new Point2D.Double(p.x, b.y + b.height + margin);
+      case UP:
+      default:
+        return new Point2D.Double(p.x, b.y - margin);
+    }
+  }
+
+  /**
+   * Returns the obstacles in the search area as minX, minY, maxX, maxY. The start and the end
+   * figure are always obstacles. Obstacles which contain an end point of the route are ignored.
+   */
+  private double[] findObstacles(
+      LineConnectionFigure connection,
+      Rectangle2D.Double sb,
+      Rectangle2D.Double eb,
+      Point2D.Double sx,
+      Point2D.Double ex,
+      Rectangle2D.Double area) {
+    double[] obstacles = new double[32];
+    int count = 0;
+    count = addObstacle(obstacles, count, sb);
+    if (!eb.equals(sb)) {
+      count = addObstacle(obstacles, count, eb);
+    }
+    Drawing drawing = connection.getDrawing();
+    if (drawing != null) {
+      Figure startFigure = connection.getStartFigure();
+      Figure endFigure = connection.getEndFigure();
+      for (Figure f : drawing.findFigures(area)) {
+        if (f == startFigure || f == endFigure || f instanceof ConnectionFigure || !f.isVisible()) {
+          continue;
+        }
+        Rectangle2D.Double r = f.getBounds();
+        if (containsStrictly(r, sx) || containsStrictly(r, ex)) {
+          continue;
+        }
+        if (count * 4 == obstacles.length) {
+          obstacles = Arrays.copyOf(obstacles, obstacles.length * 2);
+        }
+        count = addObstacle(obstacles, count, r);
+      }
+    }
+    return Arrays.copyOf(obstacles, count * 4);
+  }
+
+  /** Discards the cached route. */
+  private void invalidateRoute() {
+    cachedKey = null;
+    cachedRoute = null;
+  }
+
+  /** Returns true if the route is cached. This method is used by the unit tests. */
+  boolean isRouteCached() {
+    return cachedRoute != null;
+  }
+
+  private static Rectangle2D.Double getBounds(double[] route) {
+    Rectangle2D.Double r = new Rectangle2D.Double(route[0], route[1], 0, 0);
+    for (int i = 2; i < route.length; i += 2) {
+      r.add(route[i], route[i + 1]);
+    }
+    return r;
+  }
+
+  /** Returns true if the point lies inside of the bounds grown by the margin. */
+  private boolean containsStrictly(Rectangle2D.Double r, Point2D.Double p) {
+    return p.x > r.x - margin
+        && p.x < r.x + r.width + margin
+        && p.y > r.y - margin
+        && p.y < r.y + r.height + margin;
+  }
+
+  private int addObstacle(double[] obstacles, int count, Rectangle2D.Double r) {
+    int o = count * 4;
+    obstacles[o] = r.x - margin;
+    obstacles[o + 1] = r.y - margin;
+    obstacles[o + 2] = r.x + r.width + margin;
+    obstacles[o + 3] = r.y + r.height + margin;
+    return count + 1;
+  }
+
+  /**
+   * Searches the shortest route from the start point to the end point, which does not pass through
+   * an obstacle.
+   *
+   * @param sx The start point.
+   * @param sdir The direction in which the route leaves the start point.
+   * @param ex The end point.
+   * @param edir The direction in which the route leaves the end point, when it is walked backwards.
+   * @param obstacles The obstacles.
+   * @return The points of the route as x, y pairs, or null if there is no route.
+   */
+  private double[] findRoute(
+      Point2D.Double sx, int sdir, Point2D.Double ex, int edir, double[] obstacles) {
+    int n = obstacles.length / 4;
+    // The interesting points are the corners of the obstacles, the end points, and the point
+    // between the end points
+    double[] px = new double[n * 4 + 3];
+    double[] py = new double[n * 4 + 3];
+    for (int k = 0; k < n; k++) {
+      for (int c = 0; c < 4; c++) {
+        px[k * 4 + c] = obstacles[k * 4 + (c & 1) * 2];
+        py[k * 4 + c] = obstacles[k * 4 + 1 + (c >> 1) * 2];
+      }
+    }
+    px[n * 4] = sx.x;
+    py[n * 4] = sx.y;
+    px[n * 4 + 1] = ex.x;
+    py[n * 4 + 1] = ex.y;
+    px[n * 4 + 2] = (sx.x + ex.x) / 2;
+    py[n * 4 + 2] = (sx.y + ex.y) / 2;
+    VisibilityGraph graph = new VisibilityGraph(obstacles, px, py);
+    double[] xs = graph.xs;
+    double[] ys = graph.ys;
+    int si = Arrays.binarySearch(xs, sx.x);
+    int sj = Arrays.binarySearch(ys, sx.y);
+    int ei = Arrays.binarySearch(xs, ex.x);
+    int ej = Arrays.binarySearch(ys, ex.y);
+    if (!graph.isNode(si, sj) || !graph.isNode(ei, ej)) {
+      return null;
+    }
+    // A* search over the states (node, direction of the last segment). The states are numbered
+    // in the order in which they are reached.
+    int arrivalDir = opposite(edir);
+    Map<Long, Integer> stateIds = new HashMap<>();
+    long[] stateKeys = new long[64];
+    double[] cost = new double[64];
+    int[] previous = new int[64];
+    StateQueue queue = new StateQueue();
+    stateKeys[0] = stateKey(xs.length, si, sj, sdir);
+    stateIds.put(stateKeys[0], 0);
+    cost[0] = 0;
+    previous[0] = -1;
+    int stateCount = 1;
+    queue.add(0, estimate(sx.x, sx.y, sdir, ex, arrivalDir));
+    int goalState = -1;
+    double goalCost = Double.POSITIVE_INFINITY;
+    while (!queue.isEmpty()) {
+      double priority = queue.peekPriority();
+      int state = queue.poll();
+      if (priority >= goalCost) {
+        break;
+      }
+      long key = stateKeys[state];
+      int dir = (int) (key & 3);
+      long node = key >>> 2;
+      int i = (int) (node % xs.length);
+      int j = (int) (node / xs.length);
+      double c = cost[state];
+      if (priority > c + estimate(xs[i], ys[j], dir, ex, arrivalDir)) {
+        // Stale queue entry
+        continue;
+      }
+      if (i == ei && j == ej) {
+        double total = c + (dir == arrivalDir ? 0 : bendPenalty);
+        if (total < goalCost) {
+          goalCost = total;
+          goalState = state;
+        }
+        continue;
+      }
+      for (int d = 0; d < 4; d++) {
+        if (d == opposite(dir)) {
+          continue;
+        }
+        int ni = i;
+        int nj = j;
+        if (d == RIGHT || d == LEFT) {
+          ni = graph.findNeighbor(i, j, true, d == RIGHT);
+          if (ni == -1) {
+            continue;
+          }
+        } else {
+          nj = graph.findNeighbor(j, i, false, d == DOWN);
+          if (nj == -1) {
+            continue;
+          }
+        }
+        double nextCost =
+            c + Math.abs(xs[ni] - xs[i]) + Math.abs(ys[nj] - ys[j]) + (d == dir ? 0 : bendPenalty);
+        long nextKey = stateKey(xs.length, ni, nj, d);
+        Integer id = stateIds.get(nextKey);
+        int next;
+        if (id == null) {
+          if (stateCount == stateKeys.length) {
+            stateKeys = Arrays.copyOf(stateKeys, stateCount * 2);
+            cost = Arrays.copyOf(cost, stateCount * 2);
+            previous = Arrays.copyOf(previous, stateCount * 2);
+          }
+          next = stateCount++;
+          stateKeys[next] = nextKey;
+          cost[next] = Double.POSITIVE_INFINITY;
+          stateIds.put(nextKey, next);
+        } else {
+          next = id;
+        }
+        if (nextCost < cost[next]) {
+          cost[next] = nextCost;
+          previous[next] = state;
+          queue.add(next, nextCost + estimate(xs[ni], ys[nj], d, ex, arrivalDir));
+        }
+      }
+    }
+    if (goalState == -1) {
+      return null;
+    }
+    int length = 0;
+    for (int s = goalState; s != -1; s = previous[s]) {
+      length++;
+    }
+    double[] route = new double[length * 2];
+    for (int s = goalState, k = length - 1; s != -1; s = previous[s], k--) {
+      long node = stateKeys[s] >>> 2;
+      route[k * 2] = xs[(int) (node % xs.length)];
+      route[k * 2 + 1] = ys[(int) (node / xs.length)];
+    }
+    return route;
+  }
+
+  /**
+   * Estimates the remaining cost of a route from a point, which has been reached with the specified
+   * direction. The estimate is the Manhattan distance plus the penalty for the minimal number of
+   * bends. It never exceeds the actual cost.
+   */
+  private double estimate(double x, double y, int dir, Point2D.Double ex, int arrivalDir) {
+    double dx = ex.x - x;
+    double dy = ex.y - y;
+    int h = (dx > 0) ? RIGHT : (dx < 0) ? LEFT : -1;
+    int v = (dy > 0) ? DOWN : (dy < 0) ? UP : -1;
+    int bends;
+    // The direction of the last segment of the route, or -1 if it is not known
+    int last;
+    if (h == -1 && v == -1) {
+      bends = 0;
+      last = dir;
+    } else if (h == -1 || v == -1) {
+      int needed = (h == -1) ? v : h;
+      if (dir == needed) {
+        bends = 0;
+        last = dir;
+      } else if (dir == opposite(needed)) {
+        bends = 2;
+        last = -1;
+      } else {
+        bends = 1;
+        last = needed;
+      }
+    } else {
+      boolean isHorizontal = dir == RIGHT || dir == LEFT;
+      if (dir == (isHorizontal ? h : v)) {
+        bends = 1;
+        last = isHorizontal ? v : h;
+      } else {
+        bends = 2;
+        last = -1;
+      }
+    }
+    if (last != -1 && last != arrivalDir) {
+      bends++;
+    }
+    return Math.abs(dx) + Math.abs(dy) + bends * bendPenalty;
+  }
+
+  /** Returns the key of the search state at the node (i, j) with the specified direction. */
+  private static long stateKey(int nx, int i, int j, int dir) {
+    return (((long) j * nx + i) << 2) | dir;
+  }
+
+  private static int opposite(int dir) {
+    return dir ^ 1;
+  }
+
+  private static double[] sortUnique(double[] a) {
+    Arrays.sort(a);
+    int n = 0;
+    for (int i = 0; i < a.length; i++) {
+      if (n == 0 || a[i] != a[n - 1]) {
+        a[n++] = a[i];
+      }
+    }
+    return Arrays.copyOf(a, n);
+  }
+
+  /** Creates a simple elbow route, which is used when no route around the obstacles exists. */
+  private static double[] createElbow(Point2D.Double sx, int sdir, Point2D.Double ex) {
+    if (sdir == LEFT || sdir == RIGHT) {
+      return new double[] {sx.x, sx.y, ex.x, sx.y, ex.x, ex.y};
+    } else {
+      return new double[] {sx.x, sx.y, sx.x, ex.y, ex.x, ex.y};
+    }
+  }
+
+  @Override
+  public Liner clone() {
+    try {
+      OrthogonalLiner that = (OrthogonalLiner) super.clone();
+      that.cachedKey = null;
+      that.cachedRoute = null;
+      return that;
+    } catch (CloneNotSupportedException ex) {
+      InternalError error = new InternalError(ex.getMessage());
+      error.initCause(ex);
+      throw error;
+    }
+  }
+
+  /**
+   * A sparse orthogonal visibility graph. A horizontal and a vertical visibility segment is cast
+   * from each interesting point. A segment extends in both directions, until it meets the interior
+   * of an obstacle. The nodes of the graph are the intersections of the horizontal and the vertical
+   * segments, and its edges connect adjacent nodes on a segment.
+   *
+   * <p>The graph is not built in advance. The segments on a row or a column are computed when the
+   * search reaches the row or the column for the first time.
+   */
+  private static class VisibilityGraph {
+
+    /** The obstacles as minX, minY, maxX, maxY. */
+    private final double[] obstacles;
+    /** The indices of the obstacles. */
+    private final RTree<Integer> index = new RTree<>();
+    /** The bounds of the obstacles. */
+    private final Rectangle2D.Double bounds = new Rectangle2D.Double();
+    /** The sorted x coordinates of the interesting points. */
+    final double[] xs;
+    /** The sorted y coordinates of the interesting points. */
+    final double[] ys;
+    /** For each row, the sorted x coordinates of the interesting points on the row. */
+    private final double[][] rowPoints;
+    /** For each column, the sorted y coordinates of the interesting points on the column. */
+    private final double[][] columnPoints;
+    /** For each row, the segments as start, end pairs, or null if not yet computed. */
+    private final double[][] rowSegments;
+    /** For each column, the segments as start, end pairs, or null if not yet computed. */
+    private final double[][] columnSegments;
+
+    VisibilityGraph(double[] obstacles, double[] px, double[] py) {
+      this.obstacles = obstacles;
+      List<Integer> indices = new ArrayList<>(obstacles.length / 4);
+      for (int o = 0; o < obstacles.length; o += 4) {
+        indices.add(o / 4);
+        bounds.add(new Point2D.Double(obstacles[o], obstacles[o + 1]));
+        bounds.add(new Point2D.Double(obstacles[o + 2], obstacles[o + 3]));
+      }
+      index.addAll(
+          indices,
+          k ->
+              new Rectangle2D.Double(
+                  obstacles[k * 4],
+                  obstacles[k * 4 + 1],
+                  obstacles[k * 4 + 2] - obstacles[k * 4],
+                  obstacles[k * 4 + 3] - obstacles[k * 4 + 1]));
+      xs = sortUnique(px.clone());
+      ys = sortUnique(py.clone());
+      rowPoints = groupPoints(ys, py, px);
+      columnPoints = groupPoints(xs, px, py);
+      rowSegments = new double[ys.length][];
+      columnSegments = new double[xs.length][];
+    }
+
+    /**
+     * Groups the points by one of their coordinates.
+     *
+     * @param lines The sorted unique values of the grouping coordinate.
+     * @param key The grouping coordinate of each point.
+     * @param value The other coordinate of each point.
+     * @return For each line, the sorted unique values of the other coordinate.
+     */
+    private static double[][] groupPoints(double[] lines, double[] key, double[] value) {
+      int[] counts = new int[lines.length];
+      int[] lineOfPoint = new int[key.length];
+      for (int p = 0; p < key.length; p++) {
+        lineOfPoint[p] = Arrays.binarySearch(lines, key[p]);
+        counts[lineOfPoint[p]]++;
+      }
+      double[][] groups = new double[lines.length][];
+      for (int l = 0; l < lines.length; l++) {
+        groups[l] = new double[counts[l]];
+        counts[l] = 0;
+      }
+      for (int p = 0; p < key.length; p++) {
+        int l = lineOfPoint[p];
+        groups[l][counts[l]++] = value[p];
+      }
+      for (int l = 0; l < lines.length; l++) {
+        groups[l] = sortUnique(groups[l]);
+      }
+      return groups;
+    }
+
+    private double[] row(int j) {
+      if (rowSegments[j] == null) {
+        rowSegments[j] = computeSegments(ys[j], 1, rowPoints[j]);
+      }
+      return rowSegments[j];
+    }
+
+    private double[] column(int i) {
+      if (columnSegments[i] == null) {
+        columnSegments[i] = computeSegments(xs[i], 0, columnPoints[i]);
+      }
+      return columnSegments[i];
+    }
+
+    /**
+     * Computes the segments on a row or a column.
+     *
+     * @param c The y coordinate of the row, or the x coordinate of the column.
+     * @param axis 1 for a row, 0 for a column.
+     * @param points The sorted coordinates of the interesting points on the line.
+     * @return The segments which contain an interesting point, as start, end pairs.
+     */
+    private double[] computeSegments(double c, int axis, double[] points) {
+      // The obstacles block the open intervals of the line, which lie inside of them. The starts
+      // and the ends of the intervals are sorted separately, this does not change their union.
+      // A line of minimal thickness, because the index does not find anything in an empty area
+      Rectangle2D.Double line =
+          (axis == 1)
+              ? new Rectangle2D.Double(bounds.x, c, bounds.width, Math.ulp(c))
+              : new Rectangle2D.Double(c, bounds.y, Math.ulp(c), bounds.height);
+      List<Integer> crossed = new ArrayList<>();
+      index.findIntersects(line, crossed::add);
+      double[] starts = new double[crossed.size()];
+      double[] ends = new double[crossed.size()];
+      int m = 0;
+      for (int k : crossed) {
+        int o = k * 4;
+        if (obstacles[o + axis] < c && c < obstacles[o + 2 + axis]) {
+          starts[m] = obstacles[o + 1 - axis];
+          ends[m] = obstacles[o + 3 - axis];
+          m++;
+        }
+      }
+      Arrays.sort(starts, 0, m);
+      Arrays.sort(ends, 0, m);
+      double[] segments = new double[8];
+      int count = 0;
+      int p = 0;
+      double from = Double.NEGATIVE_INFINITY;
+      for (int k = 0; k <= m && p < points.length; k++) {
+        double to = (k < m) ? starts[k] : Double.POSITIVE_INFINITY;
+        if (to >= from) {
+          // The free interval [from, to] is a segment, if it contains an interesting point
+          while (p < points.length && points[p] < from) {
+            p++;
+          }
+          if (p < points.length && points[p] <= to) {
+            if (count == segments.length) {
+              segments = Arrays.copyOf(segments, count * 2);
+            }
+            segments[count++] = from;
+            segments[count++] = to;
+          }
+        }
+        if (k < m) {
+          from = Math.max(from, ends[k]);
+        }
+      }
+      return Arrays.copyOf(segments, count);
+    }
+
+    /** Returns the index of the segment which contains v, or -1. */
+    private static int findSegment(double[] segments, double v) {
+      int lo = 0;
+      int hi = segments.length / 2 - 1;
+      int found = -1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (segments[mid * 2] <= v) {
+          found = mid;
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return (found != -1 && v <= segments[found * 2 + 1]) ? found : -1;
+    }
+
+    /** Returns true if the point (xs[i], ys[j]) is a node of the graph. */
+    boolean isNode(int i, int j) {
+      return findSegment(row(j), xs[i]) != -1 && findSegment(column(i), ys[j]) != -1;
+    }
+
+    /**
+     * Finds the adjacent node on a row or a column.
+     *
+     * @param along The index of the node along the line, this is i for a row, and j for a column.
+     * @param line The index of the line, this is j for a row, and i for a column.
+     * @param isHorizontal True for a row.
+     * @param isForward True for the direction of ascending coordinates.
+     * @return The index of the adjacent node along the line, or -1.
+     */
+    int findNeighbor(int along, int line, boolean isHorizontal, boolean isForward) {
+      double[] coords = isHorizontal ? xs : ys;
+      double[] segments = isHorizontal ? row(line) : column(line);
+      int s = findSegment(segments, coords[along]);
+      if (s == -1) {
+        return -1;
+      }
+      double c = isHorizontal ? ys[line] : xs[line];
+      int step = isForward ? 1 : -1;
+      double limit = segments[s * 2 + (isForward ? 1 : 0)];
+      for (int k = along + step;
+          k >= 0 && k < coords.length && (isForward ? coords[k] <= limit : coords[k] >= limit);
+          k += step) {
+        if (findSegment(isHorizontal ? column(k) : row(k), c) != -1) {
+          return k;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /** A binary min-heap of search states, ordered by their priority. */
+  private static class StateQueue {
+
+    private int[] states = new int[64];
+    private double[] priorities = new double[64];
+    private int size;
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    double peekPriority() {
+      return priorities[0];
+    }
+
+    void add(int state, double priority) {
+      if (size == states.length) {
+        states = Arrays.copyOf(states, size * 2);
+        priorities = Arrays.copyOf(priorities, size * 2);
+      }
+      int k = size++;
+      while (k > 0) {
+        int parent = (k - 1) >>> 1;
+        if (priorities[parent] <= priority) {
+          break;
+        }
+        states[k] = states[parent];
+        priorities[k] = priorities[parent];
+        k = parent;
+      }
+      states[k] = state;
+      priorities[k] = priority;
+    }
+
+    int poll() {
+      int result = states[0];
+      int state = states[--size];
+      double priority = priorities[size];
+      int k = 0;
+      int half = size >>> 1;
+      while (k < half) {
+        int child = 2 * k + 1;
+        if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+          child++;
+        }
+        if (priority <= priorities[child]) {
+          break;
+        }
+        states[k] = states[child];
+        priorities[k] = priorities[child];
+        k = child;
+      }
+      states[k] = state;
+      priorities[k] = priority;
+      return result;
+    }
+  }
+}
@@ -50,6 +50,15 @@ public class BezierTool extends AbstractTool {
   private DrawingView creationView;
 
   private final boolean calculateFittedCurveAfterCreation;
+  /**
+   * Fits the points of the current drag while they are being digitized. The fitter receives the
+   * same points as the figure, after {@link #addPointToFigure} has collapsed colinear points.
+   */
+  private Bezier.IncrementalFitter fitter;
+  /** The number of nodes of the created figure, which have been passed to the fitter. */
+  private int fittedNodeCount;
+  /** The path digitized by the current drag, while it is passed to calculateFittedCurve. */
+  private BezierPath digitizedPath;
 
   /** Creates a new instance. */
   public BezierTool(BezierFigure prototype) {
@@ -150,6 +159,12 @@ public class BezierTool extends AbstractTool {
       }
     }
     nodeCountBeforeDrag = createdFigure.getNodeCount();
+    fitter = null;
+    if (calculateFittedCurveAfterCreation) {
+      fitter = new Bezier.IncrementalFitter(1.5d / getView().getScaleFactor());
+      fitter.addPoint(createdFigure.getPoint(nodeCountBeforeDrag - 1, 0));
+      fittedNodeCount = nodeCountBeforeDrag;
+    }
   }
 
   @SuppressWarnings("unchecked")
@@ -261,20 +276,23 @@ public class BezierTool extends AbstractTool {
   public void mouseReleased(MouseEvent evt) {
     isWorking = false;
     if (createdFigure.getNodeCount() > nodeCountBeforeDrag + 1) {
+      updateFitter(createdFigure.getNodeCount());
       createdFigure.willChange();
       BezierPath figurePath = createdFigure.getBezierPath();
-      BezierPath digitizedPath = new BezierPath();
+      digitizedPath = new BezierPath();
       for (int i = nodeCountBeforeDrag - 1, n = figurePath.size(); i < n; i++) {
         digitizedPath.add(figurePath.get(nodeCountBeforeDrag - 1));
         figurePath.remove(nodeCountBeforeDrag - 1);
       }
       BezierPath fittedPath = calculateFittedCurve(digitizedPath);
+      digitizedPath = null;
       // figurePath.addPolyline(digitizedPath);
       figurePath.addAll(fittedPath);
       createdFigure.setBezierPath(figurePath);
       createdFigure.changed();
       nodeCountBeforeDrag = createdFigure.getNodeCount();
     }
+    fitter = null;
     if (finishWhenMouseReleased == Boolean.TRUE) {
       if (createdFigure.getNodeCount() > 1) {
         Rectangle r = new Rectangle(anchor.x, anchor.y, 0, 0);
@@ -314,7 +332,19 @@ public class BezierTool extends AbstractTool {
     }
     int x = evt.getX();
     int y = evt.getY();
-    addPointToFigure(getView().viewToDrawing(new Point(x, y)));
+    Point2D.Double p = getView().viewToDrawing(new Point(x, y));
+    addPointToFigure(p);
+    // The last node may still be moved by the next point, if it is colinear
+    updateFitter(createdFigure.getNodeCount() - 1);
+  }
+
+  /** Passes the nodes of the created figure up to the specified node count to the fitter. */
+  private void updateFitter(int nodeCount) {
+    if (fitter != null) {
+      for (; fittedNodeCount < nodeCount; fittedNodeCount++) {
+        fitter.addPoint(createdFigure.getPoint(fittedNodeCount, 0));
+      }
+    }
   }
 
   @Override
@@ -354,6 +384,12 @@ public class BezierTool extends AbstractTool {
 
   protected BezierPath calculateFittedCurve(BezierPath path) {
     if (calculateFittedCurveAfterCreation) {
+      if (fitter != null && path == digitizedPath) {
+        // The fitter has already processed the points while they were dragged
+        BezierPath fittedPath = fitter.finish();
+        fitter = null;
+        return fittedPath;
+      }
       return Bezier.fitBezierPath(path, 1.5d / getView().getScaleFactor());
     } else {
       return path;
@@ -65,6 +65,11 @@ public class DefaultDragTracker extends AbstractTool implements DragTracker {
 
   private boolean isDragging;
   private HashSet<Figure> transformedFigures;
+  /**
+   * The scheduler which defers the updates of the connections of the drawing from mousePressed
+   * until mouseReleased, or null.
+   */
+  private ConnectionUpdateScheduler deferredScheduler;
 
   /** Creates a new instance. */
   public DefaultDragTracker(Figure figure) {
@@ -82,6 +87,11 @@ public class DefaultDragTracker extends AbstractTool implements DragTracker {
   public void mousePressed(MouseEvent evt) {
     super.mousePressed(evt);
     DrawingView view = getView();
+    ConnectionUpdateScheduler scheduler = view.getDrawing().getConnectionUpdateScheduler();
+    if (scheduler != null && !scheduler.isDeferred()) {
+      scheduler.setDeferred(true);
+      deferredScheduler = scheduler;
+    }
     if (evt.isShiftDown()) {
       view.setHandleDetailLevel(0);
       view.toggleSelection(anchorFigure);
@@ -131,6 +141,7 @@ public class DefaultDragTracker extends AbstractTool implements DragTracker {
       }
       AffineTransform tx = new AffineTransform();
       tx.translate(constrainedRect.x - previousOrigin.x, constrainedRect.y - previousOrigin.y);
+      // The connections of the dragged figures are updated once per event, see mousePressed
       for (Figure f : transformedFigures) {
         f.willChange();
         f.transform(tx);
@@ -144,6 +155,7 @@ public class DefaultDragTracker extends AbstractTool implements DragTracker {
   @Override
   public void mouseReleased(MouseEvent evt) {
     super.mouseReleased(evt);
+    endDeferredConnectionUpdates();
     DrawingView view = getView();
     if (transformedFigures != null && !transformedFigures.isEmpty()) {
       isDragging = false;
@@ -182,6 +194,20 @@ public class DefaultDragTracker extends AbstractTool implements DragTracker {
     fireToolDone();
   }
 
+  @Override
+  public void deactivate(DrawingEditor editor) {
+    super.deactivate(editor);
+    endDeferredConnectionUpdates();
+  }
+
+  /** Updates the connections, whose updates have been deferred since mousePressed. */
+  private void endDeferredConnectionUpdates() {
+    if (deferredScheduler != null) {
+      deferredScheduler.setDeferred(false);
+      deferredScheduler = null;
+    }
+  }
+
   @Override
   public void setDraggedFigure(Figure f) {
     anchorFigure = f;
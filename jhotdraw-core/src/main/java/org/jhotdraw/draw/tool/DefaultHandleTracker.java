@@ -77,6 +77,11 @@ public class DefaultHandleTracker extends AbstractTool implements HandleTracker
    * hovering.
    */
   private LinkedList<Handle> hoverHandles = new LinkedList<>();
+  /**
+   * The scheduler which defers the updates of the connections of the drawing from mousePressed
+   * until mouseReleased, or null.
+   */
+  private ConnectionUpdateScheduler deferredScheduler;
   /** The hover Figure is the figure, over which the mouse is currently hovering. */
   private Figure hoverFigure = null;
 
@@ -132,6 +137,15 @@ public class DefaultHandleTracker extends AbstractTool implements HandleTracker
     clearHoverHandles();
     dragLocation = null;
     masterHandle.removeHandleListener(eventHandler);
+    endDeferredConnectionUpdates();
+  }
+
+  /** Updates the connections, whose updates have been deferred since mousePressed. */
+  private void endDeferredConnectionUpdates() {
+    if (deferredScheduler != null) {
+      deferredScheduler.setDeferred(false);
+      deferredScheduler = null;
+    }
   }
 
   @Override
@@ -221,6 +235,11 @@ public class DefaultHandleTracker extends AbstractTool implements HandleTracker
   public void mousePressed(MouseEvent evt) {
     // handle.mousePressed(evt);
     anchor = new Point(evt.getX(), evt.getY());
+    ConnectionUpdateScheduler scheduler = getDrawing().getConnectionUpdateScheduler();
+    if (scheduler != null && !scheduler.isDeferred()) {
+      scheduler.setDeferred(true);
+      deferredScheduler = scheduler;
+    }
     multicaster.trackStart(anchor, evt.getModifiersEx(), getView());
     clearHoverHandles();
   }
@@ -228,6 +247,7 @@ public class DefaultHandleTracker extends AbstractTool implements HandleTracker
   @Override
   public void mouseReleased(MouseEvent evt) {
     dragLocation = new Point(evt.getX(), evt.getY());
+    endDeferredConnectionUpdates();
     multicaster.trackEnd(anchor, dragLocation, evt.getModifiersEx(), getView());
     // Note: we must not fire "Tool Done" in this method, because then we can not
     // listen to keyboard events for the handle.
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Container;
+import java.awt.event.MouseEvent;
+import java.awt.geom.AffineTransform;
+import java.util.Collection;
+import java.util.Collections;
+import javax.swing.SwingUtilities;
+import org.jhotdraw.draw.connector.ChopRectangleConnector;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.figure.LineConnectionFigure;
+import org.jhotdraw.draw.figure.RectangleFigure;
+import org.jhotdraw.draw.tool.DefaultDragTracker;
+import org.junit.jupiter.api.Test;
+
+public class ConnectionUpdateSchedulerTest {
+
+  private Drawing drawing;
+  private ConnectionUpdateScheduler scheduler;
+  private RectangleFigure start;
+  private RectangleFigure end;
+  private CountingConnectionFigure connection;
+  private double startX;
+
+  private void createDrawing() {
+    drawing = new DefaultDrawing();
+    scheduler = drawing.getConnectionUpdateScheduler();
+    start = new RectangleFigure(0, 0, 10, 10);
+    end = new RectangleFigure(100, 0, 10, 10);
+    connection = new CountingConnectionFigure();
+    drawing.add(start);
+    drawing.add(end);
+    drawing.add(connection);
+    connection.setStartConnector(new ChopRectangleConnector(start));
+    connection.setEndConnector(new ChopRectangleConnector(end));
+    connection.updates = 0;
+    startX = connection.getStartPoint().x;
+  }
+
+  private static void move(Figure f, double dx) {
+    f.willChange();
+    f.transform(AffineTransform.getTranslateInstance(dx, 0));
+    f.changed();
+  }
+
+  @Test
+  public void testImmediateUpdates() {
+    createDrawing();
+    move(start, 5);
+    move(end, 5);
+    assertEquals(2, connection.updates);
+    assertEquals(startX + 5, connection.getStartPoint().x);
+  }
+
+  @Test
+  public void testBatchUpdatesEachConnectionOnce() {
+    createDrawing();
+    scheduler.beginBatch();
+    try {
+      move(start, 5);
+      move(end, 5);
+      move(start, 5);
+      assertEquals(0, connection.updates);
+      assertEquals(1, scheduler.getPendingCount());
+    } finally {
+      scheduler.endBatch();
+    }
+    assertEquals(1, connection.updates);
+    assertEquals(0, scheduler.getPendingCount());
+    assertEquals(startX + 10, connection.getStartPoint().x);
+    assertThrows(IllegalStateException.class, scheduler::endBatch);
+  }
+
+  @Test
+  public void testDeferredUpdatesAreFlushed() throws Exception {
+    SwingUtilities.invokeAndWait(
+        () -> {
+          createDrawing();
+          scheduler.setDeferred(true);
+          try {
+            move(start, 5);
+            move(end, 5);
+            assertEquals(0, connection.updates);
+            scheduler.flush();
+            assertEquals(1, connection.updates);
+            move(end, 5);
+          } finally {
+            scheduler.setDeferred(false);
+          }
+          assertEquals(2, connection.updates);
+        });
+  }
+
+  @Test
+  public void testDragTrackerEndsDeferredModeOnDeactivate() throws Exception {
+    SwingUtilities.invokeAndWait(
+        () -> {
+          createDrawing();
+          DefaultDrawingView view = new DefaultDrawingView();
+          view.setDrawing(drawing);
+          DrawingEditor editor = new SingleViewEditor(view);
+          DefaultDragTracker tracker = new DefaultDragTracker(start);
+          tracker.activate(editor);
+          tracker.mousePressed(
+              new MouseEvent(view.getComponent(), MouseEvent.MOUSE_PRESSED, 0, 0, 5, 5, 1, false));
+          assertTrue(scheduler.isDeferred());
+          // The tool is deactivated without a mouse release, e.g. when another tool is chosen
+          tracker.deactivate(editor);
+          assertFalse(scheduler.isDeferred());
+          move(start, 5);
+          assertEquals(1, connection.updates);
+        });
+  }
+
+  @Test
+  public void testSchedulerIsScopedToTheDrawing() {
+    createDrawing();
+    ConnectionUpdateScheduler other = new DefaultDrawing().getConnectionUpdateScheduler();
+    other.beginBatch();
+    try {
+      move(start, 5);
+      assertEquals(1, connection.updates);
+      assertEquals(0, other.getPendingCount());
+    } finally {
+      other.endBatch();
+    }
+  }
+
+  @Test
+  public void testRemovedConnectionIsNotUpdated() {
+    createDrawing();
+    scheduler.beginBatch();
+    try {
+      move(start, 5);
+      assertEquals(1, scheduler.getPendingCount());
+      drawing.remove(connection);
+      assertEquals(0, scheduler.getPendingCount());
+    } finally {
+      scheduler.endBatch();
+    }
+    assertEquals(0, connection.updates);
+  }
+
+  /** An editor with one view, which is always active. */
+  private static class SingleViewEditor extends DrawingEditorProxy {
+
+    private static final long serialVersionUID = 1L;
+    private final DrawingView view;
+
+    SingleViewEditor(DrawingView view) {
+      this.view = view;
+    }
+
+    @Override
+    public Collection<DrawingView> getDrawingViews() {
+      return Collections.singletonList(view);
+    }
+
+    @Override
+    public DrawingView getActiveView() {
+      return view;
+    }
+
+    @Override
+    public DrawingView findView(Container c) {
+      return view;
+    }
+  }
+
+  private static class CountingConnectionFigure extends LineConnectionFigure {
+
+    private static final long serialVersionUID = 1L;
+    private int updates;
+
+    @Override
+    public void updateConnection() {
+      updates++;
+      super.updateConnection();
+    }
+  }
+}
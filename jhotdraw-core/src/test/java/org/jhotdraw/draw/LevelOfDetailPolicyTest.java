@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw;
+
+import static org.jhotdraw.draw.AttributeKeys.FILL_COLOR;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import org.jhotdraw.draw.figure.RectangleFigure;
+import org.jhotdraw.draw.figure.TextFigure;
+import org.junit.jupiter.api.Test;
+
+public class LevelOfDetailPolicyTest {
+
+  @Test
+  public void testSmallFiguresAreReduced() {
+    LevelOfDetailPolicy policy = new LevelOfDetailPolicy();
+    BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = image.createGraphics();
+    g.setRenderingHint(LevelOfDetailPolicy.KEY_LEVEL_OF_DETAIL_POLICY, policy);
+    assertSame(policy, LevelOfDetailPolicy.get(g));
+    g.scale(0.01, 0.01);
+
+    RectangleFigure small = new RectangleFigure(1000, 1000, 100, 100);
+    small.attr().set(FILL_COLOR, Color.RED);
+    assertTrue(policy.drawReduced(g, small));
+    assertEquals(Color.RED.getRGB(), image.getRGB(10, 10));
+
+    RectangleFigure large = new RectangleFigure(0, 0, 5000, 5000);
+    assertFalse(policy.drawReduced(g, large));
+
+    TextFigure text = new TextFigure("Hello World");
+    text.setFontSize(1000);
+    assertFalse(policy.drawReduced(g, text));
+    text.setFontSize(300);
+    assertTrue(policy.drawReduced(g, text));
+    g.dispose();
+  }
+}
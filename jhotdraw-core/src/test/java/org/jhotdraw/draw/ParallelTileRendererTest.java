@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw;
+
+import static org.jhotdraw.draw.AttributeKeys.FILL_COLOR;
+import static org.jhotdraw.draw.AttributeKeys.STROKE_COLOR;
+import static org.jhotdraw.draw.AttributeKeys.STROKE_WIDTH;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.figure.RectangleFigure;
+import org.junit.jupiter.api.Test;
+
+public class ParallelTileRendererTest {
+
+  private static void setup(Graphics2D g) {
+    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+  }
+
+  @Test
+  public void testSameResultAsSerialRendering() {
+    Random random = new Random(7);
+    List<Figure> figures = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      RectangleFigure f =
+          new RectangleFigure(
+              random.nextInt(400),
+              random.nextInt(300),
+              1 + random.nextInt(80),
+              1 + random.nextInt(80));
+      f.attr().set(FILL_COLOR, new Color(random.nextInt(0x1000000)));
+      f.attr().set(STROKE_COLOR, null);
+      figures.add(f);
+    }
+    AffineTransform tx = AffineTransform.getScaleInstance(2, 2);
+    BufferedImage expected = new BufferedImage(900, 700, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = expected.createGraphics();
+    setup(g);
+    g.transform(tx);
+    for (Figure f : figures) {
+      f.draw(g);
+    }
+    g.dispose();
+
+    BufferedImage actual = new BufferedImage(900, 700, BufferedImage.TYPE_INT_ARGB);
+    new ParallelTileRenderer(new ForkJoinPool(4), 64)
+        .render(
+            actual, new Rectangle(0, 0, 900, 700), figures, tx, ParallelTileRendererTest::setup);
+
+    assertArrayEquals(
+        expected.getRGB(0, 0, 900, 700, null, 0, 900), actual.getRGB(0, 0, 900, 700, null, 0, 900));
+  }
+
+  @Test
+  public void testRenderDrawingThroughItsIndex() {
+    for (Drawing drawing : List.of(new DefaultDrawing(), new QuadTreeDrawing())) {
+      Random random = new Random(11);
+      for (int i = 0; i < 300; i++) {
+        RectangleFigure f =
+            new RectangleFigure(
+                random.nextInt(400),
+                random.nextInt(300),
+                1 + random.nextInt(80),
+                1 + random.nextInt(80));
+        f.attr().set(FILL_COLOR, new Color(random.nextInt(0x1000000)));
+        // Wide strokes extend beyond the bounds of the figures, and across the tiles
+        f.attr().set(STROKE_COLOR, Color.BLACK);
+        f.attr().set(STROKE_WIDTH, 6d);
+        f.setVisible(i % 7 != 0);
+        drawing.add(f);
+      }
+      AffineTransform tx = AffineTransform.getScaleInstance(2, 2);
+      BufferedImage expected = new BufferedImage(900, 700, BufferedImage.TYPE_INT_ARGB);
+      Graphics2D g = expected.createGraphics();
+      setup(g);
+      g.setClip(0, 0, 900, 700);
+      g.transform(tx);
+      drawing.draw(g);
+      g.dispose();
+
+      BufferedImage actual = new BufferedImage(900, 700, BufferedImage.TYPE_INT_ARGB);
+      new ParallelTileRenderer(new ForkJoinPool(4), 64)
+          .render(
+              actual, new Rectangle(0, 0, 900, 700), drawing, tx, ParallelTileRendererTest::setup);
+
+      assertArrayEquals(
+          expected.getRGB(0, 0, 900, 700, null, 0, 900),
+          actual.getRGB(0, 0, 900, 700, null, 0, 900));
+    }
+  }
+
+  @Test
+  public void testFigureIsNotDrawnConcurrently() {
+    AtomicInteger active = new AtomicInteger();
+    AtomicInteger maxActive = new AtomicInteger();
+    AtomicInteger draws = new AtomicInteger();
+    RectangleFigure f =
+        new RectangleFigure(0, 0, 500, 500) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          public void draw(Graphics2D g) {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            draws.incrementAndGet();
+            try {
+              Thread.sleep(2);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            super.draw(g);
+            active.decrementAndGet();
+          }
+        };
+    BufferedImage image = new BufferedImage(512, 512, BufferedImage.TYPE_INT_ARGB);
+    new ParallelTileRenderer(new ForkJoinPool(4), 64)
+        .render(
+            image,
+            new Rectangle(0, 0, 512, 512),
+            List.of(f),
+            new AffineTransform(),
+            ParallelTileRendererTest::setup);
+
+    assertEquals(64, draws.get());
+    assertEquals(1, maxActive.get());
+  }
+
+  @Test
+  public void testLevelOfDetailPolicy() {
+    AtomicInteger draws = new AtomicInteger();
+    List<Figure> figures = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      RectangleFigure f =
+          new RectangleFigure(i % 10 * 50, i / 10 * 50, 2, 2) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void draw(Graphics2D g) {
+              draws.incrementAndGet();
+              super.draw(g);
+            }
+          };
+      f.attr().set(FILL_COLOR, Color.RED);
+      figures.add(f);
+    }
+    // The drawing areas of the figures are below the minimal figure size of 10 pixels
+    BufferedImage image = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+    new ParallelTileRenderer(new ForkJoinPool(4), 64)
+        .render(
+            image,
+            new Rectangle(0, 0, 256, 256),
+            figures,
+            new AffineTransform(),
+            g -> {
+              setup(g);
+              g.setRenderingHint(
+                  LevelOfDetailPolicy.KEY_LEVEL_OF_DETAIL_POLICY, new LevelOfDetailPolicy(10, 5));
+            });
+
+    assertEquals(0, draws.get());
+    assertEquals(Color.RED.getRGB(), image.getRGB(51, 51));
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.SwingUtilities;
+import org.jhotdraw.draw.event.DrawingEvent;
+import org.jhotdraw.draw.event.DrawingListenerAdapter;
+import org.jhotdraw.draw.event.ReplaceChildrenEdit;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.figure.RectangleFigure;
+import org.jhotdraw.geom.QuadTree;
+import org.jhotdraw.geom.SpatialIndex;
+import org.junit.jupiter.api.Test;
+
+public class QuadTreeDrawingTest {
+
+  private final Point2D.Double p = new Point2D.Double(15, 15);
+
+  @Test
+  public void testZOrder() {
+    QuadTreeDrawing drawing = new QuadTreeDrawing();
+    Figure back = new RectangleFigure(0, 0, 20, 20);
+    Figure middle = new RectangleFigure(10, 10, 20, 20);
+    Figure front = new RectangleFigure(5, 5, 20, 20);
+    drawing.add(back);
+    drawing.add(front);
+    drawing.add(1, middle);
+
+    assertThat(drawing.getFiguresFrontToBack()).containsExactly(front, middle, back);
+    assertSame(front, drawing.findFigure(p));
+    assertSame(middle, drawing.findFigureBehind(p, front));
+    assertSame(back, drawing.findFigureBehind(p, middle));
+    assertNull(drawing.findFigureBehind(p, back));
+
+    drawing.bringToFront(back);
+    drawing.sendToBack(front);
+    assertThat(drawing.sort(drawing.findFigures(new Rectangle2D.Double(0, 0, 40, 40))))
+        .containsExactly(front, middle, back);
+    assertSame(back, drawing.findFigure(p));
+    assertSame(front, drawing.findFigureBehind(p, List.of(back, middle)));
+  }
+
+  @Test
+  public void testFindFiguresWithin() {
+    QuadTreeDrawing drawing = new QuadTreeDrawing();
+    Figure inside = new RectangleFigure(10, 10, 20, 20);
+    Figure outside = new RectangleFigure(50, 50, 20, 20);
+    drawing.add(inside);
+    drawing.add(outside);
+    Rectangle2D.Double rubberband = new Rectangle2D.Double(0, 0, 40, 40);
+    assertThat(drawing.findFiguresWithin(rubberband)).containsExactly(inside);
+
+    outside.willChange();
+    outside.setBounds(new Point2D.Double(5, 5), new Point2D.Double(15, 15));
+    outside.changed();
+    assertThat(drawing.findFiguresWithin(rubberband)).containsExactly(inside, outside);
+  }
+
+  @Test
+  public void testCreateSpatialIndexInSubclass() {
+    List<SpatialIndex<Figure>> created = new ArrayList<>();
+    QuadTreeDrawing drawing =
+        new QuadTreeDrawing() {
+          private final QuadTree<Figure> index = new QuadTree<>();
+
+          @Override
+          protected SpatialIndex<Figure> createSpatialIndex() {
+            created.add(index);
+            return index;
+          }
+        };
+    Figure f = new RectangleFigure(10, 10, 20, 20);
+    drawing.add(f);
+    assertThat(created).hasSize(1).doesNotContainNull();
+    assertSame(f, drawing.findFigure(p));
+    assertThat(drawing.findFiguresWithin(new Rectangle2D.Double(0, 0, 40, 40))).containsExactly(f);
+    assertThat(created).hasSize(1);
+  }
+
+  @Test
+  public void testCoalescedDrawingEvents() throws Exception {
+    // Coalesced events are delivered on the event dispatch thread
+    SwingUtilities.invokeAndWait(this::coalesceDrawingEvents);
+  }
+
+  private void coalesceDrawingEvents() {
+    QuadTreeDrawing drawing = new QuadTreeDrawing();
+    List<Figure> figures = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Figure f = new RectangleFigure(i % 10 * 100, i / 10 * 100, 10, 10);
+      figures.add(f);
+      drawing.add(f);
+    }
+    List<Rectangle2D.Double> areas = new ArrayList<>();
+    drawing.addDrawingListener(
+        new DrawingListenerAdapter() {
+          @Override
+          public void drawingChanged(DrawingEvent e) {
+            areas.add(e.getInvalidatedArea());
+          }
+        });
+    drawing.setCoalescingEvents(true);
+    for (Figure f : figures) {
+      f.willChange();
+      f.setBounds(f.getStartPoint(), new Point2D.Double(f.getEndPoint().x + 5, f.getEndPoint().y));
+      f.changed();
+    }
+    assertThat(areas).isEmpty();
+
+    drawing.flushDrawingEvents();
+    assertThat(areas).isNotEmpty().hasSizeLessThanOrEqualTo(8);
+    for (Figure f : figures) {
+      assertThat(areas).anyMatch(r -> r.contains(f.getDrawingArea()));
+    }
+    for (int i = 0; i < areas.size(); i++) {
+      for (int j = i + 1; j < areas.size(); j++) {
+        assertThat(areas.get(i).intersects(areas.get(j))).isFalse();
+      }
+    }
+
+    areas.clear();
+    drawing.flushDrawingEvents();
+    assertThat(areas).isEmpty();
+    drawing.setCoalescingEvents(false);
+    Figure f = figures.get(0);
+    f.willChange();
+    f.setBounds(f.getStartPoint(), new Point2D.Double(20, 20));
+    f.changed();
+    assertThat(areas).isNotEmpty();
+  }
+
+  @Test
+  public void testBulkMutation() {
+    QuadTreeDrawing drawing = new QuadTreeDrawing();
+    Figure first = new RectangleFigure(-50, -50, 10, 10);
+    drawing.add(first);
+    List<Figure> figures = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      figures.add(new RectangleFigure(i * 20, 0, 10, 10));
+    }
+    List<DrawingEvent> added = new ArrayList<>();
+    List<DrawingEvent> removed = new ArrayList<>();
+    drawing.addDrawingListener(
+        new DrawingListenerAdapter() {
+          @Override
+          public void figureAdded(DrawingEvent e) {
+            added.add(e);
+          }
+
+          @Override
+          public void figureRemoved(DrawingEvent e) {
+            removed.add(e);
+          }
+        });
+
+    drawing.addAll(0, figures);
+    assertThat(added).hasSize(1);
+    assertThat(added.get(0).getFigures()).containsExactlyElementsOf(figures);
+    assertThat(added.get(0).getInvalidatedArea().contains(new Rectangle2D.Double(0, 0, 19990, 10)))
+        .isTrue();
+    assertSame(first, drawing.getChild(1000));
+    assertSame(figures.get(999), drawing.findFigure(new Point2D.Double(19985, 5)));
+    assertThat(drawing.getFiguresFrontToBack().get(0)).isSameAs(first);
+
+    List<Figure> before = new ArrayList<>(drawing.getChildren());
+    List<Figure> odd = new ArrayList<>();
+    for (int i = 1; i < figures.size(); i += 2) {
+      odd.add(figures.get(i));
+    }
+    ReplaceChildrenEdit edit = new ReplaceChildrenEdit(drawing, "Delete", odd, true);
+    drawing.removeAll(odd);
+    assertThat(removed).hasSize(1);
+    assertThat(removed.get(0).getFigures()).containsExactlyElementsOf(odd);
+    assertThat(drawing.getChildCount()).isEqualTo(501);
+    assertNull(drawing.findFigure(new Point2D.Double(25, 5)));
+
+    edit.undo();
+    assertThat(drawing.getChildren()).containsExactlyElementsOf(before);
+    assertSame(figures.get(1), drawing.findFigure(new Point2D.Double(25, 5)));
+    edit.redo();
+    assertThat(drawing.getChildCount()).isEqualTo(501);
+    assertThat(removed).hasSize(2);
+
+    List<Figure> tail = new ArrayList<>(drawing.getChildren().subList(401, 501));
+    edit = new ReplaceChildrenEdit(drawing, "Delete", tail, true);
+    drawing.removeAll(tail);
+    added.clear();
+    edit.undo();
+    assertThat(added).hasSize(1);
+    assertThat(drawing.getChildCount()).isEqualTo(501);
+    assertThat(drawing.getChildren().subList(401, 501)).containsExactlyElementsOf(tail);
+
+    drawing.basicRemoveAll(List.of(first));
+    assertThat(drawing.getChildCount()).isEqualTo(500);
+    assertNull(drawing.findFigure(new Point2D.Double(-45, -45)));
+  }
+}
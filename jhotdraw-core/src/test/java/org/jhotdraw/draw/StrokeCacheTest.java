@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw;
+
+import static org.jhotdraw.draw.AttributeKeys.IS_STROKE_PIXEL_VALUE;
+import static org.jhotdraw.draw.AttributeKeys.STROKE_DASHES;
+import static org.jhotdraw.draw.AttributeKeys.STROKE_WIDTH;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.BasicStroke;
+import org.jhotdraw.draw.figure.RectangleFigure;
+import org.junit.jupiter.api.Test;
+
+public class StrokeCacheTest {
+
+  @Test
+  public void testFiguresShareStrokes() {
+    RectangleFigure a = new RectangleFigure(0, 0, 10, 10);
+    RectangleFigure b = new RectangleFigure(5, 5, 20, 20);
+    a.attr().set(STROKE_WIDTH, 2d);
+    b.attr().set(STROKE_WIDTH, 2d);
+    assertSame(AttributeKeys.getStroke(a, 1.0), AttributeKeys.getStroke(b, 1.0));
+    assertSame(AttributeKeys.getHitStroke(a, 1.0), AttributeKeys.getHitStroke(b, 1.0));
+    // The scale factor only affects strokes with pixel values
+    assertSame(AttributeKeys.getStroke(a, 1.0), AttributeKeys.getStroke(a, 2.0));
+    a.attr().set(IS_STROKE_PIXEL_VALUE, true);
+    assertNotSame(AttributeKeys.getStroke(a, 1.0), AttributeKeys.getStroke(a, 2.0));
+    a.attr().set(IS_STROKE_PIXEL_VALUE, false);
+    assertNotSame(AttributeKeys.getStroke(a, 1.0), AttributeKeys.getHitStroke(a, 1.0));
+
+    b.attr().set(STROKE_WIDTH, 3d);
+    assertNotSame(AttributeKeys.getStroke(a, 1.0), AttributeKeys.getStroke(b, 1.0));
+  }
+
+  @Test
+  public void testDashesAreCopied() {
+    RectangleFigure a = new RectangleFigure(0, 0, 10, 10);
+    double[] dashes = {4, 2};
+    a.attr().set(STROKE_DASHES, dashes);
+    BasicStroke stroke = (BasicStroke) AttributeKeys.getStroke(a, 1.0);
+    assertArrayEquals(new float[] {4, 2}, stroke.getDashArray());
+    dashes[0] = 8;
+    a.attr().set(STROKE_DASHES, dashes);
+    stroke = (BasicStroke) AttributeKeys.getStroke(a, 1.0);
+    assertArrayEquals(new float[] {8, 2}, stroke.getDashArray());
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextAttribute;
+import java.awt.geom.AffineTransform;
+import org.jhotdraw.draw.figure.TextFigure;
+import org.junit.jupiter.api.Test;
+
+public class TextLayoutCacheTest {
+
+  private static final FontRenderContext FRC =
+      new FontRenderContext(new AffineTransform(), true, true);
+
+  @Test
+  public void testHitsAndMisses() {
+    TextLayoutCache.clear();
+    Font font = new Font("Dialog", Font.PLAIN, 12);
+    TextLayoutCache.Entry a = TextLayoutCache.get("Hello", font, null, FRC);
+    TextLayoutCache.Entry b =
+        TextLayoutCache.get("Hello", new Font("Dialog", Font.PLAIN, 12), null, FRC);
+    assertSame(a, b);
+    assertEquals(1, TextLayoutCache.getHitCount());
+    assertEquals(1, TextLayoutCache.getMissCount());
+    assertNotSame(a, TextLayoutCache.get("Hello", font.deriveFont(14f), null, FRC));
+    assertNotSame(
+        a, TextLayoutCache.get("Hello", font, TextAttribute.UNDERLINE_LOW_ONE_PIXEL, FRC));
+    assertEquals(a.getLayout().getAdvance(), a.getAdvance());
+    assertEquals(a.getLayout().getBounds(), a.getBounds());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntryIsDiscarded() {
+    TextLayoutCache.clear();
+    int oldSize = TextLayoutCache.getMaximumSize();
+    try {
+      TextLayoutCache.setMaximumSize(2);
+      Font font = new Font("Dialog", Font.PLAIN, 12);
+      TextLayoutCache.Entry a = TextLayoutCache.get("a", font, null, FRC);
+      TextLayoutCache.get("b", font, null, FRC);
+      assertSame(a, TextLayoutCache.get("a", font, null, FRC));
+      TextLayoutCache.get("c", font, null, FRC);
+      assertEquals(2, TextLayoutCache.size());
+      assertSame(a, TextLayoutCache.get("a", font, null, FRC));
+      long misses = TextLayoutCache.getMissCount();
+      TextLayoutCache.get("b", font, null, FRC);
+      assertEquals(misses + 1, TextLayoutCache.getMissCount());
+    } finally {
+      TextLayoutCache.setMaximumSize(oldSize);
+    }
+  }
+
+  @Test
+  public void testTextFiguresShareLayouts() {
+    TextLayoutCache.clear();
+    TextFigure a = new TextFigure("Label");
+    TextFigure b = new TextFigure("Label");
+    assertEquals(a.getBounds().width, b.getBounds().width);
+    assertEquals(1, TextLayoutCache.getMissCount());
+    assertEquals(1, TextLayoutCache.getHitCount());
+  }
+}
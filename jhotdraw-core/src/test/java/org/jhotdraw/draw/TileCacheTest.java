@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+public class TileCacheTest {
+
+  private static final int TS = TileCache.TILE_SIZE;
+
+  private static BufferedImage tile() {
+    return new BufferedImage(TS, TS, BufferedImage.TYPE_INT_ARGB_PRE);
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    TileCache cache = new TileCache(3L * TS * TS * 4);
+    cache.put(1.0, 0, 0, tile());
+    cache.put(1.0, 1, 0, tile());
+    cache.put(1.0, 2, 0, tile());
+    assertNotNull(cache.get(1.0, 0, 0));
+    cache.put(1.0, 3, 0, tile());
+    assertNull(cache.get(1.0, 1, 0));
+    assertNotNull(cache.get(1.0, 0, 0));
+    assertEquals(3L * TS * TS * 4, cache.getMemoryUsage());
+  }
+
+  @Test
+  public void testInvalidateAllScaleFactors() {
+    TileCache cache = new TileCache(Long.MAX_VALUE);
+    for (int y = 0; y < 4; y++) {
+      for (int x = 0; x < 4; x++) {
+        cache.put(1.0, x, y, tile());
+        cache.put(2.0, x, y, tile());
+      }
+    }
+    // Covers tile (1, 1) at scale 1 and tile (2, 2) at scale 2.
+    cache.invalidate(new Rectangle2D.Double(TS + 10, TS + 10, 100, 100), 2);
+    assertNull(cache.get(1.0, 1, 1));
+    assertNotNull(cache.get(1.0, 0, 0));
+    assertNotNull(cache.get(1.0, 2, 2));
+    assertNull(cache.get(2.0, 2, 2));
+    assertNotNull(cache.get(2.0, 3, 3));
+    assertNotNull(cache.get(2.0, 1, 1));
+    assertEquals(30L * TS * TS * 4, cache.getMemoryUsage());
+
+    cache.invalidate(new Rectangle2D.Double(-1e6, -1e6, 2e6, 2e6), 2);
+    assertEquals(0, cache.getMemoryUsage());
+  }
+}
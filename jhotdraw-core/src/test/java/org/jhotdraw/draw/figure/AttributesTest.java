@@ -21,7 +21,18 @@ package org.jhotdraw.draw.figure;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.awt.Color;
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.jhotdraw.draw.AttributeKey;
 import org.jhotdraw.draw.AttributeKeys;
 import org.junit.jupiter.api.Test;
 
@@ -47,4 +58,130 @@ public class AttributesTest {
         attr.get(AttributeKeys.STROKE_WIDTH).doubleValue(),
         attrRestored.get(AttributeKeys.STROKE_WIDTH).doubleValue());
   }
+
+  @Test
+  public void testSetGetRemove() {
+    Attributes attr = new Attributes();
+    assertEquals(
+        AttributeKeys.STROKE_WIDTH.getDefaultValue(), attr.get(AttributeKeys.STROKE_WIDTH));
+    attr.set(AttributeKeys.TEXT, "a");
+    attr.set(AttributeKeys.FILL_COLOR, Color.RED);
+    attr.set(AttributeKeys.FILL_COLOR, null);
+    attr.set(AttributeKeys.STROKE_WIDTH, 2d);
+    assertTrue(attr.hasAttribute(AttributeKeys.FILL_COLOR));
+    assertNull(attr.get(AttributeKeys.FILL_COLOR));
+    assertEquals("a", attr.get(AttributeKeys.TEXT));
+    assertEquals(2d, attr.get(AttributeKeys.STROKE_WIDTH));
+    assertThat(attr.getAttributes()).hasSize(3);
+
+    attr.removeAttribute(AttributeKeys.TEXT);
+    assertFalse(attr.hasAttribute(AttributeKeys.TEXT));
+    assertEquals(AttributeKeys.TEXT.getDefaultValue(), attr.get(AttributeKeys.TEXT));
+    assertEquals(2d, attr.get(AttributeKeys.STROKE_WIDTH));
+    assertThat(attr.getAttributes()).hasSize(2);
+
+    assertThrows(NullPointerException.class, () -> attr.set(AttributeKeys.STROKE_WIDTH, null));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testAllSupportedAttributes() {
+    List<AttributeKey<?>> keys = new ArrayList<>(AttributeKeys.SUPPORTED_ATTRIBUTES);
+    // Insert in descending ordinal order, so that each value goes in front of the others
+    keys.sort(Comparator.comparingInt(AttributeKey<?>::getOrdinal).reversed());
+    Attributes attr = new Attributes();
+    for (AttributeKey<?> key : keys) {
+      attr.set((AttributeKey<Object>) key, key.getKey());
+    }
+    assertThat(attr.getAttributes()).hasSize(keys.size());
+    for (AttributeKey<?> key : keys) {
+      assertEquals(key.getKey(), attr.get(key));
+    }
+  }
+
+  @Test
+  public void testEqualKeysShareOrdinal() {
+    AttributeKey<Double> copy = new AttributeKey<>("strokeWidth", Double.class, 5d);
+    assertEquals(AttributeKeys.STROKE_WIDTH.getOrdinal(), copy.getOrdinal());
+    Attributes attr = new Attributes();
+    attr.set(copy, 3d);
+    assertEquals(3d, attr.get(AttributeKeys.STROKE_WIDTH));
+  }
+
+  @Test
+  public void testForbiddenAndCopy() {
+    Attributes attr = new Attributes();
+    attr.setAttributeEnabled(AttributeKeys.TEXT, false);
+    attr.set(AttributeKeys.TEXT, "a");
+    attr.set(AttributeKeys.STROKE_WIDTH, 2d);
+    assertFalse(attr.hasAttribute(AttributeKeys.TEXT));
+
+    Attributes copy = Attributes.from(attr);
+    assertFalse(copy.isAttributeEnabled(AttributeKeys.TEXT));
+    copy.set(AttributeKeys.STROKE_WIDTH, 4d);
+    assertEquals(2d, attr.get(AttributeKeys.STROKE_WIDTH));
+    assertEquals(4d, copy.get(AttributeKeys.STROKE_WIDTH));
+
+    attr.setAttributeEnabled(AttributeKeys.TEXT, true);
+    attr.set(AttributeKeys.TEXT, "a");
+    assertEquals("a", attr.get(AttributeKeys.TEXT));
+  }
+
+  @Test
+  public void testCopyOnWrite() {
+    Attributes attr = new Attributes();
+    attr.set(AttributeKeys.STROKE_WIDTH, 2d);
+    Attributes copy = Attributes.from(attr);
+    assertTrue(copy.isSharedWith(attr));
+
+    attr.set(AttributeKeys.STROKE_WIDTH, 3d);
+    assertFalse(copy.isSharedWith(attr));
+    assertEquals(2d, copy.get(AttributeKeys.STROKE_WIDTH));
+    assertEquals(3d, attr.get(AttributeKeys.STROKE_WIDTH));
+
+    Attributes copy2 = Attributes.from(copy);
+    copy2.removeAttribute(AttributeKeys.STROKE_WIDTH);
+    assertEquals(2d, copy.get(AttributeKeys.STROKE_WIDTH));
+    assertFalse(copy2.hasAttribute(AttributeKeys.STROKE_WIDTH));
+  }
+
+  @Test
+  public void testIntern() {
+    Attributes a = new Attributes();
+    Attributes b = new Attributes();
+    a.set(AttributeKeys.STROKE_WIDTH, 2d);
+    a.set(AttributeKeys.FILL_COLOR, Color.RED);
+    b.set(AttributeKeys.FILL_COLOR, Color.RED);
+    b.set(AttributeKeys.STROKE_WIDTH, 2d);
+    a.intern();
+    b.intern();
+    assertTrue(a.isSharedWith(b));
+
+    b.set(AttributeKeys.FILL_COLOR, Color.BLUE);
+    assertFalse(a.isSharedWith(b));
+    assertEquals(Color.RED, a.get(AttributeKeys.FILL_COLOR));
+    b.set(AttributeKeys.FILL_COLOR, Color.RED);
+    b.intern();
+    assertTrue(a.isSharedWith(b));
+  }
+
+  @Test
+  public void testMutableValuesAreNotInterned() {
+    Attributes a = new Attributes();
+    Attributes b = new Attributes();
+    a.set(AttributeKeys.STROKE_DASHES, new double[] {1, 2});
+    b.set(AttributeKeys.STROKE_DASHES, new double[] {1, 2});
+    a.intern();
+    b.intern();
+    assertFalse(a.isSharedWith(b));
+
+    a.set(AttributeKeys.STROKE_DASHES, null);
+    b.set(AttributeKeys.STROKE_DASHES, null);
+    a.set(AttributeKeys.TRANSFORM, new AffineTransform());
+    b.set(AttributeKeys.TRANSFORM, new AffineTransform());
+    a.intern();
+    b.intern();
+    assertFalse(a.isSharedWith(b));
+    assertNotSame(a.get(AttributeKeys.TRANSFORM), b.get(AttributeKeys.TRANSFORM));
+  }
 }
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package org.jhotdraw.draw.figure;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import org.jhotdraw.geom.Dimension2DDouble;
+import org.junit.jupiter.api.Test;
+
+public class TextAreaFigureTest {
+
+  @Test
+  public void testPreferredTextSizeFollowsText() {
+    TextAreaFigure f = new TextAreaFigure("a");
+    Dimension2DDouble one = f.getPreferredTextSize(1000);
+    f.setText("a\nb\nc");
+    Dimension2DDouble three = f.getPreferredTextSize(1000);
+    assertTrue(three.height > one.height);
+    f.setText("a");
+    Dimension2DDouble again = f.getPreferredTextSize(1000);
+    assertEquals(one.width, again.width);
+    assertEquals(one.height, again.height);
+  }
+
+  @Test
+  public void testPreferredTextSizeIsNotShared() {
+    TextAreaFigure f = new TextAreaFigure("abc");
+    Dimension2DDouble size = f.getPreferredTextSize(1000);
+    size.height = -1;
+    assertTrue(f.getPreferredTextSize(1000).height > 0);
+  }
+
+  @Test
+  public void testTextOverflowFollowsBounds() {
+    TextAreaFigure f = new TextAreaFigure("a b c d e f g h i j k l m n o p q r s t u v w x y z");
+    f.willChange();
+    f.setBounds(new Point2D.Double(0, 0), new Point2D.Double(400, 100));
+    f.changed();
+    assertFalse(f.isTextOverflow());
+    f.willChange();
+    f.setBounds(new Point2D.Double(0, 0), new Point2D.Double(30, 20));
+    f.changed();
+    assertTrue(f.isTextOverflow());
+  }
+
+  @Test
+  public void testDrawReusesLayouts() {
+    TextAreaFigure f =
+        new TextAreaFigure("Lorem ipsum\tdolor sit amet,\nconsectetur adipiscing elit");
+    f.setBounds(new Point2D.Double(10, 10), new Point2D.Double(120, 90));
+    int[] first = draw(f);
+    assertArrayEquals(first, draw(f));
+    f.setBounds(new Point2D.Double(10, 10), new Point2D.Double(60, 90));
+    int[] narrow = draw(f);
+    f.setBounds(new Point2D.Double(10, 10), new Point2D.Double(120, 90));
+    assertArrayEquals(first, draw(f));
+    assertFalse(Arrays.equals(first, narrow));
+  }
+
+  private static int[] draw(Figure f) {
+    BufferedImage img = new BufferedImage(140, 100, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = img.createGraphics();
+    try {
+      f.draw(g);
+    } finally {
+      g.dispose();
+    }
+    return img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+  }
+}
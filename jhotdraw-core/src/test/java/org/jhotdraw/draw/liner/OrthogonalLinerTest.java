@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.draw.liner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.QuadTreeDrawing;
+import org.jhotdraw.draw.connector.ChopRectangleConnector;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.figure.LineConnectionFigure;
+import org.jhotdraw.draw.figure.RectangleFigure;
+import org.jhotdraw.geom.BezierPath;
+import org.junit.jupiter.api.Test;
+
+public class OrthogonalLinerTest {
+
+  private static LineConnectionFigure connect(Drawing drawing, Figure start, Figure end) {
+    LineConnectionFigure c = new LineConnectionFigure();
+    c.setLiner(new OrthogonalLiner());
+    drawing.add(c);
+    c.setStartConnector(new ChopRectangleConnector(start));
+    c.setEndConnector(new ChopRectangleConnector(end));
+    return c;
+  }
+
+  private static void assertOrthogonal(BezierPath path) {
+    for (int i = 1; i < path.size(); i++) {
+      BezierPath.Node a = path.get(i - 1);
+      BezierPath.Node b = path.get(i);
+      assertTrue(
+          Math.abs(a.x[0] - b.x[0]) < 1e-6 || Math.abs(a.y[0] - b.y[0]) < 1e-6,
+          "segment " + i + " is not orthogonal");
+    }
+  }
+
+  private static boolean crosses(BezierPath path, Rectangle2D r) {
+    for (int i = 1; i < path.size(); i++) {
+      BezierPath.Node a = path.get(i - 1);
+      BezierPath.Node b = path.get(i);
+      if (r.intersectsLine(new Line2D.Double(a.x[0], a.y[0], b.x[0], b.y[0]))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void testRoutesAroundObstacle() {
+    Drawing drawing = new QuadTreeDrawing();
+    RectangleFigure start = new RectangleFigure(0, 0, 20, 20);
+    RectangleFigure obstacle = new RectangleFigure(60, -20, 30, 60);
+    RectangleFigure end = new RectangleFigure(150, 0, 20, 20);
+    drawing.add(start);
+    drawing.add(obstacle);
+    drawing.add(end);
+    LineConnectionFigure c = connect(drawing, start, end);
+    BezierPath path = c.getBezierPath();
+    assertOrthogonal(path);
+    assertFalse(crosses(path, obstacle.getBounds()));
+    assertTrue(path.size() > 2);
+    assertEquals(c.getStartConnector().findStart(c).x, path.get(0).x[0]);
+    assertEquals(c.getEndConnector().findEnd(c).x, path.get(path.size() - 1).x[0]);
+
+    // Without the obstacle, the route is a straight line
+    drawing.remove(obstacle);
+    c.willChange();
+    c.updateConnection();
+    c.changed();
+    assertEquals(2, c.getBezierPath().size(), nodes(c.getBezierPath()).toString());
+  }
+
+  @Test
+  public void testCachedRouteIsReused() {
+    Drawing drawing = new QuadTreeDrawing();
+    RectangleFigure start = new RectangleFigure(0, 0, 20, 20);
+    RectangleFigure obstacle = new RectangleFigure(60, 10, 30, 60);
+    RectangleFigure end = new RectangleFigure(150, 100, 20, 20);
+    drawing.add(start);
+    drawing.add(obstacle);
+    drawing.add(end);
+    LineConnectionFigure c = connect(drawing, start, end);
+    List<String> first = nodes(c.getBezierPath());
+    c.willChange();
+    c.updateConnection();
+    c.changed();
+    assertEquals(first, nodes(c.getBezierPath()));
+    assertOrthogonal(c.getBezierPath());
+    assertFalse(crosses(c.getBezierPath(), obstacle.getBounds()));
+  }
+
+  @Test
+  public void testChangedFigureInvalidatesNearbyRoutesOnly() {
+    Drawing drawing = new QuadTreeDrawing();
+    RectangleFigure start = new RectangleFigure(0, 0, 20, 20);
+    RectangleFigure end = new RectangleFigure(150, 0, 20, 20);
+    RectangleFigure far = new RectangleFigure(1000, 1000, 20, 20);
+    drawing.add(start);
+    drawing.add(end);
+    drawing.add(far);
+    LineConnectionFigure c = connect(drawing, start, end);
+    OrthogonalLiner liner = (OrthogonalLiner) c.getLiner();
+    assertEquals(2, c.getBezierPath().size());
+    assertTrue(liner.isRouteCached());
+
+    move(far, 0, 100);
+    assertTrue(liner.isRouteCached());
+
+    // Moving a figure into the route invalidates the cached route
+    move(far, 60 - 1000, -20 - 1100);
+    assertFalse(liner.isRouteCached());
+    c.lineout();
+    assertTrue(liner.isRouteCached());
+    assertFalse(crosses(c.getBezierPath(), far.getBounds()));
+
+    drawing.remove(c);
+    move(far, 0, 100);
+    assertTrue(liner.isRouteCached());
+  }
+
+  private static void move(Figure f, double dx, double dy) {
+    f.willChange();
+    f.transform(java.awt.geom.AffineTransform.getTranslateInstance(dx, dy));
+    f.changed();
+  }
+
+  @Test
+  public void testManyConnections() {
+    Drawing drawing = new QuadTreeDrawing();
+    int columns = 50;
+    int rows = 40;
+    List<Figure> nodes = new ArrayList<>();
+    for (int j = 0; j < rows; j++) {
+      for (int i = 0; i < columns; i++) {
+        RectangleFigure f = new RectangleFigure(i * 80, j * 60, 40, 30);
+        nodes.add(f);
+        drawing.add(f);
+      }
+    }
+    Random random = new Random(7);
+    List<LineConnectionFigure> connections = new ArrayList<>();
+    for (int k = 0; k < 5000; k++) {
+      int a = random.nextInt(nodes.size());
+      int i = a % columns + random.nextInt(5) - 2;
+      int j = a / columns + random.nextInt(5) - 2;
+      int b = Math.max(0, Math.min(rows - 1, j)) * columns + Math.max(0, Math.min(columns - 1, i));
+      if (a != b) {
+        connections.add(connect(drawing, nodes.get(a), nodes.get(b)));
+      }
+    }
+    // Routing again without changes uses the cached routes
+    for (LineConnectionFigure c : connections) {
+      c.lineout();
+    }
+    for (LineConnectionFigure c : connections) {
+      assertOrthogonal(c.getBezierPath());
+    }
+  }
+
+  @Test
+  public void testLongRouteOverManyUnalignedFigures() {
+    Drawing drawing = new QuadTreeDrawing();
+    int size = 45;
+    Random random = new Random(3);
+    List<Figure> figures = new ArrayList<>();
+    for (int j = 0; j < size; j++) {
+      for (int i = 0; i < size; i++) {
+        // The figures do not share coordinates, and leave channels between each other
+        RectangleFigure f =
+            new RectangleFigure(
+                i * 80 + random.nextDouble() * 20, j * 80 + random.nextDouble() * 20, 30, 20);
+        figures.add(f);
+        drawing.add(f);
+      }
+    }
+    Figure start = figures.get(0);
+    Figure end = figures.get(figures.size() - 1);
+    long time = System.nanoTime();
+    LineConnectionFigure c = connect(drawing, start, end);
+    time = System.nanoTime() - time;
+
+    BezierPath path = c.getBezierPath();
+    assertOrthogonal(path);
+    for (Figure f : figures) {
+      if (f != start && f != end) {
+        assertFalse(crosses(path, f.getBounds()), f.getBounds().toString());
+      }
+    }
+    assertTrue(time < 2_000_000_000L, "routing took " + time / 1_000_000 + " ms");
+  }
+
+  private static List<String> nodes(BezierPath path) {
+    List<String> list = new ArrayList<>();
+    for (BezierPath.Node n : path) {
+      list.add(n.x[0] + "," + n.y[0]);
+    }
+    return list;
+  }
+}
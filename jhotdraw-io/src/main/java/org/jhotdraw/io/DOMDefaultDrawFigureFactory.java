@@ -42,6 +42,7 @@ import org.jhotdraw.draw.figure.TriangleFigure;
 import org.jhotdraw.draw.liner.CurvedLiner;
 import org.jhotdraw.draw.liner.ElbowLiner;
 import org.jhotdraw.draw.liner.Liner;
+import org.jhotdraw.draw.liner.OrthogonalLiner;
 import org.jhotdraw.draw.locator.Locator;
 import org.jhotdraw.draw.locator.RelativeLocator;
 import org.jhotdraw.geom.BezierPath;
@@ -171,6 +172,11 @@ public class DOMDefaultDrawFigureFactory extends DefaultDOMFactory {
     register("relativeLoc", RelativeLocator.class, (f, i) -> {}, (f, o) -> {}); // do nothing;
     register("elbowLiner", ElbowLiner.class, (f, i) -> {}, (f, o) -> {}); // do nothing
     register("curvedLiner", CurvedLiner.class, (f, i) -> {}, (f, o) -> {}); // do nothing
+    register(
+        "orthogonalLiner",
+        OrthogonalLiner.class,
+        DOMDefaultDrawFigureFactory::readOrthogonalLiner,
+        DOMDefaultDrawFigureFactory::writeOrthogonalLiner);
 
     for (Object[] o : ENUM_TAGS) {
       addEnumClass((String) o[1], (Class) o[0]);
@@ -243,6 +249,18 @@ public class DOMDefaultDrawFigureFactory extends DefaultDOMFactory {
     readPointsForLineConnection(figure, domInput);
   }
 
+  public static void readOrthogonalLiner(OrthogonalLiner liner, DOMInput domInput)
+      throws IOException {
+    liner.setMargin(domInput.getAttribute("margin", 10d));
+    liner.setBendPenalty(domInput.getAttribute("bendPenalty", 20d));
+  }
+
+  public static void writeOrthogonalLiner(OrthogonalLiner liner, DOMOutput domOutput)
+      throws IOException {
+    domOutput.addAttribute("margin", liner.getMargin(), 10d);
+    domOutput.addAttribute("bendPenalty", liner.getBendPenalty(), 20d);
+  }
+
   public static void readLiner(LineConnectionFigure figure, DOMInput domInput) throws IOException {
     if (domInput.getElementCount("liner") > 0) {
       domInput.openElement("liner");
@@ -14,6 +14,7 @@ import java.io.*;
 import java.util.LinkedList;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import org.jhotdraw.draw.*;
+import org.jhotdraw.draw.figure.Attributes;
 import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.io.InputFormat;
 import org.jhotdraw.xml.*;
@@ -94,15 +95,18 @@ public class DOMStorableInputFormat implements InputFormat {
 
   @Override
   public void read(InputStream in, Drawing drawing, boolean replace) throws IOException {
-    JavaxDOMInput domi = new JavaxDOMInput(factory, in);
+    StaxDOMInput domi = new StaxDOMInput(factory, in);
     domi.openElement(factory.getName(drawing));
     domi.openElement("figures");
     if (replace) {
       drawing.removeAllChildren();
     }
-    for (int i = 0; i < domi.getElementCount(); i++) {
-      drawing.add((Figure) domi.readObject(i));
+    LinkedList<Figure> figures = new LinkedList<>();
+    for (int i = 0, n = domi.getElementCount(); i < n; i++) {
+      figures.add((Figure) domi.readObject(i));
     }
+    Attributes.intern(figures);
+    drawing.addAll(figures);
     domi.closeElement();
     domi.closeElement();
   }
@@ -112,12 +116,13 @@ public class DOMStorableInputFormat implements InputFormat {
       throws UnsupportedFlavorException, IOException {
     LinkedList<Figure> figures = new LinkedList<>();
     InputStream in = (InputStream) t.getTransferData(new DataFlavor(mimeType, description));
-    JavaxDOMInput domi = new JavaxDOMInput(factory, in);
+    StaxDOMInput domi = new StaxDOMInput(factory, in);
     domi.openElement("Drawing-Clip");
     for (int i = 0, n = domi.getElementCount(); i < n; i++) {
       figures.add((Figure) domi.readObject(i));
     }
     domi.closeElement();
+    Attributes.intern(figures);
     if (replace) {
       drawing.removeAllChildren();
     }
@@ -89,7 +89,7 @@ public class DOMStorableOutputFormat implements OutputFormat {
 
   @Override
   public void write(OutputStream out, Drawing drawing) throws IOException {
-    JavaxDOMOutput domo = new JavaxDOMOutput(factory);
+    StaxDOMOutput domo = new StaxDOMOutput(factory, out);
     domo.openElement(factory.getName(drawing));
     //    drawing.write(domo);
     domo.openElement("figures");
@@ -98,20 +98,20 @@ public class DOMStorableOutputFormat implements OutputFormat {
     }
     domo.closeElement();
     domo.closeElement();
-    domo.save(out);
+    domo.finish();
   }
 
   @Override
   public Transferable createTransferable(Drawing drawing, List<Figure> figures, double scaleFactor)
       throws IOException {
     ByteArrayOutputStream buf = new ByteArrayOutputStream();
-    JavaxDOMOutput domo = new JavaxDOMOutput(factory);
+    StaxDOMOutput domo = new StaxDOMOutput(factory, buf);
     domo.openElement("Drawing-Clip");
     for (Figure f : figures) {
       domo.writeObject(f);
     }
     domo.closeElement();
-    domo.save(buf);
+    domo.finish();
     return new InputStreamTransferable(new DataFlavor(mimeType, description), buf.toByteArray());
   }
 }
@@ -43,6 +43,8 @@ public class ImageOutputFormat implements OutputFormat {
    * BufferedImage.TYPE_INT_ARGB whereas GIF needs BufferedImage.TYPE_
    */
   private int imageType;
+  /** Renders the figures in parallel tiles. */
+  private final ParallelTileRenderer renderer = new ParallelTileRenderer();
 
   /** Creates a new image output format for Portable Network Graphics PNG. */
   public ImageOutputFormat() {
@@ -247,13 +249,14 @@ public class ImageOutputFormat implements OutputFormat {
     g.setColor(background);
     g.fillRect(0, 0, buf.getWidth(), buf.getHeight());
     g.setComposite(savedComposite);
-    // Draw the figures onto the buffered image
-    setRenderingHints(g);
-    g.transform(transform);
-    for (Figure f : figures) {
-      f.draw(g);
-    }
     g.dispose();
+    // Draw the figures onto the buffered image, using multiple threads for large images
+    renderer.render(
+        buf,
+        new Rectangle(0, 0, buf.getWidth(), buf.getHeight()),
+        figures,
+        transform,
+        this::setRenderingHints);
     // Convert the image, if it does not have the specified image type
     if (imageType != BufferedImage.TYPE_INT_ARGB) {
       BufferedImage buf2 = new BufferedImage(buf.getWidth(), buf.getHeight(), imageType);
@@ -22,6 +22,9 @@ package org.jhotdraw.io;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.awt.Color;
+import java.awt.geom.Point2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -30,11 +33,18 @@ import java.util.logging.Logger;
 import org.jhotdraw.draw.AttributeKeys;
 import org.jhotdraw.draw.DefaultDrawing;
 import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.connector.ChopRectangleConnector;
+import org.jhotdraw.draw.decoration.ArrowTip;
 import org.jhotdraw.draw.figure.BezierFigure;
 import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.draw.figure.GroupFigure;
+import org.jhotdraw.draw.figure.LineConnectionFigure;
 import org.jhotdraw.draw.figure.RectangleFigure;
+import org.jhotdraw.draw.figure.RoundRectangleFigure;
+import org.jhotdraw.draw.figure.TextFigure;
 import org.jhotdraw.draw.io.InputFormat;
 import org.jhotdraw.draw.io.OutputFormat;
+import org.jhotdraw.draw.liner.OrthogonalLiner;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -101,6 +111,110 @@ public class DOMStorableInputOutputFormatTest {
         .areIdentical();
   }
 
+  @Test
+  public void testManyFiguresInOut() throws IOException {
+    Drawing drawing = new DefaultDrawing();
+    java.util.List<Figure> figures = new java.util.ArrayList<>();
+    for (int i = 0; i < 20000; i++) {
+      RectangleFigure rect = new RectangleFigure(i, i * 0.5, 10, 20);
+      rect.attr().set(AttributeKeys.FILL_COLOR, new Color(i % 256, 0, 0));
+      figures.add(rect);
+    }
+    drawing.addAll(figures);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new DOMStorableOutputFormat(new DOMDefaultDrawFigureFactory()).write(out, drawing);
+    Drawing result = new DefaultDrawing();
+    new DOMStorableInputFormat(new DOMDefaultDrawFigureFactory())
+        .read(new ByteArrayInputStream(out.toByteArray()), result, true);
+
+    assertThat(result.getChildren()).hasSize(20000);
+    Figure rect = result.getChild(12345);
+    assertThat(rect).isInstanceOf(RectangleFigure.class);
+    assertThat(rect.getBounds()).isEqualTo(figures.get(12345).getBounds());
+    assertThat(rect.attr().get(AttributeKeys.FILL_COLOR)).isEqualTo(new Color(12345 % 256, 0, 0));
+  }
+
+  @Test
+  public void testOrthogonalLinerInOut() throws IOException {
+    Drawing drawing = new DefaultDrawing();
+    RectangleFigure start = new RectangleFigure(0, 0, 20, 20);
+    RectangleFigure end = new RectangleFigure(200, 100, 20, 20);
+    LineConnectionFigure connection = new LineConnectionFigure();
+    connection.setLiner(new OrthogonalLiner(5, 30));
+    drawing.add(start);
+    drawing.add(end);
+    drawing.add(connection);
+    connection.setStartConnector(new ChopRectangleConnector(start));
+    connection.setEndConnector(new ChopRectangleConnector(end));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new DOMStorableOutputFormat(new DOMDefaultDrawFigureFactory()).write(out, drawing);
+    Drawing result = new DefaultDrawing();
+    new DOMStorableInputFormat(new DOMDefaultDrawFigureFactory())
+        .read(new ByteArrayInputStream(out.toByteArray()), result, true);
+
+    LineConnectionFigure c = (LineConnectionFigure) result.getChild(2);
+    assertThat(c.getLiner()).isInstanceOf(OrthogonalLiner.class);
+    OrthogonalLiner liner = (OrthogonalLiner) c.getLiner();
+    assertThat(liner.getMargin()).isEqualTo(5);
+    assertThat(liner.getBendPenalty()).isEqualTo(30);
+    assertThat(c.getNodeCount()).isEqualTo(connection.getNodeCount());
+  }
+
+  @Test
+  public void testAttributesAfterChildrenInOut() throws IOException {
+    Drawing drawing = new DefaultDrawing();
+    RoundRectangleFigure rr = new RoundRectangleFigure(10, 10, 80, 40);
+    rr.setArc(12, 8);
+    rr.attr().set(AttributeKeys.FILL_COLOR, Color.RED);
+    GroupFigure group = new GroupFigure();
+    RectangleFigure rect = new RectangleFigure(200, 100, 30, 30);
+    rect.attr().set(AttributeKeys.STROKE_WIDTH, 2.5);
+    TextFigure text = new TextFigure("Hello");
+    text.setBounds(new Point2D.Double(210, 150), new Point2D.Double(260, 170));
+    text.attr().set(AttributeKeys.TEXT_COLOR, Color.BLUE);
+    text.attr().set(AttributeKeys.FONT_SIZE, 18.0);
+    group.add(rect);
+    group.add(text);
+    LineConnectionFigure connection = new LineConnectionFigure();
+    connection.attr().set(AttributeKeys.STROKE_COLOR, Color.GREEN);
+    connection.attr().set(AttributeKeys.END_DECORATION, new ArrowTip());
+    drawing.add(rr);
+    drawing.add(group);
+    drawing.add(connection);
+    connection.setStartConnector(new ChopRectangleConnector(rr));
+    connection.setEndConnector(new ChopRectangleConnector(rect));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new DOMStorableOutputFormat(new DOMDefaultDrawFigureFactory()).write(out, drawing);
+    Drawing result = new DefaultDrawing();
+    new DOMStorableInputFormat(new DOMDefaultDrawFigureFactory())
+        .read(new ByteArrayInputStream(out.toByteArray()), result, true);
+
+    assertThat(result.getChildren()).hasSize(3);
+    RoundRectangleFigure rr2 = (RoundRectangleFigure) result.getChild(0);
+    assertThat(rr2.getBounds()).isEqualTo(rr.getBounds());
+    assertThat(rr2.getArcWidth()).isEqualTo(12);
+    assertThat(rr2.getArcHeight()).isEqualTo(8);
+    assertThat(rr2.attr().get(AttributeKeys.FILL_COLOR)).isEqualTo(Color.RED);
+    GroupFigure group2 = (GroupFigure) result.getChild(1);
+    assertThat(group2.getChildren()).hasSize(2);
+    RectangleFigure rect2 = (RectangleFigure) group2.getChild(0);
+    assertThat(rect2.getBounds()).isEqualTo(rect.getBounds());
+    assertThat(rect2.attr().get(AttributeKeys.STROKE_WIDTH)).isEqualTo(2.5);
+    TextFigure text2 = (TextFigure) group2.getChild(1);
+    assertThat(text2.getText()).isEqualTo("Hello");
+    assertThat(text2.getStartPoint()).isEqualTo(text.getStartPoint());
+    assertThat(text2.attr().get(AttributeKeys.TEXT_COLOR)).isEqualTo(Color.BLUE);
+    assertThat(text2.attr().get(AttributeKeys.FONT_SIZE)).isEqualTo(18.0);
+    LineConnectionFigure connection2 = (LineConnectionFigure) result.getChild(2);
+    assertThat(connection2.attr().get(AttributeKeys.STROKE_COLOR)).isEqualTo(Color.GREEN);
+    assertThat(connection2.attr().get(AttributeKeys.END_DECORATION)).isInstanceOf(ArrowTip.class);
+    assertThat(connection2.getStartFigure()).isSameAs(rr2);
+    assertThat(connection2.getEndFigure()).isSameAs(rect2);
+  }
+
   private static final Logger LOG =
       Logger.getLogger(DOMStorableInputOutputFormatTest.class.getName());
 
@@ -29,6 +29,7 @@ import org.jhotdraw.draw.figure.TextFigure;
 import org.jhotdraw.draw.figure.TriangleFigure;
 import org.jhotdraw.draw.liner.CurvedLiner;
 import org.jhotdraw.draw.liner.ElbowLiner;
+import org.jhotdraw.draw.liner.OrthogonalLiner;
 import org.jhotdraw.xml.DefaultDOMFactory;
 
 /**
@@ -64,7 +65,8 @@ public class DrawFigureFactory extends DefaultDOMFactory {
     {ChopDiamondConnector.class, "diamondConnector"},
     {ChopBezierConnector.class, "bezierConnector"},
     {ElbowLiner.class, "elbowLiner"},
-    {CurvedLiner.class, "curvedLiner"}
+    {CurvedLiner.class, "curvedLiner"},
+    {OrthogonalLiner.class, "orthogonalLiner"}
   };
 
   private static final Object[][] ENUM_TAGS = {
@@ -32,8 +32,6 @@ import org.jhotdraw.draw.handle.Handle;
 import org.jhotdraw.draw.handle.TransformHandleKit;
 import org.jhotdraw.geom.BezierPath;
 import org.jhotdraw.geom.Geom;
-import org.jhotdraw.geom.GrowStroke;
-import org.jhotdraw.geom.Shapes;
 import org.jhotdraw.samples.odg.Gradient;
 import org.jhotdraw.samples.odg.ODGAttributeKeys;
 import org.jhotdraw.samples.odg.ODGConstants;
@@ -206,12 +204,9 @@ public class ODGPathFigure extends AbstractAttributedCompositeFigure implements
       if (getPath().contains(p)) {
         return true;
       }
+      // The point is outside of the path. It hits the figure, if it is near the outline.
       double grow = AttributeKeys.getPerpendicularHitGrowth(this, 1.0) * 2d;
-      GrowStroke gs =
-          new GrowStroke(
-              grow,
-              (AttributeKeys.getStrokeTotalWidth(this, 1.0) * attr().get(STROKE_MITER_LIMIT)));
-      if (gs.createStrokedShape(getPath()).contains(p)) {
+      if (grow > 0 && outlineDistance(p) <= grow) {
         return true;
       } else {
         if (isClosed) {
@@ -220,12 +215,33 @@ public class ODGPathFigure extends AbstractAttributedCompositeFigure implements
       }
     }
     if (!isClosed) {
-      if (Shapes.outlineContains(getPath(), p, tolerance)) {
+      if (outlineContains(p, tolerance)) {
         return true;
       }
     }
     return false;
   }
+  /**
+   * Returns true if the outline of a child path contains the point. Each child hit tests its path
+   * with the segment index of the path.
+   */
+  private boolean outlineContains(Point2D.Double p, double tolerance) {
+    for (int i = 0, n = getChildCount(); i < n; i++) {
+      if (getChild(i).outlineContains(p, tolerance)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the distance from the point to the nearest outline of the child paths. */
+  private double outlineDistance(Point2D.Double p) {
+    double distance = Double.POSITIVE_INFINITY;
+    for (int i = 0, n = getChildCount(); i < n; i++) {
+      distance = Math.min(distance, getChild(i).outlineDistance(p, 0.1));
+    }
+    return distance;
+  }
 
   @Override
   public void setBounds(Point2D.Double anchor, Point2D.Double lead) {
@@ -22,7 +22,6 @@ import org.jhotdraw.draw.DrawingView;
 import org.jhotdraw.draw.figure.CompositeFigure;
 import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.figure.ImageHolderFigure;
-import org.jhotdraw.draw.io.InputFormat;
 import org.jhotdraw.draw.tool.CreationTool;
 import org.jhotdraw.samples.svg.io.SVGInputFormat;
 import org.jhotdraw.samples.svg.io.SVGZInputFormat;
@@ -112,10 +111,11 @@ public class SVGCreateFromFileTool extends CreationTool {
           @Override
           protected Drawing doInBackground() throws Exception {
             Drawing drawing = new DefaultDrawing();
-            InputFormat in =
+            SVGInputFormat in =
                 (file.getName().toLowerCase().endsWith(".svg"))
                     ? new SVGInputFormat()
                     : new SVGZInputFormat();
+            in.setStreaming(true);
             in.read(file.toURI(), drawing);
             return drawing;
           }
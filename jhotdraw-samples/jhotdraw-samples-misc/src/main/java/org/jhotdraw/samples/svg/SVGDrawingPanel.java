@@ -197,7 +197,10 @@ public class SVGDrawingPanel extends JPanel implements Disposable {
   public Drawing createDrawing() {
     Drawing drawing = new QuadTreeDrawing();
     LinkedList<InputFormat> inputFormats = new LinkedList<InputFormat>();
-    inputFormats.add(new SVGZInputFormat());
+    // The streaming formats read and write large drawings without building a DOM
+    SVGZInputFormat svgzInputFormat = new SVGZInputFormat();
+    svgzInputFormat.setStreaming(true);
+    inputFormats.add(svgzInputFormat);
     inputFormats.add(
         new ImageInputFormat(
             new SVGImageFigure(), "PNG", "Portable Network Graphics (PNG)", "png", "image/png"));
@@ -214,8 +217,12 @@ public class SVGDrawingPanel extends JPanel implements Disposable {
     inputFormats.add(new TextInputFormat(new SVGTextFigure()));
     drawing.setInputFormats(inputFormats);
     LinkedList<OutputFormat> outputFormats = new LinkedList<OutputFormat>();
-    outputFormats.add(new SVGOutputFormat());
-    outputFormats.add(new SVGZOutputFormat());
+    SVGOutputFormat svgOutputFormat = new SVGOutputFormat();
+    svgOutputFormat.setStreaming(true);
+    outputFormats.add(svgOutputFormat);
+    SVGZOutputFormat svgzOutputFormat = new SVGZOutputFormat();
+    svgzOutputFormat.setStreaming(true);
+    outputFormats.add(svgzOutputFormat);
     outputFormats.add(new ImageOutputFormat());
     outputFormats.add(
         new ImageOutputFormat(
@@ -117,7 +117,9 @@ public class SVGView extends AbstractView {
   /** Writes the view to the specified uri. */
   @Override
   public void write(URI uri, URIChooser chooser) throws IOException {
-    new SVGOutputFormat().write(new File(uri), svgPanel.getDrawing());
+    SVGOutputFormat format = new SVGOutputFormat();
+    format.setStreaming(true);
+    format.write(new File(uri), svgPanel.getDrawing());
   }
 
   /** Reads the view from the specified uri. */
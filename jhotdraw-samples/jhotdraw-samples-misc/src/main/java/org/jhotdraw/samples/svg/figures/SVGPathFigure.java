@@ -30,8 +30,6 @@ import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.handle.Handle;
 import org.jhotdraw.draw.handle.TransformHandleKit;
 import org.jhotdraw.geom.Geom;
-import org.jhotdraw.geom.GrowStroke;
-import org.jhotdraw.geom.Shapes;
 import org.jhotdraw.samples.svg.Gradient;
 import org.jhotdraw.samples.svg.SVGAttributeKeys;
 import org.jhotdraw.util.*;
@@ -230,14 +228,9 @@ public class SVGPathFigure extends AbstractAttributedCompositeFigure implements
       if (getPath().contains(p)) {
         return true;
       }
-      double grow = AttributeKeys.getPerpendicularHitGrowth(this, 1.0)
-          /** 2d */
-          ;
-      GrowStroke gs =
-          new GrowStroke(
-              grow,
-              (AttributeKeys.getStrokeTotalWidth(this, 1.0) * attr().get(STROKE_MITER_LIMIT)));
-      if (gs.createStrokedShape(getPath()).contains(p)) {
+      // The point is outside of the path. It hits the figure, if it is near the outline.
+      double grow = AttributeKeys.getPerpendicularHitGrowth(this, 1.0);
+      if (grow > 0 && outlineDistance(p) <= grow) {
         return true;
       } else {
         if (isClosed) {
@@ -246,12 +239,33 @@ public class SVGPathFigure extends AbstractAttributedCompositeFigure implements
       }
     }
     if (!isClosed) {
-      if (Shapes.outlineContains(getPath(), p, tolerance)) {
+      if (outlineContains(p, tolerance)) {
         return true;
       }
     }
     return false;
   }
+  /**
+   * Returns true if the outline of a child path contains the point. Each child hit tests its path
+   * with the segment index of the path.
+   */
+  private boolean outlineContains(Point2D.Double p, double tolerance) {
+    for (int i = 0, n = getChildCount(); i < n; i++) {
+      if (getChild(i).outlineContains(p, tolerance)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the distance from the point to the nearest outline of the child paths. */
+  private double outlineDistance(Point2D.Double p) {
+    double distance = Double.POSITIVE_INFINITY;
+    for (int i = 0, n = getChildCount(); i < n; i++) {
+      distance = Math.min(distance, getChild(i).outlineDistance(p, 0.1));
+    }
+    return distance;
+  }
 
   @Override
   public void setBounds(Point2D.Double anchor, Point2D.Double lead) {
@@ -520,10 +534,14 @@ public class SVGPathFigure extends AbstractAttributedCompositeFigure implements
       }
     }
     if (attr().get(FILL_GRADIENT) != null) {
-      attr().get(FILL_GRADIENT).transform(tx);
+      Gradient g = FILL_GRADIENT.getClone(this);
+      g.transform(tx);
+      attr().set(FILL_GRADIENT, g);
     }
     if (attr().get(STROKE_GRADIENT) != null) {
-      attr().get(STROKE_GRADIENT).transform(tx);
+      Gradient g = STROKE_GRADIENT.getClone(this);
+      g.transform(tx);
+      attr().set(STROKE_GRADIENT, g);
     }
     attr().set(TRANSFORM, null);
     changed();
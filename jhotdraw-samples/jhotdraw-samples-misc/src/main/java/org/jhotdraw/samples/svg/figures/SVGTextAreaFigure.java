@@ -57,6 +57,8 @@ public class SVGTextAreaFigure extends SVGAttributedFigure implements SVGFigure,
   private transient Rectangle2D.Double cachedDrawingArea;
 
   private transient Shape cachedTextShape;
+  /** Caches the preferred text sizes by maximal width. */
+  private transient HashMap<Double, Dimension2DDouble> cachedPreferredTextSizes;
 
   /** Creates a new instance. */
   public SVGTextAreaFigure() {
@@ -527,6 +529,7 @@ public class SVGTextAreaFigure extends SVGAttributedFigure implements SVGFigure,
     super.invalidate();
     cachedDrawingArea = null;
     cachedTextShape = null;
+    cachedPreferredTextSizes = null;
     isTextOverflow = null;
   }
 
@@ -552,6 +555,21 @@ public class SVGTextAreaFigure extends SVGAttributedFigure implements SVGFigure,
    * @return width and height needed to lay out the text.
    */
   public Dimension2DDouble getPreferredTextSize(double maxWidth) {
+    if (cachedPreferredTextSizes == null) {
+      cachedPreferredTextSizes = new HashMap<>();
+    }
+    Dimension2DDouble size = cachedPreferredTextSizes.get(maxWidth);
+    if (size == null) {
+      size = computePreferredTextSize(maxWidth);
+      if (cachedPreferredTextSizes.size() >= 8) {
+        cachedPreferredTextSizes.clear();
+      }
+      cachedPreferredTextSizes.put(maxWidth, size);
+    }
+    return new Dimension2DDouble(size.width, size.height);
+  }
+
+  private Dimension2DDouble computePreferredTextSize(double maxWidth) {
     Rectangle2D.Double textRect = new Rectangle2D.Double();
     if (getText() != null) {
       Font font = getFont();
@@ -603,6 +621,7 @@ public class SVGTextAreaFigure extends SVGAttributedFigure implements SVGFigure,
   public SVGTextAreaFigure clone() {
     SVGTextAreaFigure that = (SVGTextAreaFigure) super.clone();
     that.bounds = (Rectangle2D.Double) this.bounds.clone();
+    that.cachedPreferredTextSizes = null;
     return that;
   }
 }
@@ -18,6 +18,7 @@ import java.awt.*;
 import java.awt.font.*;
 import java.awt.geom.*;
 import java.util.*;
+import org.jhotdraw.draw.TextLayoutCache;
 import org.jhotdraw.draw.figure.TextHolderFigure;
 import org.jhotdraw.draw.handle.BoundsOutlineHandle;
 import org.jhotdraw.draw.handle.FontSizeHandle;
@@ -110,17 +111,7 @@ public class SVGTextFigure extends SVGAttributedFigure implements TextHolderFigu
     if (cachedBounds == null) {
       cachedBounds = new Rectangle2D.Double();
       cachedBounds.setRect(getTextShape().getBounds2D());
-      String text = getText();
-      if (text == null || text.length() == 0) {
-        text = " ";
-      }
-      FontRenderContext frc = getFontRenderContext();
-      HashMap<TextAttribute, Object> textAttributes = new HashMap<TextAttribute, Object>();
-      textAttributes.put(TextAttribute.FONT, getFont());
-      if (attr().get(FONT_UNDERLINE)) {
-        textAttributes.put(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_ON);
-      }
-      TextLayout textLayout = new TextLayout(text, textAttributes, frc);
+      TextLayoutCache.Entry textLayout = getTextLayout();
       cachedBounds.setRect(
           coordinates[0].x,
           coordinates[0].y - textLayout.getAscent(),
@@ -176,19 +167,18 @@ public class SVGTextFigure extends SVGAttributedFigure implements TextHolderFigu
     return getTextShape().getBounds2D().contains(p);
   }
 
+  /** Returns the shaped text from the text layout cache. */
+  private TextLayoutCache.Entry getTextLayout() {
+    return TextLayoutCache.get(
+        getText(),
+        getFont(),
+        attr().get(FONT_UNDERLINE) ? TextAttribute.UNDERLINE_ON : null,
+        getFontRenderContext());
+  }
+
   private Shape getTextShape() {
     if (cachedTextShape == null) {
-      String text = getText();
-      if (text == null || text.length() == 0) {
-        text = " ";
-      }
-      FontRenderContext frc = getFontRenderContext();
-      HashMap<TextAttribute, Object> textAttributes = new HashMap<TextAttribute, Object>();
-      textAttributes.put(TextAttribute.FONT, getFont());
-      if (attr().get(FONT_UNDERLINE)) {
-        textAttributes.put(TextAttribute.UNDERLINE, TextAttribute.UNDERLINE_ON);
-      }
-      TextLayout textLayout = new TextLayout(text, textAttributes, frc);
+      TextLayoutCache.Entry textLayout = getTextLayout();
       AffineTransform tx = new AffineTransform();
       tx.translate(coordinates[0].x, coordinates[0].y);
       switch (attr().get(TEXT_ANCHOR)) {
@@ -206,8 +196,7 @@ public class SVGTextFigure extends SVGAttributedFigure implements TextHolderFigu
       if (get(TRANSFORM) != null) {
       tx.preConcatenate(get(TRANSFORM));
       }*/
-      cachedTextShape = tx.createTransformedShape(textLayout.getOutline(tx));
-      cachedTextShape = textLayout.getOutline(tx);
+      cachedTextShape = tx.createTransformedShape(textLayout.getOutline());
     }
     return cachedTextShape;
   }
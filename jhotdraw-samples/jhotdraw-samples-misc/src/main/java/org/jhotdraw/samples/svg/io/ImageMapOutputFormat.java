@@ -14,6 +14,7 @@ import java.awt.datatransfer.*;
 import java.awt.geom.*;
 import java.io.*;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.*;
@@ -21,11 +22,6 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 import org.jhotdraw.datatransfer.InputStreamTransferable;
 import org.jhotdraw.draw.*;
 import org.jhotdraw.draw.figure.BezierFigure;
@@ -43,6 +39,8 @@ import org.jhotdraw.samples.svg.figures.SVGTextAreaFigure;
 import org.jhotdraw.samples.svg.figures.SVGTextFigure;
 import org.jhotdraw.util.*;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
 /**
@@ -148,19 +146,22 @@ public class ImageMapOutputFormat implements OutputFormat {
         }
       }
     }
-    try {
-      // Write XML content
-      TransformerFactory tf = TransformerFactory.newInstance();
-      Transformer t = tf.newTransformer();
-      NodeList list = document.getChildNodes();
-      for (int i = list.getLength() - 1; i >= 0; i--) {
-        Element child = (Element) list.item(i);
-        t.transform(new DOMSource(child), new StreamResult(out));
+    // Write XML content
+    XMLWriter w =
+        new XMLWriter(
+            new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), true);
+    NodeList list = document.getChildNodes();
+    for (int i = list.getLength() - 1; i >= 0; i--) {
+      Element child = (Element) list.item(i);
+      w.startElement(child.getTagName());
+      NamedNodeMap attributes = child.getAttributes();
+      for (int j = 0, n = attributes.getLength(); j < n; j++) {
+        Node attribute = attributes.item(j);
+        w.attribute(attribute.getNodeName(), attribute.getNodeValue());
       }
-    } catch (TransformerException ex) {
-      Logger.getLogger(ImageMapOutputFormat.class.getName()).log(Level.SEVERE, null, ex);
-      throw new IOException(ex);
+      w.endElement();
     }
+    w.flush();
   }
 
   /** All other write methods delegate their work to here. */
@@ -22,6 +22,8 @@ import java.text.ParseException;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.imageio.*;
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -30,21 +32,27 @@ import javax.swing.text.DefaultStyledDocument;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.jhotdraw.draw.*;
+import org.jhotdraw.draw.figure.Attributes;
 import org.jhotdraw.draw.figure.CompositeFigure;
 import org.jhotdraw.draw.figure.Figure;
 import org.jhotdraw.draw.io.InputFormat;
 import org.jhotdraw.formatter.FontFormatter;
 import org.jhotdraw.geom.BezierPath;
 import org.jhotdraw.io.Base64;
-import org.jhotdraw.io.StreamPosTokenizer;
 import org.jhotdraw.samples.svg.Gradient;
 import org.jhotdraw.samples.svg.SVGAttributeKeys.TextAnchor;
 import org.jhotdraw.samples.svg.figures.SVGFigure;
 import org.jhotdraw.util.LocaleUtil;
 import org.jhotdraw.xml.css.CSSParser;
 import org.jhotdraw.xml.css.StyleManager;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
@@ -75,8 +83,8 @@ public class SVGInputFormat implements InputFormat {
   private HashMap<String, Element> identifiedElements;
   /** Maps to all drawing objects from the XML elements they were created from. */
   private HashMap<Element, Object> elementObjects;
-  /** Tokenizer for parsing SVG path expressions. */
-  private StreamPosTokenizer toPathTokenizer;
+  /** Scanner for parsing SVG path data, number lists and transform lists. */
+  private SVGScanner scanner = new SVGScanner();
   /** FontFormatter for parsing font family names. */
   private FontFormatter fontFormatter = new FontFormatter();
 
@@ -128,6 +136,52 @@ public class SVGInputFormat implements InputFormat {
   private LinkedList<Figure> figures;
   /** Holds the document that is currently being read. */
   private Element document;
+  /** Whether documents are read with a streaming parser. */
+  private boolean isStreaming;
+  /** Holds the figures of the current document, which are read at the end of the document. */
+  private ArrayList<PendingFigure> pendingFigures;
+  /** Holds the ids which are referenced in the document that is read in streaming mode. */
+  private HashSet<String> referencedIds;
+  /** Matches a reference to an element in an attribute value or a style sheet. */
+  private static final Pattern URL_REFERENCE = Pattern.compile("url\\(\\s*#([^)\\s]+)\\s*\\)");
+
+  /** An element that is open while a document is read in streaming mode. */
+  private static class StreamFrame {
+
+    /** The element. */
+    final Element elem;
+    /** The figures read from the child elements. Not used by "svg" elements. */
+    final ArrayList<Figure> children = new ArrayList<Figure>();
+    /** The placeholders of figures in this element, which are read at the end of the document. */
+    final ArrayList<PendingFigure> pending = new ArrayList<PendingFigure>();
+    /** The view box transform of an "svg" element. This is null for all other elements. */
+    AffineTransform viewBoxTransform;
+
+    StreamFrame(Element elem) {
+      this.elem = elem;
+    }
+  }
+
+  /**
+   * A figure that references an element which appears later in the document. It is represented by a
+   * placeholder figure, until the end of the document has been reached.
+   */
+  private static class PendingFigure {
+
+    final Element elem;
+    final Figure placeholder;
+    final Viewport viewport;
+    /** The transforms of the enclosing elements, which have been applied to the placeholder. */
+    final AffineTransform transform = new AffineTransform();
+    /** The group that holds the placeholder, or null if the placeholder is a top level figure. */
+    CompositeFigure parent;
+
+    PendingFigure(Element elem, Figure placeholder, Viewport viewport) {
+      this.elem = elem;
+      this.placeholder = placeholder;
+      this.viewport = viewport;
+    }
+  }
 
   /** Creates a new instance. */
   public SVGInputFormat() {
@@ -138,6 +192,25 @@ public class SVGInputFormat implements InputFormat {
     this.factory = factory;
   }
 
+  /**
+   * Sets whether documents are read with a streaming parser instead of a DOM parser.
+   *
+   * <p>In streaming mode, the document is scanned once for the ids which are referenced and for its
+   * CSS style sheets, and then the figures are built in a single pass over the document. Only the
+   * parts of the document that are needed for resolving inherited attributes and references are
+   * kept in memory: the ancestors of the current element, "defs" elements, gradients and elements
+   * whose id is referenced. Figures that reference an element which appears later in the document
+   * are read at the end of the document. The default value is false.
+   */
+  public void setStreaming(boolean newValue) {
+    isStreaming = newValue;
+  }
+
+  /** Returns true if documents are read with a streaming parser. */
+  public boolean isStreaming() {
+    return isStreaming;
+  }
+
   public void read(File file, Drawing drawing, boolean replace) throws IOException {
     this.url = file.toURI().toURL();
     BufferedInputStream in = new BufferedInputStream(new FileInputStream(file));
@@ -170,7 +243,10 @@ public class SVGInputFormat implements InputFormat {
    */
   @Override
   public void read(InputStream in, Drawing drawing, boolean replace) throws IOException {
-    long start;
+    if (isStreaming) {
+      readStreaming(in, drawing, replace);
+      return;
+    }
     this.figures = new LinkedList<Figure>();
     DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
     DocumentBuilder builder;
@@ -222,7 +298,17 @@ public class SVGInputFormat implements InputFormat {
     flattenStyles(svg);
     // long end2 = System.currentTimeMillis();
     readElement(svg);
+    addFiguresTo(drawing, replace);
+    document = null;
+  }
 
+  /**
+   * Adds the figures that have been read to the drawing, and releases all objects that are not
+   * needed anymore.
+   */
+  private void addFiguresTo(Drawing drawing, boolean replace) {
+    // Share the attributes of equally styled figures
+    Attributes.intern(figures);
     if (replace) {
       drawing.removeAllChildren();
     }
@@ -239,13 +325,463 @@ public class SVGInputFormat implements InputFormat {
     elementObjects.clear();
     viewportStack.clear();
     styleManager.clear();
-    document = null;
+    figures = null;
     identifiedElements = null;
     elementObjects = null;
     viewportStack = null;
     styleManager = null;
   }
 
+  /**
+   * Reads a document with a streaming parser.
+   *
+   * <p>The document is buffered, because it is scanned before it is read. The buffer is much
+   * smaller than a DOM of the document.
+   *
+   * @return The "svg" element, which holds the elements that have been kept for references. This is
+   *     used by tests.
+   */
+  Element readStreaming(InputStream in, Drawing drawing, boolean replace) throws IOException {
+    byte[] data = in.readAllBytes();
+    figures = new LinkedList<Figure>();
+    pendingFigures = new ArrayList<PendingFigure>();
+    referencedIds = new HashSet<String>();
+    identifiedElements = new HashMap<String, Element>();
+    elementObjects = new HashMap<Element, Object>();
+    viewportStack = new Stack<Viewport>();
+    viewportStack.push(new Viewport());
+    styleManager = new StyleManager();
+    Document doc;
+    try {
+      doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    } catch (ParserConfigurationException ex) {
+      throw new IOException(ex);
+    }
+    XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    // Do not fetch external DTD's, such as the SVG DTD, from the network
+    inputFactory.setXMLResolver(
+        (publicID, systemID, baseURI, namespace) -> new ByteArrayInputStream(new byte[0]));
+    Element svg;
+    try {
+      scanDocument(inputFactory, data);
+      XMLStreamReader reader = inputFactory.createXMLStreamReader(new ByteArrayInputStream(data));
+      try {
+        svg = readStreamingDocument(reader, doc);
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex);
+    }
+    for (PendingFigure p : pendingFigures) {
+      readPendingFigure(p);
+    }
+    pendingFigures = null;
+    referencedIds = null;
+    addFiguresTo(drawing, replace);
+    return svg;
+  }
+
+  /**
+   * Scans a document before it is read in streaming mode.
+   *
+   * <p>Collects the ids which are referenced by "href" attributes and by "url(#...)" values, so
+   * that only the elements with these ids are kept while the document is read. Reads the CSS style
+   * sheets, so that their rules also apply to the elements which precede them.
+   */
+  private void scanDocument(XMLInputFactory inputFactory, byte[] data)
+      throws IOException, XMLStreamException {
+    XMLStreamReader reader = inputFactory.createXMLStreamReader(new ByteArrayInputStream(data));
+    try {
+      // The text of the style sheet that is currently being scanned
+      StringBuilder styleSheet = null;
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            for (int i = 0, n = reader.getAttributeCount(); i < n; i++) {
+              String value = reader.getAttributeValue(i).trim();
+              if ("href".equals(reader.getAttributeLocalName(i))) {
+                if (value.startsWith("#")) {
+                  referencedIds.add(value.substring(1));
+                }
+              } else {
+                addURLReferences(value);
+              }
+            }
+            if (isSVGNamespace(reader.getNamespaceURI())
+                && "style".equals(reader.getLocalName())
+                && "text/css".equals(reader.getAttributeValue(null, "type"))) {
+              styleSheet = new StringBuilder();
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+            if (styleSheet != null) {
+              styleSheet.append(reader.getText());
+            }
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            if (styleSheet != null) {
+              addURLReferences(styleSheet.toString());
+              new CSSParser().parse(styleSheet.toString(), styleManager);
+              styleSheet = null;
+            }
+            break;
+          default:
+            break;
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  /** Adds the ids of all "url(#...)" references in a value to {@code referencedIds}. */
+  private void addURLReferences(String value) {
+    if (value.contains("url(")) {
+      Matcher m = URL_REFERENCE.matcher(value);
+      while (m.find()) {
+        referencedIds.add(m.group(1));
+      }
+    }
+  }
+
+  /**
+   * Reads the first "svg" element of a document and builds its figures.
+   *
+   * <p>The "svg", "g" and "a" elements are read as they are streamed. All other elements are read
+   * into a small DOM subtree, which is read with {@link #readElement} when the element ends. The
+   * elements are appended to the elements that enclose them, so that inherited attributes can be
+   * read. An element is removed again after it has been read, unless it can be referenced.
+   *
+   * <p>The CSS style sheets have already been read by {@link #scanDocument}.
+   *
+   * @return The "svg" element.
+   */
+  private Element readStreamingDocument(XMLStreamReader reader, Document doc)
+      throws IOException, XMLStreamException {
+    ArrayDeque<StreamFrame> frames = new ArrayDeque<StreamFrame>();
+    // The subtree that is currently being read into the DOM, and its current element
+    Element subtree = null;
+    Element current = null;
+    // The depth of the elements in a foreign namespace that are skipped
+    int skipDepth = 0;
+    while (reader.hasNext()) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          if (skipDepth > 0 || !isSVGNamespace(reader.getNamespaceURI())) {
+            if (!frames.isEmpty()) {
+              skipDepth++;
+            }
+            break;
+          }
+          if (frames.isEmpty() && !"svg".equals(reader.getLocalName())) {
+            // Search for the first 'svg' element in preorder sequence
+            break;
+          }
+          Element elem = createElement(doc, reader);
+          if (current != null) {
+            current.appendChild(elem);
+            current = elem;
+          } else if (!frames.isEmpty()) {
+            frames.peek().elem.appendChild(elem);
+          }
+          identifyElement(elem);
+          flattenStyle(elem);
+          String name = elem.getLocalName();
+          if (current != null) {
+            // The element is part of a subtree
+          } else if ("svg".equals(name) || "g".equals(name) || "a".equals(name)) {
+            StreamFrame frame = new StreamFrame(elem);
+            if ("svg".equals(name)) {
+              frame.viewBoxTransform = pushViewport(elem);
+            }
+            frames.push(frame);
+          } else {
+            subtree = current = elem;
+          }
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+          if (current != null && skipDepth == 0 && !reader.getText().trim().isEmpty()) {
+            current.appendChild(doc.createTextNode(reader.getText()));
+          }
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          if (skipDepth > 0) {
+            skipDepth--;
+          } else if (current != null) {
+            if (current != subtree) {
+              current = (Element) current.getParentNode();
+            } else {
+              current = null;
+              readSubtree(frames.peek(), subtree);
+              subtree = null;
+            }
+          } else if (!frames.isEmpty()) {
+            StreamFrame frame = frames.pop();
+            readEndOfContainer(frame, frames.peek());
+            if (frames.isEmpty()) {
+              return frame.elem;
+            }
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    throw new IOException("'svg' element expected");
+  }
+
+  private static boolean isSVGNamespace(String namespaceURI) {
+    return namespaceURI == null || namespaceURI.isEmpty() || namespaceURI.equals(SVG_NAMESPACE);
+  }
+
+  /** Creates a DOM element for the current start element of the reader. */
+  private Element createElement(Document doc, XMLStreamReader reader) {
+    String namespaceURI = reader.getNamespaceURI();
+    Element elem =
+        doc.createElementNS(
+            namespaceURI == null || namespaceURI.isEmpty() ? null : namespaceURI,
+            reader.getLocalName());
+    for (int i = 0, n = reader.getAttributeCount(); i < n; i++) {
+      String attributeNamespace = reader.getAttributeNamespace(i);
+      String prefix = reader.getAttributePrefix(i);
+      String localName = reader.getAttributeLocalName(i);
+      if (attributeNamespace == null || attributeNamespace.isEmpty()) {
+        elem.setAttributeNS(null, localName, reader.getAttributeValue(i));
+      } else {
+        elem.setAttributeNS(
+            attributeNamespace,
+            prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName,
+            reader.getAttributeValue(i));
+      }
+    }
+    return elem;
+  }
+
+  /**
+   * Puts an element with an "id" or an "xml:id" attribute into {@code identifiedElements}, if the
+   * id is referenced in the document.
+   */
+  private void identifyElement(Element elem) {
+    if (elem.hasAttribute("id") && referencedIds.contains(elem.getAttribute("id"))) {
+      identifiedElements.put(elem.getAttribute("id"), elem);
+    }
+    if (elem.hasAttribute("xml:id") && referencedIds.contains(elem.getAttribute("xml:id"))) {
+      identifiedElements.put(elem.getAttribute("xml:id"), elem);
+    }
+  }
+
+  /** Returns true if the element has an "id" or an "xml:id" that is referenced in the document. */
+  private boolean isReferenced(Element elem) {
+    return elem.hasAttribute("id") && referencedIds.contains(elem.getAttribute("id"))
+        || elem.hasAttribute("xml:id") && referencedIds.contains(elem.getAttribute("xml:id"));
+  }
+
+  /**
+   * Removes the objects which have been read from the elements of a subtree from {@code
+   * elementObjects}, unless the elements are referenced.
+   */
+  private void forgetObjects(Element elem) {
+    if (!isReferenced(elem)) {
+      elementObjects.remove(elem);
+    }
+    for (Node child = elem.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child instanceof Element) {
+        forgetObjects((Element) child);
+      }
+    }
+  }
+
+  /**
+   * Reads a subtree that has been read into the DOM, and adds its figure to the enclosing
+   * container.
+   */
+  private void readSubtree(StreamFrame parent, Element elem) throws IOException {
+    if (isVisible(elem) && hasForwardReference(elem)) {
+      PendingFigure p =
+          new PendingFigure(elem, factory.createG(new HashMap<>()), viewportStack.peek());
+      addChildFigure(parent, p.placeholder);
+      addPendingFigures(parent, Collections.singletonList(p));
+      return;
+    }
+    Figure f = readElement(elem);
+    if (f != null && isVisible(elem)) {
+      addChildFigure(parent, f);
+    }
+    forgetObjects(elem);
+    if (!isReferenceable(elem)) {
+      parent.elem.removeChild(elem);
+    }
+  }
+
+  /** Creates the figure of a container element when the element ends. */
+  private void readEndOfContainer(StreamFrame frame, StreamFrame parent) throws IOException {
+    Element elem = frame.elem;
+    if (frame.viewBoxTransform != null) {
+      viewportStack.pop();
+    } else {
+      boolean isG = "g".equals(elem.getLocalName());
+      Figure f = isG ? createGFigure(elem, frame.children) : createAFigure(elem, frame.children);
+      if (f instanceof SVGFigure && ((SVGFigure) f).isEmpty()) {
+        f = null;
+      }
+      if (f != null && isVisible(elem)) {
+        HashMap<AttributeKey<?>, Object> a = new HashMap<AttributeKey<?>, Object>();
+        if (isG) {
+          readTransformAttribute(elem, a);
+        }
+        for (PendingFigure p : frame.pending) {
+          if (p.parent == null
+              && f instanceof CompositeFigure
+              && ((CompositeFigure) f).indexOf(p.placeholder) != -1) {
+            p.parent = (CompositeFigure) f;
+          }
+          if (TRANSFORM.get(a) != null) {
+            p.transform.preConcatenate(TRANSFORM.get(a));
+          }
+        }
+        addChildFigure(parent, f);
+        addPendingFigures(parent, frame.pending);
+      }
+    }
+    if (!isReferenced(elem)) {
+      elementObjects.remove(elem);
+    }
+    if (parent != null && !elem.hasChildNodes() && !isReferenceable(elem)) {
+      parent.elem.removeChild(elem);
+    }
+  }
+
+  /** Adds the figure of a child element to a container element. */
+  private void addChildFigure(StreamFrame frame, Figure f) {
+    if (frame.viewBoxTransform != null) {
+      f.transform(frame.viewBoxTransform);
+      figures.add(f);
+    } else {
+      frame.children.add(f);
+    }
+  }
+
+  /** Adds the placeholders of the figures of a child element to a container element. */
+  private void addPendingFigures(StreamFrame frame, java.util.List<PendingFigure> pending) {
+    if (frame.viewBoxTransform != null) {
+      for (PendingFigure p : pending) {
+        p.transform.preConcatenate(frame.viewBoxTransform);
+      }
+      pendingFigures.addAll(pending);
+    } else {
+      frame.pending.addAll(pending);
+    }
+  }
+
+  /**
+   * Returns true if the element or one of its descendants references an element which has not been
+   * read yet.
+   */
+  private boolean hasForwardReference(Element elem) {
+    String name = elem.getLocalName();
+    if ("defs".equals(name)
+        || "linearGradient".equals(name)
+        || "radialGradient".equals(name)
+        || "solidColor".equals(name)
+        || "style".equals(name)) {
+      return false;
+    }
+    if ("use".equals(name)) {
+      String href = readAttribute(elem, "xlink:href", null);
+      if (href != null
+          && href.startsWith("#")
+          && !identifiedElements.containsKey(href.substring(1))) {
+        return true;
+      }
+    }
+    if (isForwardReference(readInheritAttribute(elem, "fill", null))
+        || isForwardReference(readInheritAttribute(elem, "stroke", null))) {
+      return true;
+    }
+    for (Node child = elem.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child instanceof Element && hasForwardReference((Element) child)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns true if a paint value references an element which has not been read yet. */
+  private boolean isForwardReference(String value) {
+    if (value == null) {
+      return false;
+    }
+    String str = value.trim();
+    if (!str.startsWith("url(#") || !str.endsWith(")")) {
+      return false;
+    }
+    Element refElem = identifiedElements.get(str.substring(5, str.length() - 1));
+    return refElem == null || !elementObjects.containsKey(refElem);
+  }
+
+  /**
+   * Returns true if the element or one of its descendants can be referenced. These are "defs"
+   * elements, paint servers and the elements whose id is referenced in the document.
+   */
+  private boolean isReferenceable(Element elem) {
+    String name = elem.getLocalName();
+    if ("defs".equals(name)
+        || "linearGradient".equals(name)
+        || "radialGradient".equals(name)
+        || "solidColor".equals(name)
+        || isReferenced(elem)) {
+      return true;
+    }
+    for (Node child = elem.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child instanceof Element && isReferenceable((Element) child)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Reads a pending figure, and replaces its placeholder. */
+  private void readPendingFigure(PendingFigure p) throws IOException {
+    viewportStack.push(p.viewport);
+    Figure f;
+    try {
+      f = readElement(p.elem);
+    } finally {
+      viewportStack.pop();
+    }
+    if (f != null) {
+      f.transform(p.transform);
+      if (p.placeholder.attr().get(LINK) != null) {
+        f.attr().set(LINK, p.placeholder.attr().get(LINK));
+        f.attr().set(LINK_TARGET, p.placeholder.attr().get(LINK_TARGET));
+      }
+    }
+    if (p.parent == null) {
+      int index = figures.indexOf(p.placeholder);
+      if (index != -1) {
+        if (f == null) {
+          figures.remove(index);
+        } else {
+          figures.set(index, f);
+        }
+      }
+    } else {
+      int index = p.parent.indexOf(p.placeholder);
+      if (index != -1) {
+        p.parent.basicRemoveChild(index);
+        if (f != null) {
+          p.parent.basicAdd(index, f);
+        }
+      }
+    }
+  }
+
   private void initStorageContext(Element root) {
     identifiedElements = new HashMap<String, Element>();
     identifyElements(root);
@@ -260,27 +796,11 @@ public class SVGInputFormat implements InputFormat {
    * into attributes with the same name.
    */
   private void flattenStyles(Element elem) throws IOException {
-    if (elem.getLocalName() != null
-        && elem.getLocalName().equals("style")
-        && readAttribute(elem, "type", "").equals("text/css")
-        && elem.getTextContent() != null) {
-      CSSParser cssParser = new CSSParser();
-      cssParser.parse(elem.getTextContent(), styleManager);
+    if (isStyleSheet(elem)) {
+      readStyleSheet(elem);
     } else {
       if (elem.getPrefix() == null || elem.getPrefix().equals(SVG_NAMESPACE)) {
-        String style = readAttribute(elem, "style", null);
-        if (style != null) {
-          for (String styleProperty : style.split(";")) {
-            String[] stylePropertyElements = styleProperty.split(":");
-            if (stylePropertyElements.length == 2
-                && !elem.hasAttributeNS(SVG_NAMESPACE, stylePropertyElements[0].trim())) {
-              // if (DEBUG) System.out.println("flatten:"+Arrays.toString(stylePropertyElements));
-              elem.setAttributeNS(
-                  SVG_NAMESPACE, stylePropertyElements[0].trim(), stylePropertyElements[1].trim());
-            }
-          }
-        }
-        styleManager.applyStylesTo(elem);
+        flattenStyle(elem);
         NodeList list = elem.getChildNodes();
         for (int i = 0; i < list.getLength(); i++) {
           Element child = (Element) list.item(i);
@@ -290,6 +810,40 @@ public class SVGInputFormat implements InputFormat {
     }
   }
 
+  /** Returns true if the element is a "style" element holding a CSS style sheet. */
+  private boolean isStyleSheet(Element elem) {
+    return elem.getLocalName() != null
+        && elem.getLocalName().equals("style")
+        && readAttribute(elem, "type", "").equals("text/css")
+        && elem.getTextContent() != null;
+  }
+
+  /** Adds the rules of a CSS style sheet to the style manager. */
+  private void readStyleSheet(Element elem) throws IOException {
+    CSSParser cssParser = new CSSParser();
+    cssParser.parse(elem.getTextContent(), styleManager);
+  }
+
+  /**
+   * Flattens the CSS styles of a single element. Styles defined in its "style" attribute and in the
+   * CSS rules read so far are converted into attributes with the same name.
+   */
+  private void flattenStyle(Element elem) {
+    String style = readAttribute(elem, "style", null);
+    if (style != null) {
+      for (String styleProperty : style.split(";")) {
+        String[] stylePropertyElements = styleProperty.split(":");
+        if (stylePropertyElements.length == 2
+            && !elem.hasAttributeNS(SVG_NAMESPACE, stylePropertyElements[0].trim())) {
+          // if (DEBUG) System.out.println("flatten:"+Arrays.toString(stylePropertyElements));
+          elem.setAttributeNS(
+              SVG_NAMESPACE, stylePropertyElements[0].trim(), stylePropertyElements[1].trim());
+        }
+      }
+    }
+    styleManager.applyStylesTo(elem);
+  }
+
   /**
    * Reads an SVG element of any kind.
    *
@@ -379,31 +933,57 @@ public class SVGInputFormat implements InputFormat {
 
   /** Reads an SVG "g" element. */
   private Figure readGElement(Element elem) throws IOException {
+    return createGFigure(elem, readChildFigures(elem));
+  }
+
+  /** Creates the figure of an SVG "g" element from the figures of its child elements. */
+  private CompositeFigure createGFigure(Element elem, java.util.List<Figure> children)
+      throws IOException {
     HashMap<AttributeKey<?>, Object> a = new HashMap<AttributeKey<?>, Object>();
     readCoreAttributes(elem, a);
     readOpacityAttribute(elem, a);
     CompositeFigure g = factory.createG(a);
+    for (Figure child : children) {
+      g.basicAdd(child);
+    }
+    readTransformAttribute(elem, a);
+    if (TRANSFORM.get(a) != null) {
+      g.transform(TRANSFORM.get(a));
+    }
+    return g;
+  }
+
+  /** Reads the figures of the visible child elements of an SVG element. */
+  private ArrayList<Figure> readChildFigures(Element elem) throws IOException {
+    ArrayList<Figure> children = new ArrayList<Figure>();
     NodeList list = elem.getChildNodes();
     for (int i = 0; i < list.getLength(); i++) {
       Element child = (Element) list.item(i);
       Figure childFigure = readElement(child);
       // skip invisible elements
-      if (readAttribute(child, "visibility", "visible").equals("visible")
-          && !readAttribute(child, "display", "inline").equals("none")) {
-        if (childFigure != null) {
-          g.basicAdd(childFigure);
-        }
+      if (childFigure != null && isVisible(child)) {
+        children.add(childFigure);
       }
     }
-    readTransformAttribute(elem, a);
-    if (TRANSFORM.get(a) != null) {
-      g.transform(TRANSFORM.get(a));
-    }
-    return g;
+    return children;
+  }
+
+  /** Returns false if the element is hidden or not displayed. */
+  private boolean isVisible(Element elem) {
+    return readAttribute(elem, "visibility", "visible").equals("visible")
+        && !readAttribute(elem, "display", "inline").equals("none");
   }
 
   /** Reads an SVG "a" element. */
   private Figure readAElement(Element elem) throws IOException {
+    return createAFigure(elem, readChildFigures(elem));
+  }
+
+  /**
+   * Creates the figure of an SVG "a" element from the figures of its child elements. Returns the
+   * child figure, if there is only one.
+   */
+  private Figure createAFigure(Element elem, java.util.List<Figure> children) throws IOException {
     HashMap<AttributeKey<?>, Object> a = new HashMap<AttributeKey<?>, Object>();
     readCoreAttributes(elem, a);
     CompositeFigure g = factory.createG(a);
@@ -412,29 +992,41 @@ public class SVGInputFormat implements InputFormat {
       href = readAttribute(elem, "href", null);
     }
     String target = readAttribute(elem, "target", null);
+    if (children.isEmpty()) {
+      LOG.fine("SVGInputFormat <a> has no child figure");
+    }
+    for (Figure child : children) {
+      g.basicAdd(child);
+      child.attr().set(LINK, href);
+      child.attr().set(LINK_TARGET, target);
+    }
+    return (g.getChildCount() == 1) ? g.getChild(0) : g;
+  }
+
+  /** Reads an SVG "svg" element. */
+  private Figure readSVGElement(Element elem) throws IOException {
+    AffineTransform viewBoxTransform = pushViewport(elem);
+    // Read the figures
     NodeList list = elem.getChildNodes();
     for (int i = 0; i < list.getLength(); i++) {
       Element child = (Element) list.item(i);
       Figure childFigure = readElement(child);
       // skip invisible elements
-      if (readAttribute(child, "visibility", "visible").equals("visible")
-          && !readAttribute(child, "display", "inline").equals("none")) {
-        if (childFigure != null) {
-          g.basicAdd(childFigure);
-        }
-      }
-      if (childFigure != null) {
-        childFigure.attr().set(LINK, href);
-        childFigure.attr().set(LINK_TARGET, target);
-      } else {
-        LOG.fine("SVGInputFormat <a> has no child figure");
+      if (childFigure != null && isVisible(child)) {
+        childFigure.transform(viewBoxTransform);
+        figures.add(childFigure);
       }
     }
-    return (g.getChildCount() == 1) ? g.getChild(0) : g;
+    viewportStack.pop();
+    return null;
   }
 
-  /** Reads an SVG "svg" element. */
-  private Figure readSVGElement(Element elem) throws IOException {
+  /**
+   * Establishes the viewport of an SVG "svg" element, and pushes it on the viewport stack.
+   *
+   * @return the transform from the view box of the viewport into the user coordinate system
+   */
+  private AffineTransform pushViewport(Element elem) throws IOException {
     // Establish a new viewport
     Viewport viewport = new Viewport();
     String widthValue = readAttribute(elem, "width", "100%");
@@ -486,22 +1078,7 @@ public class SVGInputFormat implements InputFormat {
     }
     viewportStack.push(viewport);
     readViewportAttributes(elem, viewportStack.firstElement().attributes);
-    // Read the figures
-    NodeList list = elem.getChildNodes();
-    for (int i = 0; i < list.getLength(); i++) {
-      Element child = (Element) list.item(i);
-      Figure childFigure = readElement(child);
-      // skip invisible elements
-      if (readAttribute(child, "visibility", "visible").equals("visible")
-          && !readAttribute(child, "display", "inline").equals("none")) {
-        if (childFigure != null) {
-          childFigure.transform(viewBoxTransform);
-          figures.add(childFigure);
-        }
-      }
-    }
-    viewportStack.pop();
-    return null;
+    return viewBoxTransform;
   }
 
   /** Reads an SVG "rect" element. */
@@ -594,6 +1171,7 @@ public class SVGInputFormat implements InputFormat {
         // Load it as a group.
         if (imageUrl.getFile().endsWith("svg")) {
           SVGInputFormat svgImage = new SVGInputFormat(factory);
+          svgImage.setStreaming(isStreaming);
           Drawing svgDrawing = new DefaultDrawing();
           svgImage.read(imageUrl, svgDrawing, true);
           CompositeFigure svgImageGroup = factory.createG(a);
@@ -1196,11 +1774,10 @@ public class SVGInputFormat implements InputFormat {
    * http://www.w3.org/TR/SVGMobile12/shapes.html#PointsBNF
    */
   private Point2D.Double[] toPoints(Element elem, String str) throws IOException {
-    StringTokenizer tt = new StringTokenizer(str, " ,");
-    Point2D.Double[] points = new Point2D.Double[tt.countTokens() / 2];
+    int count = scanner.parseNumberList(str);
+    Point2D.Double[] points = new Point2D.Double[count / 2];
     for (int i = 0; i < points.length; i++) {
-      points[i] =
-          new Point2D.Double(toNumber(elem, tt.nextToken()), toNumber(elem, tt.nextToken()));
+      points[i] = new Point2D.Double(scanner.getNumber(i * 2), scanner.getNumber(i * 2 + 1));
     }
     return points;
   }
@@ -1213,592 +1790,7 @@ public class SVGInputFormat implements InputFormat {
    * http://www.w3.org/TR/SVG/paths.html#PathDataEllipticalArcCommands
    */
   private BezierPath[] toPath(Element elem, String str) throws IOException {
-    LinkedList<BezierPath> paths = new LinkedList<BezierPath>();
-    BezierPath path = null;
-    Point2D.Double p = new Point2D.Double();
-    Point2D.Double c1 = new Point2D.Double();
-    Point2D.Double c2 = new Point2D.Double();
-    StreamPosTokenizer tt;
-    if (toPathTokenizer == null) {
-      tt = new StreamPosTokenizer(new StringReader(str));
-      tt.resetSyntax();
-      tt.parseNumbers();
-      tt.parseExponents();
-      tt.parsePlusAsNumber();
-      tt.whitespaceChars(0, ' ');
-      tt.whitespaceChars(',', ',');
-      toPathTokenizer = tt;
-    } else {
-      tt = toPathTokenizer;
-      tt.setReader(new StringReader(str));
-    }
-    char nextCommand = 'M';
-    char command = 'M';
-    Commands:
-    while (tt.nextToken() != StreamPosTokenizer.TT_EOF) {
-      if (tt.ttype > 0) {
-        command = (char) tt.ttype;
-      } else {
-        command = nextCommand;
-        tt.pushBack();
-      }
-      BezierPath.Node node;
-      switch (command) {
-        case 'M':
-          // absolute-moveto x y
-          if (path != null) {
-            paths.add(path);
-          }
-          path = new BezierPath();
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'M' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'M' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.moveTo(p.x, p.y);
-          nextCommand = 'L';
-          break;
-        case 'm':
-          // relative-moveto dx dy
-          if (path != null) {
-            paths.add(path);
-          }
-          path = new BezierPath();
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dx coordinate missing for 'm' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dy coordinate missing for 'm' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.y += tt.nval;
-          path.moveTo(p.x, p.y);
-          nextCommand = 'l';
-          break;
-        case 'Z':
-        case 'z':
-          // close path
-          p.x = path.get(0).x[0];
-          p.y = path.get(0).y[0];
-          // If the last point and the first point are the same, we
-          // can merge them
-          if (path.size() > 1) {
-            BezierPath.Node first = path.get(0);
-            BezierPath.Node last = path.get(path.size() - 1);
-            if (first.x[0] == last.x[0] && first.y[0] == last.y[0]) {
-              if ((last.mask & BezierPath.C1_MASK) != 0) {
-                first.mask |= BezierPath.C1_MASK;
-                first.x[1] = last.x[1];
-                first.y[1] = last.y[1];
-              }
-              path.remove(path.size() - 1);
-            }
-          }
-          path.setClosed(true);
-          break;
-        case 'L':
-          // absolute-lineto x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'L' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'L' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'L';
-          break;
-        case 'l':
-          // relative-lineto dx dy
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dx coordinate missing for 'l' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dy coordinate missing for 'l' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.y += tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'l';
-          break;
-        case 'H':
-          // absolute-horizontal-lineto x
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'H' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'H';
-          break;
-        case 'h':
-          // relative-horizontal-lineto dx
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dx coordinate missing for 'h' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.x += tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'h';
-          break;
-        case 'V':
-          // absolute-vertical-lineto y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'V' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'V';
-          break;
-        case 'v':
-          // relative-vertical-lineto dy
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dy coordinate missing for 'v' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.y += tt.nval;
-          path.lineTo(p.x, p.y);
-          nextCommand = 'v';
-          break;
-        case 'C':
-          // absolute-curveto x1 y1 x2 y2 x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x1 coordinate missing for 'C' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c1.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y1 coordinate missing for 'C' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c1.y = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x2 coordinate missing for 'C' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c2.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y2 coordinate missing for 'C' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c2.y = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'C' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'C' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.curveTo(c1.x, c1.y, c2.x, c2.y, p.x, p.y);
-          nextCommand = 'C';
-          break;
-        case 'c':
-          // relative-curveto dx1 dy1 dx2 dy2 dx dy
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dx1 coordinate missing for 'c' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c1.x = p.x + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dy1 coordinate missing for 'c' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c1.y = p.y + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dx2 coordinate missing for 'c' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c2.x = p.x + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dy2 coordinate missing for 'c' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c2.y = p.y + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dx coordinate missing for 'c' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dy coordinate missing for 'c' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.y += tt.nval;
-          path.curveTo(c1.x, c1.y, c2.x, c2.y, p.x, p.y);
-          nextCommand = 'c';
-          break;
-        case 'S':
-          // absolute-shorthand-curveto x2 y2 x y
-          node = path.get(path.size() - 1);
-          c1.x = node.x[0] * 2d - node.x[1];
-          c1.y = node.y[0] * 2d - node.y[1];
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x2 coordinate missing for 'S' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c2.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y2 coordinate missing for 'S' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c2.y = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'S' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'S' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.curveTo(c1.x, c1.y, c2.x, c2.y, p.x, p.y);
-          nextCommand = 'S';
-          break;
-        case 's':
-          // relative-shorthand-curveto dx2 dy2 dx dy
-          node = path.get(path.size() - 1);
-          c1.x = node.x[0] * 2d - node.x[1];
-          c1.y = node.y[0] * 2d - node.y[1];
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dx2 coordinate missing for 's' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c2.x = p.x + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dy2 coordinate missing for 's' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c2.y = p.y + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dx coordinate missing for 's' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dy coordinate missing for 's' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.y += tt.nval;
-          path.curveTo(c1.x, c1.y, c2.x, c2.y, p.x, p.y);
-          nextCommand = 's';
-          break;
-        case 'Q':
-          // absolute-quadto x1 y1 x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x1 coordinate missing for 'Q' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c1.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y1 coordinate missing for 'Q' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c1.y = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'Q' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'Q' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.quadTo(c1.x, c1.y, p.x, p.y);
-          nextCommand = 'Q';
-          break;
-        case 'q':
-          // relative-quadto dx1 dy1 dx dy
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dx1 coordinate missing for 'q' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c1.x = p.x + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dy1 coordinate missing for 'q' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          c1.y = p.y + tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dx coordinate missing for 'q' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dy coordinate missing for 'q' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.y += tt.nval;
-          path.quadTo(c1.x, c1.y, p.x, p.y);
-          nextCommand = 'q';
-          break;
-        case 'T':
-          // absolute-shorthand-quadto x y
-          node = path.get(path.size() - 1);
-          c1.x = node.x[0] * 2d - node.x[1];
-          c1.y = node.y[0] * 2d - node.y[1];
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'T' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'T' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.quadTo(c1.x, c1.y, p.x, p.y);
-          nextCommand = 'T';
-          break;
-        case 't':
-          // relative-shorthand-quadto dx dy
-          node = path.get(path.size() - 1);
-          c1.x = node.x[0] * 2d - node.x[1];
-          c1.y = node.y[0] * 2d - node.y[1];
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dx coordinate missing for 't' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "dy coordinate missing for 't' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          p.y += tt.nval;
-          path.quadTo(c1.x, c1.y, p.x, p.y);
-          nextCommand = 's';
-          break;
-        case 'A':
-          // absolute-elliptical-arc rx ry x-axis-rotation large-arc-flag sweep-flag x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "rx coordinate missing for 'A' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          // If rX or rY have negative signs, these are dropped;
-          // the absolute value is used instead.
-          double rx = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "ry coordinate missing for 'A' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          double ry = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x-axis-rotation missing for 'A' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          double xAxisRotation = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "large-arc-flag missing for 'A' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          boolean largeArcFlag = tt.nval != 0;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "sweep-flag missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          boolean sweepFlag = tt.nval != 0;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y = tt.nval;
-          path.arcTo(rx, ry, xAxisRotation, largeArcFlag, sweepFlag, p.x, p.y);
-          nextCommand = 'A';
-          break;
-
-        case 'a':
-          // absolute-elliptical-arc rx ry x-axis-rotation large-arc-flag sweep-flag x y
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "rx coordinate missing for 'A' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          // If rX or rY have negative signs, these are dropped;
-          // the absolute value is used instead.
-          rx = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "ry coordinate missing for 'A' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          ry = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x-axis-rotation missing for 'A' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          xAxisRotation = tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "large-arc-flag missing for 'A' at position "
-                    + tt.getStartPosition()
-                    + " in "
-                    + str);
-          }
-          largeArcFlag = tt.nval != 0;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "sweep-flag missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          sweepFlag = tt.nval != 0;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "x coordinate missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.x += tt.nval;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException(
-                "y coordinate missing for 'A' at position " + tt.getStartPosition() + " in " + str);
-          }
-          p.y += tt.nval;
-          path.arcTo(rx, ry, xAxisRotation, largeArcFlag, sweepFlag, p.x, p.y);
-          nextCommand = 'a';
-          break;
-
-        default:
-          LOG.fine(
-              "SVGInputFormat.toPath aborting after illegal path command: "
-                  + command
-                  + " found in path "
-                  + str);
-          break Commands;
-          // throw new IOException("Illegal command: "+command);
-      }
-    }
-    if (path != null) {
-      paths.add(path);
-    }
-    return paths.toArray(new BezierPath[paths.size()]);
+    return scanner.parsePath(str);
   }
 
   /* Reads core attributes as listed in
@@ -1930,7 +1922,7 @@ public class SVGInputFormat implements InputFormat {
     String value;
     value = readAttribute(elem, "transform", "none");
     if (!value.equals("none")) {
-      TRANSFORM.put(a, toTransform(elem, value));
+      TRANSFORM.put(a, scanner.parseTransform(value));
     }
   }
 
@@ -2730,7 +2722,7 @@ public class SVGInputFormat implements InputFormat {
       // Computed value:    Specified value, except inherit
       stopOpacities[i] = toDouble(stopElem, readAttribute(stopElem, "stop-opacity", "1"), 1, 0, 1);
     }
-    AffineTransform tx = toTransform(elem, readAttribute(elem, "gradientTransform", "none"));
+    AffineTransform tx = scanner.parseTransform(readAttribute(elem, "gradientTransform", "none"));
     Gradient gradient =
         factory.createLinearGradient(
             x1, y1, x2, y2, stopOffsets, stopColors, stopOpacities, isRelativeToFigureBounds, tx);
@@ -2802,7 +2794,7 @@ public class SVGInputFormat implements InputFormat {
       // Computed value:    Specified value, except inherit
       stopOpacities[i] = toDouble(stopElem, readAttribute(stopElem, "stop-opacity", "1"), 1, 0, 1);
     }
-    AffineTransform tx = toTransform(elem, readAttribute(elem, "gradientTransform", "none"));
+    AffineTransform tx = scanner.parseTransform(readAttribute(elem, "gradientTransform", "none"));
     Gradient gradient =
         factory.createRadialGradient(
             cx,
@@ -3105,115 +3097,7 @@ public class SVGInputFormat implements InputFormat {
    * http://www.w3.org/TR/SVGMobile12/coords.html#TransformAttribute
    */
   public static AffineTransform toTransform(Element elem, String str) throws IOException {
-    AffineTransform t = new AffineTransform();
-    if (str != null && !str.equals("none")) {
-      StreamPosTokenizer tt = new StreamPosTokenizer(new StringReader(str));
-      tt.resetSyntax();
-      tt.wordChars('a', 'z');
-      tt.wordChars('A', 'Z');
-      tt.wordChars(128 + 32, 255);
-      tt.whitespaceChars(0, ' ');
-      tt.whitespaceChars(',', ',');
-      tt.parseNumbers();
-      tt.parseExponents();
-      while (tt.nextToken() != StreamPosTokenizer.TT_EOF) {
-        if (tt.ttype != StreamPosTokenizer.TT_WORD) {
-          throw new IOException("Illegal transform " + str);
-        }
-        String type = tt.sval;
-        if (tt.nextToken() != '(') {
-          throw new IOException("'(' not found in transform " + str);
-        }
-        if ("matrix".equals(type)) {
-          double[] m = new double[6];
-          for (int i = 0; i < 6; i++) {
-            if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-              throw new IOException(
-                  "Matrix value "
-                      + i
-                      + " not found in transform "
-                      + str
-                      + " token:"
-                      + tt.ttype
-                      + " "
-                      + tt.sval);
-            }
-            m[i] = tt.nval;
-          }
-          t.concatenate(new AffineTransform(m));
-        } else if ("translate".equals(type)) {
-          double tx, ty;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("X-translation value not found in transform " + str);
-          }
-          tx = tt.nval;
-          if (tt.nextToken() == StreamPosTokenizer.TT_NUMBER) {
-            ty = tt.nval;
-          } else {
-            tt.pushBack();
-            ty = 0;
-          }
-          t.translate(tx, ty);
-        } else if ("scale".equals(type)) {
-          double sx, sy;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("X-scale value not found in transform " + str);
-          }
-          sx = tt.nval;
-          if (tt.nextToken() == StreamPosTokenizer.TT_NUMBER) {
-            sy = tt.nval;
-          } else {
-            tt.pushBack();
-            sy = sx;
-          }
-          t.scale(sx, sy);
-        } else if ("rotate".equals(type)) {
-          double angle, cx, cy;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("Angle value not found in transform " + str);
-          }
-          angle = tt.nval;
-          if (tt.nextToken() == StreamPosTokenizer.TT_NUMBER) {
-            cx = tt.nval;
-            if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-              throw new IOException("Y-center value not found in transform " + str);
-            }
-            cy = tt.nval;
-          } else {
-            tt.pushBack();
-            cx = cy = 0;
-          }
-          t.rotate(angle * Math.PI / 180d, cx, cy);
-        } else if ("skewX".equals(type)) {
-          double angle;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("Skew angle not found in transform " + str);
-          }
-          angle = tt.nval;
-          t.concatenate(new AffineTransform(1, 0, Math.tan(angle * Math.PI / 180), 1, 0, 0));
-        } else if ("skewY".equals(type)) {
-          double angle;
-          if (tt.nextToken() != StreamPosTokenizer.TT_NUMBER) {
-            throw new IOException("Skew angle not found in transform " + str);
-          }
-          angle = tt.nval;
-          t.concatenate(new AffineTransform(1, Math.tan(angle * Math.PI / 180), 0, 1, 0, 0));
-        } else if ("ref".equals(type)) {
-          System.err.println(
-              "SVGInputFormat warning: ignored ref(...) transform attribute in element " + elem);
-          while (tt.nextToken() != ')' && tt.ttype != StreamPosTokenizer.TT_EOF) {
-            // ignore tokens between brackets
-          }
-          tt.pushBack();
-        } else {
-          throw new IOException("Unknown transform " + type + " in " + str + " in element " + elem);
-        }
-        if (tt.nextToken() != ')') {
-          throw new IOException("')' not found in transform " + str);
-        }
-      }
-    }
-    return t;
+    return new SVGScanner().parseTransform(str);
   }
 
   @Override
@@ -15,6 +15,7 @@ import java.awt.datatransfer.*;
 import java.awt.geom.*;
 import java.io.*;
 import java.net.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -73,6 +74,10 @@ public class SVGOutputFormat implements OutputFormat {
   private HashMap<Gradient, String> gradientToIDMap;
   /** Set this to true for pretty printing. */
   private boolean isPrettyPrint;
+  /** Set this to true for writing the document directly, without building a DOM. */
+  private boolean isStreaming;
+  /** Maps colors to attribute values. This is used by the streaming writer. */
+  private HashMap<Color, String> colorToStringMap;
 
   private static final HashMap<Integer, String> STROKE_LINEJOIN;
 
@@ -117,6 +122,24 @@ public class SVGOutputFormat implements OutputFormat {
     return isPrettyPrint;
   }
 
+  /**
+   * Sets whether documents are written directly to the output stream instead of building a DOM
+   * first.
+   *
+   * <p>In streaming mode, the figures are written with an {@link XMLWriter} in a single pass.
+   * Gradients are written into a "defs" element in front of the first figure which uses them, and
+   * are referenced by all following figures. The methods which create DOM elements are not used in
+   * streaming mode. The default value is false.
+   */
+  public void setStreaming(boolean newValue) {
+    isStreaming = newValue;
+  }
+
+  /** Returns true if documents are written directly to the output stream. */
+  public boolean isStreaming() {
+    return isStreaming;
+  }
+
   protected void writeElement(Element parent, Figure f) throws IOException {
     // Write link attribute as encosing "a" element
     if (f.attr().get(LINK) != null && f.attr().get(LINK).trim().length() > 0) {
@@ -676,7 +699,7 @@ public class SVGOutputFormat implements OutputFormat {
                   rg.getTransform());
         }
         id = getId(gradientElem);
-        gradientElem.setAttributeNS("xml", "id", id);
+        gradientElem.setAttribute("id", id);
         defs.appendChild(gradientElem);
         gradientToIDMap.put(gradient, id);
       }
@@ -754,7 +777,7 @@ public class SVGOutputFormat implements OutputFormat {
                   rg.getTransform());
         }
         id = getId(gradientElem);
-        gradientElem.setAttributeNS("xml", "id", id);
+        gradientElem.setAttribute("id", id);
         defs.appendChild(gradientElem);
         gradientToIDMap.put(gradient, id);
       }
@@ -1323,6 +1346,10 @@ public class SVGOutputFormat implements OutputFormat {
   /** All other write methods delegate their work to here. */
   public void write(OutputStream out, Drawing drawing, java.util.List<Figure> figures)
       throws IOException {
+    if (isStreaming) {
+      writeStreaming(out, drawing, figures);
+      return;
+    }
     DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
     DocumentBuilder dBuilder;
     try {
@@ -1346,10 +1373,12 @@ public class SVGOutputFormat implements OutputFormat {
     // Write XML prolog
     PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, "UTF-8"));
     writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+    writer.flush();
     // Write XML content
     Transformer t;
     try {
       t = TransformerFactory.newInstance().newTransformer();
+      t.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
       if (isPrettyPrint) {
         t.setOutputProperty(OutputKeys.INDENT, "yes");
       }
@@ -1357,8 +1386,503 @@ public class SVGOutputFormat implements OutputFormat {
     } catch (TransformerException ex) {
       Logger.getLogger(SVGOutputFormat.class.getName()).log(Level.SEVERE, null, ex);
     }
-    // Flush writer
-    writer.flush();
+  }
+
+  /** Writes the drawing with an {@link XMLWriter}. */
+  private void writeStreaming(OutputStream out, Drawing drawing, java.util.List<Figure> figures)
+      throws IOException {
+    XMLWriter w =
+        new XMLWriter(
+            new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), isPrettyPrint);
+    nextId = 0;
+    gradientToIDMap = new HashMap<Gradient, String>();
+    colorToStringMap = new HashMap<Color, String>();
+    try {
+      w.writeProlog();
+      w.startElement("svg");
+      w.attribute("xmlns", SVG_NAMESPACE);
+      w.attribute("xmlns:xlink", "http://www.w3.org/1999/xlink");
+      w.attribute("version", "1.2");
+      w.attribute("baseProfile", "tiny");
+      Map<AttributeKey<?>, Object> a = drawing.attr().getAttributes();
+      if (VIEWPORT_WIDTH.get(a) != null && VIEWPORT_HEIGHT.get(a) != null) {
+        w.attribute("width", VIEWPORT_WIDTH.get(a));
+        w.attribute("height", VIEWPORT_HEIGHT.get(a));
+      }
+      w.attribute("viewport-fill", toCachedColor(VIEWPORT_FILL.get(a)), "none");
+      w.attribute("viewport-fill-opacity", VIEWPORT_FILL_OPACITY.get(a), 1d);
+      for (Figure f : figures) {
+        writeFigure(w, f);
+      }
+      w.flush();
+    } finally {
+      gradientToIDMap = null;
+      colorToStringMap = null;
+    }
+  }
+
+  /** Writes a figure with an {@link XMLWriter}. */
+  private void writeFigure(XMLWriter w, Figure f) throws IOException {
+    Map<AttributeKey<?>, Object> a = f.attr().getAttributes();
+    if (!(f instanceof SVGGroupFigure) && !(f instanceof SVGImageFigure)) {
+      writeGradients(w, a);
+    }
+    // Write link attribute as enclosing "a" element
+    boolean isLink = f.attr().get(LINK) != null && f.attr().get(LINK).trim().length() > 0;
+    if (isLink) {
+      w.startElement("a");
+      w.attribute("xlink:href", f.attr().get(LINK));
+      if (f.attr().get(LINK_TARGET) != null) {
+        w.attribute("target", f.attr().get(LINK_TARGET));
+      }
+    }
+    if (f instanceof SVGEllipseFigure) {
+      SVGEllipseFigure ellipse = (SVGEllipseFigure) f;
+      if (ellipse.getWidth() == ellipse.getHeight()) {
+        w.startElement("circle");
+        w.attribute("cx", ellipse.getX() + ellipse.getWidth() / 2d, 0d);
+        w.attribute("cy", ellipse.getY() + ellipse.getHeight() / 2d, 0d);
+        w.attribute("r", ellipse.getWidth() / 2d, 0d);
+      } else {
+        w.startElement("ellipse");
+        w.attribute("cx", ellipse.getX() + ellipse.getWidth() / 2d, 0d);
+        w.attribute("cy", ellipse.getY() + ellipse.getHeight() / 2d, 0d);
+        w.attribute("rx", ellipse.getWidth() / 2d, 0d);
+        w.attribute("ry", ellipse.getHeight() / 2d, 0d);
+      }
+      writeShapeAttributes(w, a);
+      w.attribute("opacity", OPACITY.get(a), 1d);
+      writeTransformAttribute(w, a);
+      w.endElement();
+    } else if (f instanceof SVGGroupFigure) {
+      w.startElement("g");
+      w.attribute("opacity", OPACITY.get(a), 1d);
+      for (Figure child : ((SVGGroupFigure) f).getChildren()) {
+        writeFigure(w, child);
+      }
+      w.endElement();
+    } else if (f instanceof SVGImageFigure) {
+      SVGImageFigure image = (SVGImageFigure) f;
+      w.startElement("image");
+      w.attribute("x", image.getX(), 0d);
+      w.attribute("y", image.getY(), 0d);
+      w.attribute("width", image.getWidth(), 0d);
+      w.attribute("height", image.getHeight(), 0d);
+      w.attribute(
+          "xlink:href", "data:image;base64," + Base64.encodeBytes(image.getImageData()), "");
+      w.attribute("opacity", OPACITY.get(a), 1d);
+      writeTransformAttribute(w, a);
+      w.endElement();
+    } else if (f instanceof SVGPathFigure) {
+      writePathFigure(w, (SVGPathFigure) f);
+    } else if (f instanceof SVGRectFigure) {
+      SVGRectFigure rect = (SVGRectFigure) f;
+      w.startElement("rect");
+      w.attribute("x", rect.getX(), 0d);
+      w.attribute("y", rect.getY(), 0d);
+      w.attribute("width", rect.getWidth(), 0d);
+      w.attribute("height", rect.getHeight(), 0d);
+      w.attribute("rx", rect.getArcWidth(), 0d);
+      w.attribute("ry", rect.getArcHeight(), 0d);
+      writeShapeAttributes(w, a);
+      w.attribute("opacity", OPACITY.get(a), 1d);
+      writeTransformAttribute(w, a);
+      w.endElement();
+    } else if (f instanceof SVGTextFigure) {
+      SVGTextFigure text = (SVGTextFigure) f;
+      w.startElement("text");
+      Point2D.Double[] coordinates = text.getCoordinates();
+      w.startAttribute("x");
+      for (int i = 0; i < coordinates.length; i++) {
+        if (i != 0) {
+          w.append(',');
+        }
+        w.appendNumber(coordinates[i].x);
+      }
+      w.endAttribute();
+      w.startAttribute("y");
+      for (int i = 0; i < coordinates.length; i++) {
+        if (i != 0) {
+          w.append(',');
+        }
+        w.appendNumber(coordinates[i].y);
+      }
+      w.endAttribute();
+      double[] rotates = text.getRotates();
+      if (rotates != null && rotates.length > 0) {
+        w.startAttribute("rotate");
+        for (int i = 0; i < rotates.length; i++) {
+          if (i != 0) {
+            w.append(',');
+          }
+          w.appendNumber(rotates[i]);
+        }
+        w.endAttribute();
+      }
+      writeShapeAttributes(w, a);
+      w.attribute("opacity", OPACITY.get(a), 1d);
+      writeTransformAttribute(w, a);
+      writeFontAttributes(w, a);
+      if (text.getText() != null) {
+        w.text(text.getText());
+      }
+      w.endElement();
+    } else if (f instanceof SVGTextAreaFigure) {
+      SVGTextAreaFigure textArea = (SVGTextAreaFigure) f;
+      Rectangle2D.Double bounds = textArea.getBounds();
+      w.startElement("textArea");
+      w.attribute("x", bounds.x, 0d);
+      w.attribute("y", bounds.y, 0d);
+      w.attribute("width", bounds.width, 0d);
+      w.attribute("height", bounds.height, 0d);
+      writeShapeAttributes(w, a);
+      writeTransformAttribute(w, a);
+      w.attribute("opacity", OPACITY.get(a), 1d);
+      writeFontAttributes(w, a);
+      if (textArea.getText() != null) {
+        String[] lines = textArea.getText().split("\n");
+        for (int i = 0; i < lines.length; i++) {
+          if (i != 0) {
+            w.startElement("tbreak");
+            w.endElement();
+          }
+          w.text(lines[i]);
+        }
+      }
+      w.endElement();
+    } else {
+      System.out.println("Unable to write: " + f);
+    }
+    if (isLink) {
+      w.endElement();
+    }
+  }
+
+  /** Writes a path figure as a polygon, line, polyline or path element. */
+  private void writePathFigure(XMLWriter w, SVGPathFigure f) throws IOException {
+    Map<AttributeKey<?>, Object> a = f.attr().getAttributes();
+    boolean isLinear = false;
+    BezierFigure bezier = null;
+    if (f.getChildCount() == 1) {
+      bezier = (BezierFigure) f.getChild(0);
+      isLinear = true;
+      for (int i = 0, n = bezier.getNodeCount(); i < n; i++) {
+        if (bezier.getNode(i).getMask() != 0) {
+          isLinear = false;
+          break;
+        }
+      }
+    }
+    if (isLinear && !bezier.isClosed() && bezier.getNodeCount() == 2) {
+      w.startElement("line");
+      w.attribute("x1", bezier.getNode(0).x[0], 0d);
+      w.attribute("y1", bezier.getNode(0).y[0], 0d);
+      w.attribute("x2", bezier.getNode(1).x[0], 0d);
+      w.attribute("y2", bezier.getNode(1).y[0], 0d);
+      writeShapeAttributes(w, a);
+      w.attribute("opacity", OPACITY.get(a), 1d);
+      writeTransformAttribute(w, a);
+    } else if (isLinear) {
+      w.startElement(bezier.isClosed() ? "polygon" : "polyline");
+      w.startAttribute("points");
+      BezierPath path = bezier.getBezierPath();
+      for (int i = 0, n = path.size(); i < n; i++) {
+        if (i != 0) {
+          w.append(", ");
+        }
+        w.appendNumber(path.get(i).x[0]);
+        w.append(',');
+        w.appendNumber(path.get(i).y[0]);
+      }
+      w.endAttribute();
+      writeShapeAttributes(w, a);
+      w.attribute("opacity", OPACITY.get(a), 1d);
+      writeTransformAttribute(w, a);
+    } else {
+      w.startElement("path");
+      writeShapeAttributes(w, a);
+      w.attribute("opacity", OPACITY.get(a), 1d);
+      writeTransformAttribute(w, a);
+      w.startAttribute("d");
+      boolean isFirst = true;
+      for (int i = 0, n = f.getChildCount(); i < n; i++) {
+        BezierPath path = ((BezierFigure) f.getChild(i)).getBezierPath();
+        if (path.size() != 0) {
+          if (!isFirst) {
+            w.append(' ');
+          }
+          writePathData(w, path);
+          isFirst = false;
+        }
+      }
+      w.endAttribute();
+    }
+    w.endElement();
+  }
+
+  /**
+   * Appends the path data of a bezier path to the current attribute value, as specified in
+   * http://www.w3.org/TR/SVGMobile12/paths.html#PathDataBNF
+   */
+  private void writePathData(XMLWriter w, BezierPath path) throws IOException {
+    BezierPath.Node current = path.get(0);
+    w.append("M ");
+    w.appendNumber(current.x[0]);
+    w.append(' ');
+    w.appendNumber(current.y[0]);
+    if (path.size() == 1) {
+      w.append(' ');
+      w.appendNumber(current.x[0]);
+      w.append(' ');
+      w.appendNumber(current.y[0] + 1);
+      return;
+    }
+    char nextCommand = 'L';
+    for (int i = 1, n = path.size(); i < n; i++) {
+      nextCommand = writeSegment(w, path.get(i - 1), path.get(i), nextCommand);
+    }
+    if (path.isClosed()) {
+      writeSegment(w, path.get(path.size() - 1), path.get(0), nextCommand);
+      w.append(" Z");
+    }
+  }
+
+  /**
+   * Appends a line, quadratic or cubic segment from the previous node to the current node.
+   *
+   * @return the command of the segment
+   */
+  private char writeSegment(
+      XMLWriter w, BezierPath.Node previous, BezierPath.Node current, char nextCommand)
+      throws IOException {
+    boolean isC2 = (previous.mask & BezierPath.C2_MASK) != 0;
+    boolean isC1 = (current.mask & BezierPath.C1_MASK) != 0;
+    char command = isC2 && isC1 ? 'C' : (isC2 || isC1 ? 'Q' : 'L');
+    if (command != nextCommand) {
+      w.append(' ');
+      w.append(command);
+    }
+    if (isC2) {
+      w.append(' ');
+      w.appendNumber(previous.x[2]);
+      w.append(' ');
+      w.appendNumber(previous.y[2]);
+    }
+    if (isC1) {
+      w.append(' ');
+      w.appendNumber(current.x[1]);
+      w.append(' ');
+      w.appendNumber(current.y[1]);
+    }
+    w.append(' ');
+    w.appendNumber(current.x[0]);
+    w.append(' ');
+    w.appendNumber(current.y[0]);
+    return command;
+  }
+
+  /**
+   * Writes the fill and stroke gradients of a figure, which have not been written yet, into a
+   * "defs" element.
+   */
+  private void writeGradients(XMLWriter w, Map<AttributeKey<?>, Object> m) throws IOException {
+    boolean isDefsOpen = false;
+    for (Gradient gradient : new Gradient[] {FILL_GRADIENT.get(m), STROKE_GRADIENT.get(m)}) {
+      if (gradient == null || gradientToIDMap.containsKey(gradient)) {
+        continue;
+      }
+      if (!isDefsOpen) {
+        w.startElement("defs");
+        isDefsOpen = true;
+      }
+      String id = Integer.toString(nextId++, Character.MAX_RADIX);
+      gradientToIDMap.put(gradient, id);
+      if (gradient instanceof LinearGradient) {
+        LinearGradient lg = (LinearGradient) gradient;
+        w.startElement("linearGradient");
+        w.attribute("id", id);
+        w.attribute("x1", lg.getX1(), 0d);
+        w.attribute("y1", lg.getY1(), 0d);
+        w.attribute("x2", lg.getX2(), 1d);
+        w.attribute("y2", lg.getY2(), 0d);
+        writeGradientContent(
+            w,
+            lg.isRelativeToFigureBounds(),
+            lg.getTransform(),
+            lg.getStopOffsets(),
+            lg.getStopColors(),
+            lg.getStopOpacities());
+      } else /*if (gradient instanceof RadialGradient)*/ {
+        RadialGradient rg = (RadialGradient) gradient;
+        w.startElement("radialGradient");
+        w.attribute("id", id);
+        w.attribute("cx", rg.getCX(), 0.5);
+        w.attribute("cy", rg.getCY(), 0.5);
+        w.attribute("fx", rg.getFX(), rg.getCX());
+        w.attribute("fy", rg.getFY(), rg.getCY());
+        w.attribute("r", rg.getR(), 0.5);
+        writeGradientContent(
+            w,
+            rg.isRelativeToFigureBounds(),
+            rg.getTransform(),
+            rg.getStopOffsets(),
+            rg.getStopColors(),
+            rg.getStopOpacities());
+      }
+      w.endElement();
+    }
+    if (isDefsOpen) {
+      w.endElement();
+    }
+  }
+
+  /** Writes the units, the transform and the stops of a gradient with an {@link XMLWriter}. */
+  private void writeGradientContent(
+      XMLWriter w,
+      boolean isRelativeToFigureBounds,
+      AffineTransform transform,
+      double[] stopOffsets,
+      Color[] stopColors,
+      double[] stopOpacities)
+      throws IOException {
+    if (!isRelativeToFigureBounds) {
+      w.attribute("gradientUnits", "userSpaceOnUse");
+    }
+    if (transform != null && !transform.isIdentity()) {
+      w.startAttribute("gradientTransform");
+      writeTransform(w, transform);
+      w.endAttribute();
+    }
+    for (int i = 0; i < stopOffsets.length; i++) {
+      w.startElement("stop");
+      w.attribute("offset", stopOffsets[i]);
+      w.attribute("stop-color", toCachedColor(stopColors[i]));
+      w.attribute("stop-opacity", stopOpacities[i], 1d);
+      w.endElement();
+    }
+  }
+
+  /** Writes shape attributes with an {@link XMLWriter}. */
+  private void writeShapeAttributes(XMLWriter w, Map<AttributeKey<?>, Object> m)
+      throws IOException {
+    Gradient gradient = FILL_GRADIENT.get(m);
+    if (gradient != null) {
+      w.attribute("fill", "url(#" + gradientToIDMap.get(gradient) + ")");
+    } else {
+      w.attribute("fill", toCachedColor(FILL_COLOR.get(m)), "#000");
+    }
+    w.attribute("fill-opacity", FILL_OPACITY.get(m), 1d);
+    if (WINDING_RULE.get(m) != WindingRule.NON_ZERO) {
+      w.attribute("fill-rule", "evenodd");
+    }
+    gradient = STROKE_GRADIENT.get(m);
+    if (gradient != null) {
+      w.attribute("stroke", "url(#" + gradientToIDMap.get(gradient) + ")");
+    } else {
+      w.attribute("stroke", toCachedColor(STROKE_COLOR.get(m)), "none");
+    }
+    double[] dashes = STROKE_DASHES.get(m);
+    if (dashes != null) {
+      w.startAttribute("stroke-dasharray");
+      for (int i = 0; i < dashes.length; i++) {
+        if (i != 0) {
+          w.append(',');
+        }
+        w.appendNumber(dashes[i]);
+      }
+      w.endAttribute();
+    }
+    w.attribute("stroke-dashoffset", STROKE_DASH_PHASE.get(m), 0d);
+    w.attribute("stroke-linecap", STROKE_LINECAP.get(STROKE_CAP.get(m)), "butt");
+    w.attribute("stroke-linejoin", STROKE_LINEJOIN.get(STROKE_JOIN.get(m)), "miter");
+    w.attribute("stroke-miterlimit", STROKE_MITER_LIMIT.get(m), 4d);
+    w.attribute("stroke-opacity", STROKE_OPACITY.get(m), 1d);
+    w.attribute("stroke-width", STROKE_WIDTH.get(m), 1d);
+  }
+
+  /** Writes the transform attribute with an {@link XMLWriter}. */
+  private void writeTransformAttribute(XMLWriter w, Map<AttributeKey<?>, Object> a)
+      throws IOException {
+    AffineTransform t = TRANSFORM.get(a);
+    if (t != null && !t.isIdentity()) {
+      w.startAttribute("transform");
+      writeTransform(w, t);
+      w.endAttribute();
+    }
+  }
+
+  /**
+   * Appends a transform to the current attribute value, as specified in
+   * http://www.w3.org/TR/SVGMobile12/coords.html#TransformAttribute
+   */
+  private void writeTransform(XMLWriter w, AffineTransform t) throws IOException {
+    switch (t.getType()) {
+      case AffineTransform.TYPE_TRANSLATION:
+        w.append("translate(");
+        w.appendNumber(t.getTranslateX());
+        if (t.getTranslateY() != 0d) {
+          w.append(' ');
+          w.appendNumber(t.getTranslateY());
+        }
+        break;
+      case AffineTransform.TYPE_UNIFORM_SCALE:
+        w.append("scale(");
+        w.appendNumber(t.getScaleX());
+        break;
+      case AffineTransform.TYPE_GENERAL_SCALE:
+      case AffineTransform.TYPE_MASK_SCALE:
+        w.append("scale(");
+        w.appendNumber(t.getScaleX());
+        w.append(' ');
+        w.appendNumber(t.getScaleY());
+        break;
+      default:
+        w.append("matrix(");
+        w.appendNumber(t.getScaleX());
+        w.append(' ');
+        w.appendNumber(t.getShearY());
+        w.append(' ');
+        w.appendNumber(t.getShearX());
+        w.append(' ');
+        w.appendNumber(t.getScaleY());
+        w.append(' ');
+        w.appendNumber(t.getTranslateX());
+        w.append(' ');
+        w.appendNumber(t.getTranslateY());
+        break;
+    }
+    w.append(')');
+  }
+
+  /** Writes font attributes with an {@link XMLWriter}. */
+  private void writeFontAttributes(XMLWriter w, Map<AttributeKey<?>, Object> a) throws IOException {
+    w.attribute("font-family", FONT_FACE.get(a).getFontName(), "Dialog");
+    w.attribute("font-size", FONT_SIZE.get(a), 0d);
+    if (FONT_ITALIC.get(a)) {
+      w.attribute("font-style", "italic");
+    }
+    if (FONT_BOLD.get(a)) {
+      w.attribute("font-weight", "bold");
+    }
+    if (FONT_UNDERLINE.get(a)) {
+      w.attribute("text-decoration", "underline");
+    }
+  }
+
+  /**
+   * Returns a color as an attribute value. The values are cached, because drawings usually use only
+   * a few colors.
+   */
+  private String toCachedColor(Color color) {
+    if (color == null) {
+      return "none";
+    }
+    String value = colorToStringMap.get(color);
+    if (value == null) {
+      value = toColor(color);
+      colorToStringMap.put(color, value);
+    }
+    return value;
   }
 
   private void initStorageContext(Element root) {
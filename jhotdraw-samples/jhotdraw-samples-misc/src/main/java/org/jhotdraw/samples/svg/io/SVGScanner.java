@@ -0,0 +1,549 @@
+/*
+ * @(#)SVGScanner.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.samples.svg.io;
+
+import java.awt.geom.AffineTransform;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import org.jhotdraw.geom.BezierPath;
+
+/**
+ * SVGScanner parses the numeric attribute values of SVG documents: path data, number lists and
+ * transform lists.
+ *
+ * <p>The scanner copies the value into a character array, which is reused for all values, and scans
+ * it in a single pass. Numbers are converted directly into doubles, and path data is written
+ * directly into {@link BezierPath} nodes. No tokens or strings are created for the values.
+ *
+ * <p>Path data is specified in <a
+ * href="http://www.w3.org/TR/SVGMobile12/paths.html#PathDataBNF">SVG Tiny 1.2 path data</a>.
+ * Elliptical arc commands are supported as specified in <a
+ * href="http://www.w3.org/TR/SVG/paths.html#PathDataEllipticalArcCommands">SVG 1.1</a>. Transform
+ * lists are specified in <a
+ * href="http://www.w3.org/TR/SVGMobile12/coords.html#TransformAttribute">SVG Tiny 1.2
+ * transforms</a>.
+ *
+ * <p>An instance of this class is not thread safe.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public class SVGScanner {
+
+  private static final Logger LOG = Logger.getLogger(SVGScanner.class.getName());
+  /** Powers of ten, which can be represented exactly as a double. */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  /** The largest mantissa which can be represented exactly as a double. */
+  private static final long MAX_EXACT_MANTISSA = (1L << 53) - 1;
+
+  /** Holds the characters of the value that is being scanned. */
+  private char[] buf = new char[256];
+  /** The position of the next character in the buffer. */
+  private int pos;
+  /** The number of characters in the buffer. */
+  private int end;
+  /** The value that is being scanned. This is used for error messages. */
+  private String str;
+  /** Holds the numbers of a number list. */
+  private double[] numbers = new double[32];
+
+  /** Creates a new instance. */
+  public SVGScanner() {}
+
+  /** Sets the value to be scanned. */
+  private void reset(String value) {
+    str = value;
+    end = value.length();
+    if (buf.length < end) {
+      buf = new char[Math.max(end, buf.length * 2)];
+    }
+    value.getChars(0, end, buf, 0);
+    pos = 0;
+  }
+
+  /**
+   * Parses SVG path data into bezier paths. Each moveto command starts a new bezier path.
+   *
+   * @param value the path data
+   * @return the bezier paths
+   * @throws IOException if the path data is malformed
+   */
+  public BezierPath[] parsePath(String value) throws IOException {
+    reset(value);
+    ArrayList<BezierPath> paths = new ArrayList<BezierPath>();
+    BezierPath path = null;
+    // The current point
+    double x = 0;
+    double y = 0;
+    // The control points of the current segment
+    double x1;
+    double y1;
+    double x2;
+    double y2;
+    char command;
+    char nextCommand = 'M';
+    BezierPath.Node node;
+    skipWhitespace();
+    Commands:
+    while (pos < end) {
+      char c = buf[pos];
+      if (isNumberStart(c)) {
+        command = nextCommand;
+      } else {
+        command = c;
+        pos++;
+      }
+      if (path == null && command != 'M' && command != 'm') {
+        throw new IOException("moveto expected at position " + pos + " in " + str);
+      }
+      switch (command) {
+        case 'M':
+        case 'm':
+          // moveto x y
+          if (path != null) {
+            paths.add(path);
+          }
+          path = new BezierPath();
+          if (command == 'M') {
+            x = nextNumber(command);
+            y = nextNumber(command);
+          } else {
+            x += nextNumber(command);
+            y += nextNumber(command);
+          }
+          path.moveTo(x, y);
+          // Subsequent pairs of coordinates are treated as implicit lineto commands
+          nextCommand = (command == 'M') ? 'L' : 'l';
+          break;
+        case 'Z':
+        case 'z':
+          // close path
+          x = path.get(0).x[0];
+          y = path.get(0).y[0];
+          // If the last point and the first point are the same, we
+          // can merge them
+          if (path.size() > 1) {
+            BezierPath.Node first = path.get(0);
+            BezierPath.Node last = path.get(path.size() - 1);
+            if (first.x[0] == last.x[0] && first.y[0] == last.y[0]) {
+              if ((last.mask & BezierPath.C1_MASK) != 0) {
+                first.mask |= BezierPath.C1_MASK;
+                first.x[1] = last.x[1];
+                first.y[1] = last.y[1];
+              }
+              path.remove(path.size() - 1);
+            }
+          }
+          path.setClosed(true);
+          break;
+        case 'L':
+          // absolute-lineto x y
+          x = nextNumber(command);
+          y = nextNumber(command);
+          path.lineTo(x, y);
+          nextCommand = command;
+          break;
+        case 'l':
+          // relative-lineto dx dy
+          x += nextNumber(command);
+          y += nextNumber(command);
+          path.lineTo(x, y);
+          nextCommand = command;
+          break;
+        case 'H':
+          // absolute-horizontal-lineto x
+          x = nextNumber(command);
+          path.lineTo(x, y);
+          nextCommand = command;
+          break;
+        case 'h':
+          // relative-horizontal-lineto dx
+          x += nextNumber(command);
+          path.lineTo(x, y);
+          nextCommand = command;
+          break;
+        case 'V':
+          // absolute-vertical-lineto y
+          y = nextNumber(command);
+          path.lineTo(x, y);
+          nextCommand = command;
+          break;
+        case 'v':
+          // relative-vertical-lineto dy
+          y += nextNumber(command);
+          path.lineTo(x, y);
+          nextCommand = command;
+          break;
+        case 'C':
+          // absolute-curveto x1 y1 x2 y2 x y
+          x1 = nextNumber(command);
+          y1 = nextNumber(command);
+          x2 = nextNumber(command);
+          y2 = nextNumber(command);
+          x = nextNumber(command);
+          y = nextNumber(command);
+          path.curveTo(x1, y1, x2, y2, x, y);
+          nextCommand = command;
+          break;
+        case 'c':
+          // relative-curveto dx1 dy1 dx2 dy2 dx dy
+          x1 = x + nextNumber(command);
+          y1 = y + nextNumber(command);
+          x2 = x + nextNumber(command);
+          y2 = y + nextNumber(command);
+          x += nextNumber(command);
+          y += nextNumber(command);
+          path.curveTo(x1, y1, x2, y2, x, y);
+          nextCommand = command;
+          break;
+        case 'S':
+        case 's':
+          // shorthand-curveto x2 y2 x y
+          node = path.get(path.size() - 1);
+          x1 = node.x[0] * 2d - node.x[1];
+          y1 = node.y[0] * 2d - node.y[1];
+          if (command == 'S') {
+            x2 = nextNumber(command);
+            y2 = nextNumber(command);
+            x = nextNumber(command);
+            y = nextNumber(command);
+          } else {
+            x2 = x + nextNumber(command);
+            y2 = y + nextNumber(command);
+            x += nextNumber(command);
+            y += nextNumber(command);
+          }
+          path.curveTo(x1, y1, x2, y2, x, y);
+          nextCommand = command;
+          break;
+        case 'Q':
+          // absolute-quadto x1 y1 x y
+          x1 = nextNumber(command);
+          y1 = nextNumber(command);
+          x = nextNumber(command);
+          y = nextNumber(command);
+          path.quadTo(x1, y1, x, y);
+          nextCommand = command;
+          break;
+        case 'q':
+          // relative-quadto dx1 dy1 dx dy
+          x1 = x + nextNumber(command);
+          y1 = y + nextNumber(command);
+          x += nextNumber(command);
+          y += nextNumber(command);
+          path.quadTo(x1, y1, x, y);
+          nextCommand = command;
+          break;
+        case 'T':
+        case 't':
+          // shorthand-quadto x y
+          node = path.get(path.size() - 1);
+          x1 = node.x[0] * 2d - node.x[1];
+          y1 = node.y[0] * 2d - node.y[1];
+          if (command == 'T') {
+            x = nextNumber(command);
+            y = nextNumber(command);
+          } else {
+            x += nextNumber(command);
+            y += nextNumber(command);
+          }
+          path.quadTo(x1, y1, x, y);
+          nextCommand = command;
+          break;
+        case 'A':
+        case 'a':
+          // elliptical-arc rx ry x-axis-rotation large-arc-flag sweep-flag x y
+          double rx = nextNumber(command);
+          double ry = nextNumber(command);
+          double xAxisRotation = nextNumber(command);
+          boolean largeArcFlag = nextFlag(command);
+          boolean sweepFlag = nextFlag(command);
+          if (command == 'A') {
+            x = nextNumber(command);
+            y = nextNumber(command);
+          } else {
+            x += nextNumber(command);
+            y += nextNumber(command);
+          }
+          path.arcTo(rx, ry, xAxisRotation, largeArcFlag, sweepFlag, x, y);
+          nextCommand = command;
+          break;
+        default:
+          LOG.fine(
+              "SVGScanner.parsePath aborting after illegal path command: "
+                  + command
+                  + " found in path "
+                  + str);
+          break Commands;
+      }
+      skipCommaWhitespace();
+    }
+    if (path != null) {
+      paths.add(path);
+    }
+    return paths.toArray(new BezierPath[paths.size()]);
+  }
+
+  /**
+   * Parses a list of numbers, which are separated by white space and/or a comma.
+   *
+   * @param value the number list
+   * @return the number of numbers that have been parsed. The numbers can be retrieved with {@link
+   *     #getNumber}.
+   * @throws IOException if the number list is malformed
+   */
+  public int parseNumberList(String value) throws IOException {
+    reset(value);
+    int count = 0;
+    skipWhitespace();
+    while (pos < end) {
+      if (count == numbers.length) {
+        numbers = Arrays.copyOf(numbers, count * 2);
+      }
+      numbers[count++] = parseNumber();
+      skipCommaWhitespace();
+    }
+    return count;
+  }
+
+  /** Returns a number that has been parsed by {@link #parseNumberList}. */
+  public double getNumber(int index) {
+    return numbers[index];
+  }
+
+  /**
+   * Parses a transform list into an affine transform.
+   *
+   * @param value the transform list
+   * @return the transform
+   * @throws IOException if the transform list is malformed
+   */
+  public AffineTransform parseTransform(String value) throws IOException {
+    AffineTransform t = new AffineTransform();
+    if (value == null || value.equals("none")) {
+      return t;
+    }
+    reset(value);
+    skipWhitespace();
+    while (pos < end) {
+      int start = pos;
+      while (pos < end && Character.isLetter(buf[pos])) {
+        pos++;
+      }
+      int length = pos - start;
+      if (length == 0) {
+        throw new IOException("Illegal transform " + str);
+      }
+      skipWhitespace();
+      if (pos == end || buf[pos] != '(') {
+        throw new IOException("'(' not found in transform " + str);
+      }
+      pos++;
+      skipWhitespace();
+      if (isName(start, length, "matrix")) {
+        double m00 = nextTransformNumber();
+        double m10 = nextTransformNumber();
+        double m01 = nextTransformNumber();
+        double m11 = nextTransformNumber();
+        double m02 = nextTransformNumber();
+        double m12 = nextTransformNumber();
+        t.concatenate(new AffineTransform(m00, m10, m01, m11, m02, m12));
+      } else if (isName(start, length, "translate")) {
+        double tx = nextTransformNumber();
+        double ty = hasTransformNumber() ? nextTransformNumber() : 0;
+        t.translate(tx, ty);
+      } else if (isName(start, length, "scale")) {
+        double sx = nextTransformNumber();
+        double sy = hasTransformNumber() ? nextTransformNumber() : sx;
+        t.scale(sx, sy);
+      } else if (isName(start, length, "rotate")) {
+        double angle = nextTransformNumber();
+        double cx = 0;
+        double cy = 0;
+        if (hasTransformNumber()) {
+          cx = nextTransformNumber();
+          cy = nextTransformNumber();
+        }
+        t.rotate(angle * Math.PI / 180d, cx, cy);
+      } else if (isName(start, length, "skewX")) {
+        double angle = nextTransformNumber();
+        t.concatenate(new AffineTransform(1, 0, Math.tan(angle * Math.PI / 180), 1, 0, 0));
+      } else if (isName(start, length, "skewY")) {
+        double angle = nextTransformNumber();
+        t.concatenate(new AffineTransform(1, Math.tan(angle * Math.PI / 180), 0, 1, 0, 0));
+      } else if (isName(start, length, "ref")) {
+        LOG.warning("SVGScanner ignored ref(...) transform in " + str);
+        while (pos < end && buf[pos] != ')') {
+          pos++;
+        }
+      } else {
+        throw new IOException("Unknown transform " + new String(buf, start, length) + " in " + str);
+      }
+      skipWhitespace();
+      if (pos == end || buf[pos] != ')') {
+        throw new IOException("')' not found in transform " + str);
+      }
+      pos++;
+      skipCommaWhitespace();
+    }
+    return t;
+  }
+
+  private boolean isName(int start, int length, String name) {
+    if (length != name.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (buf[start + i] != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns true if the next argument of a transform is a number. */
+  private boolean hasTransformNumber() {
+    skipCommaWhitespace();
+    return pos < end && isNumberStart(buf[pos]);
+  }
+
+  private double nextTransformNumber() throws IOException {
+    skipCommaWhitespace();
+    if (pos == end || !isNumberStart(buf[pos])) {
+      throw new IOException("Number expected at position " + pos + " in transform " + str);
+    }
+    return parseNumber();
+  }
+
+  /** Skips separators and parses the next argument of a path command. */
+  private double nextNumber(char command) throws IOException {
+    skipCommaWhitespace();
+    if (pos == end || !isNumberStart(buf[pos])) {
+      throw new IOException(
+          "Number missing for '" + command + "' at position " + pos + " in " + str);
+    }
+    return parseNumber();
+  }
+
+  /**
+   * Skips separators and parses the next flag of an arc command. A flag is a single character, so
+   * that flags do not need to be separated from the following number.
+   */
+  private boolean nextFlag(char command) throws IOException {
+    skipCommaWhitespace();
+    if (pos == end || (buf[pos] != '0' && buf[pos] != '1')) {
+      throw new IOException("Flag missing for '" + command + "' at position " + pos + " in " + str);
+    }
+    return buf[pos++] == '1';
+  }
+
+  private void skipWhitespace() {
+    while (pos < end && buf[pos] <= ' ') {
+      pos++;
+    }
+  }
+
+  /** Skips white space, followed by an optional comma and more white space. */
+  private void skipCommaWhitespace() {
+    skipWhitespace();
+    if (pos < end && buf[pos] == ',') {
+      pos++;
+      skipWhitespace();
+    }
+  }
+
+  private static boolean isNumberStart(char c) {
+    return (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '+';
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * Parses a number at the current position.
+   *
+   * <p>Numbers with up to 15 significant digits and a small exponent are converted exactly with a
+   * single multiplication or division. All other numbers are converted with {@link
+   * Double#parseDouble}.
+   */
+  private double parseNumber() throws IOException {
+    int start = pos;
+    boolean isNegative = false;
+    if (pos < end && (buf[pos] == '-' || buf[pos] == '+')) {
+      isNegative = buf[pos] == '-';
+      pos++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int exponent = 0;
+    boolean hasDigits = false;
+    // Integer part
+    for (; pos < end && isDigit(buf[pos]); pos++) {
+      hasDigits = true;
+      if (mantissa == 0 && buf[pos] == '0') {
+        continue;
+      }
+      if (digits < 18) {
+        mantissa = mantissa * 10 + (buf[pos] - '0');
+      } else {
+        exponent++;
+      }
+      digits++;
+    }
+    // Fraction part
+    if (pos < end && buf[pos] == '.') {
+      pos++;
+      for (; pos < end && isDigit(buf[pos]); pos++) {
+        hasDigits = true;
+        if (mantissa == 0 && buf[pos] == '0') {
+          exponent--;
+          continue;
+        }
+        if (digits < 18) {
+          mantissa = mantissa * 10 + (buf[pos] - '0');
+          exponent--;
+        }
+        digits++;
+      }
+    }
+    if (!hasDigits) {
+      throw new IOException("Illegal number at position " + start + " in " + str);
+    }
+    // Exponent part. An 'e' which is not followed by digits does not belong to the number.
+    if (pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+      int p = pos + 1;
+      boolean isNegativeExponent = false;
+      if (p < end && (buf[p] == '-' || buf[p] == '+')) {
+        isNegativeExponent = buf[p] == '-';
+        p++;
+      }
+      if (p < end && isDigit(buf[p])) {
+        int e = 0;
+        for (; p < end && isDigit(buf[p]); p++) {
+          if (e < 10000) {
+            e = e * 10 + (buf[p] - '0');
+          }
+        }
+        exponent += isNegativeExponent ? -e : e;
+        pos = p;
+      }
+    }
+    if (digits > 15 || mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+      return Double.parseDouble(new String(buf, start, pos - start));
+    }
+    double value =
+        (exponent >= 0) ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+    return isNegative ? -value : value;
+  }
+}
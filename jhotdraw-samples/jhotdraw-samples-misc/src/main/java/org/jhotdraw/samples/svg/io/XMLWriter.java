@@ -0,0 +1,301 @@
+/*
+ * @(#)XMLWriter.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.samples.svg.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * XMLWriter writes XML elements directly to a character stream, without building a document object
+ * model.
+ *
+ * <p>Elements are written with {@link #startElement}, followed by the attributes of the element,
+ * followed by the content of the element, and are closed with {@link #endElement}. An element
+ * without content is written as an empty-element tag.
+ *
+ * <p>An attribute value can be written in pieces, by calling {@link #startAttribute}, followed by
+ * calls to {@link #append(String)}, {@link #append(char)} and {@link #appendNumber}, followed by
+ * {@link #endAttribute}. Numbers are formatted with float precision into a character array which is
+ * reused for all numbers, so that no strings are created for them.
+ *
+ * <p>An instance of this class is not thread safe.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public class XMLWriter {
+
+  /** Powers of ten, which can be represented exactly as a double. */
+  private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
+
+  private final Writer out;
+  private final boolean isPrettyPrint;
+  /** The names of the open elements. */
+  private String[] names = new String[16];
+  /** The number of open elements. */
+  private int depth;
+  /** Whether the start tag of the innermost open element has not been closed yet. */
+  private boolean isStartTagOpen;
+  /** Whether an attribute value is being written. */
+  private boolean isAttributeOpen;
+  /** The depth of the outermost open element with text content. Its children are not indented. */
+  private int mixedDepth = Integer.MAX_VALUE;
+  /** Whether anything has been written yet. */
+  private boolean isEmpty = true;
+  /** Holds the characters of the number that is being formatted. */
+  private final char[] numberBuf = new char[32];
+
+  /**
+   * Creates a new instance.
+   *
+   * @param out the writer, should be buffered
+   * @param isPrettyPrint set this to true to put each element on a new line, and to indent it by
+   *     its depth
+   */
+  public XMLWriter(Writer out, boolean isPrettyPrint) {
+    this.out = out;
+    this.isPrettyPrint = isPrettyPrint;
+  }
+
+  /** Writes the XML declaration for the UTF-8 encoding. */
+  public void writeProlog() throws IOException {
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+    isEmpty = false;
+  }
+
+  /** Writes the start tag of an element. */
+  public void startElement(String name) throws IOException {
+    closeStartTag();
+    if (isPrettyPrint && depth < mixedDepth) {
+      indent();
+    }
+    out.write('<');
+    out.write(name);
+    if (depth == names.length) {
+      String[] newNames = new String[depth * 2];
+      System.arraycopy(names, 0, newNames, 0, depth);
+      names = newNames;
+    }
+    names[depth++] = name;
+    isStartTagOpen = true;
+    isEmpty = false;
+  }
+
+  /** Writes the end tag of the innermost open element. */
+  public void endElement() throws IOException {
+    String name = names[--depth];
+    names[depth] = null;
+    if (isStartTagOpen) {
+      out.write("/>");
+      isStartTagOpen = false;
+    } else {
+      if (isPrettyPrint && depth + 1 < mixedDepth) {
+        indent();
+      }
+      out.write("</");
+      out.write(name);
+      out.write('>');
+    }
+    if (depth < mixedDepth) {
+      mixedDepth = Integer.MAX_VALUE;
+    }
+  }
+
+  /** Writes an attribute of the current element. */
+  public void attribute(String name, String value) throws IOException {
+    startAttribute(name);
+    append(value);
+    endAttribute();
+  }
+
+  /** Writes an attribute of the current element, unless the value equals the default value. */
+  public void attribute(String name, String value, String defaultValue) throws IOException {
+    if (!value.equals(defaultValue)) {
+      attribute(name, value);
+    }
+  }
+
+  /** Writes a number attribute of the current element. */
+  public void attribute(String name, double value) throws IOException {
+    startAttribute(name);
+    appendNumber(value);
+    endAttribute();
+  }
+
+  /** Writes a number attribute of the current element, unless it equals the default value. */
+  public void attribute(String name, double value, double defaultValue) throws IOException {
+    if (value != defaultValue) {
+      attribute(name, value);
+    }
+  }
+
+  /** Starts an attribute of the current element. */
+  public void startAttribute(String name) throws IOException {
+    if (!isStartTagOpen) {
+      throw new IllegalStateException("Attribute " + name + " outside of a start tag");
+    }
+    out.write(' ');
+    out.write(name);
+    out.write("=\"");
+    isAttributeOpen = true;
+  }
+
+  /** Ends the current attribute. */
+  public void endAttribute() throws IOException {
+    out.write('"');
+    isAttributeOpen = false;
+  }
+
+  /** Appends text to the current attribute value. */
+  public void append(String value) throws IOException {
+    for (int i = 0, n = value.length(); i < n; i++) {
+      append(value.charAt(i));
+    }
+  }
+
+  /** Appends a character to the current attribute value. */
+  public void append(char c) throws IOException {
+    switch (c) {
+      case '&':
+        out.write("&amp;");
+        break;
+      case '<':
+        out.write("&lt;");
+        break;
+      case '"':
+        out.write("&quot;");
+        break;
+      case '\n':
+        out.write("&#10;");
+        break;
+      case '\r':
+        out.write("&#13;");
+        break;
+      case '\t':
+        out.write("&#9;");
+        break;
+      default:
+        out.write(c);
+        break;
+    }
+  }
+
+  /**
+   * Appends a number with float precision to the current attribute value. The number is written
+   * with the least number of fraction digits that are needed to read back the same float value.
+   */
+  public void appendNumber(double number) throws IOException {
+    int start = formatNumber(number);
+    if (start < 0) {
+      out.write(SVGOutputFormat.toNumber(number));
+    } else {
+      out.write(numberBuf, start, numberBuf.length - start);
+    }
+  }
+
+  /**
+   * Formats a number into the end of the number buffer.
+   *
+   * @return the index of the first character in the number buffer, or -1 if the number is too large
+   *     or too small to be formatted in decimal notation
+   */
+  private int formatNumber(double number) {
+    float f = (float) number;
+    double value = Math.abs(f);
+    if (value == 0) {
+      numberBuf[numberBuf.length - 1] = '0';
+      return numberBuf.length - 1;
+    }
+    if (!(value >= 1e-3 && value < 1e7)) {
+      return -1;
+    }
+    // Find the least number of fraction digits, which yields the same float value. Ties are
+    // rounded to even, as by Float.toString. The products are exact, because a float has 24
+    // significant bits, and 5^9 has 21 bits.
+    for (int digits = 0; digits < POWERS_OF_TEN.length; digits++) {
+      long scaled = (long) Math.rint(value * POWERS_OF_TEN[digits]);
+      if ((float) (scaled / POWERS_OF_TEN[digits]) == (float) value) {
+        int i = numberBuf.length;
+        for (int j = 0; j < digits; j++) {
+          numberBuf[--i] = (char) ('0' + scaled % 10);
+          scaled /= 10;
+        }
+        if (digits > 0) {
+          numberBuf[--i] = '.';
+        }
+        do {
+          numberBuf[--i] = (char) ('0' + scaled % 10);
+          scaled /= 10;
+        } while (scaled != 0);
+        if (f < 0) {
+          numberBuf[--i] = '-';
+        }
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Writes text content of the current element. */
+  public void text(String value) throws IOException {
+    closeStartTag();
+    if (depth < mixedDepth) {
+      mixedDepth = depth;
+    }
+    for (int i = 0, n = value.length(); i < n; i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&':
+          out.write("&amp;");
+          break;
+        case '<':
+          out.write("&lt;");
+          break;
+        case '>':
+          out.write("&gt;");
+          break;
+        case '\r':
+          out.write("&#13;");
+          break;
+        default:
+          out.write(c);
+          break;
+      }
+    }
+  }
+
+  /** Closes all open elements and flushes the writer. The underlying writer is not closed. */
+  public void flush() throws IOException {
+    while (depth > 0) {
+      endElement();
+    }
+    if (isPrettyPrint && !isEmpty) {
+      out.write('\n');
+    }
+    out.flush();
+  }
+
+  private void closeStartTag() throws IOException {
+    if (isAttributeOpen) {
+      throw new IllegalStateException("Attribute value is not closed");
+    }
+    if (isStartTagOpen) {
+      out.write('>');
+      isStartTagOpen = false;
+    }
+  }
+
+  private void indent() throws IOException {
+    if (!isEmpty) {
+      out.write('\n');
+    }
+    for (int i = 0; i < depth; i++) {
+      out.write("  ");
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.samples.svg.figures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jhotdraw.draw.AttributeKeys.TRANSFORM;
+import static org.jhotdraw.samples.svg.SVGAttributeKeys.FILL_GRADIENT;
+
+import java.awt.geom.AffineTransform;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.jhotdraw.draw.DefaultDrawing;
+import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.samples.svg.Gradient;
+import org.jhotdraw.samples.svg.io.SVGInputFormat;
+import org.junit.jupiter.api.Test;
+
+public class SVGPathFigureTest {
+
+  @Test
+  public void testFlattenTransformDoesNotChangeEqualGradientsOfOtherFigures() throws IOException {
+    String svg =
+        "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"100\" height=\"100\">"
+            + "<defs><linearGradient id=\"g\" x1=\"0\" y1=\"0\" x2=\"1\" y2=\"0\">"
+            + "<stop offset=\"0\" stop-color=\"red\"/><stop offset=\"1\" stop-color=\"blue\"/>"
+            + "</linearGradient></defs>"
+            + "<path d=\"M0 0L10 0L10 10z\" fill=\"url(#g)\"/>"
+            + "<path d=\"M0 0L10 0L10 10z\" fill=\"url(#g)\"/>"
+            + "</svg>";
+    SVGInputFormat format = new SVGInputFormat();
+    format.setStreaming(true);
+    Drawing drawing = new DefaultDrawing();
+    format.read(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)), drawing, true);
+    SVGPathFigure flattened = (SVGPathFigure) drawing.getChild(0);
+    SVGPathFigure other = (SVGPathFigure) drawing.getChild(1);
+    Gradient expected = (Gradient) other.attr().get(FILL_GRADIENT).clone();
+
+    flattened.willChange();
+    flattened.attr().set(TRANSFORM, AffineTransform.getTranslateInstance(10, 0));
+    flattened.changed();
+    flattened.flattenTransform();
+
+    assertThat(flattened.attr().get(FILL_GRADIENT)).isNotEqualTo(expected);
+    assertThat(other.attr().get(FILL_GRADIENT)).isEqualTo(expected);
+  }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.samples.svg.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.jhotdraw.geom.BezierPath;
+import org.junit.jupiter.api.Test;
+
+public class SVGScannerTest {
+
+  private final SVGScanner scanner = new SVGScanner();
+
+  private static void assertSamePaths(BezierPath[] expected, BezierPath[] actual) {
+    assertThat(actual).hasSameSizeAs(expected);
+    for (int i = 0; i < expected.length; i++) {
+      assertThat(actual[i].size()).isEqualTo(expected[i].size());
+      assertThat(actual[i].isClosed()).isEqualTo(expected[i].isClosed());
+      for (int j = 0; j < expected[i].size(); j++) {
+        BezierPath.Node e = expected[i].get(j);
+        BezierPath.Node a = actual[i].get(j);
+        assertThat(a.mask).isEqualTo(e.mask);
+        // The legacy parser does not round numbers with an exponent exactly
+        for (int k = 0; k < e.x.length; k++) {
+          assertThat(a.x[k]).isCloseTo(e.x[k], within(1e-9));
+          assertThat(a.y[k]).isCloseTo(e.y[k], within(1e-9));
+        }
+      }
+    }
+  }
+
+  private void assertSamePaths(String expected, String actual) throws IOException {
+    assertSamePaths(scanner.parsePath(expected), scanner.parsePath(actual));
+  }
+
+  private double[] parseNumbers(String value) throws IOException {
+    double[] numbers = new double[scanner.parseNumberList(value)];
+    for (int i = 0; i < numbers.length; i++) {
+      numbers[i] = scanner.getNumber(i);
+    }
+    return numbers;
+  }
+
+  @Test
+  public void testCompactArcs() throws IOException {
+    BezierPath expected = new BezierPath();
+    expected.moveTo(0, 0);
+    expected.arcTo(1, 1, 0, false, false, 0.5, 0.5);
+    expected.arcTo(1, 1, 0, false, true, 5.5, 5.5);
+    assertSamePaths(
+        new BezierPath[] {expected}, scanner.parsePath("M0 0a1 1 0 00.5.5a1 1 0 015 5"));
+  }
+
+  @Test
+  public void testImplicitRepeats() throws IOException {
+    assertSamePaths("M0 0 Q10 10 20 0 t20 0 t20 0", "M0 0 Q10 10 20 0 t20 0 20 0");
+    assertSamePaths("M0 0 Q10 10 20 0 T40 0 T60 0", "M0 0 Q10 10 20 0 T40 0 60 0");
+    assertSamePaths(
+        "M0 0 C0 10 10 10 10 0 s10 -10 20 0 s10 10 20 0",
+        "M0 0 C0 10 10 10 10 0" + " s10 -10 20 0 10 10 20 0");
+    assertSamePaths("M0 0 L10 0 L10 10 L0 10", "M0 0 10 0 10 10 0 10");
+    assertSamePaths("m1 1 l10 0 l0 10", "m1 1 10 0 0 10");
+  }
+
+  @Test
+  public void testExponents() throws IOException {
+    assertThat(parseNumbers("1e2 -2.5E-1 3e+1 4E0 1.5e-300 1e25"))
+        .containsExactly(100, -0.25, 30, 4, 1.5e-300, 1e25);
+    assertThat(parseNumbers("-1e-2-1e-2")).containsExactly(-0.01, -0.01);
+  }
+
+  @Test
+  public void testDecimalPointStartsNextNumber() throws IOException {
+    assertThat(parseNumbers(".5.5-.5,.25 0.125.5"))
+        .containsExactly(0.5, 0.5, -0.5, 0.25, 0.125, 0.5);
+    assertSamePaths("M0.5 0.5 l0.5 0.5", "M.5.5l.5.5");
+  }
+
+  @Test
+  public void testRelativeMovetoAfterClosePath() throws IOException {
+    BezierPath[] paths = scanner.parsePath("m10 10 l10 0 0 10 z m5 5 l1 0");
+    assertThat(paths).hasSize(2);
+    assertThat(paths[0].isClosed()).isTrue();
+    // The current point after closepath is the start point of the closed path
+    assertThat(paths[1].get(0).x[0]).isEqualTo(15);
+    assertThat(paths[1].get(0).y[0]).isEqualTo(15);
+    assertThat(paths[1].get(1).x[0]).isEqualTo(16);
+  }
+
+  @Test
+  public void testMalformedInput() {
+    for (String path :
+        new String[] {
+          "L10 10", "M10", "M10 10 L20", "M0 0 A1 1 0 2 0 5 5", "M0 0 C1 2 3", "M0 0 L."
+        }) {
+      assertThatThrownBy(() -> scanner.parsePath(path)).as(path).isInstanceOf(IOException.class);
+    }
+    for (String numbers : new String[] {"1 x", "1,,2", "-"}) {
+      assertThatThrownBy(() -> scanner.parseNumberList(numbers))
+          .as(numbers)
+          .isInstanceOf(IOException.class);
+    }
+    for (String transform :
+        new String[] {"translate(10", "foo(1)", "scale 2", "rotate()", "matrix(1 0 0 1 0)"}) {
+      assertThatThrownBy(() -> scanner.parseTransform(transform))
+          .as(transform)
+          .isInstanceOf(IOException.class);
+    }
+  }
+
+  /** Reads the values of the path, transform and point attributes of an SVG resource. */
+  private static List<String[]> readAttributes(String resource)
+      throws IOException, XMLStreamException {
+    List<String[]> attributes = new ArrayList<>();
+    try (InputStream in = SVGScannerTest.class.getResourceAsStream(resource)) {
+      XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+          for (int i = 0; i < reader.getAttributeCount(); i++) {
+            attributes.add(
+                new String[] {reader.getAttributeLocalName(i), reader.getAttributeValue(i)});
+          }
+        }
+      }
+      reader.close();
+    }
+    return attributes;
+  }
+
+  @Test
+  public void testSameResultsAsLegacyParserOnSampleFiles() throws IOException, XMLStreamException {
+    int count = 0;
+    for (String resource : new String[] {"figures.svg", "paths.svg"}) {
+      for (String[] attribute : readAttributes(resource)) {
+        String value = attribute[1];
+        switch (attribute[0]) {
+          case "d":
+            assertSamePaths(LegacySVGParser.toPath(value), scanner.parsePath(value));
+            count++;
+            break;
+          case "transform":
+          case "gradientTransform":
+            assertThat(scanner.parseTransform(value))
+                .as(value)
+                .isEqualTo(LegacySVGParser.toTransform(value));
+            count++;
+            break;
+          case "points":
+            String[] tokens = value.trim().split("[\\s,]+");
+            double[] expected = new double[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+              expected[i] = Double.parseDouble(tokens[i]);
+            }
+            assertThat(parseNumbers(value)).as(value).containsExactly(expected);
+            count++;
+            break;
+          default:
+            break;
+        }
+      }
+    }
+    assertThat(count).isGreaterThan(20);
+  }
+
+  /** Creates random path data, which can be parsed by the legacy parser. */
+  private static List<String> createPaths(int count) {
+    Random random = new Random(5);
+    String commands = "MLHVCSQTAmlhvcsqtaZ";
+    List<String> paths = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      StringBuilder buf = new StringBuilder("M 1 1");
+      for (int j = 0; j < 50; j++) {
+        char command = commands.charAt(random.nextInt(commands.length()));
+        buf.append(' ').append(command);
+        int arguments;
+        switch (Character.toUpperCase(command)) {
+          case 'Z':
+            arguments = 0;
+            break;
+          case 'H':
+          case 'V':
+            arguments = 1;
+            break;
+          case 'M':
+          case 'L':
+          case 'T':
+            arguments = 2;
+            break;
+          case 'S':
+          case 'Q':
+            arguments = 4;
+            break;
+          default:
+            arguments = command == 'A' || command == 'a' ? 7 : 6;
+            break;
+        }
+        for (int k = 0; k < arguments; k++) {
+          boolean isFlag = Character.toUpperCase(command) == 'A' && (k == 3 || k == 4);
+          buf.append(random.nextBoolean() ? ' ' : ',');
+          if (isFlag) {
+            buf.append(random.nextInt(2));
+          } else if (Character.toUpperCase(command) == 'A' && k < 2) {
+            buf.append(String.format(Locale.ENGLISH, "%.3f", 1 + random.nextDouble() * 100));
+          } else {
+            buf.append(String.format(Locale.ENGLISH, "%.3f", (random.nextDouble() - 0.5) * 1000));
+          }
+        }
+      }
+      paths.add(buf.toString());
+    }
+    return paths;
+  }
+
+  /** Returns the shortest time in nanoseconds of several runs that parse all paths. */
+  private static long time(List<String> paths, PathParser parser) throws IOException {
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < 8; run++) {
+      long time = System.nanoTime();
+      for (String path : paths) {
+        parser.parse(path);
+      }
+      best = Math.min(best, System.nanoTime() - time);
+    }
+    return best;
+  }
+
+  private interface PathParser {
+
+    BezierPath[] parse(String path) throws IOException;
+  }
+
+  /**
+   * Compares the speed of the scanner with the legacy parser on random path data. The first runs
+   * warm up the JIT compiler.
+   */
+  @Test
+  public void testFasterThanLegacyParser() throws IOException {
+    List<String> paths = createPaths(2000);
+    for (String path : paths) {
+      assertSamePaths(LegacySVGParser.toPath(path), scanner.parsePath(path));
+    }
+    long legacy = time(paths, LegacySVGParser::toPath);
+    long scanning = time(paths, scanner::parsePath);
+    assertThat(scanning)
+        .as("scanner %d ms, legacy parser %d ms", scanning / 1_000_000, legacy / 1_000_000)
+        .isLessThan(legacy);
+  }
+}
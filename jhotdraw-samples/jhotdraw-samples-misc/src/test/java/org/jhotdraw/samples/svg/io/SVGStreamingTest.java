@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.samples.svg.io;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.jhotdraw.draw.DefaultDrawing;
+import org.jhotdraw.draw.Drawing;
+import org.jhotdraw.draw.figure.CompositeFigure;
+import org.jhotdraw.draw.figure.Figure;
+import org.jhotdraw.samples.svg.LinearGradient;
+import org.jhotdraw.samples.svg.SVGAttributeKeys;
+import org.jhotdraw.samples.svg.figures.SVGRectFigure;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/** Compares the streaming SVG writer with the DOM writer. */
+public class SVGStreamingTest {
+
+  /**
+   * Reads a drawing with the streaming reader. The DOM reader is not used for comparison, because
+   * it can not parse documents.
+   */
+  private static Drawing read(InputStream in) throws IOException {
+    SVGInputFormat format = new SVGInputFormat();
+    format.setStreaming(true);
+    Drawing drawing = new DefaultDrawing();
+    format.read(in, drawing, true);
+    return drawing;
+  }
+
+  private static Drawing readResource() throws IOException {
+    try (InputStream in = SVGStreamingTest.class.getResourceAsStream("figures.svg")) {
+      return read(in);
+    }
+  }
+
+  private static byte[] write(Drawing drawing, boolean isStreaming) throws IOException {
+    SVGOutputFormat format = new SVGOutputFormat();
+    format.setStreaming(isStreaming);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    format.write(out, drawing);
+    return out.toByteArray();
+  }
+
+  private static void assertSameFigures(List<Figure> expected, List<Figure> actual) {
+    assertThat(actual).hasSameSizeAs(expected);
+    for (int i = 0; i < expected.size(); i++) {
+      Figure e = expected.get(i);
+      Figure a = actual.get(i);
+      assertThat(a).isExactlyInstanceOf(e.getClass());
+      Rectangle2D.Double eb = e.getBounds();
+      Rectangle2D.Double ab = a.getBounds();
+      assertThat(ab.x).isCloseTo(eb.x, within(1e-6));
+      assertThat(ab.y).isCloseTo(eb.y, within(1e-6));
+      assertThat(ab.width).isCloseTo(eb.width, within(1e-6));
+      assertThat(ab.height).isCloseTo(eb.height, within(1e-6));
+      assertThat(a.attr().getAttributes()).isEqualTo(e.attr().getAttributes());
+      if (e instanceof CompositeFigure) {
+        assertSameFigures(((CompositeFigure) e).getChildren(), ((CompositeFigure) a).getChildren());
+      }
+    }
+  }
+
+  @Test
+  public void testStreamingRead() throws IOException {
+    Drawing drawing = readResource();
+    assertThat(drawing.getChildren()).hasSize(5);
+    assertThat(drawing.getChild(0).attr().get(SVGAttributeKeys.FILL_GRADIENT))
+        .isInstanceOf(LinearGradient.class);
+    assertThat(((CompositeFigure) drawing.getChild(2)).getChildren()).hasSize(2);
+  }
+
+  @Test
+  public void testStreamingRoundTripEqualsDomWrite() throws IOException {
+    Drawing drawing = readResource();
+    byte[] streamingOut = write(drawing, true);
+    byte[] domOut = write(drawing, false);
+
+    Drawing fromStreamingOut = read(new ByteArrayInputStream(streamingOut));
+    Drawing fromDomOut = read(new ByteArrayInputStream(domOut));
+    assertSameFigures(fromDomOut.getChildren(), fromStreamingOut.getChildren());
+    // A second round trip does not change the figures. The first round trip normalizes values,
+    // such as font names.
+    Drawing twice = read(new ByteArrayInputStream(write(fromStreamingOut, true)));
+    assertSameFigures(fromStreamingOut.getChildren(), twice.getChildren());
+  }
+
+  @Test
+  public void testStreamingWriteOfManyFigures() throws IOException {
+    Drawing drawing = new DefaultDrawing();
+    for (int i = 0; i < 2000; i++) {
+      SVGRectFigure rect = new SVGRectFigure(i, i * 0.5, 10, 20);
+      rect.attr().set(SVGAttributeKeys.FILL_COLOR, new Color(i % 256, 0, 0));
+      drawing.add(rect);
+    }
+    Drawing fromStreamingOut = read(new ByteArrayInputStream(write(drawing, true)));
+    Drawing fromDomOut = read(new ByteArrayInputStream(write(drawing, false)));
+    assertSameFigures(fromDomOut.getChildren(), fromStreamingOut.getChildren());
+    assertThat(fromStreamingOut.getChildren()).hasSize(2000);
+    Figure rect = fromStreamingOut.getChild(1234);
+    assertThat(rect.getBounds()).isEqualTo(drawing.getChild(1234).getBounds());
+    assertThat(rect.attr().get(SVGAttributeKeys.FILL_COLOR)).isEqualTo(new Color(1234 % 256, 0, 0));
+  }
+
+  @Test
+  public void testStyleSheetAppliesToPrecedingElements() throws IOException {
+    String svg =
+        "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"100\" height=\"100\">"
+            + "<rect class=\"red\" x=\"10\" y=\"10\" width=\"20\" height=\"20\"/>"
+            + "<style type=\"text/css\">.red { fill: #ff0000 }</style>"
+            + "</svg>";
+    Drawing drawing = read(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)));
+    assertThat(drawing.getChildren()).hasSize(1);
+    assertThat(drawing.getChild(0).attr().get(SVGAttributeKeys.FILL_COLOR)).isEqualTo(Color.RED);
+  }
+
+  @Test
+  public void testOnlyReferencedElementsAreKept() throws IOException {
+    String svg =
+        "<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\""
+            + " width=\"100\" height=\"100\">"
+            + "<rect id=\"unused\" x=\"0\" y=\"0\" width=\"5\" height=\"5\"/>"
+            + "<g id=\"group\"><circle id=\"circle\" cx=\"50\" cy=\"50\" r=\"5\"/></g>"
+            + "<rect id=\"earlier\" x=\"10\" y=\"10\" width=\"5\" height=\"5\""
+            + " style=\"fill:url(#gradient)\"/>"
+            + "<use xlink:href=\"#earlier\" x=\"20\"/>"
+            + "<use xlink:href=\"#later\" x=\"20\"/>"
+            + "<rect id=\"later\" x=\"30\" y=\"30\" width=\"5\" height=\"5\"/>"
+            + "<linearGradient id=\"gradient\"><stop offset=\"0\" stop-color=\"#ff0000\"/>"
+            + "</linearGradient>"
+            + "</svg>";
+    SVGInputFormat format = new SVGInputFormat();
+    format.setStreaming(true);
+    Drawing drawing = new DefaultDrawing();
+    Element root =
+        format.readStreaming(
+            new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)), drawing, true);
+
+    List<String> keptIds = new ArrayList<>();
+    NodeList kept = root.getElementsByTagName("*");
+    for (int i = 0; i < kept.getLength(); i++) {
+      Element elem = (Element) kept.item(i);
+      if (elem.hasAttribute("id")) {
+        keptIds.add(elem.getAttribute("id"));
+      }
+    }
+    assertThat(keptIds).containsExactly("earlier", "later", "gradient");
+    assertThat(drawing.getChildren()).hasSize(6);
+    assertThat(drawing.getChild(2).attr().get(SVGAttributeKeys.FILL_GRADIENT))
+        .isInstanceOf(LinearGradient.class);
+    assertThat(drawing.getChild(3).getBounds().x).isCloseTo(30, within(1e-6));
+    assertThat(drawing.getChild(4).getBounds().x).isCloseTo(50, within(1e-6));
+  }
+}
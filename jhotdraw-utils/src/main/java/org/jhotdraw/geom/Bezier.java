@@ -135,6 +135,376 @@ public class Bezier {
     return fitBezierPath(d, error);
   }
 
+  /**
+   * Fits a bezier path to digitized points, while the points are being digitized.
+   *
+   * <p>The fitter consumes the points one by one. As soon as a corner has been detected, the points
+   * up to the corner are fitted and appended to the bezier path, and only the points after the
+   * corner are kept. Long smooth tails are split at a point which has already been passed, with a
+   * shared tangent, so that the work done by {@link #finish} is bounded.
+   *
+   * <p>For input without long smooth tails, the fitted path is the same as the path computed by
+   * {@link #fitBezierPath(java.util.List, double)}. The points are held in primitive buffers, which
+   * are reused for all segments.
+   */
+  public static class IncrementalFitter {
+
+    /** Maximal number of unfitted points before the tail is split. */
+    private static final int MAX_TAIL_SIZE = 256;
+    /** Minimal angle for corner points. */
+    private static final double CORNER_ANGLE = 77 / 180d * Math.PI;
+    /** Maximal number of reparameterization iterations. */
+    private static final int MAX_ITERATIONS = 4;
+
+    private final double error;
+    private final double errorSquared;
+    private final double cornerDistanceSquared;
+    private final double closeDistanceSquared;
+    private BezierPath path = new BezierPath();
+    /** The digitized points, which have not been fitted yet. */
+    private double[] xs = new double[64];
+
+    private double[] ys = new double[64];
+    private int count;
+    /** Index of the next point, which has to be checked for being a corner. */
+    private int check = 1;
+    /** Whether the first point of the tail is a corner, or the first point of the path. */
+    private boolean isTailAtCorner;
+    /**
+     * Unit tangent at the first point of the tail, if the tail has been split from a smooth curve.
+     * NaN if the tangent has to be computed from the points.
+     */
+    private double tailTangentX = Double.NaN;
+
+    private double tailTangentY = Double.NaN;
+    /** Buffers for the cleaned points of a segment and for their parameterization. */
+    private double[] sx = new double[64];
+
+    private double[] sy = new double[64];
+    private double[] u = new double[64];
+    /** The squared error computed by the last call of computeMaxError. */
+    private double maxErrorSquared;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param error the maximal allowed error between the bezier path and the digitized points.
+     */
+    public IncrementalFitter(double error) {
+      this.errorSquared = error * error;
+      this.error = Math.sqrt(errorSquared);
+      // fitBezierPath passes error * error as minimal distance to splitAtCorners
+      this.cornerDistanceSquared = errorSquared * errorSquared;
+      this.closeDistanceSquared = 4 * errorSquared;
+    }
+
+    /** Adds a digitized point. */
+    public void addPoint(double x, double y) {
+      if (path == null) {
+        throw new IllegalStateException("fitter is finished");
+      }
+      if (count == xs.length) {
+        xs = Arrays.copyOf(xs, count * 2);
+        ys = Arrays.copyOf(ys, count * 2);
+      }
+      xs[count] = x;
+      ys[count] = y;
+      count++;
+      // Check all points for which a succeeding point at the minimal distance is known now.
+      while (check < count - 1 && distanceSquared(check, count - 1) >= cornerDistanceSquared) {
+        if (isCorner(check)) {
+          commit(check, Double.NaN, Double.NaN, true);
+          isTailAtCorner = true;
+          check = 1;
+        } else {
+          check++;
+        }
+      }
+      if (count >= MAX_TAIL_SIZE && check > 1) {
+        int split = check - 1;
+        double tx = ((xs[split - 1] - xs[split]) + (xs[split] - xs[split + 1])) / 2.0;
+        double ty = ((ys[split - 1] - ys[split]) + (ys[split] - ys[split + 1])) / 2.0;
+        double len = Math.sqrt(tx * tx + ty * ty);
+        if (len != 0.0) {
+          tx /= len;
+          ty /= len;
+        }
+        commit(split, tx, ty, false);
+        tailTangentX = -tx;
+        tailTangentY = -ty;
+        isTailAtCorner = true;
+        check = 1;
+      }
+    }
+
+    /** Adds a digitized point. */
+    public void addPoint(Point2D.Double p) {
+      addPoint(p.x, p.y);
+    }
+
+    /**
+     * Fits the remaining points and returns the fitted bezier path. The fitter can not be used
+     * anymore after this method has been called.
+     */
+    public BezierPath finish() {
+      if (path == null) {
+        throw new IllegalStateException("fitter is finished");
+      }
+      if (count > 0) {
+        commit(count - 1, Double.NaN, Double.NaN, Double.isNaN(tailTangentX));
+      }
+      BezierPath result = path;
+      path = null;
+      return result;
+    }
+
+    private double distanceSquared(int i, int j) {
+      double dx = xs[i] - xs[j];
+      double dy = ys[i] - ys[j];
+      return dx * dx + dy * dy;
+    }
+
+    /** Corner detection as in {@link Bezier#findCorners}. */
+    private boolean isCorner(int i) {
+      int prev = i - 1;
+      while (prev > 0 && distanceSquared(prev, i) < cornerDistanceSquared) {
+        prev--;
+      }
+      if (!isTailAtCorner && distanceSquared(prev, i) < cornerDistanceSquared) {
+        return false;
+      }
+      int next = i + 1;
+      while (distanceSquared(next, i) < cornerDistanceSquared) {
+        next++;
+      }
+      double aPrev = Math.atan2(ys[prev] - ys[i], xs[prev] - xs[i]);
+      double aNext = Math.atan2(ys[next] - ys[i], xs[next] - xs[i]);
+      double angle = Math.abs(aPrev - aNext);
+      return angle < Math.PI - CORNER_ANGLE || angle > Math.PI + CORNER_ANGLE;
+    }
+
+    /**
+     * Fits the points from the start of the tail up to the specified index, and removes them from
+     * the tail except for the last one.
+     *
+     * @param last Index of the last point of the segment.
+     * @param rightTangentX x of the unit tangent at the last point, or NaN.
+     * @param rightTangentY y of the unit tangent at the last point, or NaN.
+     * @param connectsCorners Whether the segment starts and ends at a corner.
+     */
+    private void commit(
+        int last, double rightTangentX, double rightTangentY, boolean connectsCorners) {
+      int n = cleanSegment(last);
+      switch (n) {
+        case 1:
+          path.add(new BezierPath.Node(sx[0], sy[0]));
+          break;
+        case 2:
+          if (path.isEmpty()) {
+            path.add(new BezierPath.Node(sx[0], sy[0]));
+          }
+          path.lineTo(sx[1], sy[1]);
+          break;
+        default:
+          if (path.isEmpty()) {
+            path.add(new BezierPath.Node(sx[0], sy[0]));
+          }
+          double t1x = tailTangentX;
+          double t1y = tailTangentY;
+          if (Double.isNaN(t1x)) {
+            t1x = sx[1] - sx[0];
+            t1y = sy[1] - sy[0];
+          }
+          double t2x = rightTangentX;
+          double t2y = rightTangentY;
+          if (Double.isNaN(t2x)) {
+            t2x = sx[n - 2] - sx[n - 1];
+            t2y = sy[n - 2] - sy[n - 1];
+          }
+          double len1 = Math.sqrt(t1x * t1x + t1y * t1y);
+          double len2 = Math.sqrt(t2x * t2x + t2y * t2y);
+          fitCubic(
+              0,
+              n - 1,
+              len1 == 0.0 ? t1x : t1x / len1,
+              len1 == 0.0 ? t1y : t1y / len1,
+              len2 == 0.0 ? t2x : t2x / len2,
+              len2 == 0.0 ? t2y : t2y / len2,
+              connectsCorners);
+          break;
+      }
+      // Keep the last point as the first point of the tail
+      int remaining = count - last;
+      System.arraycopy(xs, last, xs, 0, remaining);
+      System.arraycopy(ys, last, ys, 0, remaining);
+      count = remaining;
+      tailTangentX = tailTangentY = Double.NaN;
+    }
+
+    /**
+     * Copies the points of the tail up to the specified index into the segment buffers, removes
+     * close points and reduces noise, as {@link Bezier#removeClosePoints} and {@link
+     * Bezier#reduceNoise} do.
+     *
+     * @return the number of points in the segment buffers.
+     */
+    private int cleanSegment(int last) {
+      if (sx.length <= last) {
+        sx = new double[xs.length];
+        sy = new double[xs.length];
+        u = new double[xs.length];
+      }
+      int n = 1;
+      sx[0] = xs[0];
+      sy[0] = ys[0];
+      for (int i = 1; i <= last; i++) {
+        double dx = xs[i] - sx[n - 1];
+        double dy = ys[i] - sy[n - 1];
+        if (dx * dx + dy * dy > closeDistanceSquared) {
+          sx[n] = xs[i];
+          sy[n] = ys[i];
+          n++;
+        }
+      }
+      sx[n - 1] = xs[last];
+      sy[n - 1] = ys[last];
+      // Reduce noise with weight 0.8 for the current point
+      double weight = 0.8;
+      double pnWeight = (1d - weight) / 2d;
+      double prevX = sx[0];
+      double prevY = sy[0];
+      for (int i = 1; i < n - 1; i++) {
+        double curX = sx[i];
+        double curY = sy[i];
+        sx[i] = curX * weight + pnWeight * prevX + pnWeight * sx[i + 1];
+        sy[i] = curY * weight + pnWeight * prevY + pnWeight * sy[i + 1];
+        prevX = curX;
+        prevY = curY;
+      }
+      return n;
+    }
+
+    /** Fits cubic curves to the points of the segment buffers, as Bezier.fitCubic does. */
+    private void fitCubic(
+        int first,
+        int last,
+        double t1x,
+        double t1y,
+        double t2x,
+        double t2y,
+        boolean connectsCorners) {
+      double dist = Math.sqrt(sqr(sx[last] - sx[first]) + sqr(sy[last] - sy[first])) / 3.0;
+      double len1 = Math.sqrt(t1x * t1x + t1y * t1y);
+      double len2 = Math.sqrt(t2x * t2x + t2y * t2y);
+      double c1x = sx[first] + (len1 == 0.0 ? t1x : t1x * (dist / len1));
+      double c1y = sy[first] + (len1 == 0.0 ? t1y : t1y * (dist / len1));
+      double c2x = sx[last] + (len2 == 0.0 ? t2x : t2x * (dist / len2));
+      double c2y = sy[last] + (len2 == 0.0 ? t2y : t2y * (dist / len2));
+      if (last - first + 1 == 2) {
+        path.curveTo(c1x, c1y, c2x, c2y, sx[last], sy[last]);
+        return;
+      }
+      // Chord length parameterization
+      u[first] = 0.0;
+      for (int i = first + 1; i <= last; i++) {
+        u[i] = u[i - 1] + Math.sqrt(sqr(sx[i] - sx[i - 1]) + sqr(sy[i] - sy[i - 1]));
+      }
+      for (int i = first + 1; i <= last; i++) {
+        u[i] = u[i] / u[last];
+      }
+      int split = computeMaxError(first, last, c1x, c1y, c2x, c2y);
+      double maxError = maxErrorSquared;
+      if (maxError >= errorSquared && maxError < errorSquared * errorSquared) {
+        for (int iter = 0; iter < MAX_ITERATIONS && maxError >= errorSquared; iter++) {
+          for (int i = first; i <= last; i++) {
+            u[i] = newtonRaphsonRootFind(first, last, c1x, c1y, c2x, c2y, i);
+          }
+          split = computeMaxError(first, last, c1x, c1y, c2x, c2y);
+          maxError = maxErrorSquared;
+        }
+      }
+      if (maxError < errorSquared) {
+        if (connectsCorners
+            && Geom.lineContainsPoint(sx[first], sy[first], sx[last], sy[last], c1x, c1y, error)
+            && Geom.lineContainsPoint(sx[first], sy[first], sx[last], sy[last], c2x, c2y, error)) {
+          path.lineTo(sx[last], sy[last]);
+        } else {
+          path.curveTo(c1x, c1y, c2x, c2y, sx[last], sy[last]);
+        }
+        return;
+      }
+      // Fitting failed -- split at max error point and fit recursively
+      double tcx = ((sx[split - 1] - sx[split]) + (sx[split] - sx[split + 1])) / 2.0;
+      double tcy = ((sy[split - 1] - sy[split]) + (sy[split] - sy[split + 1])) / 2.0;
+      double len = Math.sqrt(tcx * tcx + tcy * tcy);
+      if (len != 0.0) {
+        tcx /= len;
+        tcy /= len;
+      }
+      if (first < split) {
+        fitCubic(first, split, t1x, t1y, tcx, tcy, false);
+      } else {
+        path.lineTo(sx[split], sy[split]);
+      }
+      if (split < last) {
+        fitCubic(split, last, -tcx, -tcy, t2x, t2y, false);
+      } else {
+        path.lineTo(sx[last], sy[last]);
+      }
+    }
+
+    /**
+     * Computes the maximal squared distance of the points to the curve.
+     *
+     * @return the index of the point with the maximal distance.
+     */
+    private int computeMaxError(
+        int first, int last, double c1x, double c1y, double c2x, double c2y) {
+      int split = (last - first + 1) / 2;
+      double maxDist = 0.0;
+      for (int i = first + 1; i < last; i++) {
+        double t = u[i];
+        double px = b0(t) * sx[first] + b1(t) * c1x + b2(t) * c2x + b3(t) * sx[last];
+        double py = b0(t) * sy[first] + b1(t) * c1y + b2(t) * c2y + b3(t) * sy[last];
+        double dist = sqr(px - sx[i]) + sqr(py - sy[i]);
+        if (dist >= maxDist) {
+          maxDist = dist;
+          split = i;
+        }
+      }
+      maxErrorSquared = maxDist;
+      return split;
+    }
+
+    /** Newton-Raphson iteration for the parameter of point i, as in {@link Bezier}. */
+    private double newtonRaphsonRootFind(
+        int first, int last, double c1x, double c1y, double c2x, double c2y, int i) {
+      double t = u[i];
+      double s = 1.0 - t;
+      double qx = b0(t) * sx[first] + b1(t) * c1x + b2(t) * c2x + b3(t) * sx[last];
+      double qy = b0(t) * sy[first] + b1(t) * c1y + b2(t) * c2y + b3(t) * sy[last];
+      // Q' with control points 3 * (Q[i + 1] - Q[i])
+      double a0x = 3 * (c1x - sx[first]);
+      double a0y = 3 * (c1y - sy[first]);
+      double a1x = 3 * (c2x - c1x);
+      double a1y = 3 * (c2y - c1y);
+      double a2x = 3 * (sx[last] - c2x);
+      double a2y = 3 * (sy[last] - c2y);
+      double q1x = s * s * a0x + 2 * s * t * a1x + t * t * a2x;
+      double q1y = s * s * a0y + 2 * s * t * a1y + t * t * a2y;
+      // Q'' with control points 2 * (Q'[i + 1] - Q'[i])
+      double q2x = s * 2 * (a1x - a0x) + t * 2 * (a2x - a1x);
+      double q2y = s * 2 * (a1y - a0y) + t * 2 * (a2y - a1y);
+      double numerator = (qx - sx[i]) * q1x + (qy - sy[i]) * q1y;
+      double denominator = q1x * q1x + q1y * q1y + (qx - sx[i]) * q2x + (qy - sy[i]) * q2y;
+      return t - numerator / denominator;
+    }
+
+    private static double sqr(double v) {
+      return v * v;
+    }
+  }
+
   /**
    * Removes points which are closer together than the specified minimal distance.
    *
@@ -48,6 +48,10 @@ public class BezierPath extends ArrayList<BezierPath.Node>
   private transient Path2D.Double generalPath;
   /** We cache a Rectangle2D.Double instance to speed up getBounds operations. */
   private transient Rectangle2D.Double bounds;
+  /** We cache the arc lengths of the flattened path to speed up length based operations. */
+  private transient ArcLengthTable arcLengths;
+  /** We cache an index of the flattened segments to speed up outline hit tests. */
+  private transient SegmentIndex segmentIndex;
   /** We cache the index of the outermost node to speed up method indexOfOutermostNode(); */
   private int outer = -1;
   /** If this value is set to true, closes the bezier path. */
@@ -299,6 +303,8 @@ public class BezierPath extends ArrayList<BezierPath.Node>
   public void invalidatePath() {
     generalPath = null;
     bounds = null;
+    arcLengths = null;
+    segmentIndex = null;
     outer = -1;
   }
 
@@ -393,7 +399,28 @@ public class BezierPath extends ArrayList<BezierPath.Node>
    * @param tolerance The tolerance for the test.
    */
   public boolean outlineContains(Point2D.Double p, double tolerance) {
-    return Shapes.outlineContains(this, p, tolerance);
+    return getSegmentIndex(tolerance).outlineContains(p.x, p.y, tolerance);
+  }
+
+  /**
+   * Returns the distance from the specified point to the outline of this bezier path. Returns
+   * {@code Double.POSITIVE_INFINITY} if the path has no segments.
+   *
+   * @param p The point.
+   * @param flatness The flatness used to approximate the outline.
+   */
+  public double outlineDistance(Point2D.Double p, double flatness) {
+    return getSegmentIndex(flatness).distance(p.x, p.y);
+  }
+
+  /** Returns the segment index for the specified flatness, creating it if necessary. */
+  private SegmentIndex getSegmentIndex(double flatness) {
+    SegmentIndex index = segmentIndex;
+    if (index == null || index.getFlatness() != flatness) {
+      index = new SegmentIndex(getPathIterator(new AffineTransform(), flatness), flatness);
+      segmentIndex = index;
+    }
+    return index;
   }
 
   @Override
@@ -692,7 +719,6 @@ public class BezierPath extends ArrayList<BezierPath.Node>
    * @param relative a value between 0 and 1.
    */
   public Point2D.Double getPointOnPath(double relative, double flatness) {
-    // This method works only for straight lines
     if (size() == 0) {
       return null;
     } else if (size() == 1) {
@@ -703,36 +729,10 @@ public class BezierPath extends ArrayList<BezierPath.Node>
     } else if (relative >= 1) {
       return get(size() - 1).getControlPoint(0);
     }
-    validatePath();
-    // Compute the relative point on the path
-    double len = getLengthOfPath(flatness);
-    double relativeLen = len * relative;
-    double pos = 0;
-    double[] coords = new double[6];
-    PathIterator i = generalPath.getPathIterator(new AffineTransform(), flatness);
-    double prevX = coords[0];
-    double prevY = coords[1];
-    i.next();
-    for (; !i.isDone(); i.next()) {
-      i.currentSegment(coords);
-      double segLen = Geom.length(prevX, prevY, coords[0], coords[1]);
-      if (pos + segLen >= relativeLen) {
-        // if (true) return new Point2D.Double(coords[0], coords[1]);
-        // Compute the relative Point2D.Double on the line
-        /*
-        return new Point2D.Double(
-        prevX * pos / len + coords[0] * (pos + segLen) / len,
-        prevY * pos / len + coords[1] * (pos + segLen) / len
-        );*/
-        double factor = (relativeLen - pos) / segLen;
-        return new Point2D.Double(
-            prevX * (1 - factor) + coords[0] * factor, prevY * (1 - factor) + coords[1] * factor);
-      }
-      pos += segLen;
-      prevX = coords[0];
-      prevY = coords[1];
-    }
-    throw new InternalError("We should never get here");
+    ArcLengthTable table = getArcLengthTable(flatness);
+    Point2D.Double p = new Point2D.Double();
+    table.getPoint(table.indexOf(table.getLength() * relative), table.getLength() * relative, p);
+    return p;
   }
 
   /**
@@ -741,19 +741,7 @@ public class BezierPath extends ArrayList<BezierPath.Node>
    * @param flatness the flatness used to approximate the length.
    */
   public double getLengthOfPath(double flatness) {
-    double len = 0;
-    PathIterator i = generalPath.getPathIterator(new AffineTransform(), flatness);
-    double[] coords = new double[6];
-    double prevX = coords[0];
-    double prevY = coords[1];
-    i.next();
-    for (; !i.isDone(); i.next()) {
-      i.currentSegment(coords);
-      len += Geom.length(prevX, prevY, coords[0], coords[1]);
-      prevX = coords[0];
-      prevY = coords[1];
-    }
-    return len;
+    return getArcLengthTable(flatness).getLength();
   }
 
   /**
@@ -764,55 +752,196 @@ public class BezierPath extends ArrayList<BezierPath.Node>
    *     is not on the path.
    */
   public double getRelativePositionOnPath(Point2D.Double find, double flatness) {
-    // XXX - This method works only for straight lines!
-    double len = getLengthOfPath(flatness);
-    double relativeLen = 0d;
-    Node v1, v2;
-    BezierPath tempPath = new BezierPath();
-    Node t1, t2;
-    tempPath.add(t1 = new Node());
-    tempPath.add(t2 = new Node());
-    for (int i = 0, n = size() - 1; i < n; i++) {
-      v1 = get(i);
-      v2 = get(i + 1);
-      if (v1.mask == 0 && v2.mask == 0) {
-        if (Geom.lineContainsPoint(v1.x[0], v1.y[0], v2.x[0], v2.y[0], find.x, find.y, flatness)) {
-          relativeLen += Geom.length(v1.x[0], v1.y[0], find.x, find.y);
-          return relativeLen / len;
-        } else {
-          relativeLen += Geom.length(v1.x[0], v1.y[0], v2.x[0], v2.y[0]);
+    ArcLengthTable table = getArcLengthTable(flatness);
+    double len = table.getLength();
+    double[] xy = table.xy;
+    for (int i = 0, n = table.count - 1; i < n; i++) {
+      double x1 = xy[i * 2];
+      double y1 = xy[i * 2 + 1];
+      if (Geom.lineContainsPoint(x1, y1, xy[i * 2 + 2], xy[i * 2 + 3], find.x, find.y, flatness)) {
+        return (len == 0) ? 0 : (table.lengths[i] + Geom.length(x1, y1, find.x, find.y)) / len;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Creates a cursor, which walks along the path.
+   *
+   * <p>The cursor uses the arc length table of the path at the time it was created. It does not
+   * follow changes of the path.
+   *
+   * @param flatness the flatness used to approximate the path.
+   */
+  public ArcLengthCursor createArcLengthCursor(double flatness) {
+    return new ArcLengthCursor(getArcLengthTable(flatness));
+  }
+
+  /** Returns the arc length table for the specified flatness, creating it if necessary. */
+  private ArcLengthTable getArcLengthTable(double flatness) {
+    ArcLengthTable table = arcLengths;
+    if (table == null || table.flatness != flatness) {
+      table = new ArcLengthTable(getPathIterator(null, flatness), flatness);
+      arcLengths = table;
+    }
+    return table;
+  }
+
+  /**
+   * Holds the vertices of the flattened path and the length of the path up to each vertex.
+   *
+   * <p>Instances are immutable once they have been created.
+   */
+  private static final class ArcLengthTable {
+
+    private final double flatness;
+    /** The x and y coordinates of the vertices. */
+    private double[] xy = new double[32];
+    /** The length of the path from the first vertex up to each vertex. */
+    private double[] lengths = new double[16];
+    /** The number of vertices. */
+    private int count;
+
+    ArcLengthTable(PathIterator i, double flatness) {
+      this.flatness = flatness;
+      double[] coords = new double[6];
+      for (; !i.isDone(); i.next()) {
+        if (i.currentSegment(coords) == PathIterator.SEG_CLOSE) {
+          // The closing segment is provided as an explicit segment
+          continue;
         }
-      } else {
-        t1.setTo(v1);
-        t2.setTo(v2);
-        tempPath.invalidatePath();
-        if (tempPath.outlineContains(find, flatness)) {
-          relativeLen += Geom.length(v1.x[0], v1.y[0], find.x, find.y);
-          return relativeLen / len;
-        } else {
-          relativeLen += Geom.length(v1.x[0], v1.y[0], v2.x[0], v2.y[0]);
+        if (count == lengths.length) {
+          xy = Arrays.copyOf(xy, count * 4);
+          lengths = Arrays.copyOf(lengths, count * 2);
         }
+        xy[count * 2] = coords[0];
+        xy[count * 2 + 1] = coords[1];
+        lengths[count] =
+            (count == 0)
+                ? 0
+                : lengths[count - 1]
+                    + Geom.length(xy[count * 2 - 2], xy[count * 2 - 1], coords[0], coords[1]);
+        count++;
       }
     }
-    if (isClosed && size() > 1) {
-      v1 = get(size() - 1);
-      v2 = get(0);
-      if (v1.mask == 0 && v2.mask == 0) {
-        if (Geom.lineContainsPoint(v1.x[0], v1.y[0], v2.x[0], v2.y[0], find.x, find.y, flatness)) {
-          relativeLen += Geom.length(v1.x[0], v1.y[0], find.x, find.y);
-          return relativeLen / len;
-        }
-      } else {
-        t1.setTo(v1);
-        t2.setTo(v2);
-        tempPath.invalidatePath();
-        if (tempPath.outlineContains(find, flatness)) {
-          relativeLen += Geom.length(v1.x[0], v1.y[0], find.x, find.y);
-          return relativeLen / len;
+
+    double getLength() {
+      return (count == 0) ? 0 : lengths[count - 1];
+    }
+
+    /**
+     * Returns the index of the segment which contains the specified length. The segment with index
+     * i goes from vertex i to vertex i + 1.
+     */
+    int indexOf(double length) {
+      int low = 0;
+      int high = count - 2;
+      while (low < high) {
+        int mid = (low + high + 1) >>> 1;
+        if (lengths[mid] <= length) {
+          low = mid;
+        } else {
+          high = mid - 1;
         }
       }
+      return Math.max(0, low);
+    }
+
+    /** Computes the point at the specified length on the segment with the specified index. */
+    void getPoint(int index, double length, Point2D.Double p) {
+      if (count == 0) {
+        p.x = p.y = 0;
+        return;
+      }
+      int j = index * 2;
+      if (index >= count - 1) {
+        p.x = xy[j];
+        p.y = xy[j + 1];
+        return;
+      }
+      double segLen = lengths[index + 1] - lengths[index];
+      double factor =
+          (segLen == 0) ? 0 : Math.max(0, Math.min(1, (length - lengths[index]) / segLen));
+      p.x = xy[j] * (1 - factor) + xy[j + 2] * factor;
+      p.y = xy[j + 1] * (1 - factor) + xy[j + 3] * factor;
+    }
+  }
+
+  /**
+   * A cursor which walks along a bezier path by arc length.
+   *
+   * <p>Moving the cursor by a small distance takes constant time, because the cursor remembers the
+   * segment of the flattened path on which it is positioned.
+   */
+  public static class ArcLengthCursor {
+
+    private final ArcLengthTable table;
+    /** The current position, as a length along the path. */
+    private double position;
+    /** The index of the segment which contains the current position. */
+    private int index;
+
+    private ArcLengthCursor(ArcLengthTable table) {
+      this.table = table;
+    }
+
+    /** Returns the length of the path. */
+    public double getLength() {
+      return table.getLength();
+    }
+
+    /** Returns the current position as a length along the path. */
+    public double getPosition() {
+      return position;
+    }
+
+    /** Moves the cursor to the specified length along the path. The length is clamped. */
+    public void moveTo(double length) {
+      position = Math.max(0, Math.min(table.getLength(), length));
+      index = table.indexOf(position);
+    }
+
+    /**
+     * Moves the cursor by the specified distance along the path. The position is clamped to the
+     * start and the end of the path.
+     *
+     * @return true if the cursor has not been clamped.
+     */
+    public boolean moveBy(double distance) {
+      double target = position + distance;
+      double length = table.getLength();
+      boolean inside = target >= 0 && target <= length;
+      position = Math.max(0, Math.min(length, target));
+      double[] lengths = table.lengths;
+      int last = Math.max(0, table.count - 2);
+      while (index < last && lengths[index + 1] <= position) {
+        index++;
+      }
+      while (index > 0 && lengths[index] > position) {
+        index--;
+      }
+      return inside;
+    }
+
+    /** Returns the point at the current position. */
+    public Point2D.Double getPoint() {
+      Point2D.Double p = new Point2D.Double();
+      table.getPoint(index, position, p);
+      return p;
+    }
+
+    /**
+     * Returns the direction of the path at the current position, as an angle in radians measured
+     * from the x-axis. Returns 0 if the path has no extent.
+     */
+    public double getAngle() {
+      if (table.count < 2) {
+        return 0;
+      }
+      double[] xy = table.xy;
+      int j = index * 2;
+      return Math.atan2(xy[j + 3] - xy[j + 1], xy[j + 2] - xy[j]);
     }
-    return -1;
   }
 
   /**
@@ -0,0 +1,187 @@
+/*
+ * @(#)BoundsTree.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.geom;
+
+import java.awt.geom.Rectangle2D;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A BoundsTree maintains the union of the bounds of a set of objects.
+ *
+ * <p>The bounds are stored in the leaves of a complete binary tree, each inner node holds the union
+ * of its two children. Adding, removing or updating an object recomputes only the path from its
+ * leaf to the root, and thus takes O(log n) time. The union of all bounds is available in O(1).
+ *
+ * @param <T> the type of the objects
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public class BoundsTree<T> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private static final int INITIAL_CAPACITY = 16;
+  private HashMap<T, Integer> slots = new HashMap<>();
+  /** Unused leaf slots, which are reused before the tree grows. */
+  private int[] freeSlots = new int[INITIAL_CAPACITY];
+
+  private int freeCount;
+  /** Index of the next leaf slot, which has never been used. */
+  private int nextSlot;
+  /** Number of leaves. Node i has the children 2i and 2i+1; the leaves start at index capacity. */
+  private int capacity;
+  /** Holds minX, minY, maxX, maxY for each node at index 4*i. */
+  private double[] nodes;
+
+  /** Creates a new instance. */
+  public BoundsTree() {
+    capacity = INITIAL_CAPACITY;
+    nodes = emptyNodes(capacity);
+  }
+
+  /** Returns the number of objects. */
+  public int size() {
+    return slots.size();
+  }
+
+  /** Returns true if the tree contains no objects. */
+  public boolean isEmpty() {
+    return slots.isEmpty();
+  }
+
+  /** Returns true if the tree contains the specified object. */
+  public boolean contains(T o) {
+    return slots.containsKey(o);
+  }
+
+  /** Adds an object, or updates its bounds if it is already in the tree. */
+  public void add(T o, Rectangle2D.Double bounds) {
+    Integer slot = slots.get(o);
+    if (slot == null) {
+      if (freeCount > 0) {
+        slot = freeSlots[--freeCount];
+      } else {
+        if (nextSlot == capacity) {
+          grow();
+        }
+        slot = nextSlot++;
+      }
+      slots.put(o, slot);
+    }
+    setLeaf(slot, bounds);
+  }
+
+  /** Updates the bounds of an object. Does nothing if the object is not in the tree. */
+  public void update(T o, Rectangle2D.Double bounds) {
+    Integer slot = slots.get(o);
+    if (slot != null) {
+      setLeaf(slot, bounds);
+    }
+  }
+
+  /** Removes an object. */
+  public void remove(T o) {
+    Integer slot = slots.remove(o);
+    if (slot != null) {
+      setLeaf(slot, null);
+      if (freeCount == freeSlots.length) {
+        freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+      }
+      freeSlots[freeCount++] = slot;
+    }
+  }
+
+  /** Removes all objects. */
+  public void clear() {
+    slots.clear();
+    freeCount = 0;
+    nextSlot = 0;
+    capacity = INITIAL_CAPACITY;
+    nodes = emptyNodes(capacity);
+  }
+
+  /** Returns the bounds of the specified object, or null if the object is not in the tree. */
+  public Rectangle2D.Double get(T o) {
+    Integer slot = slots.get(o);
+    return (slot == null) ? null : toRectangle(capacity + slot);
+  }
+
+  /** Returns the union of the bounds of all objects, or null if the tree is empty. */
+  public Rectangle2D.Double getUnion() {
+    return toRectangle(1);
+  }
+
+  private Rectangle2D.Double toRectangle(int node) {
+    int i = node * 4;
+    if (nodes[i] > nodes[i + 2]) {
+      return null;
+    }
+    return new Rectangle2D.Double(
+        nodes[i], nodes[i + 1], nodes[i + 2] - nodes[i], nodes[i + 3] - nodes[i + 1]);
+  }
+
+  private void setLeaf(int slot, Rectangle2D.Double r) {
+    int node = capacity + slot;
+    int i = node * 4;
+    if (r == null || Double.isNaN(r.x + r.y + r.width + r.height)) {
+      nodes[i] = nodes[i + 1] = Double.POSITIVE_INFINITY;
+      nodes[i + 2] = nodes[i + 3] = Double.NEGATIVE_INFINITY;
+    } else {
+      nodes[i] = r.x;
+      nodes[i + 1] = r.y;
+      nodes[i + 2] = r.x + r.width;
+      nodes[i + 3] = r.y + r.height;
+    }
+    for (node >>>= 1; node > 0; node >>>= 1) {
+      if (!recompute(node)) {
+        break;
+      }
+    }
+  }
+
+  /** Recomputes an inner node from its children. Returns true if the node has changed. */
+  private boolean recompute(int node) {
+    int i = node * 4;
+    int l = node * 8;
+    int r = l + 4;
+    double minX = Math.min(nodes[l], nodes[r]);
+    double minY = Math.min(nodes[l + 1], nodes[r + 1]);
+    double maxX = Math.max(nodes[l + 2], nodes[r + 2]);
+    double maxY = Math.max(nodes[l + 3], nodes[r + 3]);
+    if (minX == nodes[i] && minY == nodes[i + 1] && maxX == nodes[i + 2] && maxY == nodes[i + 3]) {
+      return false;
+    }
+    nodes[i] = minX;
+    nodes[i + 1] = minY;
+    nodes[i + 2] = maxX;
+    nodes[i + 3] = maxY;
+    return true;
+  }
+
+  /** Doubles the number of leaves, and rebuilds the inner nodes. */
+  private void grow() {
+    int newCapacity = capacity * 2;
+    double[] newNodes = emptyNodes(newCapacity);
+    System.arraycopy(nodes, capacity * 4, newNodes, newCapacity * 4, capacity * 4);
+    capacity = newCapacity;
+    nodes = newNodes;
+    for (int node = capacity - 1; node > 0; node--) {
+      recompute(node);
+    }
+  }
+
+  private static double[] emptyNodes(int capacity) {
+    double[] nodes = new double[capacity * 8];
+    for (int i = 0; i < nodes.length; i += 4) {
+      nodes[i] = nodes[i + 1] = Double.POSITIVE_INFINITY;
+      nodes[i + 2] = nodes[i + 3] = Double.NEGATIVE_INFINITY;
+    }
+    return nodes;
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * @(#)DirtyRegion.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.geom;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A DirtyRegion accumulates invalidated areas as a small list of disjoint rectangles.
+ *
+ * <p>Unlike a single growing union, two small areas at opposite corners of a drawing stay two small
+ * rectangles. A rectangle which overlaps a rectangle of the region is merged with it. When the
+ * region holds more than the maximal number of rectangles, the two rectangles whose union adds the
+ * least area are merged.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public class DirtyRegion {
+
+  /** The default maximal number of rectangles. */
+  public static final int DEFAULT_MAXIMUM_COUNT = 8;
+
+  private final int maximumCount;
+  /** Holds minX, minY, maxX, maxY for each rectangle at index 4*i. */
+  private double[] rects;
+
+  private int count;
+
+  /** Creates a new instance which holds at most {@link #DEFAULT_MAXIMUM_COUNT} rectangles. */
+  public DirtyRegion() {
+    this(DEFAULT_MAXIMUM_COUNT);
+  }
+
+  /** Creates a new instance which holds at most the specified number of rectangles. */
+  public DirtyRegion(int maximumCount) {
+    if (maximumCount < 1) {
+      throw new IllegalArgumentException("maximumCount=" + maximumCount);
+    }
+    this.maximumCount = maximumCount;
+    this.rects = new double[(maximumCount + 1) * 4];
+  }
+
+  /** Returns the number of rectangles. */
+  public int size() {
+    return count;
+  }
+
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  /** Adds an area to the region. Null areas and areas with a negative size are ignored. */
+  public void add(Rectangle2D r) {
+    if (r == null || r.getWidth() < 0 || r.getHeight() < 0) {
+      return;
+    }
+    add(r.getMinX(), r.getMinY(), r.getMaxX(), r.getMaxY());
+  }
+
+  /** Adds an area given by its minimal and maximal coordinates to the region. */
+  public void add(double minX, double minY, double maxX, double maxY) {
+    // Merge the area with all rectangles which it overlaps, until it overlaps none of them
+    boolean merged;
+    do {
+      merged = false;
+      for (int i = 0; i < count; i++) {
+        int j = i * 4;
+        if (minX <= rects[j + 2]
+            && rects[j] <= maxX
+            && minY <= rects[j + 3]
+            && rects[j + 1] <= maxY) {
+          if (rects[j] <= minX
+              && rects[j + 1] <= minY
+              && maxX <= rects[j + 2]
+              && maxY <= rects[j + 3]) {
+            // The area is already covered
+            return;
+          }
+          minX = Math.min(minX, rects[j]);
+          minY = Math.min(minY, rects[j + 1]);
+          maxX = Math.max(maxX, rects[j + 2]);
+          maxY = Math.max(maxY, rects[j + 3]);
+          remove(i);
+          merged = true;
+          break;
+        }
+      }
+    } while (merged);
+    int j = count * 4;
+    rects[j] = minX;
+    rects[j + 1] = minY;
+    rects[j + 2] = maxX;
+    rects[j + 3] = maxY;
+    count++;
+    if (count > maximumCount) {
+      mergeCheapestPair();
+    }
+  }
+
+  /** Removes all rectangles. */
+  public void clear() {
+    count = 0;
+  }
+
+  /** Returns the union of all rectangles, or null if the region is empty. */
+  public Rectangle2D.Double getBounds() {
+    if (count == 0) {
+      return null;
+    }
+    Rectangle2D.Double r = getRectangle(0);
+    for (int i = 1; i < count; i++) {
+      r.add(getRectangle(i));
+    }
+    return r;
+  }
+
+  /** Returns a copy of the rectangles. */
+  public List<Rectangle2D.Double> getRectangles() {
+    ArrayList<Rectangle2D.Double> list = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      list.add(getRectangle(i));
+    }
+    return list;
+  }
+
+  private Rectangle2D.Double getRectangle(int i) {
+    int j = i * 4;
+    return new Rectangle2D.Double(
+        rects[j], rects[j + 1], rects[j + 2] - rects[j], rects[j + 3] - rects[j + 1]);
+  }
+
+  /** Removes rectangle i by moving the last rectangle into its place. */
+  private void remove(int i) {
+    count--;
+    if (i != count) {
+      System.arraycopy(rects, count * 4, rects, i * 4, 4);
+    }
+  }
+
+  private void mergeCheapestPair() {
+    int bestI = 0;
+    int bestJ = 1;
+    double bestCost = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < count; i++) {
+      for (int j = i + 1; j < count; j++) {
+        double cost = unionArea(i, j) - area(i) - area(j);
+        if (cost < bestCost) {
+          bestCost = cost;
+          bestI = i;
+          bestJ = j;
+        }
+      }
+    }
+    int a = bestI * 4;
+    int b = bestJ * 4;
+    double minX = Math.min(rects[a], rects[b]);
+    double minY = Math.min(rects[a + 1], rects[b + 1]);
+    double maxX = Math.max(rects[a + 2], rects[b + 2]);
+    double maxY = Math.max(rects[a + 3], rects[b + 3]);
+    // Remove the higher index first, so that the lower index stays valid
+    remove(bestJ);
+    remove(bestI);
+    // The union may overlap other rectangles, add merges them
+    add(minX, minY, maxX, maxY);
+  }
+
+  private double area(int i) {
+    int j = i * 4;
+    return (rects[j + 2] - rects[j]) * (rects[j + 3] - rects[j + 1]);
+  }
+
+  private double unionArea(int i, int k) {
+    int a = i * 4;
+    int b = k * 4;
+    return (Math.max(rects[a + 2], rects[b + 2]) - Math.min(rects[a], rects[b]))
+        * (Math.max(rects[a + 3], rects[b + 3]) - Math.min(rects[a + 1], rects[b + 1]));
+  }
+
+  @Override
+  public String toString() {
+    return "DirtyRegion" + Arrays.toString(getRectangles().toArray());
+  }
+}
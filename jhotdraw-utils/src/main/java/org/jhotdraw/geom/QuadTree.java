@@ -15,6 +15,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * A QuadTree allows to quickly find an object on a two-dimensional space.
@@ -27,7 +28,7 @@ import java.util.Map;
  * @author Werner Randelshofer
  * @version $Id$
  */
-public class QuadTree<T> implements Serializable {
+public class QuadTree<T> implements SpatialIndex<T>, Serializable {
 
   private static final long serialVersionUID = 1L;
   private HashMap<T, Rectangle2D.Double> outside = new HashMap<>();
@@ -45,6 +46,7 @@ public class QuadTree<T> implements Serializable {
     root = new QuadNode(bounds);
   }
 
+  @Override
   public void add(T o, Rectangle2D.Double bounds) {
     if (root.bounds.contains(bounds)) {
       root.add(o, (Rectangle2D.Double) bounds.clone());
@@ -77,11 +79,20 @@ public class QuadTree<T> implements Serializable {
     outside.clear();
   }
 
+  @Override
   public void remove(T o) {
     outside.remove(o);
     root.remove(o);
   }
 
+  @Override
+  public void clear() {
+    outside.clear();
+    root.join();
+    root.objects.clear();
+  }
+
+  @Override
   public Collection<T> findContains(Point2D.Double p) {
     HashSet<T> result = new HashSet<>();
     root.findContains(p, result);
@@ -93,6 +104,7 @@ public class QuadTree<T> implements Serializable {
     return result;
   }
 
+  @Override
   public Collection<T> findIntersects(Rectangle2D r) {
     return findIntersects(new Rectangle2D.Double(r.getX(), r.getY(), r.getWidth(), r.getHeight()));
   }
@@ -108,6 +120,7 @@ public class QuadTree<T> implements Serializable {
     return result;
   }
 
+  @Override
   public Collection<T> findInside(Rectangle2D.Double r) {
     HashSet<T> result = new HashSet<>();
     root.findInside(r, result);
@@ -119,6 +132,37 @@ public class QuadTree<T> implements Serializable {
     return result;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Implementation note: A QuadTree stores an object in every node that it overlaps, so this
+   * method has to collect the objects into a set before it can pass them to the visitor.
+   */
+  @Override
+  public void findContains(Point2D.Double p, Consumer<? super T> visitor) {
+    findContains(p).forEach(visitor);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Implementation note: See {@link #findContains(Point2D.Double, Consumer)}.
+   */
+  @Override
+  public void findIntersects(Rectangle2D r, Consumer<? super T> visitor) {
+    findIntersects(r).forEach(visitor);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Implementation note: See {@link #findContains(Point2D.Double, Consumer)}.
+   */
+  @Override
+  public void findInside(Rectangle2D.Double r, Consumer<? super T> visitor) {
+    findInside(r).forEach(visitor);
+  }
+
   private class QuadNode implements Serializable {
 
     private static final long serialVersionUID = 1L;
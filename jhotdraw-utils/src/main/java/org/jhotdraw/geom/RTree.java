@@ -0,0 +1,648 @@
+/*
+ * @(#)RTree.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.geom;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * An RTree allows to quickly find an object on a two-dimensional space.
+ *
+ * <p>Each node of an RTree holds up to {@code maxEntries} children and the minimum bounding
+ * rectangle of all its descendants. Unlike a {@link QuadTree}, an RTree does not subdivide a fixed
+ * area of space. Each object is stored exactly once, and the tree grows in any direction without
+ * being rebuilt.
+ *
+ * <p>Objects are inserted along the path of least enlargement. Overflowing nodes are split along
+ * the axis with the smallest margin, at the position with the least overlap (as in the R*-tree).
+ * Method {@link #addAll} packs the tree bottom-up with the Sort-Tile-Recursive (STR) algorithm when
+ * it is used to fill an empty tree, or when it adds more objects than the tree holds.
+ *
+ * <p>Method {@link #update} moves an object in place, if its new bounds still lie inside its leaf
+ * node. Otherwise the object is removed and inserted again.
+ *
+ * @param <T> the type of the indexed objects
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+@SuppressWarnings("unchecked")
+public class RTree<T> implements SpatialIndex<T>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+  private static final int DEFAULT_MAX_ENTRIES = 16;
+  private static final Comparator<Box> BY_CENTER_X =
+      (a, b) -> Double.compare(a.minX + a.maxX, b.minX + b.maxX);
+  private static final Comparator<Box> BY_CENTER_Y =
+      (a, b) -> Double.compare(a.minY + a.maxY, b.minY + b.maxY);
+  private final int maxEntries;
+  private final int minEntries;
+  private HashMap<T, Entry<T>> entries = new HashMap<>();
+  private Node<T> root;
+
+  /** Creates a new instance. */
+  public RTree() {
+    this(DEFAULT_MAX_ENTRIES);
+  }
+
+  /**
+   * Creates a new instance.
+   *
+   * @param maxEntries the maximal number of children per node, must be at least 4
+   */
+  public RTree(int maxEntries) {
+    if (maxEntries < 4) {
+      throw new IllegalArgumentException("maxEntries must be at least 4, but is " + maxEntries);
+    }
+    this.maxEntries = maxEntries;
+    this.minEntries = Math.max(2, maxEntries * 2 / 5);
+    root = new Node<>(true, maxEntries);
+  }
+
+  /** Returns the number of objects in the tree. */
+  public int size() {
+    return entries.size();
+  }
+
+  /** Returns true if the tree contains the specified object. */
+  public boolean contains(T o) {
+    return entries.containsKey(o);
+  }
+
+  /** Returns the height of the tree. A tree which consists only of a leaf has height 1. */
+  public int getHeight() {
+    int height = 1;
+    for (Node<T> node = root; !node.leaf; node = (Node<T>) node.children[0]) {
+      height++;
+    }
+    return height;
+  }
+
+  @Override
+  public void add(T o, Rectangle2D.Double bounds) {
+    Entry<T> entry = entries.get(o);
+    if (entry != null) {
+      update(o, bounds);
+    } else {
+      entry = new Entry<>(o, bounds);
+      entries.put(o, entry);
+      insert(entry);
+    }
+  }
+
+  @Override
+  public void addAll(
+      Collection<? extends T> objects,
+      Function<? super T, ? extends Rectangle2D.Double> boundsFunction) {
+    if (objects.size() < entries.size()) {
+      SpatialIndex.super.addAll(objects, boundsFunction);
+      return;
+    }
+    for (T o : objects) {
+      Entry<T> entry = entries.get(o);
+      if (entry == null) {
+        entries.put(o, new Entry<>(o, boundsFunction.apply(o)));
+      } else {
+        entry.setBounds(boundsFunction.apply(o));
+      }
+    }
+    bulkLoad();
+  }
+
+  @Override
+  public void remove(T o) {
+    Entry<T> entry = entries.remove(o);
+    if (entry != null) {
+      removeEntry(entry);
+    }
+  }
+
+  @Override
+  public void update(T o, Rectangle2D.Double bounds) {
+    Entry<T> entry = entries.get(o);
+    if (entry == null) {
+      add(o, bounds);
+    } else if (entry.leaf.contains(bounds)) {
+      entry.setBounds(bounds);
+      tighten(entry.leaf);
+    } else {
+      removeEntry(entry);
+      entry.setBounds(bounds);
+      insert(entry);
+    }
+  }
+
+  @Override
+  public void clear() {
+    entries.clear();
+    root = new Node<>(true, maxEntries);
+  }
+
+  /** Rebuilds the tree from scratch using the Sort-Tile-Recursive algorithm. */
+  public void bulkLoad() {
+    List<Box> level = new ArrayList<>(entries.values());
+    if (level.isEmpty()) {
+      root = new Node<>(true, maxEntries);
+      return;
+    }
+    boolean leafLevel = true;
+    do {
+      level = packLevel(level, leafLevel);
+      leafLevel = false;
+    } while (level.size() > 1);
+    root = (Node<T>) level.get(0);
+    root.parent = null;
+  }
+
+  @Override
+  public Collection<T> findContains(Point2D.Double p) {
+    ArrayList<T> result = new ArrayList<>();
+    findContains(p, result::add);
+    return result;
+  }
+
+  @Override
+  public Collection<T> findIntersects(Rectangle2D r) {
+    ArrayList<T> result = new ArrayList<>();
+    findIntersects(r, result::add);
+    return result;
+  }
+
+  @Override
+  public Collection<T> findInside(Rectangle2D.Double r) {
+    ArrayList<T> result = new ArrayList<>();
+    findInside(r, result::add);
+    return result;
+  }
+
+  @Override
+  public void findContains(Point2D.Double p, Consumer<? super T> visitor) {
+    findContains(root, p.x, p.y, visitor);
+  }
+
+  @Override
+  public void findIntersects(Rectangle2D r, Consumer<? super T> visitor) {
+    if (!r.isEmpty()) {
+      findIntersects(root, r.getMinX(), r.getMinY(), r.getMaxX(), r.getMaxY(), visitor);
+    }
+  }
+
+  @Override
+  public void findInside(Rectangle2D.Double r, Consumer<? super T> visitor) {
+    if (!r.isEmpty()) {
+      findInside(root, r.x, r.y, r.x + r.width, r.y + r.height, visitor);
+    }
+  }
+
+  private void findContains(Node<T> node, double x, double y, Consumer<? super T> visitor) {
+    Box[] children = node.children;
+    if (node.leaf) {
+      for (int i = 0, n = node.size; i < n; i++) {
+        Box b = children[i];
+        // same semantics as Rectangle2D.contains(x, y)
+        if (x >= b.minX && y >= b.minY && x < b.maxX && y < b.maxY) {
+          visitor.accept(((Entry<T>) b).object);
+        }
+      }
+    } else {
+      for (int i = 0, n = node.size; i < n; i++) {
+        Box b = children[i];
+        if (x >= b.minX && y >= b.minY && x <= b.maxX && y <= b.maxY) {
+          findContains((Node<T>) b, x, y, visitor);
+        }
+      }
+    }
+  }
+
+  private void findIntersects(
+      Node<T> node, double x0, double y0, double x1, double y1, Consumer<? super T> visitor) {
+    Box[] children = node.children;
+    if (node.leaf) {
+      for (int i = 0, n = node.size; i < n; i++) {
+        Box b = children[i];
+        // same semantics as Rectangle2D.intersects(r)
+        if (b.maxX > x0
+            && b.maxY > y0
+            && b.minX < x1
+            && b.minY < y1
+            && b.maxX > b.minX
+            && b.maxY > b.minY) {
+          visitor.accept(((Entry<T>) b).object);
+        }
+      }
+    } else {
+      for (int i = 0, n = node.size; i < n; i++) {
+        Box b = children[i];
+        if (b.maxX >= x0 && b.maxY >= y0 && b.minX <= x1 && b.minY <= y1) {
+          findIntersects((Node<T>) b, x0, y0, x1, y1, visitor);
+        }
+      }
+    }
+  }
+
+  private void findInside(
+      Node<T> node, double x0, double y0, double x1, double y1, Consumer<? super T> visitor) {
+    Box[] children = node.children;
+    if (node.leaf) {
+      for (int i = 0, n = node.size; i < n; i++) {
+        Box b = children[i];
+        // same semantics as r.contains(Rectangle2D)
+        if (b.minX >= x0
+            && b.minY >= y0
+            && b.maxX <= x1
+            && b.maxY <= y1
+            && b.maxX > b.minX
+            && b.maxY > b.minY) {
+          visitor.accept(((Entry<T>) b).object);
+        }
+      }
+    } else {
+      for (int i = 0, n = node.size; i < n; i++) {
+        Box b = children[i];
+        if (b.maxX >= x0 && b.maxY >= y0 && b.minX <= x1 && b.minY <= y1) {
+          findInside((Node<T>) b, x0, y0, x1, y1, visitor);
+        }
+      }
+    }
+  }
+
+  private static double notNaN(double value) {
+    return Double.isNaN(value) ? Double.POSITIVE_INFINITY : value;
+  }
+
+  /** Inserts an entry along the path of least enlargement and splits overflowing nodes. */
+  private void insert(Entry<T> entry) {
+    Node<T> node = root;
+    while (!node.leaf) {
+      // Empty and NaN bounds yield NaN areas; these count as infinite, and the first child is
+      // used when no child is better.
+      Node<T> best = (Node<T>) node.children[0];
+      double bestEnlargement = Double.POSITIVE_INFINITY;
+      double bestArea = Double.POSITIVE_INFINITY;
+      for (int i = 0; i < node.size; i++) {
+        Node<T> child = (Node<T>) node.children[i];
+        double area = notNaN(child.area());
+        double enlargement = notNaN(child.unionArea(entry) - area);
+        if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+          best = child;
+          bestEnlargement = enlargement;
+          bestArea = area;
+        }
+      }
+      node = best;
+    }
+    node.append(entry);
+    for (Node<T> n = node; n != null; n = n.parent) {
+      n.include(entry);
+    }
+    if (node.size > maxEntries) {
+      split(node);
+    }
+  }
+
+  /** Removes an entry from its leaf, and condenses the tree. */
+  private void removeEntry(Entry<T> entry) {
+    Node<T> leaf = entry.leaf;
+    leaf.removeChild(entry);
+    entry.leaf = null;
+
+    // Dissolve underflowing nodes and tighten the bounds on the path to the root.
+    ArrayList<Entry<T>> orphans = null;
+    for (Node<T> node = leaf; node != root; ) {
+      Node<T> parent = node.parent;
+      if (node.size < minEntries) {
+        parent.removeChild(node);
+        if (orphans == null) {
+          orphans = new ArrayList<>();
+        }
+        collectEntries(node, orphans);
+      } else {
+        node.recomputeBounds();
+      }
+      node = parent;
+    }
+    root.recomputeBounds();
+
+    // Shorten the tree
+    while (!root.leaf && root.size == 1) {
+      root = (Node<T>) root.children[0];
+      root.parent = null;
+    }
+    if (!root.leaf && root.size == 0) {
+      root = new Node<>(true, maxEntries);
+    }
+
+    if (orphans != null) {
+      for (Entry<T> orphan : orphans) {
+        insert(orphan);
+      }
+    }
+  }
+
+  /** Recomputes the bounds of a node and its ancestors, until the bounds do not change anymore. */
+  private void tighten(Node<T> node) {
+    for (; node != null; node = node.parent) {
+      double minX = node.minX;
+      double minY = node.minY;
+      double maxX = node.maxX;
+      double maxY = node.maxY;
+      node.recomputeBounds();
+      if (minX == node.minX && minY == node.minY && maxX == node.maxX && maxY == node.maxY) {
+        break;
+      }
+    }
+  }
+
+  private void collectEntries(Node<T> node, List<Entry<T>> result) {
+    for (int i = 0; i < node.size; i++) {
+      if (node.leaf) {
+        result.add((Entry<T>) node.children[i]);
+      } else {
+        collectEntries((Node<T>) node.children[i], result);
+      }
+    }
+  }
+
+  /**
+   * Splits an overflowing node. The split axis is the one with the smallest margin sum over all
+   * distributions, the split position is the one with the smallest overlap, and then the smallest
+   * area.
+   */
+  private void split(Node<T> node) {
+    int n = node.size;
+    Box[] byX = Arrays.copyOf(node.children, n);
+    Arrays.sort(byX, BY_CENTER_X);
+    Box[] byY = Arrays.copyOf(node.children, n);
+    Arrays.sort(byY, BY_CENTER_Y);
+
+    double[] prefixX = prefixBounds(byX);
+    double[] suffixX = suffixBounds(byX);
+    double[] prefixY = prefixBounds(byY);
+    double[] suffixY = suffixBounds(byY);
+    Box[] sorted;
+    double[] prefix;
+    double[] suffix;
+    if (marginSum(prefixX, suffixX, n) <= marginSum(prefixY, suffixY, n)) {
+      sorted = byX;
+      prefix = prefixX;
+      suffix = suffixX;
+    } else {
+      sorted = byY;
+      prefix = prefixY;
+      suffix = suffixY;
+    }
+
+    int splitIndex = minEntries;
+    double bestOverlap = Double.POSITIVE_INFINITY;
+    double bestArea = Double.POSITIVE_INFINITY;
+    for (int k = minEntries; k <= n - minEntries; k++) {
+      int p = (k - 1) * 4;
+      int s = k * 4;
+      double overlap =
+          Math.max(0, Math.min(prefix[p + 2], suffix[s + 2]) - Math.max(prefix[p], suffix[s]))
+              * Math.max(
+                  0,
+                  Math.min(prefix[p + 3], suffix[s + 3]) - Math.max(prefix[p + 1], suffix[s + 1]));
+      double area =
+          (prefix[p + 2] - prefix[p]) * (prefix[p + 3] - prefix[p + 1])
+              + (suffix[s + 2] - suffix[s]) * (suffix[s + 3] - suffix[s + 1]);
+      if (overlap < bestOverlap || (overlap == bestOverlap && area < bestArea)) {
+        splitIndex = k;
+        bestOverlap = overlap;
+        bestArea = area;
+      }
+    }
+
+    Node<T> sibling = new Node<>(node.leaf, maxEntries);
+    node.clearChildren();
+    for (int i = 0; i < splitIndex; i++) {
+      node.adopt(sorted[i]);
+    }
+    for (int i = splitIndex; i < n; i++) {
+      sibling.adopt(sorted[i]);
+    }
+    node.recomputeBounds();
+    sibling.recomputeBounds();
+
+    if (node == root) {
+      Node<T> newRoot = new Node<>(false, maxEntries);
+      newRoot.adopt(node);
+      newRoot.adopt(sibling);
+      newRoot.recomputeBounds();
+      root = newRoot;
+    } else {
+      Node<T> parent = node.parent;
+      parent.adopt(sibling);
+      if (parent.size > maxEntries) {
+        split(parent);
+      }
+    }
+  }
+
+  /** Packs one level of the tree with the Sort-Tile-Recursive algorithm. */
+  private List<Box> packLevel(List<Box> boxes, boolean leafLevel) {
+    int n = boxes.size();
+    int nodeCount = (n + maxEntries - 1) / maxEntries;
+    int sliceCount = (int) Math.ceil(Math.sqrt(nodeCount));
+    int sliceSize = sliceCount * maxEntries;
+    boxes.sort(BY_CENTER_X);
+    ArrayList<Box> packed = new ArrayList<>(nodeCount);
+    for (int sliceStart = 0; sliceStart < n; sliceStart += sliceSize) {
+      List<Box> slice = boxes.subList(sliceStart, Math.min(n, sliceStart + sliceSize));
+      slice.sort(BY_CENTER_Y);
+      for (int nodeStart = 0; nodeStart < slice.size(); nodeStart += maxEntries) {
+        Node<T> node = new Node<>(leafLevel, maxEntries);
+        for (int i = nodeStart, end = Math.min(slice.size(), nodeStart + maxEntries);
+            i < end;
+            i++) {
+          node.adopt(slice.get(i));
+        }
+        node.recomputeBounds();
+        packed.add(node);
+      }
+    }
+    return packed;
+  }
+
+  /** Returns the bounds of b[0..i] at index 4*i as minX, minY, maxX, maxY. */
+  private static double[] prefixBounds(Box[] b) {
+    double[] r = new double[b.length * 4];
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < b.length; i++) {
+      minX = Math.min(minX, b[i].minX);
+      minY = Math.min(minY, b[i].minY);
+      maxX = Math.max(maxX, b[i].maxX);
+      maxY = Math.max(maxY, b[i].maxY);
+      r[i * 4] = minX;
+      r[i * 4 + 1] = minY;
+      r[i * 4 + 2] = maxX;
+      r[i * 4 + 3] = maxY;
+    }
+    return r;
+  }
+
+  /** Returns the bounds of b[i..n-1] at index 4*i as minX, minY, maxX, maxY. */
+  private static double[] suffixBounds(Box[] b) {
+    double[] r = new double[b.length * 4];
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = b.length - 1; i >= 0; i--) {
+      minX = Math.min(minX, b[i].minX);
+      minY = Math.min(minY, b[i].minY);
+      maxX = Math.max(maxX, b[i].maxX);
+      maxY = Math.max(maxY, b[i].maxY);
+      r[i * 4] = minX;
+      r[i * 4 + 1] = minY;
+      r[i * 4 + 2] = maxX;
+      r[i * 4 + 3] = maxY;
+    }
+    return r;
+  }
+
+  private double marginSum(double[] prefix, double[] suffix, int n) {
+    double sum = 0;
+    for (int k = minEntries; k <= n - minEntries; k++) {
+      int p = (k - 1) * 4;
+      int s = k * 4;
+      sum +=
+          prefix[p + 2]
+              - prefix[p]
+              + prefix[p + 3]
+              - prefix[p + 1]
+              + suffix[s + 2]
+              - suffix[s]
+              + suffix[s + 3]
+              - suffix[s + 1];
+    }
+    return sum;
+  }
+
+  /** A bounding box. An empty box has positive infinite minima and negative infinite maxima. */
+  private abstract static class Box implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+  }
+
+  /** A leaf entry. */
+  private static final class Entry<T> extends Box {
+
+    private static final long serialVersionUID = 1L;
+    private final T object;
+    private Node<T> leaf;
+
+    Entry(T object, Rectangle2D.Double bounds) {
+      this.object = object;
+      setBounds(bounds);
+    }
+
+    void setBounds(Rectangle2D.Double r) {
+      if (Double.isNaN(r.x + r.y + r.width + r.height)) {
+        // We can not index a NaN box, we store it as an empty box instead.
+        minX = minY = Double.POSITIVE_INFINITY;
+        maxX = maxY = Double.NEGATIVE_INFINITY;
+      } else {
+        minX = r.x;
+        minY = r.y;
+        maxX = r.x + r.width;
+        maxY = r.y + r.height;
+      }
+    }
+  }
+
+  /** A node holds either entries (if it is a leaf), or other nodes. */
+  private static final class Node<T> extends Box {
+
+    private static final long serialVersionUID = 1L;
+    private final boolean leaf;
+    private final Box[] children;
+    private int size;
+    private Node<T> parent;
+
+    Node(boolean leaf, int maxEntries) {
+      this.leaf = leaf;
+      // one extra slot for the overflowing child before a split
+      this.children = new Box[maxEntries + 1];
+    }
+
+    void append(Box child) {
+      children[size++] = child;
+      if (leaf) {
+        ((Entry<T>) child).leaf = this;
+      } else {
+        ((Node<T>) child).parent = this;
+      }
+    }
+
+    void adopt(Box child) {
+      append(child);
+      include(child);
+    }
+
+    void removeChild(Box child) {
+      for (int i = 0; i < size; i++) {
+        if (children[i] == child) {
+          children[i] = children[--size];
+          children[size] = null;
+          return;
+        }
+      }
+    }
+
+    void clearChildren() {
+      Arrays.fill(children, 0, size, null);
+      size = 0;
+      minX = minY = Double.POSITIVE_INFINITY;
+      maxX = maxY = Double.NEGATIVE_INFINITY;
+    }
+
+    void include(Box b) {
+      minX = Math.min(minX, b.minX);
+      minY = Math.min(minY, b.minY);
+      maxX = Math.max(maxX, b.maxX);
+      maxY = Math.max(maxY, b.maxY);
+    }
+
+    void recomputeBounds() {
+      minX = minY = Double.POSITIVE_INFINITY;
+      maxX = maxY = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < size; i++) {
+        include(children[i]);
+      }
+    }
+
+    boolean contains(Rectangle2D.Double r) {
+      return r.x >= minX && r.y >= minY && r.x + r.width <= maxX && r.y + r.height <= maxY;
+    }
+
+    double area() {
+      return (maxX - minX) * (maxY - minY);
+    }
+
+    double unionArea(Box b) {
+      return (Math.max(maxX, b.maxX) - Math.min(minX, b.minX))
+          * (Math.max(maxY, b.maxY) - Math.min(minY, b.minY));
+    }
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * @(#)SegmentIndex.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.geom;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+/**
+ * A bounding volume hierarchy over the line segments of a flattened path.
+ *
+ * <p>The segments are stored in a {@code double[]} with four values per segment. The hierarchy is a
+ * binary tree, which is stored in arrays in pre-order: the left child of an inner node follows the
+ * node, and the index of the right child is stored with the node. Each leaf holds up to {@link
+ * #LEAF_SIZE} segments.
+ *
+ * <p>Instances are immutable once they have been created.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+final class SegmentIndex {
+
+  /** Maximal number of segments in a leaf. */
+  private static final int LEAF_SIZE = 8;
+  /** The flatness, which was used for flattening the path. */
+  private final double flatness;
+  /** The segments, as x1, y1, x2, y2. */
+  private double[] segments = new double[64];
+
+  private int segmentCount;
+  /** The segment numbers, ordered by the leaves of the hierarchy. */
+  private int[] order;
+  /** The bounds of the nodes, as minX, minY, maxX, maxY. */
+  private double[] nodeBounds;
+  /** The range of the node in {@link #order}. */
+  private int[] nodeStart;
+
+  private int[] nodeEnd;
+  /** The index of the right child of an inner node, or -1 for a leaf. */
+  private int[] nodeRight;
+
+  private int nodeCount;
+
+  /**
+   * Creates an index over the segments of a flattened path.
+   *
+   * <p>The segments are the same as the segments tested by {@link Shapes#outlineContains}.
+   */
+  SegmentIndex(PathIterator i, double flatness) {
+    this.flatness = flatness;
+    double[] coords = new double[6];
+    double prevX = 0, prevY = 0;
+    double moveX = 0, moveY = 0;
+    for (; !i.isDone(); i.next()) {
+      switch (i.currentSegment(coords)) {
+        case PathIterator.SEG_CLOSE:
+          addSegment(prevX, prevY, moveX, moveY);
+          break;
+        case PathIterator.SEG_LINETO:
+          addSegment(prevX, prevY, coords[0], coords[1]);
+          break;
+        case PathIterator.SEG_MOVETO:
+          moveX = coords[0];
+          moveY = coords[1];
+          break;
+        default:
+          break;
+      }
+      prevX = coords[0];
+      prevY = coords[1];
+    }
+    order = new int[segmentCount];
+    for (int s = 0; s < segmentCount; s++) {
+      order[s] = s;
+    }
+    // Leaves which have been split from larger nodes hold at least LEAF_SIZE / 2 segments
+    int capacity = 2 * ((segmentCount + LEAF_SIZE / 2 - 1) / (LEAF_SIZE / 2)) + 1;
+    nodeBounds = new double[capacity * 4];
+    nodeStart = new int[capacity];
+    nodeEnd = new int[capacity];
+    nodeRight = new int[capacity];
+    if (segmentCount > 0) {
+      build(0, segmentCount);
+    }
+  }
+
+  double getFlatness() {
+    return flatness;
+  }
+
+  int getSegmentCount() {
+    return segmentCount;
+  }
+
+  /**
+   * Returns true if a segment contains the specified point. This is the same test as {@link
+   * Shapes#outlineContains}, but it only tests segments which are near the point.
+   */
+  boolean outlineContains(double px, double py, double tolerance) {
+    if (segmentCount == 0) {
+      return false;
+    }
+    double grow = Math.max(2, (int) Math.ceil(tolerance));
+    int[] stack = new int[64];
+    int top = 0;
+    stack[top++] = 0;
+    while (top > 0) {
+      int node = stack[--top];
+      int b = node * 4;
+      if (px < nodeBounds[b] - grow
+          || py < nodeBounds[b + 1] - grow
+          || px > nodeBounds[b + 2] + grow
+          || py > nodeBounds[b + 3] + grow) {
+        continue;
+      }
+      if (nodeRight[node] == -1) {
+        for (int k = nodeStart[node]; k < nodeEnd[node]; k++) {
+          int s = order[k] * 4;
+          if (Geom.lineContainsPoint(
+              segments[s], segments[s + 1], segments[s + 2], segments[s + 3], px, py, tolerance)) {
+            return true;
+          }
+        }
+      } else {
+        if (top + 2 > stack.length) {
+          stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top++] = nodeRight[node];
+        stack[top++] = node + 1;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the distance from the specified point to the nearest segment, or {@code
+   * Double.POSITIVE_INFINITY} if there are no segments.
+   */
+  double distance(double px, double py) {
+    double best = Double.POSITIVE_INFINITY;
+    if (segmentCount == 0) {
+      return best;
+    }
+    int[] stack = new int[64];
+    int top = 0;
+    stack[top++] = 0;
+    while (top > 0) {
+      int node = stack[--top];
+      if (distanceSq(node, px, py) >= best) {
+        continue;
+      }
+      if (nodeRight[node] == -1) {
+        for (int k = nodeStart[node]; k < nodeEnd[node]; k++) {
+          int s = order[k] * 4;
+          double d =
+              Line2D.ptSegDistSq(
+                  segments[s], segments[s + 1], segments[s + 2], segments[s + 3], px, py);
+          if (d < best) {
+            best = d;
+          }
+        }
+      } else {
+        if (top + 2 > stack.length) {
+          stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        // Visit the nearer child first
+        int left = node + 1;
+        int right = nodeRight[node];
+        if (distanceSq(left, px, py) <= distanceSq(right, px, py)) {
+          stack[top++] = right;
+          stack[top++] = left;
+        } else {
+          stack[top++] = left;
+          stack[top++] = right;
+        }
+      }
+    }
+    return Math.sqrt(best);
+  }
+
+  /** Returns the squared distance from the point to the bounds of the node. */
+  private double distanceSq(int node, double px, double py) {
+    int b = node * 4;
+    double dx = Math.max(0, Math.max(nodeBounds[b] - px, px - nodeBounds[b + 2]));
+    double dy = Math.max(0, Math.max(nodeBounds[b + 1] - py, py - nodeBounds[b + 3]));
+    return dx * dx + dy * dy;
+  }
+
+  private void addSegment(double x1, double y1, double x2, double y2) {
+    if (segmentCount * 4 == segments.length) {
+      segments = Arrays.copyOf(segments, segments.length * 2);
+    }
+    int s = segmentCount * 4;
+    segments[s] = x1;
+    segments[s + 1] = y1;
+    segments[s + 2] = x2;
+    segments[s + 3] = y2;
+    segmentCount++;
+  }
+
+  /** Builds the node for the segments from start (inclusive) to end (exclusive). */
+  private int build(int start, int end) {
+    int node = nodeCount++;
+    double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+    double minCX = Double.POSITIVE_INFINITY, minCY = Double.POSITIVE_INFINITY;
+    double maxCX = Double.NEGATIVE_INFINITY, maxCY = Double.NEGATIVE_INFINITY;
+    for (int k = start; k < end; k++) {
+      int s = order[k] * 4;
+      minX = Math.min(minX, Math.min(segments[s], segments[s + 2]));
+      minY = Math.min(minY, Math.min(segments[s + 1], segments[s + 3]));
+      maxX = Math.max(maxX, Math.max(segments[s], segments[s + 2]));
+      maxY = Math.max(maxY, Math.max(segments[s + 1], segments[s + 3]));
+      double cx = segments[s] + segments[s + 2];
+      double cy = segments[s + 1] + segments[s + 3];
+      minCX = Math.min(minCX, cx);
+      minCY = Math.min(minCY, cy);
+      maxCX = Math.max(maxCX, cx);
+      maxCY = Math.max(maxCY, cy);
+    }
+    int b = node * 4;
+    nodeBounds[b] = minX;
+    nodeBounds[b + 1] = minY;
+    nodeBounds[b + 2] = maxX;
+    nodeBounds[b + 3] = maxY;
+    nodeStart[node] = start;
+    nodeEnd[node] = end;
+    if (end - start <= LEAF_SIZE) {
+      nodeRight[node] = -1;
+    } else {
+      // Split at the median of the segment centers along the longer axis
+      int axis = (maxCX - minCX >= maxCY - minCY) ? 0 : 1;
+      int mid = (start + end) >>> 1;
+      select(start, end - 1, mid, axis);
+      build(start, mid);
+      nodeRight[node] = build(mid, end);
+    }
+    return node;
+  }
+
+  /** Returns twice the center coordinate of a segment along the axis. */
+  private double center(int segment, int axis) {
+    int s = segment * 4 + axis;
+    return segments[s] + segments[s + 2];
+  }
+
+  /**
+   * Partially sorts {@link #order} from left to right (inclusive), so that the element at index k
+   * is at its sorted position, with smaller elements before and larger elements after it.
+   */
+  private void select(int left, int right, int k, int axis) {
+    while (right > left) {
+      double pivot = center(order[(left + right) >>> 1], axis);
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (center(order[i], axis) < pivot) {
+          i++;
+        }
+        while (center(order[j], axis) > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          int tmp = order[i];
+          order[i] = order[j];
+          order[j] = tmp;
+          i++;
+          j--;
+        }
+      }
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        return;
+      }
+    }
+  }
+}
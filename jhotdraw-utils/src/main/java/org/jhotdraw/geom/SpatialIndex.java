@@ -0,0 +1,78 @@
+/*
+ * @(#)SpatialIndex.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.geom;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A SpatialIndex allows to quickly find objects by their bounds on a two-dimensional space.
+ *
+ * <p>The query methods which take a {@code Consumer} do not allocate a result collection. They pass
+ * each matching object to the visitor exactly once, in no particular order.
+ *
+ * @param <T> the type of the indexed objects
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public interface SpatialIndex<T> {
+
+  /** Adds an object with the specified bounds to the index. */
+  void add(T o, Rectangle2D.Double bounds);
+
+  /**
+   * Adds all objects to the index. Implementations may build the index in a single pass instead of
+   * inserting the objects one by one.
+   *
+   * @param objects the objects
+   * @param boundsFunction returns the bounds of an object
+   */
+  default void addAll(
+      Collection<? extends T> objects,
+      Function<? super T, ? extends Rectangle2D.Double> boundsFunction) {
+    for (T o : objects) {
+      add(o, boundsFunction.apply(o));
+    }
+  }
+
+  /** Removes an object from the index. */
+  void remove(T o);
+
+  /**
+   * Informs the index that the bounds of an object have changed. Adds the object, if it is not yet
+   * in the index.
+   */
+  default void update(T o, Rectangle2D.Double bounds) {
+    remove(o);
+    add(o, bounds);
+  }
+
+  /** Removes all objects from the index. */
+  void clear();
+
+  /** Returns the objects whose bounds contain the specified point. */
+  Collection<T> findContains(Point2D.Double p);
+
+  /** Returns the objects whose bounds intersect the specified rectangle. */
+  Collection<T> findIntersects(Rectangle2D r);
+
+  /** Returns the objects whose bounds are inside the specified rectangle. */
+  Collection<T> findInside(Rectangle2D.Double r);
+
+  /** Passes the objects whose bounds contain the specified point to the visitor. */
+  void findContains(Point2D.Double p, Consumer<? super T> visitor);
+
+  /** Passes the objects whose bounds intersect the specified rectangle to the visitor. */
+  void findIntersects(Rectangle2D r, Consumer<? super T> visitor);
+
+  /** Passes the objects whose bounds are inside the specified rectangle to the visitor. */
+  void findInside(Rectangle2D.Double r, Consumer<? super T> visitor);
+}
@@ -110,4 +110,92 @@ public class BezierPathTest {
       pathIterator.next();
     }
   }
+
+  @Test
+  public void testArcLength() {
+    BezierPath instance = new BezierPath();
+    instance.moveTo(10, 10);
+    instance.lineTo(40, 10);
+    instance.lineTo(40, 50);
+    assertEquals(70, instance.getLengthOfPath(1), 1e-9);
+    assertEquals(new Point2D.Double(25, 10), instance.getPointOnPath(15 / 70.0, 1));
+    assertEquals(new Point2D.Double(40, 30), instance.getPointOnPath(50 / 70.0, 1));
+    assertEquals(
+        50 / 70.0, instance.getRelativePositionOnPath(new Point2D.Double(40, 30), 1), 1e-9);
+    assertEquals(-1, instance.getRelativePositionOnPath(new Point2D.Double(0, 30), 1));
+
+    instance.setClosed(true);
+    assertEquals(120, instance.getLengthOfPath(1), 1e-9);
+    instance.get(1).moveTo(70, 10);
+    instance.invalidatePath();
+    assertEquals(160, instance.getLengthOfPath(1), 1e-9);
+  }
+
+  @Test
+  public void testArcLengthCursor() {
+    BezierPath instance = new BezierPath();
+    instance.moveTo(0, 0);
+    instance.lineTo(10, 0);
+    instance.lineTo(10, 10);
+    BezierPath.ArcLengthCursor cursor = instance.createArcLengthCursor(1);
+    assertEquals(20, cursor.getLength(), 1e-9);
+    assertEquals(true, cursor.moveBy(4));
+    assertEquals(new Point2D.Double(4, 0), cursor.getPoint());
+    assertEquals(0, cursor.getAngle(), 1e-9);
+    assertEquals(true, cursor.moveBy(10));
+    assertEquals(new Point2D.Double(10, 4), cursor.getPoint());
+    assertEquals(Math.PI / 2, cursor.getAngle(), 1e-9);
+    assertEquals(true, cursor.moveBy(-12));
+    assertEquals(new Point2D.Double(2, 0), cursor.getPoint());
+    assertEquals(false, cursor.moveBy(100));
+    assertEquals(new Point2D.Double(10, 10), cursor.getPoint());
+    cursor.moveTo(15);
+    assertEquals(new Point2D.Double(10, 5), cursor.getPoint());
+  }
+
+  @Test
+  public void testOutlineContainsMatchesShapes() {
+    java.util.Random r = new java.util.Random(7);
+    BezierPath instance = new BezierPath();
+    instance.moveTo(0, 0);
+    for (int i = 0; i < 500; i++) {
+      if (i % 3 == 0) {
+        instance.curveTo(
+            r.nextInt(400),
+            r.nextInt(400),
+            r.nextInt(400),
+            r.nextInt(400),
+            r.nextInt(400),
+            r.nextInt(400));
+      } else {
+        instance.lineTo(r.nextInt(400), r.nextInt(400));
+      }
+    }
+    for (boolean closed : new boolean[] {false, true}) {
+      instance.setClosed(closed);
+      for (int i = 0; i < 2000; i++) {
+        Point2D.Double p = new Point2D.Double(r.nextDouble() * 420 - 10, r.nextDouble() * 420 - 10);
+        double tolerance = 0.5 + r.nextInt(4);
+        assertEquals(
+            Shapes.outlineContains(instance, p, tolerance), instance.outlineContains(p, tolerance));
+      }
+    }
+  }
+
+  @Test
+  public void testOutlineDistance() {
+    BezierPath instance = new BezierPath();
+    assertEquals(Double.POSITIVE_INFINITY, instance.outlineDistance(new Point2D.Double(), 1));
+    instance.moveTo(0, 0);
+    for (int i = 1; i <= 100; i++) {
+      instance.lineTo(i * 10, (i % 2) * 10);
+    }
+    instance.invalidatePath();
+    assertEquals(5, instance.outlineDistance(new Point2D.Double(500, -5), 1), 1e-9);
+    assertEquals(0, instance.outlineDistance(new Point2D.Double(5, 5), 1), 1e-9);
+    assertEquals(20, instance.outlineDistance(new Point2D.Double(1020, 0), 1), 1e-9);
+    assertEquals(8 / Math.sqrt(2), instance.outlineDistance(new Point2D.Double(505, -3), 1), 1e-9);
+    instance.setClosed(true);
+    assertEquals(3, instance.outlineDistance(new Point2D.Double(505, -3), 1), 1e-9);
+  }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2015 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.geom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class BezierTest {
+
+  private static BezierPath fitIncrementally(List<Point2D.Double> points, double error) {
+    Bezier.IncrementalFitter fitter = new Bezier.IncrementalFitter(error);
+    for (Point2D.Double p : points) {
+      fitter.addPoint(p);
+    }
+    return fitter.finish();
+  }
+
+  private static double distance(BezierPath path, Point2D.Double p) {
+    double min = Double.POSITIVE_INFINITY;
+    double[] coords = new double[6];
+    double prevX = 0;
+    double prevY = 0;
+    for (PathIterator i = path.getPathIterator(null, 0.1); !i.isDone(); i.next()) {
+      if (i.currentSegment(coords) == PathIterator.SEG_LINETO) {
+        min = Math.min(min, Line2D.ptSegDist(prevX, prevY, coords[0], coords[1], p.x, p.y));
+      }
+      prevX = coords[0];
+      prevY = coords[1];
+    }
+    return min;
+  }
+
+  private static void assertPathEquals(BezierPath expected, BezierPath actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      BezierPath.Node e = expected.get(i);
+      BezierPath.Node a = actual.get(i);
+      assertEquals(e.mask, a.mask);
+      for (int c = 0; c < 3; c++) {
+        assertEquals(e.x[c], a.x[c], 1e-9);
+        assertEquals(e.y[c], a.y[c], 1e-9);
+      }
+    }
+  }
+
+  @Test
+  public void testIncrementalFitterMatchesBatchFit() {
+    List<Point2D.Double> points = new ArrayList<>();
+    // an arc, followed by a sharp corner and a straight line
+    for (int i = 0; i <= 60; i++) {
+      double a = Math.PI * i / 60;
+      points.add(new Point2D.Double(100 + 50 * Math.cos(a), 100 - 50 * Math.sin(a)));
+    }
+    for (int i = 1; i <= 40; i++) {
+      points.add(new Point2D.Double(50 + i * 2, 100 + i * 2.5));
+    }
+    for (double error : new double[] {0.5, 1.5, 4}) {
+      assertPathEquals(Bezier.fitBezierPath(points, error), fitIncrementally(points, error));
+    }
+  }
+
+  @Test
+  public void testIncrementalFitterSmallInput() {
+    List<Point2D.Double> points = new ArrayList<>();
+    points.add(new Point2D.Double(10, 10));
+    assertPathEquals(Bezier.fitBezierPath(points, 1.5), fitIncrementally(points, 1.5));
+    points.add(new Point2D.Double(20, 10));
+    assertPathEquals(Bezier.fitBezierPath(points, 1.5), fitIncrementally(points, 1.5));
+  }
+
+  @Test
+  public void testIncrementalFitterLongStroke() {
+    List<Point2D.Double> points = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      double a = i / 100.0;
+      points.add(new Point2D.Double(300 + a * 10 * Math.cos(a), 300 + a * 10 * Math.sin(a)));
+    }
+    BezierPath path = fitIncrementally(points, 1.5);
+    assertEquals(points.get(0), path.get(0).getControlPoint(0));
+    assertEquals(points.get(points.size() - 1), path.get(path.size() - 1).getControlPoint(0));
+    for (Point2D.Double p : points) {
+      assertTrue(distance(path, p) < 5, "point " + p + " is not on the path");
+    }
+  }
+}
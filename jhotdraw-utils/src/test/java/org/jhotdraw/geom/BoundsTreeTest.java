@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2015 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.geom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.awt.geom.Rectangle2D;
+import org.junit.jupiter.api.Test;
+
+public class BoundsTreeTest {
+
+  @Test
+  public void testUnion() {
+    BoundsTree<Integer> tree = new BoundsTree<>();
+    assertNull(tree.getUnion());
+    for (int i = 0; i < 100; i++) {
+      tree.add(i, new Rectangle2D.Double(i, -i, 10, 10));
+    }
+    assertEquals(new Rectangle2D.Double(0, -99, 109, 109), tree.getUnion());
+
+    tree.remove(99);
+    tree.remove(0);
+    assertEquals(new Rectangle2D.Double(1, -98, 107, 107), tree.getUnion());
+
+    tree.update(50, new Rectangle2D.Double(-500, 0, 1, 1));
+    assertEquals(new Rectangle2D.Double(-500, -98, 608, 107), tree.getUnion());
+    assertEquals(new Rectangle2D.Double(-500, 0, 1, 1), tree.get(50));
+
+    for (int i = 1; i < 99; i++) {
+      tree.remove(i);
+    }
+    assertNull(tree.getUnion());
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2015 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.geom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class DirtyRegionTest {
+
+  @Test
+  public void testDistantAreasStaySeparate() {
+    DirtyRegion region = new DirtyRegion();
+    assertNull(region.getBounds());
+    region.add(new Rectangle2D.Double(0, 0, 10, 10));
+    region.add(new Rectangle2D.Double(1000, 1000, 10, 10));
+    assertEquals(2, region.size());
+    assertEquals(new Rectangle2D.Double(0, 0, 1010, 1010), region.getBounds());
+  }
+
+  @Test
+  public void testOverlappingAreasAreMerged() {
+    DirtyRegion region = new DirtyRegion();
+    region.add(new Rectangle2D.Double(0, 0, 10, 10));
+    region.add(new Rectangle2D.Double(20, 0, 10, 10));
+    region.add(new Rectangle2D.Double(5, 5, 20, 2));
+    assertEquals(List.of(new Rectangle2D.Double(0, 0, 30, 10)), region.getRectangles());
+
+    region.add(new Rectangle2D.Double(1, 1, 2, 2));
+    assertEquals(1, region.size());
+    region.clear();
+    assertTrue(region.isEmpty());
+  }
+
+  @Test
+  public void testRectanglesAreDisjointAndCoverAllAreas() {
+    DirtyRegion region = new DirtyRegion(4);
+    Random random = new Random(3);
+    Rectangle2D.Double[] added = new Rectangle2D.Double[200];
+    for (int i = 0; i < added.length; i++) {
+      added[i] =
+          new Rectangle2D.Double(
+              random.nextInt(1000),
+              random.nextInt(1000),
+              1 + random.nextInt(20),
+              1 + random.nextInt(20));
+      region.add(added[i]);
+      assertTrue(region.size() <= 4);
+    }
+    List<Rectangle2D.Double> rects = region.getRectangles();
+    for (int i = 0; i < rects.size(); i++) {
+      for (int j = i + 1; j < rects.size(); j++) {
+        assertFalse(rects.get(i).intersects(rects.get(j)));
+      }
+    }
+    for (Rectangle2D.Double r : added) {
+      assertTrue(rects.stream().anyMatch(c -> c.contains(r)), r.toString());
+    }
+  }
+}
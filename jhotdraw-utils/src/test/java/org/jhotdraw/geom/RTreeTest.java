@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2015 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.geom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/** Compares the query results of {@link RTree} with a brute force search. */
+public class RTreeTest {
+
+  private final Random random = new Random(42);
+
+  private Rectangle2D.Double randomRect() {
+    return new Rectangle2D.Double(
+        random.nextDouble() * 4000 - 1000,
+        random.nextDouble() * 3000 - 1000,
+        random.nextDouble() * 100,
+        random.nextDouble() * 100);
+  }
+
+  private void assertSameResults(RTree<Integer> tree, Map<Integer, Rectangle2D.Double> expected) {
+    assertEquals(expected.size(), tree.size());
+    for (int i = 0; i < 50; i++) {
+      Rectangle2D.Double r = randomRect();
+      r.width *= 5;
+      r.height *= 5;
+      Point2D.Double p = new Point2D.Double(r.x, r.y);
+      Set<Integer> intersects = new HashSet<>();
+      Set<Integer> inside = new HashSet<>();
+      Set<Integer> contains = new HashSet<>();
+      for (Map.Entry<Integer, Rectangle2D.Double> e : expected.entrySet()) {
+        if (e.getValue().intersects(r)) {
+          intersects.add(e.getKey());
+        }
+        if (r.contains(e.getValue())) {
+          inside.add(e.getKey());
+        }
+        if (e.getValue().contains(p)) {
+          contains.add(e.getKey());
+        }
+      }
+      List<Integer> found = new ArrayList<>(tree.findIntersects(r));
+      assertEquals(intersects.size(), found.size(), "no duplicates");
+      assertEquals(intersects, new HashSet<>(found));
+      assertEquals(inside, new HashSet<>(tree.findInside(r)));
+      assertEquals(contains, new HashSet<>(tree.findContains(p)));
+    }
+  }
+
+  @Test
+  public void testAddRemoveUpdate() {
+    RTree<Integer> tree = new RTree<>(8);
+    Map<Integer, Rectangle2D.Double> expected = new HashMap<>();
+    for (int i = 0; i < 2000; i++) {
+      Rectangle2D.Double r = randomRect();
+      expected.put(i, r);
+      tree.add(i, r);
+    }
+    assertSameResults(tree, expected);
+    assertTrue(tree.getHeight() > 2);
+
+    for (int i = 0; i < 2000; i += 3) {
+      expected.remove(i);
+      tree.remove(i);
+    }
+    assertSameResults(tree, expected);
+
+    for (Integer key : new ArrayList<>(expected.keySet())) {
+      Rectangle2D.Double r = expected.get(key);
+      Rectangle2D.Double moved =
+          (key % 2 == 0)
+              ? new Rectangle2D.Double(r.x + 1, r.y + 1, r.width - 2, r.height - 2)
+              : randomRect();
+      expected.put(key, moved);
+      tree.update(key, moved);
+    }
+    assertSameResults(tree, expected);
+
+    for (Integer key : new ArrayList<>(expected.keySet())) {
+      expected.remove(key);
+      tree.remove(key);
+    }
+    assertSameResults(tree, expected);
+    assertEquals(1, tree.getHeight());
+  }
+
+  @Test
+  public void testBulkLoad() {
+    RTree<Integer> tree = new RTree<>();
+    Map<Integer, Rectangle2D.Double> expected = new HashMap<>();
+    for (int i = 0; i < 5000; i++) {
+      expected.put(i, randomRect());
+    }
+    tree.addAll(expected.keySet(), expected::get);
+    assertSameResults(tree, expected);
+
+    for (int i = 5000; i < 5100; i++) {
+      Rectangle2D.Double r = randomRect();
+      expected.put(i, r);
+      tree.add(i, r);
+    }
+    for (int i = 0; i < 5000; i += 2) {
+      expected.remove(i);
+      tree.remove(i);
+    }
+    assertSameResults(tree, expected);
+  }
+
+  @Test
+  public void testGrowsBeyondInitialBounds() {
+    RTree<Integer> tree = new RTree<>();
+    for (int i = 0; i < 1000; i++) {
+      tree.add(i, new Rectangle2D.Double(i * 1000.0, -i * 1000.0, 10, 10));
+    }
+    assertEquals(1, tree.findContains(new Point2D.Double(999005, -998995)).size());
+  }
+
+  @Test
+  public void testEmptyAndNaNBounds() {
+    RTree<Integer> tree = new RTree<>(4);
+    Map<Integer, Rectangle2D.Double> expected = new HashMap<>();
+    // Nodes holding only NaN bounds are empty; their areas and enlargements are NaN
+    for (int i = 0; i < 600; i++) {
+      Rectangle2D.Double r;
+      if (i < 300) {
+        r = new Rectangle2D.Double(Double.NaN, i, 10, Double.NaN);
+      } else if (i < 400) {
+        r = new Rectangle2D.Double(i, i, -1, -1);
+      } else {
+        r = randomRect();
+        expected.put(i, r);
+      }
+      tree.add(i, r);
+    }
+    assertEquals(600, tree.size());
+    assertTrue(tree.getHeight() > 2);
+    for (Map.Entry<Integer, Rectangle2D.Double> e : expected.entrySet()) {
+      assertTrue(tree.findIntersects(e.getValue()).contains(e.getKey()));
+    }
+    for (int i = 0; i < 400; i++) {
+      tree.remove(i);
+    }
+    assertSameResults(tree, expected);
+  }
+}
@@ -0,0 +1,373 @@
+/*
+ * @(#)StaxDOMInput.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.xml;
+
+import java.io.*;
+import java.util.*;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * StaxDOMInput reads a document with a StAX parser into a compact element tree, and implements
+ * {@link DOMInput} on top of it.
+ *
+ * <p>The children of an element are held in an array list, so that {@link #openElement(int)} is a
+ * constant time operation. The children with a specific tag name are indexed lazily, when they are
+ * first looked up by name, so that {@link #openElement(String, int)} and {@link
+ * #getElementCount(String)} do not rescan the children either. Reading the n children of an element
+ * with {@code openElement(i)} in a loop is thus linear in n.
+ *
+ * <p>The element tree only holds tag names, attributes and text. Equal tag names and attribute
+ * names share the same string instance. External DTDs are not loaded.
+ *
+ * <p>This class is API compatible with {@link JavaxDOMInput}.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public class StaxDOMInput implements DOMInput {
+
+  /** An element of the element tree. */
+  private static class Element {
+
+    private static final String[] NO_ATTRIBUTES = new String[0];
+    final Element parent;
+    final String tagName;
+    /** Holds the name and the value of each attribute at index 2*i. */
+    String[] attributes = NO_ATTRIBUTES;
+    /** The child elements, or null if the element has no child elements. */
+    ArrayList<Element> children;
+    /** The child elements by lower case tag name. This map is created lazily. */
+    HashMap<String, ArrayList<Element>> childrenByName;
+    /** The text content of the element, not including the text of the child elements. */
+    String text;
+    /** Whether the element has any content, including comments and white space. */
+    boolean hasContent;
+
+    Element(Element parent, String tagName) {
+      this.parent = parent;
+      this.tagName = tagName;
+    }
+
+    int getChildCount() {
+      return children == null ? 0 : children.size();
+    }
+
+    /** Returns the child elements with the specified tag name, ignoring case. */
+    java.util.List<Element> getChildren(String name) {
+      if (children == null) {
+        return Collections.emptyList();
+      }
+      if (childrenByName == null) {
+        childrenByName = new HashMap<String, ArrayList<Element>>();
+        for (Element child : children) {
+          childrenByName
+              .computeIfAbsent(child.tagName.toLowerCase(Locale.ROOT), k -> new ArrayList<>())
+              .add(child);
+        }
+      }
+      java.util.List<Element> list = childrenByName.get(name.toLowerCase(Locale.ROOT));
+      return list == null ? Collections.<Element>emptyList() : list;
+    }
+
+    String getAttribute(String name) {
+      for (int i = 0; i < attributes.length; i += 2) {
+        if (attributes[i].equals(name)) {
+          return attributes[i + 1];
+        }
+      }
+      return "";
+    }
+  }
+
+  /**
+   * This map is used to unmarshall references to objects to the XML DOM. A key in this map is a
+   * String representing a marshalled reference. A value in this map is an unmarshalled Object.
+   */
+  private HashMap<String, Object> idobjects = new HashMap<String, Object>();
+  /** The document node. Its only child is the root element. */
+  private Element document;
+  /** The current element used for input. */
+  private Element current;
+  /** The factory used to create objects from XML tag names. */
+  private DOMFactory factory;
+  /** Shares equal tag names and attribute names while the document is read. */
+  private HashMap<String, String> names;
+
+  public StaxDOMInput(DOMFactory factory, InputStream in) throws IOException {
+    this.factory = factory;
+    try {
+      read(createInputFactory().createXMLStreamReader(in));
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex.getMessage(), ex);
+    }
+  }
+
+  public StaxDOMInput(DOMFactory factory, Reader in) throws IOException {
+    this.factory = factory;
+    try {
+      read(createInputFactory().createXMLStreamReader(in));
+    } catch (XMLStreamException ex) {
+      throw new IOException(ex.getMessage(), ex);
+    }
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return inputFactory;
+  }
+
+  /** Reads the document into the element tree. */
+  private void read(XMLStreamReader reader) throws XMLStreamException {
+    names = new HashMap<String, String>();
+    document = new Element(null, null);
+    Element parent = document;
+    StringBuilder text = new StringBuilder();
+    try {
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            parent.hasContent = true;
+            Element elem = new Element(parent, toName(reader.getPrefix(), reader.getLocalName()));
+            int count = reader.getAttributeCount();
+            if (count > 0) {
+              elem.attributes = new String[count * 2];
+              for (int i = 0; i < count; i++) {
+                elem.attributes[i * 2] =
+                    toName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+                elem.attributes[i * 2 + 1] = reader.getAttributeValue(i);
+              }
+            }
+            if (parent.children == null) {
+              parent.children = new ArrayList<Element>();
+            }
+            parent.children.add(elem);
+            setText(parent, text);
+            parent = elem;
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            setText(parent, text);
+            if (parent.children != null) {
+              parent.children.trimToSize();
+            }
+            parent = parent.parent;
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+          case XMLStreamConstants.SPACE:
+            if (parent != document) {
+              parent.hasContent = true;
+              text.append(
+                  reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+            break;
+          case XMLStreamConstants.COMMENT:
+            parent.hasContent = true;
+            break;
+          default:
+            break;
+        }
+      }
+    } finally {
+      reader.close();
+      names = null;
+    }
+    current = document;
+  }
+
+  /** Appends the collected text to the text of the element. */
+  private static void setText(Element elem, StringBuilder text) {
+    if (text.length() > 0) {
+      elem.text = elem.text == null ? text.toString() : elem.text + text;
+      text.setLength(0);
+    }
+  }
+
+  /** Returns a shared instance of the qualified name. */
+  private String toName(String prefix, String localName) {
+    String name = (prefix == null || prefix.isEmpty()) ? localName : prefix + ':' + localName;
+    String shared = names.putIfAbsent(name, name);
+    return shared == null ? name : shared;
+  }
+
+  /** Returns the tag name of the current element. */
+  @Override
+  public String getTagName() {
+    return current.tagName;
+  }
+
+  /** Gets an attribute of the current element of the DOM Document. */
+  @Override
+  public String getAttribute(String name, String defaultValue) {
+    String value = current.getAttribute(name);
+    return (value.length() == 0) ? defaultValue : value;
+  }
+
+  /** Gets the text of the current element of the DOM Document. */
+  @Override
+  public String getText() {
+    return getText(null);
+  }
+
+  /**
+   * Gets the text of the current element of the DOM Document. The text of the element is followed
+   * by the text of its child elements.
+   */
+  @Override
+  public String getText(String defaultValue) {
+    if (!current.hasContent) {
+      return defaultValue;
+    }
+    if (current.children == null) {
+      return current.text == null ? "" : current.text;
+    }
+    StringBuilder buf = new StringBuilder();
+    getText(current, buf);
+    return buf.toString();
+  }
+
+  private static void getText(Element elem, StringBuilder buf) {
+    if (elem.text != null) {
+      buf.append(elem.text);
+    }
+    for (int i = 0, n = elem.getChildCount(); i < n; i++) {
+      getText(elem.children.get(i), buf);
+    }
+  }
+
+  /**
+   * Gets an attribute of the current element of the DOM Document and of all parent DOM elements.
+   */
+  @Override
+  public java.util.List<String> getInheritedAttribute(String name) {
+    LinkedList<String> values = new LinkedList<String>();
+    for (Element elem = current; elem != document; elem = elem.parent) {
+      values.addFirst(elem.getAttribute(name));
+    }
+    return values;
+  }
+
+  /** Gets an attribute of the current element of the DOM Document. */
+  @Override
+  public int getAttribute(String name, int defaultValue) {
+    String value = current.getAttribute(name);
+    return (value.length() == 0) ? defaultValue : Long.decode(value).intValue();
+  }
+
+  /** Gets an attribute of the current element of the DOM Document. */
+  @Override
+  public double getAttribute(String name, double defaultValue) {
+    String value = current.getAttribute(name);
+    return (value.length() == 0) ? defaultValue : Double.parseDouble(value);
+  }
+
+  /** Gets an attribute of the current element of the DOM Document. */
+  @Override
+  public boolean getAttribute(String name, boolean defaultValue) {
+    String value = current.getAttribute(name);
+    return (value.length() == 0) ? defaultValue : Boolean.valueOf(value).booleanValue();
+  }
+
+  /** Returns the number of child elements of the current element. */
+  @Override
+  public int getElementCount() {
+    return current.getChildCount();
+  }
+
+  /** Returns the number of child elements with the specified tag name of the current element. */
+  @Override
+  public int getElementCount(String tagName) {
+    return current.getChildren(tagName).size();
+  }
+
+  /** Opens the element with the specified index and makes it the current node. */
+  @Override
+  public void openElement(int index) {
+    if (index < 0 || index >= current.getChildCount()) {
+      throw new IllegalArgumentException("no such child [" + index + "]");
+    }
+    current = current.children.get(index);
+  }
+
+  /** Opens the first element with the specified name and makes it the current node. */
+  @Override
+  public void openElement(String tagName) {
+    java.util.List<Element> list = current.getChildren(tagName);
+    if (list.isEmpty()) {
+      throw new IllegalArgumentException("element not found:" + tagName);
+    }
+    current = list.get(0);
+  }
+
+  /** Opens the element with the specified name and index and makes it the current node. */
+  @Override
+  public void openElement(String tagName, int index) {
+    java.util.List<Element> list = current.getChildren(tagName);
+    if (index < 0 || index >= list.size()) {
+      throw new IllegalArgumentException("no such child " + tagName + "[" + index + "]");
+    }
+    current = list.get(index);
+  }
+
+  /**
+   * Closes the current element of the DOM Document. The parent of the current element becomes the
+   * current element.
+   */
+  @Override
+  public void closeElement() {
+    current = current.parent;
+  }
+
+  /** Reads an object from the current element. */
+  @Override
+  public Object readObject() throws IOException {
+    return readObject(0);
+  }
+
+  /** Reads an object from the current element. */
+  @Override
+  public Object readObject(int index) throws IOException {
+    openElement(index);
+    Object o;
+    String ref = getAttribute("ref", null);
+    String id = getAttribute("id", null);
+    if (ref != null && id != null) {
+      throw new IOException(
+          "Element has both an id and a ref attribute: <"
+              + getTagName()
+              + " id="
+              + id
+              + " ref="
+              + ref
+              + ">");
+    }
+    if (id != null && idobjects.containsKey(id)) {
+      throw new IOException("Duplicate id attribute: <" + getTagName() + " id=" + id + ">");
+    }
+    if (ref != null && !idobjects.containsKey(ref)) {
+      throw new IOException("Illegal ref attribute value: <" + getTagName() + " ref=" + ref + ">");
+    }
+    // Keep track of objects which have an ID
+    if (ref != null) {
+      o = idobjects.get(ref);
+    } else {
+      o = factory.read(this);
+      if (id != null) {
+        idobjects.put(id, o);
+      }
+    }
+    closeElement();
+    return o;
+  }
+}
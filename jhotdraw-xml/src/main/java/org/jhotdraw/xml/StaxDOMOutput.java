@@ -0,0 +1,407 @@
+/*
+ * @(#)StaxDOMOutput.java
+ *
+ * Copyright (c) 1996-2010 The authors and contributors of JHotDraw.
+ * You may not use, copy or modify this file, except in compliance with the
+ * accompanying license terms.
+ */
+package org.jhotdraw.xml;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * StaxDOMOutput implements {@link DOMOutput} by writing the elements directly to an output stream
+ * with a StAX writer, without building a document object model.
+ *
+ * <p>The open elements are buffered as a small tree, and each element is written when it is closed.
+ * Therefore attributes can be added to an element after its children, as with {@link
+ * JavaxDOMOutput}. To bound the memory, an element with a large content is written early, when the
+ * content of its buffered ancestors exceeds a limit. After that, no more attributes can be added to
+ * it. The document is completed with {@link #finish}.
+ *
+ * <p>The methods of {@code DOMOutput} which do not declare an {@code IOException} throw an {@link
+ * UncheckedIOException} when writing fails.
+ *
+ * <p>This class is API compatible with {@link JavaxDOMOutput}, except that the output stream is
+ * passed to the constructor instead of to a {@code save} method.
+ *
+ * @author Werner Randelshofer
+ * @version $Id$
+ */
+public class StaxDOMOutput implements DOMOutput {
+
+  /** The doctype of the XML document. */
+  private String doctype;
+  /**
+   * This map is used to marshall references to objects to the XML DOM. A key in this map is a Java
+   * Object, a value in this map is String representing a marshalled reference to that object.
+   */
+  private HashMap<Object, String> objectids = new HashMap<Object, String>();
+  /** This map is used to cache prototype objects. */
+  private HashMap<String, Object> prototypes;
+  /** The factory used to create objects. */
+  private DOMFactory factory;
+  /** The writer used for output. */
+  private XMLStreamWriter writer;
+  /**
+   * The maximal number of elements, texts and comments which are buffered, before the buffered
+   * ancestors of the innermost open element are written.
+   */
+  private static final int BUFFER_LIMIT = 4096;
+  /** The open elements, from the outermost to the innermost element. */
+  private ArrayList<BufferedElement> openElements = new ArrayList<BufferedElement>();
+  /** The index of the outermost open element whose start tag has not been written yet. */
+  private int firstBuffered;
+  /** The number of elements, texts and comments which are buffered. */
+  private int bufferedCount;
+  /** Whether the start of the document has been written. */
+  private boolean isStarted;
+
+  /** Creates a new instance which writes to the specified output stream with UTF-8 encoding. */
+  public StaxDOMOutput(DOMFactory factory, OutputStream out) throws IOException {
+    this(factory, new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+  }
+
+  /** Creates a new instance which writes to the specified writer. */
+  public StaxDOMOutput(DOMFactory factory, Writer out) throws IOException {
+    this.factory = factory;
+    try {
+      writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+    } catch (XMLStreamException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Closes all open elements, completes the document and flushes the output. The output stream is
+   * not closed.
+   */
+  public void finish() throws IOException {
+    try {
+      while (!openElements.isEmpty()) {
+        closeElement();
+      }
+      if (isStarted) {
+        writer.writeEndDocument();
+      }
+      writer.flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } catch (XMLStreamException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Puts a new element into the DOM Document. The new element is added as a child to the current
+   * element in the DOM document. Then it becomes the current element. The element must be closed
+   * using closeElement.
+   */
+  @Override
+  public void openElement(String tagName) {
+    if (!isStarted) {
+      try {
+        writer.writeStartDocument("UTF-8", "1.0");
+        if (doctype != null) {
+          writer.writeDTD("<!DOCTYPE " + doctype + ">");
+        }
+      } catch (XMLStreamException e) {
+        throw toUncheckedException(e);
+      }
+      isStarted = true;
+    }
+    BufferedElement elem = new BufferedElement(tagName);
+    if (firstBuffered < openElements.size()) {
+      openElements.get(openElements.size() - 1).content.add(elem);
+    }
+    openElements.add(elem);
+    addBuffered();
+  }
+
+  /**
+   * Closes the current element of the DOM Document. The parent of the current element becomes the
+   * current element.
+   */
+  @Override
+  public void closeElement() {
+    int index = openElements.size() - 1;
+    BufferedElement elem = openElements.remove(index);
+    try {
+      if (index < firstBuffered) {
+        writer.writeEndElement();
+        firstBuffered = index;
+      } else if (index == firstBuffered) {
+        // The element is not part of a buffered parent
+        writeElement(elem);
+        bufferedCount = 0;
+      }
+    } catch (XMLStreamException e) {
+      throw toUncheckedException(e);
+    }
+  }
+
+  /**
+   * Counts a buffered element, text or comment. Writes the buffered ancestors of the innermost open
+   * element, if the limit is exceeded.
+   */
+  private void addBuffered() {
+    if (++bufferedCount <= BUFFER_LIMIT) {
+      return;
+    }
+    try {
+      int innermost = openElements.size() - 1;
+      for (; firstBuffered < innermost; firstBuffered++) {
+        BufferedElement elem = openElements.get(firstBuffered);
+        writeStartTag(elem, false);
+        BufferedElement openChild = openElements.get(firstBuffered + 1);
+        for (Object child : elem.content) {
+          if (child != openChild) {
+            writeContent(child);
+          }
+        }
+        elem.content = null;
+      }
+    } catch (XMLStreamException e) {
+      throw toUncheckedException(e);
+    }
+    bufferedCount = 0;
+  }
+
+  /** Writes an element which has been closed, and its content. */
+  private void writeElement(BufferedElement elem) throws XMLStreamException {
+    if (elem.content.isEmpty()) {
+      writeStartTag(elem, true);
+    } else {
+      writeStartTag(elem, false);
+      for (Object child : elem.content) {
+        writeContent(child);
+      }
+      writer.writeEndElement();
+    }
+  }
+
+  /** Writes an element, a text or a comment. */
+  private void writeContent(Object child) throws XMLStreamException {
+    if (child instanceof BufferedElement) {
+      writeElement((BufferedElement) child);
+    } else if (child instanceof BufferedComment) {
+      writer.writeComment(((BufferedComment) child).text);
+    } else {
+      writer.writeCharacters((String) child);
+    }
+  }
+
+  /**
+   * Writes the start tag of an element.
+   *
+   * @param isEmpty whether the element is written as an empty-element tag
+   */
+  private void writeStartTag(BufferedElement elem, boolean isEmpty) throws XMLStreamException {
+    if (isEmpty) {
+      writer.writeEmptyElement(elem.tagName);
+    } else {
+      writer.writeStartElement(elem.tagName);
+    }
+    for (int i = 0, n = elem.attributes.size(); i < n; i += 2) {
+      writer.writeAttribute(elem.attributes.get(i), elem.attributes.get(i + 1));
+    }
+    elem.attributes = null;
+  }
+
+  private static UncheckedIOException toUncheckedException(XMLStreamException e) {
+    return new UncheckedIOException(new IOException(e.getMessage(), e));
+  }
+
+  /** Adds a comment to the current element of the DOM Document. */
+  @Override
+  public void addComment(String comment) {
+    addContent(new BufferedComment(comment));
+  }
+
+  /**
+   * Adds a text to current element of the DOM Document. Note: Multiple consecutives texts will be
+   * merged.
+   */
+  @Override
+  public void addText(String text) {
+    addContent(text);
+  }
+
+  /** Adds a text or a comment to the current element. */
+  private void addContent(Object child) {
+    int innermost = openElements.size() - 1;
+    if (innermost < firstBuffered) {
+      try {
+        writeContent(child);
+      } catch (XMLStreamException e) {
+        throw toUncheckedException(e);
+      }
+    } else {
+      openElements.get(innermost).content.add(child);
+      addBuffered();
+    }
+  }
+
+  /**
+   * Adds an attribute to current element of the DOM Document.
+   *
+   * @exception IllegalStateException if the start tag of the current element has already been
+   *     written, because its content exceeded the buffer limit.
+   */
+  @Override
+  public void addAttribute(String name, String value) {
+    if (value != null) {
+      int innermost = openElements.size() - 1;
+      if (innermost < firstBuffered) {
+        throw new IllegalStateException(
+            "Attribute " + name + " added after the start tag of the current element was written");
+      }
+      ArrayList<String> attributes = openElements.get(innermost).attributes;
+      for (int i = 0, n = attributes.size(); i < n; i += 2) {
+        if (attributes.get(i).equals(name)) {
+          attributes.set(i + 1, value);
+          return;
+        }
+      }
+      attributes.add(name);
+      attributes.add(value);
+    }
+  }
+
+  /** Adds an attribute to current element of the DOM Document. */
+  @Override
+  public void addAttribute(String name, int value) {
+    addAttribute(name, Integer.toString(value));
+  }
+
+  /** Adds an attribute to current element of the DOM Document. */
+  @Override
+  public void addAttribute(String name, boolean value) {
+    addAttribute(name, Boolean.toString(value));
+  }
+
+  /** Adds an attribute to current element of the DOM Document. */
+  @Override
+  public void addAttribute(String name, float value) {
+    // Remove the awkard .0 at the end of each number
+    String str = Float.toString(value);
+    if (str.endsWith(".0")) {
+      str = str.substring(0, str.length() - 2);
+    }
+    addAttribute(name, str);
+  }
+
+  /** Adds an attribute to current element of the DOM Document. */
+  @Override
+  public void addAttribute(String name, double value) {
+    // Remove the awkard .0 at the end of each number
+    String str = Double.toString(value);
+    if (str.endsWith(".0")) {
+      str = str.substring(0, str.length() - 2);
+    }
+    addAttribute(name, str);
+  }
+
+  @Override
+  public void writeObject(Object o) throws IOException {
+    String tagName = factory.getName(o);
+    if (tagName == null) {
+      throw new IllegalArgumentException("no tag name for:" + o);
+    }
+    openElement(tagName);
+    if (objectids.containsKey(o)) {
+      addAttribute("ref", objectids.get(o));
+    } else {
+      String id = Integer.toString(objectids.size(), 16);
+      objectids.put(o, id);
+      addAttribute("id", id);
+      factory.write(this, o);
+    }
+    closeElement();
+  }
+
+  @Override
+  public void addAttribute(String name, float value, float defaultValue) {
+    if (value != defaultValue) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public void addAttribute(String name, int value, int defaultValue) {
+    if (value != defaultValue) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public void addAttribute(String name, double value, double defaultValue) {
+    if (value != defaultValue) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public void addAttribute(String name, boolean value, boolean defaultValue) {
+    if (value != defaultValue) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public void addAttribute(String name, String value, String defaultValue) {
+    if (!value.equals(defaultValue)) {
+      addAttribute(name, value);
+    }
+  }
+
+  @Override
+  public Object getPrototype() {
+    if (prototypes == null) {
+      prototypes = new HashMap<String, Object>();
+    }
+    String tagName = openElements.get(openElements.size() - 1).tagName;
+    if (!prototypes.containsKey(tagName)) {
+      prototypes.put(tagName, factory.createPrototype(tagName));
+    }
+    return prototypes.get(tagName);
+  }
+
+  /** Sets the doctype for the XML document. This must be called before the first element. */
+  @Override
+  public void setDoctype(String doctype) {
+    this.doctype = doctype;
+  }
+
+  /**
+   * An open element, or a closed element with a buffered ancestor. The content holds the child
+   * elements, the texts as strings and the comments, while the start tag has not been written.
+   */
+  private static class BufferedElement {
+
+    final String tagName;
+    /** Holds the name and the value of each attribute at index 2*i. */
+    ArrayList<String> attributes = new ArrayList<String>();
+
+    ArrayList<Object> content = new ArrayList<Object>();
+
+    BufferedElement(String tagName) {
+      this.tagName = tagName;
+    }
+  }
+
+  /** A buffered comment. */
+  private static class BufferedComment {
+
+    final String text;
+
+    BufferedComment(String text) {
+      this.text = text;
+    }
+  }
+}
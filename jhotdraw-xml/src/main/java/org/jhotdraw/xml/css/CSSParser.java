@@ -65,131 +65,245 @@ import java.util.*;
  */
 public class CSSParser {
 
+  /** Holds the characters of the style sheet. */
+  private char[] buf;
+  /** The position of the next character. */
+  private int pos;
+  /** The number of characters. */
+  private int end;
+  /** Collects the characters of a selector or a declaration. */
+  private final StringBuilder text = new StringBuilder();
+
   public void parse(String css, StyleManager rm) throws IOException {
-    parse(new StringReader(css), rm);
+    parse(css.toCharArray(), css.length(), rm);
   }
 
   public void parse(Reader css, StyleManager rm) throws IOException {
-    StreamTokenizer tt = new StreamTokenizer(css);
-    tt.resetSyntax();
-    tt.wordChars('a', 'z');
-    tt.wordChars('A', 'Z');
-    tt.wordChars('0', '9');
-    tt.wordChars(128 + 32, 255);
-    tt.whitespaceChars(0, ' ');
-    tt.commentChar('/');
-    tt.slashStarComments(true);
-    parseStylesheet(tt, rm);
+    char[] chars = new char[4096];
+    int length = 0;
+    for (int count; (count = css.read(chars, length, chars.length - length)) != -1; ) {
+      length += count;
+      if (length == chars.length) {
+        chars = Arrays.copyOf(chars, chars.length * 2);
+      }
+    }
+    parse(chars, length, rm);
   }
 
-  private void parseStylesheet(StreamTokenizer tt, StyleManager rm) throws IOException {
-    while (tt.nextToken() != StreamTokenizer.TT_EOF) {
-      tt.pushBack();
-      parseRuleset(tt, rm);
+  private void parse(char[] chars, int length, StyleManager rm) throws IOException {
+    buf = chars;
+    pos = 0;
+    end = length;
+    try {
+      parseStylesheet(rm);
+    } finally {
+      buf = null;
+    }
+  }
+
+  private void parseStylesheet(StyleManager rm) throws IOException {
+    for (skipWhitespaceAndComments(); pos < end; skipWhitespaceAndComments()) {
+      if (startsWith("<!--")) {
+        pos += 4;
+      } else if (startsWith("-->")) {
+        pos += 3;
+      } else if (buf[pos] == '@') {
+        skipAtRule();
+      } else {
+        parseRuleset(rm);
+      }
     }
   }
 
-  private void parseRuleset(StreamTokenizer tt, StyleManager rm) throws IOException {
+  private void parseRuleset(StyleManager rm) throws IOException {
     // parse selector list
-    List<String> selectors = parseSelectorList(tt);
-    if (tt.nextToken() != '{') {
+    List<String> selectors = parseSelectorList();
+    if (pos == end || buf[pos] != '{') {
       throw new IOException("Ruleset '{' missing for " + selectors);
     }
-    Map<String, String> declarations = parseDeclarationMap(tt);
-    if (tt.nextToken() != '}') {
+    pos++;
+    Map<String, String> declarations = parseDeclarationMap();
+    if (pos == end || buf[pos] != '}') {
       throw new IOException("Ruleset '}' missing for " + selectors);
     }
+    pos++;
     for (String selector : selectors) {
       rm.add(new CSSRule(selector, declarations));
-      // System.out.println("CSSParser.add("+selector+","+declarations);
-      /*
-      for (Map.Entry<String,String> entry : declarations.entrySet()) {
-             rm.add(new CSSRule(selector, entry.getKey(), entry.getValue()));
-      }*/
     }
   }
 
-  private List<String> parseSelectorList(StreamTokenizer tt) throws IOException {
-    LinkedList<String> list = new LinkedList<String>();
-    StringBuilder selector = new StringBuilder();
-    boolean needsWhitespace = false;
-    while (tt.nextToken() != StreamTokenizer.TT_EOF && tt.ttype != '{') {
-      switch (tt.ttype) {
-        case StreamTokenizer.TT_WORD:
-          if (needsWhitespace) {
-            selector.append(' ');
-          }
-          selector.append(tt.sval);
-          needsWhitespace = true;
-          break;
-        case ',':
-          list.add(selector.toString());
-          selector.setLength(0);
-          needsWhitespace = false;
-          break;
-        default:
-          if (needsWhitespace) {
-            selector.append(' ');
-          }
-          selector.append((char) tt.ttype);
-          needsWhitespace = false;
-          break;
+  /**
+   * Parses a comma separated selector list up to the opening brace of the declaration block. White
+   * space within a selector is collapsed into a single space, so that descendant combinators are
+   * preserved.
+   */
+  private List<String> parseSelectorList() {
+    ArrayList<String> list = new ArrayList<String>(1);
+    text.setLength(0);
+    while (pos < end && buf[pos] != '{') {
+      char c = buf[pos];
+      if (c == ',') {
+        addSelector(list);
+        pos++;
+      } else if (isWhitespace(c) || isCommentStart()) {
+        skipWhitespaceAndComments();
+        if (text.length() != 0) {
+          text.append(' ');
+        }
+      } else {
+        text.append(c);
+        pos++;
       }
     }
-    if (selector.length() != 0) {
-      list.add(selector.toString());
-    }
-    tt.pushBack();
-    // System.out.println("selectors:"+list);
+    addSelector(list);
     return list;
   }
 
-  private Map<String, String> parseDeclarationMap(StreamTokenizer tt) throws IOException {
+  private void addSelector(List<String> list) {
+    int length = text.length();
+    if (length != 0 && text.charAt(length - 1) == ' ') {
+      length--;
+    }
+    if (length != 0) {
+      list.add(text.substring(0, length));
+    }
+    text.setLength(0);
+  }
+
+  /** Parses the declarations of a ruleset up to the closing brace. */
+  private Map<String, String> parseDeclarationMap() throws IOException {
     HashMap<String, String> map = new HashMap<String, String>();
-    do {
+    while (true) {
       // Parse key
-      StringBuilder key = new StringBuilder();
-      while (tt.nextToken() != StreamTokenizer.TT_EOF
-          && tt.ttype != '}'
-          && tt.ttype != ':'
-          && tt.ttype != ';') {
-        switch (tt.ttype) {
-          case StreamTokenizer.TT_WORD:
-            key.append(tt.sval);
-            break;
-          default:
-            key.append((char) tt.ttype);
-            break;
+      skipWhitespaceAndComments();
+      text.setLength(0);
+      while (pos < end && buf[pos] != '}' && buf[pos] != ':' && buf[pos] != ';') {
+        if (isWhitespace(buf[pos]) || isCommentStart()) {
+          skipWhitespaceAndComments();
+        } else {
+          text.append(buf[pos++]);
         }
       }
-      if (tt.ttype == '}' && key.length() == 0) {
-        break;
+      if (pos == end || buf[pos] == '}') {
+        if (text.length() == 0) {
+          break;
+        }
+        throw new IOException("Declaration ':' missing for " + text);
       }
-      if (tt.ttype != ':') {
-        throw new IOException("Declaration ':' missing for " + key);
+      if (buf[pos] == ';') {
+        if (text.length() == 0) {
+          // Empty declaration
+          pos++;
+          continue;
+        }
+        throw new IOException("Declaration ':' missing for " + text);
       }
+      pos++;
+      String key = text.toString();
       // Parse value
-      StringBuilder value = new StringBuilder();
-      boolean needsWhitespace = false;
-      while (tt.nextToken() != StreamTokenizer.TT_EOF && tt.ttype != ';' && tt.ttype != '}') {
-        switch (tt.ttype) {
-          case StreamTokenizer.TT_WORD:
-            if (needsWhitespace) {
-              value.append(' ');
-            }
-            value.append(tt.sval);
-            needsWhitespace = true;
-            break;
-          default:
-            value.append((char) tt.ttype);
-            needsWhitespace = false;
-            break;
-        }
+      map.put(key, parseValue());
+      if (pos == end || buf[pos] == '}') {
+        break;
       }
-      map.put(key.toString(), value.toString());
-      // System.out.println("  declaration: "+key+":"+value);
-    } while (tt.ttype != '}' && tt.ttype != StreamTokenizer.TT_EOF);
-    tt.pushBack();
+      // Skip ';'
+      pos++;
+    }
     return map;
   }
+
+  /**
+   * Parses a declaration value up to the next semicolon or closing brace, which is not inside a
+   * string or parentheses. White space is collapsed into a single space.
+   */
+  private String parseValue() {
+    skipWhitespaceAndComments();
+    text.setLength(0);
+    int depth = 0;
+    while (pos < end) {
+      char c = buf[pos];
+      if (depth == 0 && (c == ';' || c == '}')) {
+        break;
+      } else if (c == '"' || c == '\'') {
+        int start = pos++;
+        while (pos < end && buf[pos] != c) {
+          if (buf[pos] == '\\' && pos + 1 < end) {
+            pos++;
+          }
+          pos++;
+        }
+        pos = Math.min(pos + 1, end);
+        text.append(buf, start, pos - start);
+      } else if (isWhitespace(c) || isCommentStart()) {
+        skipWhitespaceAndComments();
+        text.append(' ');
+      } else {
+        if (c == '(') {
+          depth++;
+        } else if (c == ')' && depth > 0) {
+          depth--;
+        }
+        text.append(c);
+        pos++;
+      }
+    }
+    int length = text.length();
+    if (length != 0 && text.charAt(length - 1) == ' ') {
+      length--;
+    }
+    return text.substring(0, length);
+  }
+
+  /** Skips an at-rule, such as an import or a media rule. */
+  private void skipAtRule() {
+    int depth = 0;
+    while (pos < end) {
+      char c = buf[pos++];
+      if (c == ';' && depth == 0) {
+        return;
+      } else if (c == '{') {
+        depth++;
+      } else if (c == '}') {
+        depth--;
+        if (depth <= 0) {
+          return;
+        }
+      }
+    }
+  }
+
+  private void skipWhitespaceAndComments() {
+    while (pos < end) {
+      if (isWhitespace(buf[pos])) {
+        pos++;
+      } else if (isCommentStart()) {
+        pos += 2;
+        while (pos < end && !(buf[pos] == '*' && pos + 1 < end && buf[pos + 1] == '/')) {
+          pos++;
+        }
+        pos = Math.min(pos + 2, end);
+      } else {
+        break;
+      }
+    }
+  }
+
+  private boolean isCommentStart() {
+    return buf[pos] == '/' && pos + 1 < end && buf[pos + 1] == '*';
+  }
+
+  private boolean startsWith(String str) {
+    if (end - pos < str.length()) {
+      return false;
+    }
+    for (int i = 0; i < str.length(); i++) {
+      if (buf[pos + i] != str.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c <= ' ';
+  }
 }
@@ -25,23 +25,34 @@ import org.w3c.dom.Element;
  *   <li><code>#name</code> matches the value of the attribute "id".
  * </ul>
  *
- * This class supports net.n3.nanoxml as well as org.w3c.dom.
+ * These selectors can be combined into a compound selector, such as <code>rect.st0.st1</code>.
+ * Selectors with combinators, attribute selectors and pseudo-classes are not supported, they do not
+ * match any element.
+ *
+ * <p>The selector is compiled when it is set, so that matching an element does not need to parse
+ * the selector.
+ *
+ * <p>This class supports net.n3.nanoxml as well as org.w3c.dom.
  *
  * @author Werner Randelshofer
  * @version $Id$
  */
 public class CSSRule {
 
-  private String selector;
+  private static final String[] NO_CLASSES = new String[0];
 
-  private static enum SelectorType {
-    ALL,
-    ELEMENT_NAME,
-    CLASS_ATTRIBUTE,
-    ID_ATTRIBUTE
-  }
+  private String selector;
+  /** Whether the selector is supported. Unsupported selectors do not match any element. */
+  private boolean isSupported;
+  /** The element name of the selector, or null if the selector matches any element name. */
+  private String elementName;
+  /** The id of the selector, or null. */
+  private String id;
+  /** The class names of the selector. */
+  private String[] classes = NO_CLASSES;
+  /** The specificity of the selector. */
+  private int specificity;
 
-  private SelectorType type;
   protected Map<String, String> properties;
 
   public CSSRule(String name, String value) {
@@ -61,51 +72,130 @@ public class CSSRule {
   }
 
   public void setSelector(String selector) {
-    switch (selector.charAt(0)) {
-      case '*':
-        type = SelectorType.ALL;
-        break;
-      case '.':
-        type = SelectorType.CLASS_ATTRIBUTE;
-        break;
-      case '#':
-        type = SelectorType.ID_ATTRIBUTE;
-        break;
-      default:
-        type = SelectorType.ELEMENT_NAME;
-        break;
+    this.selector = selector.trim();
+    isSupported = false;
+    elementName = null;
+    id = null;
+    classes = NO_CLASSES;
+    specificity = 0;
+    String s = this.selector;
+    int length = s.length();
+    if (length == 0) {
+      return;
     }
-    this.selector = (type == SelectorType.ELEMENT_NAME) ? selector : selector.substring(1);
+    ArrayList<String> classList = null;
+    int i = 0;
+    if (s.charAt(0) == '*') {
+      i = 1;
+    } else if (isNameChar(s.charAt(0))) {
+      i = endOfName(s, 0);
+      elementName = s.substring(0, i);
+    }
+    while (i < length) {
+      char c = s.charAt(i);
+      int start = i + 1;
+      int end = endOfName(s, start);
+      if (end == start || (c != '.' && c != '#')) {
+        // Combinators, attribute selectors and pseudo-classes are not supported
+        return;
+      }
+      String name = s.substring(start, end);
+      if (c == '#') {
+        if (id != null && !id.equals(name)) {
+          return;
+        }
+        id = name;
+      } else {
+        if (classList == null) {
+          classList = new ArrayList<String>();
+        }
+        classList.add(name);
+      }
+      i = end;
+    }
+    if (classList != null) {
+      classes = classList.toArray(new String[classList.size()]);
+    }
+    // Specificity as specified in CSS 2.1 section 6.4.3
+    specificity =
+        (id != null ? 1 << 16 : 0) + (classes.length << 8) + (elementName != null ? 1 : 0);
+    isSupported = true;
+  }
+
+  private static boolean isNameChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c > 127;
+  }
+
+  private static int endOfName(String s, int start) {
+    int i = start;
+    while (i < s.length() && isNameChar(s.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  /** Returns the specificity of the selector. Rules with a higher specificity take precedence. */
+  public int getSpecificity() {
+    return specificity;
+  }
+
+  /** Returns false if the selector is not supported, and thus does not match any element. */
+  boolean isSupported() {
+    return isSupported;
+  }
+
+  /** Returns the element name of the selector, or null. */
+  String getElementName() {
+    return elementName;
+  }
+
+  /** Returns the id of the selector, or null. */
+  String getId() {
+    return id;
+  }
+
+  /** Returns the class names of the selector. */
+  String[] getClasses() {
+    return classes;
   }
 
   public boolean matches(Element elem) {
-    boolean isMatch = false;
-    switch (type) {
-      case ALL:
-        isMatch = true;
-        break;
-      case ELEMENT_NAME:
-        String name = elem.getLocalName();
-        isMatch = name.equals(selector);
-        break;
-      case CLASS_ATTRIBUTE:
-        String value = elem.getAttribute("class");
-        if (value != null) {
-          String[] clazzes = value.split(" ");
-          for (String clazz : clazzes) {
-            if (clazz.equals(selector)) {
-              isMatch = true;
-              break;
-            }
-          }
+    if (!isSupported) {
+      return false;
+    }
+    if (elementName != null) {
+      String name = elem.getLocalName() == null ? elem.getTagName() : elem.getLocalName();
+      if (!elementName.equals(name)) {
+        return false;
+      }
+    }
+    if (id != null && !id.equals(elem.getAttribute("id"))) {
+      return false;
+    }
+    if (classes.length != 0) {
+      String value = elem.getAttribute("class");
+      for (String clazz : classes) {
+        if (!containsClass(value, clazz)) {
+          return false;
         }
-        break;
-      case ID_ATTRIBUTE:
-        name = elem.getAttribute("id");
-        isMatch = name != null && name.equals(selector);
-        break;
+      }
+    }
+    return true;
+  }
+
+  /** Returns true if a white space separated list of class names contains the class name. */
+  private static boolean containsClass(String value, String clazz) {
+    if (value == null) {
+      return false;
+    }
+    int length = clazz.length();
+    for (int i = value.indexOf(clazz); i != -1; i = value.indexOf(clazz, i + 1)) {
+      if ((i == 0 || Character.isWhitespace(value.charAt(i - 1)))
+          && (i + length == value.length() || Character.isWhitespace(value.charAt(i + length)))) {
+        return true;
+      }
     }
-    return isMatch;
+    return false;
   }
 
   public void apply(Element elem) {
@@ -17,30 +17,128 @@ import org.w3c.dom.Element;
  * StyleManager applies styling Rules to an XML DOM. This class supports net.n3.nanoxml as well as
  * org.w3c.dom.
  *
+ * <p>The rules are indexed by the id, the first class name or the element name of their selector,
+ * when they are added. An element is only matched against the rules of the buckets for its id, its
+ * class names and its name, and against the rules with a universal selector.
+ *
+ * <p>When several rules match an element, the rule with the higher specificity takes precedence. Of
+ * rules with the same specificity, the rule which has been added last takes precedence. Attributes
+ * which are already present on an element are not changed.
+ *
  * @author Werner Randelshofer
  * @version $Id$
  */
 public class StyleManager {
 
-  private java.util.List<CSSRule> rules;
+  /** Orders rules by descending precedence. */
+  private static final Comparator<IndexedRule> PRECEDENCE =
+      (a, b) ->
+          a.rule.getSpecificity() != b.rule.getSpecificity()
+              ? Integer.compare(b.rule.getSpecificity(), a.rule.getSpecificity())
+              : Integer.compare(b.order, a.order);
+
+  /** A rule and the order in which it has been added. */
+  private static class IndexedRule {
+
+    final CSSRule rule;
+    final int order;
+
+    IndexedRule(CSSRule rule, int order) {
+      this.rule = rule;
+      this.order = order;
+    }
+  }
+
+  private int ruleCount;
+  private HashMap<String, java.util.List<IndexedRule>> idRules;
+  private HashMap<String, java.util.List<IndexedRule>> classRules;
+  private HashMap<String, java.util.List<IndexedRule>> elementRules;
+  private java.util.List<IndexedRule> universalRules;
+  /** Holds the rules which match the element that is currently styled. */
+  private ArrayList<IndexedRule> matches = new ArrayList<IndexedRule>();
 
   public StyleManager() {
-    rules = new ArrayList<CSSRule>();
+    idRules = new HashMap<String, java.util.List<IndexedRule>>();
+    classRules = new HashMap<String, java.util.List<IndexedRule>>();
+    elementRules = new HashMap<String, java.util.List<IndexedRule>>();
+    universalRules = new ArrayList<IndexedRule>();
   }
 
+  /**
+   * Adds a rule. The selector of the rule must not be changed after the rule has been added. Rules
+   * with an unsupported selector are ignored, because they do not match any element.
+   */
   public void add(CSSRule rule) {
-    rules.add(rule);
+    if (!rule.isSupported()) {
+      return;
+    }
+    IndexedRule indexedRule = new IndexedRule(rule, ruleCount++);
+    if (rule.getId() != null) {
+      idRules.computeIfAbsent(rule.getId(), k -> new ArrayList<>()).add(indexedRule);
+    } else if (rule.getClasses().length != 0) {
+      classRules.computeIfAbsent(rule.getClasses()[0], k -> new ArrayList<>()).add(indexedRule);
+    } else if (rule.getElementName() != null) {
+      elementRules.computeIfAbsent(rule.getElementName(), k -> new ArrayList<>()).add(indexedRule);
+    } else {
+      universalRules.add(indexedRule);
+    }
   }
 
   public void applyStylesTo(Element elem) {
-    for (CSSRule rule : rules) {
-      if (rule.matches(elem)) {
-        rule.apply(elem);
+    if (ruleCount == 0) {
+      return;
+    }
+    matches.clear();
+    if (!idRules.isEmpty() && elem.hasAttribute("id")) {
+      addMatches(idRules.get(elem.getAttribute("id")), elem);
+    }
+    if (!classRules.isEmpty() && elem.hasAttribute("class")) {
+      String value = elem.getAttribute("class");
+      int length = value.length();
+      for (int i = 0; i < length; ) {
+        while (i < length && Character.isWhitespace(value.charAt(i))) {
+          i++;
+        }
+        int start = i;
+        while (i < length && !Character.isWhitespace(value.charAt(i))) {
+          i++;
+        }
+        if (i > start) {
+          addMatches(classRules.get(value.substring(start, i)), elem);
+        }
+      }
+    }
+    if (!elementRules.isEmpty()) {
+      String name = elem.getLocalName() == null ? elem.getTagName() : elem.getLocalName();
+      addMatches(elementRules.get(name), elem);
+    }
+    addMatches(universalRules, elem);
+    if (matches.size() > 1) {
+      matches.sort(PRECEDENCE);
+    }
+    // Apply the rule with the highest precedence first, because rules do not
+    // change attributes which are already present
+    for (IndexedRule indexedRule : matches) {
+      indexedRule.rule.apply(elem);
+    }
+    matches.clear();
+  }
+
+  private void addMatches(java.util.List<IndexedRule> candidates, Element elem) {
+    if (candidates != null) {
+      for (IndexedRule candidate : candidates) {
+        if (candidate.rule.matches(elem) && !matches.contains(candidate)) {
+          matches.add(candidate);
+        }
       }
     }
   }
 
   public void clear() {
-    rules.clear();
+    ruleCount = 0;
+    idRules.clear();
+    classRules.clear();
+    elementRules.clear();
+    universalRules.clear();
   }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.xml;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+
+public class StaxDOMOutputTest {
+
+  @Test
+  public void testAttributesAfterChildren() throws IOException {
+    StringWriter out = new StringWriter();
+    StaxDOMOutput domOutput = new StaxDOMOutput(null, out);
+    domOutput.openElement("drawing");
+    domOutput.openElement("rr");
+    domOutput.addAttribute("x", 1);
+    domOutput.openElement("a");
+    domOutput.addText("a < b");
+    domOutput.closeElement();
+    domOutput.addComment("c");
+    domOutput.addAttribute("arcWidth", 12);
+    domOutput.addAttribute("x", 2);
+    domOutput.closeElement();
+    domOutput.openElement("e");
+    domOutput.closeElement();
+    domOutput.finish();
+
+    assertThat(out.toString())
+        .endsWith(
+            "<drawing><rr x=\"2\" arcWidth=\"12\"><a>a &lt; b</a><!--c--></rr><e/></drawing>");
+  }
+
+  @Test
+  public void testLargeElementIsWrittenEarly() throws IOException {
+    StringWriter out = new StringWriter();
+    StaxDOMOutput domOutput = new StaxDOMOutput(null, out);
+    domOutput.openElement("drawing");
+    domOutput.addAttribute("version", 1);
+    for (int i = 0; i < 10000; i++) {
+      domOutput.openElement("r");
+      domOutput.addAttribute("i", i);
+      domOutput.closeElement();
+    }
+    assertThat(out.toString()).contains("<drawing version=\"1\"><r i=\"0\"/>");
+    assertThatThrownBy(() -> domOutput.addAttribute("late", 1))
+        .isInstanceOf(IllegalStateException.class);
+    domOutput.finish();
+
+    assertThat(out.toString()).endsWith("<r i=\"9999\"/></drawing>");
+  }
+}
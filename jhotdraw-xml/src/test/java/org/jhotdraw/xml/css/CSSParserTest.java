@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.xml.css;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.StringReader;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class CSSParserTest {
+
+  private Document doc;
+  private StyleManager styleManager;
+
+  @BeforeEach
+  public void setUp() throws ParserConfigurationException {
+    doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    styleManager = new StyleManager();
+  }
+
+  private Element styled(String name, String id, String clazz) {
+    Element elem = doc.createElement(name);
+    if (id != null) {
+      elem.setAttribute("id", id);
+    }
+    if (clazz != null) {
+      elem.setAttribute("class", clazz);
+    }
+    styleManager.applyStylesTo(elem);
+    return elem;
+  }
+
+  @Test
+  public void testSkipsMediaRules() throws IOException {
+    new CSSParser()
+        .parse(
+            "@import url(other.css);\n"
+                + "@media print { rect { fill: red } .a { stroke: blue; } }\n"
+                + "rect { stroke-width: 2 }",
+            styleManager);
+
+    Element rect = styled("rect", null, "a");
+    assertThat(rect.getAttribute("stroke-width")).isEqualTo("2");
+    assertThat(rect.hasAttribute("fill")).isFalse();
+    assertThat(rect.hasAttribute("stroke")).isFalse();
+  }
+
+  @Test
+  public void testQuotedValues() throws IOException {
+    new CSSParser()
+        .parse(
+            new StringReader(
+                "text { font-family: \"Times; New } Roman\", 'a\\'b'; content: url(a;b) }"),
+            styleManager);
+
+    Element text = styled("text", null, null);
+    assertThat(text.getAttribute("font-family")).isEqualTo("\"Times; New } Roman\", 'a\\'b'");
+    assertThat(text.getAttribute("content")).isEqualTo("url(a;b)");
+  }
+
+  @Test
+  public void testCommentsAndWhitespace() throws IOException {
+    new CSSParser()
+        .parse(
+            "<!-- /* comment */ rect ,\n circle/* c */{ fill :\n #fff /* c */ ;; stroke : none }"
+                + " -->",
+            styleManager);
+
+    assertThat(styled("rect", null, null).getAttribute("fill")).isEqualTo("#fff");
+    assertThat(styled("circle", null, null).getAttribute("stroke")).isEqualTo("none");
+  }
+
+  @Test
+  public void testCompoundSelectors() throws IOException {
+    new CSSParser()
+        .parse(
+            "rect.a.b { fill: red }\n"
+                + "#c.a { stroke: blue }\n"
+                + "g rect { opacity: 0.5 }\n"
+                + "rect:hover { stroke-width: 3 }",
+            styleManager);
+
+    Element ab = styled("rect", "c", "b a");
+    assertThat(ab.getAttribute("fill")).isEqualTo("red");
+    assertThat(ab.getAttribute("stroke")).isEqualTo("blue");
+    Element a = styled("rect", null, "a");
+    assertThat(a.hasAttribute("fill")).isFalse();
+    assertThat(styled("circle", null, "a b").hasAttribute("fill")).isFalse();
+    // Combinators and pseudo-classes are not supported and never match
+    assertThat(a.hasAttribute("opacity")).isFalse();
+    assertThat(a.hasAttribute("stroke-width")).isFalse();
+  }
+
+  @Test
+  public void testMissingBrace() {
+    assertThatThrownBy(() -> new CSSParser().parse("rect { fill: red", styleManager))
+        .isInstanceOf(IOException.class);
+  }
+}
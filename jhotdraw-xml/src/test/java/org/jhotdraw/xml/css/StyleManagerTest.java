@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2023 JHotDraw.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package org.jhotdraw.xml.css;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class StyleManagerTest {
+
+  private Document doc;
+  private StyleManager styleManager;
+
+  @BeforeEach
+  public void setUp() throws ParserConfigurationException {
+    doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    styleManager = new StyleManager();
+  }
+
+  private Element element(String name, String id, String clazz) {
+    Element elem = doc.createElement(name);
+    if (id != null) {
+      elem.setAttribute("id", id);
+    }
+    if (clazz != null) {
+      elem.setAttribute("class", clazz);
+    }
+    return elem;
+  }
+
+  @Test
+  public void testSpecificity() {
+    assertThat(new CSSRule("*", "fill", "red").getSpecificity()).isEqualTo(0);
+    assertThat(new CSSRule("rect", "fill", "red").getSpecificity()).isEqualTo(1);
+    assertThat(new CSSRule(".a", "fill", "red").getSpecificity()).isEqualTo(1 << 8);
+    assertThat(new CSSRule("rect.a.b", "fill", "red").getSpecificity()).isEqualTo((2 << 8) + 1);
+    assertThat(new CSSRule("#c", "fill", "red").getSpecificity()).isEqualTo(1 << 16);
+  }
+
+  @Test
+  public void testHigherSpecificityTakesPrecedence() {
+    // Added in ascending order of precedence, except for the id rule
+    styleManager.add(new CSSRule("#c", "fill", "id"));
+    styleManager.add(new CSSRule("*", "fill", "universal"));
+    styleManager.add(new CSSRule("rect", "fill", "element"));
+    styleManager.add(new CSSRule(".a", "fill", "class"));
+    styleManager.add(new CSSRule("rect.a", "stroke", "element-class"));
+    styleManager.add(new CSSRule(".a", "stroke", "class"));
+
+    Element withId = element("rect", "c", "a");
+    styleManager.applyStylesTo(withId);
+    assertThat(withId.getAttribute("fill")).isEqualTo("id");
+    assertThat(withId.getAttribute("stroke")).isEqualTo("element-class");
+
+    Element withClass = element("rect", null, "a");
+    styleManager.applyStylesTo(withClass);
+    assertThat(withClass.getAttribute("fill")).isEqualTo("class");
+
+    Element plain = element("rect", null, null);
+    styleManager.applyStylesTo(plain);
+    assertThat(plain.getAttribute("fill")).isEqualTo("element");
+
+    Element other = element("circle", null, null);
+    styleManager.applyStylesTo(other);
+    assertThat(other.getAttribute("fill")).isEqualTo("universal");
+  }
+
+  @Test
+  public void testLaterRuleWinsOnEqualSpecificity() {
+    styleManager.add(new CSSRule(".a", "fill", "first"));
+    styleManager.add(new CSSRule(".b", "fill", "second"));
+
+    Element elem = element("rect", null, "b a");
+    styleManager.applyStylesTo(elem);
+    assertThat(elem.getAttribute("fill")).isEqualTo("second");
+  }
+
+  @Test
+  public void testPresentAttributesAreKept() {
+    styleManager.add(new CSSRule("rect", "fill", "red"));
+
+    Element elem = element("rect", null, null);
+    elem.setAttribute("fill", "blue");
+    styleManager.applyStylesTo(elem);
+    assertThat(elem.getAttribute("fill")).isEqualTo("blue");
+  }
+
+  @Test
+  public void testClear() {
+    styleManager.add(new CSSRule("rect", "fill", "red"));
+    styleManager.clear();
+
+    Element elem = element("rect", null, null);
+    styleManager.applyStylesTo(elem);
+    assertThat(elem.hasAttribute("fill")).isFalse();
+  }
+}